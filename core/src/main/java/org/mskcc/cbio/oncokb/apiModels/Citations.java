@@ -13,6 +13,21 @@ public class Citations implements Serializable {
     Set<String> pmids = new HashSet<String>(0);
     Set<ArticleAbstract> abstracts = new HashSet<ArticleAbstract>(0);
 
+    public Citations copy() {
+        Citations newCitations = new Citations();
+        newCitations.setPmids(this.pmids == null ? null : new HashSet<>(this.pmids));
+        if (this.abstracts == null) {
+            newCitations.setAbstracts(null);
+        } else {
+            Set<ArticleAbstract> newAbstracts = new HashSet<>();
+            for (ArticleAbstract articleAbstract : this.abstracts) {
+                newAbstracts.add(articleAbstract == null ? null : articleAbstract.copy());
+            }
+            newCitations.setAbstracts(newAbstracts);
+        }
+        return newCitations;
+    }
+
     public Set<String> getPmids() {
         return pmids;
     }
@@ -10,6 +10,14 @@ public class MutationEffectResp implements Serializable {
     String description = "";
     Citations citations = new Citations();
 
+    public MutationEffectResp copy() {
+        MutationEffectResp newResp = new MutationEffectResp();
+        newResp.setKnownEffect(this.knownEffect);
+        newResp.setDescription(this.description);
+        newResp.setCitations(this.citations == null ? null : this.citations.copy());
+        return newResp;
+    }
+
     public String getKnownEffect() {
         return knownEffect;
     }
@@ -0,0 +1,82 @@
+package org.mskcc.cbio.oncokb.apiModels.annotation;
+
+import java.util.Date;
+
+/**
+ * The status of an asynchronous annotation job. The result of a completed job can be downloaded
+ * from /annotate/jobs/{id}/result.
+ */
+public class AnnotationJob implements java.io.Serializable {
+    private String id;
+    private AnnotationJobStatus status;
+    private Integer numberOfQueries;
+    private Integer numberOfProcessedQueries;
+    private Date submittedAt;
+    private Date startedAt;
+    private Date finishedAt;
+    private String message;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public AnnotationJobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(AnnotationJobStatus status) {
+        this.status = status;
+    }
+
+    public Integer getNumberOfQueries() {
+        return numberOfQueries;
+    }
+
+    public void setNumberOfQueries(Integer numberOfQueries) {
+        this.numberOfQueries = numberOfQueries;
+    }
+
+    public Integer getNumberOfProcessedQueries() {
+        return numberOfProcessedQueries;
+    }
+
+    public void setNumberOfProcessedQueries(Integer numberOfProcessedQueries) {
+        this.numberOfProcessedQueries = numberOfProcessedQueries;
+    }
+
+    public Date getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public void setSubmittedAt(Date submittedAt) {
+        this.submittedAt = submittedAt;
+    }
+
+    public Date getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(Date startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public Date getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(Date finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,9 @@
+package org.mskcc.cbio.oncokb.apiModels.annotation;
+
+public enum AnnotationJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+    CANCELLED
+}
@@ -5,6 +5,7 @@ import org.mskcc.cbio.oncokb.apiModels.TranscriptUpdateValidationVM;
 import org.mskcc.cbio.oncokb.model.Gene;
 import org.mskcc.cbio.oncokb.model.ReferenceGenome;
 import org.mskcc.cbio.oncokb.util.CacheUtils;
+import org.mskcc.cbio.oncokb.util.CircuitBreaker;
 import org.mskcc.cbio.oncokb.util.GeneUtils;
 import org.mskcc.cbio.oncokb.util.PropertiesUtils;
 import org.oncokb.oncokb_transcript.ApiClient;
@@ -22,9 +23,11 @@ import java.util.stream.Collectors;
 public class OncokbTranscriptService {
 
     private static final String ONCOKB_TRANSCRIPT_URL = "https://transcript.oncokb.org";
+    // A request the service rejects is not a failure of the service
+    private static final CircuitBreaker CIRCUIT_BREAKER = CircuitBreaker.fromProperties("oncokb_transcript",
+        e -> !(e instanceof ApiException) || ((ApiException) e).getCode() == 0 || ((ApiException) e).getCode() >= 500);
 
     private ApiClient client;
-    private final int TIMEOUT = 30000;
     private final String SEQUENCE_TYPE = "PROTEIN";
     private Boolean enabled = false;
 
@@ -33,8 +36,9 @@ public class OncokbTranscriptService {
 
     public OncokbTranscriptService() {
         this.client = Configuration.getDefaultApiClient();
-        this.client.setConnectTimeout(TIMEOUT);
-        this.client.setReadTimeout(TIMEOUT);
+        // The client is shared, the calls are not cut to the time left in the request, see CircuitBreaker
+        this.client.setConnectTimeout(CIRCUIT_BREAKER.getCallTimeout());
+        this.client.setReadTimeout(CIRCUIT_BREAKER.getCallTimeout());
         this.client.setBasePath(getOncokbTranscriptUrl());
 
         String oncokbTranscriptToken = PropertiesUtils.getProperties("oncokb_transcript.token");
@@ -115,13 +119,13 @@ public class OncokbTranscriptService {
 
     public String getProteinSequence(ReferenceGenome referenceGenome, Gene gene) throws ApiException {
         SequenceControllerApi sequenceResourceApi = new SequenceControllerApi();
-        Sequence sequence = sequenceResourceApi.findCanonicalSequenceUsingGET(referenceGenome.name(), gene.getEntrezGeneId(), SEQUENCE_TYPE);
+        Sequence sequence = CIRCUIT_BREAKER.execute(() -> sequenceResourceApi.findCanonicalSequenceUsingGET(referenceGenome.name(), gene.getEntrezGeneId(), SEQUENCE_TYPE));
         return sequence == null ? null : sequence.getSequence();
     }
 
     public List<Sequence> getAllProteinSequences(ReferenceGenome referenceGenome) throws ApiException {
         SequenceControllerApi sequenceResourceApi = new SequenceControllerApi();
-        return sequenceResourceApi.findCanonicalSequencesUsingPOST(referenceGenome.name(), SEQUENCE_TYPE, CacheUtils.getAllGenes().stream().map(Gene::getEntrezGeneId).collect(Collectors.toList()));
+        return CIRCUIT_BREAKER.execute(() -> sequenceResourceApi.findCanonicalSequencesUsingPOST(referenceGenome.name(), SEQUENCE_TYPE, CacheUtils.getAllGenes().stream().map(Gene::getEntrezGeneId).collect(Collectors.toList())));
     }
 
     public String getAminoAcid(ReferenceGenome referenceGenome, Gene gene, int positionStart, int length) throws ApiException {
@@ -138,7 +142,7 @@ public class OncokbTranscriptService {
             return new ArrayList<>();
         }
         DrugControllerApi drugControllerApi = new DrugControllerApi();
-        return drugControllerApi.findDrugsUsingGET(query);
+        return CIRCUIT_BREAKER.execute(() -> drugControllerApi.findDrugsUsingGET(query));
     }
 
     public Drug findDrugByNcitCode(String code) throws ApiException {
@@ -146,7 +150,7 @@ public class OncokbTranscriptService {
             return null;
         }
         DrugControllerApi drugControllerApi = new DrugControllerApi();
-        return drugControllerApi.findDrugByCodeUsingGET(code);
+        return CIRCUIT_BREAKER.execute(() -> drugControllerApi.findDrugByCodeUsingGET(code));
     }
 
     public void cacheAllGenes() {
@@ -189,7 +193,7 @@ public class OncokbTranscriptService {
             return new ArrayList<>();
         }
         TranscriptControllerApi transcriptControllerApi = new TranscriptControllerApi();
-        return transcriptControllerApi.findTranscriptsByEnsemblIdsUsingPOST(referenceGenome.name(), ensemblTranscriptIds);
+        return CIRCUIT_BREAKER.execute(() -> transcriptControllerApi.findTranscriptsByEnsemblIdsUsingPOST(referenceGenome.name(), ensemblTranscriptIds));
     }
 
     public List<Gene> findGenesBySymbols(List<String> symbols) throws ApiException {
@@ -0,0 +1,307 @@
+package org.mskcc.cbio.oncokb.cache;
+
+import org.apache.commons.lang3.StringUtils;
+import org.mskcc.cbio.oncokb.bo.TumorTypeBo;
+import org.mskcc.cbio.oncokb.model.*;
+import org.mskcc.cbio.oncokb.util.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mskcc.cbio.oncokb.Constants.DEFAULT_REFERENCE_GENOME;
+
+/**
+ * Precomputed annotations of every curated alteration, plus the gene level Amplification, Deletion and Fusions.
+ * The cube only covers a configured subset of the tumor types: the annotations without tumor type, and the OncoTree
+ * codes of annotation.cube.tumorTypes (comma separated, or "all" for every OncoTree code). By default no OncoTree
+ * code is precomputed, so only the queries without tumor type are answered by the cube. The tumor type independent
+ * part of an alteration is resolved once and the tumor type overlay is applied for each code,
+ * see IndicatorUtils.processQueryCore.
+ * <p>
+ * A query is in the cube when its alteration is written as it was precomputed, its tumor type is an OncoTree code or
+ * the subtype of one (e.g. MEL or Melanoma), and its gene is queried by its entrez gene id or its hugo symbol, not
+ * an alias. The annotations are encoded with the codec of the cache values (see CacheValueCodec) and grouped by
+ * gene, the cube holds at most annotation.cube.maxCells of them. The cube belongs to the data version it was built
+ * with, it is rebuilt in the background and replaces the previous one once it is complete when the data version
+ * changes, the genes are rebuilt when they are updated through GeneObservable. Enable with annotation.cube.enable.
+ */
+@Component
+public class AnnotationCube implements Observer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AnnotationCube.class);
+    private static final String KEY_SEPARATOR = "|";
+    private static final List<String> GENE_LEVEL_ALTERATIONS = Arrays.asList("Amplification", "Deletion", "Fusions");
+    private static final int DEFAULT_MAX_CELLS = 200000;
+    private static final String ALL_TUMOR_TYPES = "all";
+
+    private final ExecutorService builder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "annotation-cube");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Replaced at once by a complete cube when it is rebuilt
+    private volatile Cells cells = new Cells(null);
+    private boolean enabled = false;
+    private int maxCells = DEFAULT_MAX_CELLS;
+    private CacheValueCodec codec;
+    private volatile boolean building = false;
+
+    public AnnotationCube() {
+    }
+
+    AnnotationCube(int maxCells, CacheValueCodec codec) {
+        this.maxCells = maxCells;
+        this.codec = codec;
+    }
+
+    @PostConstruct
+    public void init() {
+        enabled = Boolean.parseBoolean(StringUtils.trimToEmpty(PropertiesUtils.getProperties("annotation.cube.enable")));
+        if (enabled) {
+            maxCells = getIntegerProperty("annotation.cube.maxCells", DEFAULT_MAX_CELLS);
+            codec = CacheValueCodec.getByName(PropertiesUtils.getProperties("redis.codec"));
+            GeneObservable.getInstance().addObserver(this);
+            rebuild();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get the precomputed annotation of a query with only a gene, an alteration and a tumor type.
+     *
+     * @param query the normalized query of the caller
+     * @return a copy of the annotation with the query of the caller, null when the query is not in the cube
+     */
+    public IndicatorQueryResp get(Query query) {
+        if (!enabled || building || StringUtils.isEmpty(query.getAlteration())) {
+            return null;
+        }
+        Cells current = cells;
+        if (!Objects.equals(current.dataVersion, MainUtils.getDataVersion())) {
+            rebuild();
+            return null;
+        }
+        Gene gene = GeneUtils.getGene(query.getEntrezGeneId(), query.getHugoSymbol());
+        String tumorTypeCode = getTumorTypeCode(query.getTumorType());
+        if (gene == null || tumorTypeCode == null) {
+            return null;
+        }
+        return getCell(current.genes.get(gene.getEntrezGeneId()), gene, query, tumorTypeCode);
+    }
+
+    /**
+     * @param tumorTypeCode the tumor type of the query resolved by getTumorTypeCode
+     */
+    IndicatorQueryResp getCell(Map<String, byte[]> geneCells, Gene gene, Query query, String tumorTypeCode) {
+        // The gene summary mentions the queried hugo symbol, the annotations were precomputed with the one of the gene
+        if (geneCells == null || (query.getHugoSymbol() != null && !query.getHugoSymbol().equals(gene.getHugoSymbol()))) {
+            return null;
+        }
+        byte[] cell = geneCells.get(getKey(query.getReferenceGenome(), query.getAlteration(), tumorTypeCode));
+        if (cell == null) {
+            return null;
+        }
+        Object value = codec.decode(cell);
+        if (!(value instanceof IndicatorQueryResp)) {
+            return null;
+        }
+        IndicatorQueryResp resp = (IndicatorQueryResp) value;
+        // The query of the caller, normalized the same way as IndicatorUtils.processQueryCore does
+        Query precomputed = resp.getQuery();
+        Query respQuery = query.copy();
+        respQuery.setReferenceGenome(precomputed.getReferenceGenome());
+        respQuery.setEntrezGeneId(gene.getEntrezGeneId());
+        respQuery.setHugoSymbol(gene.getHugoSymbol());
+        respQuery.setAlteration(precomputed.getAlteration());
+        resp.setQuery(respQuery);
+        return resp;
+    }
+
+    @Override
+    public void update(Observable o, Object arg) {
+        Map<String, String> operation = (Map<String, String>) arg;
+        if ("update".equals(operation.get("cmd"))) {
+            Integer entrezGeneId = Integer.parseInt(operation.get("val"));
+            cells.removeGene(entrezGeneId);
+            // Run after a rebuild in progress, on the cube it built
+            builder.submit(() -> {
+                Gene gene = GeneUtils.getGeneByEntrezId(entrezGeneId);
+                if (gene != null) {
+                    Cells current = cells;
+                    current.removeGene(entrezGeneId);
+                    current.genes.put(entrezGeneId, buildGene(current, gene, getConfiguredTumorTypeCodes()));
+                }
+            });
+        } else if ("reset".equals(operation.get("cmd"))) {
+            rebuild();
+        }
+    }
+
+    private synchronized void rebuild() {
+        if (building) {
+            return;
+        }
+        building = true;
+        builder.submit(() -> {
+            try {
+                long start = MainUtils.getCurrentTimestamp();
+                Cells built = new Cells(MainUtils.getDataVersion());
+                List<String> tumorTypeCodes = getConfiguredTumorTypeCodes();
+                for (Gene gene : CacheUtils.getAllGenes()) {
+                    built.genes.put(gene.getEntrezGeneId(), buildGene(built, gene, tumorTypeCodes));
+                }
+                if (isFull(built)) {
+                    LOGGER.warn("The annotation cube is full, the annotations past {} are not precomputed", maxCells);
+                }
+                cells = built;
+                LOGGER.info("Built the annotation cube of data version {} with {} annotations of {} OncoTree codes besides no tumor type in {}",
+                    built.dataVersion, built.size.get(), tumorTypeCodes.size() - 1, MainUtils.getTimestampDiff(start));
+            } catch (Exception e) {
+                LOGGER.error("Failed to build the annotation cube", e);
+            } finally {
+                building = false;
+            }
+        });
+    }
+
+    Map<String, byte[]> buildGene(Cells target, Gene gene, List<String> tumorTypeCodes) {
+        Map<String, byte[]> geneCells = new ConcurrentHashMap<>();
+        for (ReferenceGenome referenceGenome : ReferenceGenome.values()) {
+            Set<String> alterations = new LinkedHashSet<>();
+            for (Alteration alteration : AlterationUtils.getAllAlterations(referenceGenome, gene)) {
+                alterations.add(alteration.getAlteration());
+            }
+            alterations.addAll(GENE_LEVEL_ALTERATIONS);
+
+            for (String alteration : alterations) {
+                Query query = new Query(null, referenceGenome, gene.getEntrezGeneId(), gene.getHugoSymbol(), alteration, null, null, null, null, null, null, null);
+                IndicatorQueryCore queryCore = IndicatorUtils.processQueryCore(query, IndicatorUtils.getCoreEvidenceTypes(null));
+                for (String tumorTypeCode : tumorTypeCodes) {
+                    if (isFull(target)) {
+                        return geneCells;
+                    }
+                    IndicatorQueryResp resp = IndicatorUtils.processTumorTypeOverlay(queryCore, null, tumorTypeCode, null, false, null);
+                    putCell(target, geneCells, getKey(referenceGenome, alteration, tumorTypeCode), codec.encode(resp));
+                }
+            }
+        }
+        return geneCells;
+    }
+
+    boolean isFull(Cells target) {
+        return target.size.get() >= maxCells;
+    }
+
+    void putCell(Cells target, Map<String, byte[]> geneCells, String key, byte[] cell) {
+        if (cell != null && !isFull(target) && geneCells.put(key, cell) == null) {
+            target.size.incrementAndGet();
+        }
+    }
+
+    private static List<String> getConfiguredTumorTypeCodes() {
+        String configured = PropertiesUtils.getProperties("annotation.cube.tumorTypes");
+        if (ALL_TUMOR_TYPES.equalsIgnoreCase(StringUtils.trim(configured))) {
+            List<String> codes = new ArrayList<>();
+            codes.add(null);
+            for (TumorType tumorType : ApplicationContextSingleton.getTumorTypeBo().getAllSubtypes()) {
+                if (StringUtils.isNotEmpty(tumorType.getCode())) {
+                    codes.add(tumorType.getCode());
+                }
+            }
+            return codes;
+        }
+        // The codes are written as the lookups resolve them
+        List<String> codes = new ArrayList<>();
+        for (String code : getTumorTypeCodes(configured)) {
+            String resolved = code == null ? null : getTumorTypeCode(code);
+            if (code != null && StringUtils.isEmpty(resolved)) {
+                LOGGER.warn("The tumor type {} of annotation.cube.tumorTypes is not an OncoTree code, it is not precomputed", code);
+            } else if (!codes.contains(resolved)) {
+                codes.add(resolved);
+            }
+        }
+        return codes;
+    }
+
+    /**
+     * Resolve a tumor type the way IndicatorUtils.processTumorTypeOverlay does, the OncoTree codes and their subtypes
+     * are resolved to the same tumor type.
+     *
+     * @return the OncoTree code of the tumor type, an empty string without tumor type, null when the tumor type is
+     * not resolved to an OncoTree code
+     */
+    static String getTumorTypeCode(String tumorType) {
+        if (StringUtils.isEmpty(tumorType)) {
+            return "";
+        }
+        TumorTypeBo tumorTypeBo = ApplicationContextSingleton.getTumorTypeBo();
+        // The special tumor types have their own relevant tumor types
+        if (tumorTypeBo.getSpecialTumorTypeByName(tumorType) != null) {
+            return null;
+        }
+        TumorType matched = tumorTypeBo.getByCode(tumorType);
+        if (matched == null) {
+            matched = tumorTypeBo.getBySubtype(tumorType);
+        }
+        return matched == null || StringUtils.isEmpty(matched.getCode()) ? null : matched.getCode();
+    }
+
+    static List<String> getTumorTypeCodes(String configured) {
+        // null is the annotation without tumor type
+        List<String> codes = new ArrayList<>();
+        codes.add(null);
+        if (StringUtils.isNotEmpty(configured)) {
+            for (String code : configured.split(",")) {
+                if (StringUtils.isNotBlank(code)) {
+                    codes.add(code.trim());
+                }
+            }
+        }
+        return codes;
+    }
+
+    static String getKey(ReferenceGenome referenceGenome, String alteration, String tumorTypeCode) {
+        return (referenceGenome == null ? DEFAULT_REFERENCE_GENOME : referenceGenome).name()
+            + KEY_SEPARATOR + alteration.trim()
+            + KEY_SEPARATOR + StringUtils.trimToEmpty(tumorTypeCode);
+    }
+
+    // The annotations of a data version, by entrez gene id
+    static class Cells {
+        private final String dataVersion;
+        private final Map<Integer, Map<String, byte[]>> genes = new ConcurrentHashMap<>();
+        private final AtomicInteger size = new AtomicInteger();
+
+        Cells(String dataVersion) {
+            this.dataVersion = dataVersion;
+        }
+
+        void removeGene(Integer entrezGeneId) {
+            Map<String, byte[]> geneCells = genes.remove(entrezGeneId);
+            if (geneCells != null) {
+                size.addAndGet(-geneCells.size());
+            }
+        }
+
+        int size() {
+            return size.get();
+        }
+    }
+
+    private int getIntegerProperty(String name, int defaultValue) {
+        String value = PropertiesUtils.getProperties(name);
+        if (StringUtils.isNotEmpty(value)) {
+            return Integer.parseInt(value.trim());
+        }
+        return defaultValue;
+    }
+}
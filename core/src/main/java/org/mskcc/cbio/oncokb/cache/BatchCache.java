@@ -0,0 +1,18 @@
+package org.mskcc.cbio.oncokb.cache;
+
+import org.springframework.cache.Cache;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * A cache which can read and write many entries in one round trip, used to annotate batches.
+ */
+public interface BatchCache extends Cache {
+    /**
+     * @return the cached values by key, the keys which are not cached are left out
+     */
+    Map<Object, Object> getAll(Collection<?> keys);
+
+    void putAll(Map<?, ?> values);
+}
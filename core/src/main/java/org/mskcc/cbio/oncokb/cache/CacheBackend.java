@@ -0,0 +1,46 @@
+package org.mskcc.cbio.oncokb.cache;
+
+import org.apache.commons.lang3.StringUtils;
+import org.mskcc.cbio.oncokb.util.PropertiesUtils;
+
+/**
+ * Where the annotations are cached, configured with cache.backend (redis, local or none).
+ * When it is not set, the caches are in Redis when redis.enable is true and local otherwise.
+ */
+public enum CacheBackend {
+    REDIS("redis"),
+    LOCAL("local"),
+    NONE("none");
+
+    private final String key;
+
+    CacheBackend(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public static CacheBackend getByKey(String key) {
+        for (CacheBackend backend : CacheBackend.values()) {
+            if (backend.getKey().equalsIgnoreCase(key)) {
+                return backend;
+            }
+        }
+        return null;
+    }
+
+    public static CacheBackend getConfigured() {
+        String configured = PropertiesUtils.getProperties("cache.backend");
+        if (StringUtils.isNotEmpty(configured)) {
+            CacheBackend backend = getByKey(configured.trim());
+            if (backend == null) {
+                throw new IllegalArgumentException("The cache backend " + configured + " is not supported. Only redis, local, and none are supported.");
+            }
+            return backend;
+        }
+        String redisEnabled = PropertiesUtils.getProperties("redis.enable");
+        return StringUtils.isNotEmpty(redisEnabled) && redisEnabled.trim().equalsIgnoreCase("true") ? REDIS : LOCAL;
+    }
+}
@@ -1,33 +1,52 @@
 package org.mskcc.cbio.oncokb.cache;
 
 import org.apache.commons.lang3.StringUtils;
+import org.mskcc.cbio.oncokb.cache.keygenerator.CanonicalKeyGenerator;
 import org.mskcc.cbio.oncokb.cache.keygenerator.ConcatGenerator;
+import org.mskcc.cbio.oncokb.util.GeneCacheObservable;
 import org.mskcc.cbio.oncokb.util.PropertiesUtils;
 import org.mskcc.oncokb.meta.enumeration.RedisType;
 import org.redisson.Redisson;
 import org.redisson.api.RedissonClient;
-import org.redisson.codec.SnappyCodecV2;
+import org.redisson.client.codec.ByteArrayCodec;
 import org.redisson.config.BaseConfig;
 import org.redisson.config.BaseMasterSlaveServersConfig;
 import org.redisson.config.ClusterServersConfig;
 import org.redisson.config.Config;
 import org.redisson.config.SentinelServersConfig;
 import org.redisson.config.SingleServerConfig;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.interceptor.CacheErrorHandler;
+import org.springframework.cache.interceptor.CacheInterceptor;
+import org.springframework.cache.interceptor.CacheOperationSource;
 import org.springframework.cache.interceptor.CacheResolver;
 import org.springframework.cache.interceptor.KeyGenerator;
 import org.springframework.context.annotation.*;
 
+/**
+ * The caches are in Redis or in the JVM depending on cache.backend, see CacheBackend.
+ */
 @Configuration
 @EnableCaching
 @Conditional(EnableCacheCondition.class)
 public class CacheConfiguration {
     
     private final int DEFAULT_TTL = 60;
+    private final int DEFAULT_CONNECTION_MINIMUM_IDLE_SIZE = 1;
+    private final int DEFAULT_CONNECTION_POOL_SIZE = 2;
+    // in milliseconds
+    private final int DEFAULT_SINGLE_FLIGHT_TIMEOUT = 10000;
+    private final int DEFAULT_REFRESH_POOL_SIZE = 2;
+    private final int DEFAULT_REFRESH_QUEUE_CAPACITY = 100;
+    private final int DEFAULT_REFRESH_MIN_HITS = 5;
+    // in percentage of the TTL
+    private final int DEFAULT_REFRESH_WINDOW = 20;
+    private final int DEFAULT_REFRESH_MAX_TRACKED_KEYS = 10000;
 
     @Bean
+    @Conditional(RedisCacheCondition.class)
     public RedissonClient redissonClient()
         throws Exception {
         Config config = new Config();
@@ -39,13 +58,15 @@ public class CacheConfiguration {
         String redisSlaveConnectionPoolSize = PropertiesUtils.getProperties("redis.slaveConnectionPoolSize");
         String redisMasterConnectionMinimumIdleSize = PropertiesUtils.getProperties("redis.masterConnectionMinimumIdleSize");
         String redisMasterConnectionPoolSize = PropertiesUtils.getProperties("redis.masterConnectionPoolSize");
+        String redisConnectionMinimumIdleSize = PropertiesUtils.getProperties("redis.connectionMinimumIdleSize");
+        String redisConnectionPoolSize = PropertiesUtils.getProperties("redis.connectionPoolSize");
 
         if (redisType.equals(RedisType.SINGLE.getType())) {
             SingleServerConfig singleServerConfig = config
                 .useSingleServer()
                 .setAddress(redisAddress)
-                .setConnectionMinimumIdleSize(1)
-                .setConnectionPoolSize(2)
+                .setConnectionMinimumIdleSize(StringUtils.isNotEmpty(redisConnectionMinimumIdleSize) ? Integer.parseInt(redisConnectionMinimumIdleSize) : DEFAULT_CONNECTION_MINIMUM_IDLE_SIZE)
+                .setConnectionPoolSize(StringUtils.isNotEmpty(redisConnectionPoolSize) ? Integer.parseInt(redisConnectionPoolSize) : DEFAULT_CONNECTION_POOL_SIZE)
                 .setSubscriptionConnectionMinimumIdleSize(0)
                 .setSubscriptionConnectionPoolSize(0)
                 .setDnsMonitoringInterval(-1)
@@ -77,9 +98,9 @@ public class CacheConfiguration {
             );
         }
 
-        // Instead of using GZip to compress data manually, we can configure Redisson to use
-        // snappy codec. Redisson will serialize and compress our cache values.
-        config.setCodec(new SnappyCodecV2());
+        // The cache values are serialized and compressed by the CacheValueCodec of the caches,
+        // Redisson stores the bytes as they are.
+        config.setCodec(ByteArrayCodec.INSTANCE);
         return Redisson.create(config);
     }
 
@@ -116,17 +137,63 @@ public class CacheConfiguration {
     }
 
     @Bean
+    @Conditional(RedisCacheCondition.class)
     public org.springframework.cache.CacheManager cacheManager(
         RedissonClient redissonClient,
         CacheNameResolver cacheNameResolver,
         CacheErrorHandler cacheErrorHandler
     ) {
         Integer redisExpiration = Integer.parseInt(PropertiesUtils.getProperties("redis.expiration"));
-        CustomRedisCacheManager cm = new CustomRedisCacheManager(redissonClient, redisExpiration == null ? DEFAULT_TTL : redisExpiration, cacheNameResolver, cacheErrorHandler);
-        cm.clearAll();
+        CustomRedisCacheManager cm = new CustomRedisCacheManager(redissonClient, redisExpiration == null ? DEFAULT_TTL : redisExpiration, CacheValueCodec.getByName(PropertiesUtils.getProperties("redis.codec")), cacheNameResolver, cacheErrorHandler);
+        cm.setSingleFlightTimeoutInMillis(getIntegerProperty("cache.singleFlight.timeout", DEFAULT_SINGLE_FLIGHT_TIMEOUT));
+        String refreshAheadEnabled = PropertiesUtils.getProperties("cache.refreshAhead.enable");
+        if (StringUtils.isNotEmpty(refreshAheadEnabled) && Boolean.parseBoolean(refreshAheadEnabled.trim())) {
+            cm.setRefresher(new CacheRefresher(
+                Math.max(1, getIntegerProperty("cache.refreshAhead.poolSize", DEFAULT_REFRESH_POOL_SIZE)),
+                getIntegerProperty("cache.refreshAhead.queueCapacity", DEFAULT_REFRESH_QUEUE_CAPACITY),
+                getIntegerProperty("cache.refreshAhead.minHits", DEFAULT_REFRESH_MIN_HITS),
+                getIntegerProperty("cache.refreshAhead.window", DEFAULT_REFRESH_WINDOW),
+                getIntegerProperty("cache.refreshAhead.maxTrackedKeys", DEFAULT_REFRESH_MAX_TRACKED_KEYS)
+            ));
+        }
+        String localTierEnabled = PropertiesUtils.getProperties("cache.l1.enable");
+        if (StringUtils.isNotEmpty(localTierEnabled) && Boolean.parseBoolean(localTierEnabled.trim())) {
+            cm.setLocalTierEnabled(true);
+        }
+        GeneCacheObservable.getInstance().addObserver(cm);
+        // The caches are not cleared, each build and data version has its own namespace, see CacheNameResolver
         return cm;
     }
 
+    @Bean
+    @Conditional(LocalCacheCondition.class)
+    public org.springframework.cache.CacheManager localCacheManager(CacheNameResolver cacheNameResolver) {
+        int expiration = getIntegerProperty("cache.local.expiration", getIntegerProperty("redis.expiration", DEFAULT_TTL));
+        LocalCacheManager cm = new LocalCacheManager(expiration, cacheNameResolver);
+        GeneCacheObservable.getInstance().addObserver(cm);
+        return cm;
+    }
+
+    private int getIntegerProperty(String name, int defaultValue) {
+        String value = PropertiesUtils.getProperties(name);
+        if (StringUtils.isNotEmpty(value)) {
+            return Integer.parseInt(value.trim());
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Replaces the interceptor registered by @EnableCaching, the bean has the same name.
+     * See SingleFlightCacheInterceptor.
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public CacheInterceptor cacheInterceptor(CacheOperationSource cacheOperationSource) {
+        CacheInterceptor interceptor = new SingleFlightCacheInterceptor();
+        interceptor.setCacheOperationSources(cacheOperationSource);
+        return interceptor;
+    }
+
     @Bean
     public CacheResolver generalCacheResolver(
         CacheManager cm
@@ -138,4 +205,9 @@ public class CacheConfiguration {
     public KeyGenerator concatKeyGenerator(){
         return new ConcatGenerator();
     }
+
+    @Bean
+    public KeyGenerator canonicalKeyGenerator() {
+        return new CanonicalKeyGenerator();
+    }
 }
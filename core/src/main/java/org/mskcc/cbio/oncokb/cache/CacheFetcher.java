@@ -5,6 +5,7 @@ import org.cbioportal.genome_nexus.component.annotation.NotationConverter;
 import org.cbioportal.genome_nexus.model.GenomicLocation;
 import org.cbioportal.genome_nexus.util.exception.InvalidHgvsException;
 import org.cbioportal.genome_nexus.util.exception.TypeNotSupportedException;
+import org.genome_nexus.client.VariantAnnotation;
 import org.mskcc.cbio.oncokb.apiModels.CuratedGene;
 import org.mskcc.cbio.oncokb.bo.OncokbTranscriptService;
 import org.mskcc.cbio.oncokb.genomenexus.GNVariantAnnotationType;
@@ -12,7 +13,6 @@ import org.mskcc.cbio.oncokb.model.*;
 import org.mskcc.cbio.oncokb.model.genomeNexusPreAnnotations.GenomeNexusAnnotatedVariantInfo;
 import org.mskcc.cbio.oncokb.util.*;
 import org.oncokb.oncokb_transcript.ApiException;
-import org.oncokb.oncokb_transcript.client.EnsemblGene;
 import org.oncokb.oncokb_transcript.client.TranscriptDTO;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.Cache;
@@ -25,7 +25,6 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 import static org.mskcc.cbio.oncokb.Constants.DEFAULT_REFERENCE_GENOME;
-import static org.mskcc.cbio.oncokb.util.MainUtils.rangesIntersect;
 import static org.mskcc.cbio.oncokb.cache.Constants.REDIS_KEY_SEPARATOR;
 
 @Component
@@ -33,9 +32,24 @@ public class CacheFetcher {
     OncokbTranscriptService oncokbTranscriptService = new OncokbTranscriptService();
     NotationConverter notationConverter = new NotationConverter();
 
+    // add some buffer on determine which genomic change should be annotated. We use the gene range from oncokb-transcript but that does not include gene regulatory sequence. Before having proper range, we use a buffer range instead.
+    private static final int TRANSCRIPT_GENE_BP_BUFFER = 10000;
+
+    // The transcript genes returned by getAllTranscriptGenes and their index
+    private volatile Map.Entry<Set<org.oncokb.oncokb_transcript.client.Gene>, TranscriptGeneIndex> transcriptGeneIndex;
+
     @Autowired(required = false) 
     CacheManager cacheManager;
 
+    @Autowired
+    IndicatorQueryCoreFetcher indicatorQueryCoreFetcher;
+
+    @Autowired
+    AnnotationCube annotationCube;
+
+    @Autowired
+    QueryReplayLog queryReplayLog;
+
     @Cacheable(cacheResolver = "generalCacheResolver", key = "'all'")
     public OncoKBInfo getOncoKBInfo() {
         return new OncoKBInfo();
@@ -216,10 +230,35 @@ public class CacheFetcher {
         return this.oncokbTranscriptService.findGeneBySymbol(symbol);
     }
 
-    @Cacheable(
-        cacheResolver = "generalCacheResolver",
-        keyGenerator = "concatKeyGenerator"
-    )
+    /**
+     * The annotation of a query with its id, for the entry points that take a Query (the legacy indicator.json
+     * and /search endpoints). It goes through the same cached path as the v1 annotation endpoints.
+     */
+    public IndicatorQueryResp processQuery(Query query,
+                                           Set<LevelOfEvidence> levels,
+                                           Boolean highestLevelOnly,
+                                           Set<EvidenceType> evidenceTypes) {
+        if (query == null) {
+            return new IndicatorQueryResp();
+        }
+        IndicatorQueryResp resp = processQuery(query.getReferenceGenome(), query.getEntrezGeneId(), query.getHugoSymbol(),
+            query.getAlteration(), query.getAlterationType(), query.getTumorType(), query.getConsequence(),
+            query.getProteinStart(), query.getProteinEnd(), query.getSvType(), query.getHgvs(),
+            levels, highestLevelOnly, evidenceTypes);
+        // The response query is a copy, see IndicatorUtils.processTumorTypeOverlay
+        if (resp.getQuery() != null) {
+            resp.getQuery().setId(query.getId());
+        }
+        return resp;
+    }
+
+    /**
+     * Queries with only a gene, an alteration and a tumor type are served from the AnnotationCube when it has them.
+     * Otherwise, the variant level part of the annotation is cached once per variant, the tumor type specific
+     * part is applied on top of it for each request.
+     * The arguments are normalized first so the same query spelled differently shares the cache entries:
+     * the strings are trimmed and blank ones are treated as not set, and an empty evidence type selection means all.
+     */
     public IndicatorQueryResp processQuery(ReferenceGenome referenceGenome,
                                            Integer entrezGeneId,
                                            String hugoSymbol,
@@ -237,22 +276,175 @@ public class CacheFetcher {
         if (referenceGenome == null) {
             referenceGenome = DEFAULT_REFERENCE_GENOME;
         }
-        Query query = new Query(null, referenceGenome, entrezGeneId, hugoSymbol, alteration, alterationType, svType, tumorType, consequence, proteinStart, proteinEnd, hgvs);
-        return IndicatorUtils.processQuery(
-            query, levels, highestLevelOnly,
-            evidenceTypes
+        hugoSymbol = StringUtils.trimToNull(hugoSymbol);
+        alteration = StringUtils.trimToNull(alteration);
+        alterationType = StringUtils.trimToNull(alterationType);
+        tumorType = StringUtils.trimToNull(tumorType);
+        consequence = StringUtils.trimToNull(consequence);
+        hgvs = StringUtils.trimToNull(hgvs);
+        highestLevelOnly = Boolean.TRUE.equals(highestLevelOnly);
+        if (evidenceTypes != null && evidenceTypes.isEmpty()) {
+            evidenceTypes = null;
+        }
+
+        if (canUseAnnotationCube(alterationType, consequence, proteinStart, proteinEnd, svType, hgvs, levels, highestLevelOnly, evidenceTypes)) {
+            IndicatorQueryResp resp = annotationCube.get(new Query(null, referenceGenome, entrezGeneId, hugoSymbol, alteration, null, null, tumorType, null, null, null, null));
+            if (resp != null) {
+                return resp;
+            }
+        }
+        Set<EvidenceType> coreEvidenceTypes = IndicatorUtils.getCoreEvidenceTypes(evidenceTypes);
+        if (queryReplayLog.isEnabled()) {
+            queryReplayLog.record(new Query(null, referenceGenome, entrezGeneId, hugoSymbol, alteration, alterationType, svType, null, consequence, proteinStart, proteinEnd, hgvs), coreEvidenceTypes);
+        }
+        IndicatorQueryCore queryCore = indicatorQueryCoreFetcher.processQueryCore(referenceGenome, entrezGeneId, hugoSymbol, alteration, alterationType, consequence, proteinStart, proteinEnd, svType, hgvs, coreEvidenceTypes);
+        return IndicatorUtils.processTumorTypeOverlay(
+            queryCore, null, tumorType, levels, highestLevelOnly,
+            evidenceTypes, fusionGeneQuery -> getQueryCore(fusionGeneQuery, coreEvidenceTypes)
         );
     }
 
+    /**
+     * The annotations of a batch of queries, the same as calling processQuery for each of them. The variant level
+     * parts are looked up in the cache together instead of one by one, see IndicatorQueryCoreFetcher.processQueryCores.
+     *
+     * @param evidenceTypes the evidence types of every query, in the same order as the queries
+     * @return the annotations in the order of the queries, with the ids of the queries
+     */
+    public List<IndicatorQueryResp> processQueries(List<Query> queries,
+                                                   List<Set<EvidenceType>> evidenceTypes,
+                                                   Set<LevelOfEvidence> levels,
+                                                   Boolean highestLevelOnly) {
+        boolean onlyHighestLevel = Boolean.TRUE.equals(highestLevelOnly);
+        IndicatorQueryResp[] resps = new IndicatorQueryResp[queries.size()];
+
+        List<Integer> positions = new ArrayList<>();
+        List<Query> coreQueries = new ArrayList<>();
+        List<Set<EvidenceType>> selectedEvidenceTypes = new ArrayList<>();
+        List<Set<EvidenceType>> coreEvidenceTypes = new ArrayList<>();
+        for (int i = 0; i < queries.size(); i++) {
+            Query query = queries.get(i);
+            Query normalized = new Query(null, query.getReferenceGenome(), query.getEntrezGeneId(),
+                StringUtils.trimToNull(query.getHugoSymbol()), StringUtils.trimToNull(query.getAlteration()),
+                StringUtils.trimToNull(query.getAlterationType()), query.getSvType(), StringUtils.trimToNull(query.getTumorType()),
+                StringUtils.trimToNull(query.getConsequence()), query.getProteinStart(), query.getProteinEnd(), StringUtils.trimToNull(query.getHgvs()));
+            Set<EvidenceType> selected = evidenceTypes.get(i);
+            if (selected != null && selected.isEmpty()) {
+                selected = null;
+            }
+
+            if (canUseAnnotationCube(normalized.getAlterationType(), normalized.getConsequence(), normalized.getProteinStart(), normalized.getProteinEnd(),
+                normalized.getSvType(), normalized.getHgvs(), levels, onlyHighestLevel, selected)) {
+                resps[i] = annotationCube.get(normalized);
+                if (resps[i] != null) {
+                    continue;
+                }
+            }
+            positions.add(i);
+            coreQueries.add(normalized);
+            selectedEvidenceTypes.add(selected);
+            coreEvidenceTypes.add(IndicatorUtils.getCoreEvidenceTypes(selected));
+            if (queryReplayLog.isEnabled()) {
+                queryReplayLog.record(normalized, coreEvidenceTypes.get(coreEvidenceTypes.size() - 1));
+            }
+        }
+
+        List<IndicatorQueryCore> queryCores = indicatorQueryCoreFetcher.processQueryCores(coreQueries, coreEvidenceTypes);
+        for (int j = 0; j < positions.size(); j++) {
+            Set<EvidenceType> queryCoreEvidenceTypes = coreEvidenceTypes.get(j);
+            resps[positions.get(j)] = IndicatorUtils.processTumorTypeOverlay(
+                queryCores.get(j), null, coreQueries.get(j).getTumorType(), levels, onlyHighestLevel,
+                selectedEvidenceTypes.get(j), fusionGeneQuery -> getQueryCore(fusionGeneQuery, queryCoreEvidenceTypes)
+            );
+        }
+
+        for (int i = 0; i < resps.length; i++) {
+            if (resps[i].getQuery() != null) {
+                resps[i].getQuery().setId(queries.get(i).getId());
+            }
+        }
+        return Arrays.asList(resps);
+    }
+
+    // The cached core of a query without tumor type, e.g. of a gene of a fusion
+    private IndicatorQueryCore getQueryCore(Query query, Set<EvidenceType> coreEvidenceTypes) {
+        return indicatorQueryCoreFetcher.processQueryCore(query.getReferenceGenome(), query.getEntrezGeneId(), query.getHugoSymbol(),
+            query.getAlteration(), query.getAlterationType(), query.getConsequence(), query.getProteinStart(), query.getProteinEnd(),
+            query.getSvType(), query.getHgvs(), coreEvidenceTypes);
+    }
+
+    // Only the queries with a gene, an alteration and a tumor type are in the cube
+    private boolean canUseAnnotationCube(String alterationType, String consequence, Integer proteinStart, Integer proteinEnd,
+                                         StructuralVariantType svType, String hgvs, Set<LevelOfEvidence> levels,
+                                         boolean highestLevelOnly, Set<EvidenceType> evidenceTypes) {
+        return alterationType == null && consequence == null && proteinStart == null && proteinEnd == null && svType == null && hgvs == null
+            && levels == null && !highestLevelOnly && evidenceTypes == null;
+    }
+
     @Cacheable(cacheResolver = "generalCacheResolver",
         keyGenerator = "concatKeyGenerator")
     public Alteration getAlterationFromGenomeNexus(GNVariantAnnotationType gnVariantAnnotationType, ReferenceGenome referenceGenome, String genomicLocation) throws org.genome_nexus.ApiException {
         return AlterationUtils.getAlterationFromGenomeNexus(gnVariantAnnotationType, referenceGenome, genomicLocation);
     }
 
+    /**
+     * The same as getAlterationFromGenomeNexus for a batch of queries, with the same cache entries. The cached
+     * alterations are read in one multi-get, the missing ones are annotated by Genome Nexus in chunks
+     * (see GenomeNexusUtils.getVariantAnnotations) and written back together.
+     *
+     * @return the alterations by query, the queries Genome Nexus failed to annotate in batch are left out so the
+     * caller can annotate them with getAlterationFromGenomeNexus and get its error
+     */
+    public Map<String, Alteration> getAlterationsFromGenomeNexus(GNVariantAnnotationType gnVariantAnnotationType, ReferenceGenome referenceGenome, Collection<String> queries) {
+        Map<String, Alteration> alterations = new HashMap<>();
+        Map<Object, String> queriesByKey = new LinkedHashMap<>();
+        for (String query : queries) {
+            if (query != null && !query.trim().isEmpty()) {
+                queriesByKey.put(getAlterationFromGenomeNexusCacheKey(gnVariantAnnotationType, referenceGenome, query), query);
+            }
+        }
+        if (queriesByKey.isEmpty()) {
+            return alterations;
+        }
+
+        Cache cache = cacheManager == null ? null : cacheManager.getCache(CacheCategory.GENERAL.getKey() + REDIS_KEY_SEPARATOR + "getAlterationFromGenomeNexus");
+        List<String> missingQueries = new ArrayList<>();
+        if (cache instanceof BatchCache) {
+            Map<Object, Object> cached = ((BatchCache) cache).getAll(queriesByKey.keySet());
+            for (Map.Entry<Object, String> entry : queriesByKey.entrySet()) {
+                if (cached.get(entry.getKey()) instanceof Alteration) {
+                    alterations.put(entry.getValue(), (Alteration) cached.get(entry.getKey()));
+                } else {
+                    missingQueries.add(entry.getValue());
+                }
+            }
+        } else {
+            missingQueries.addAll(queriesByKey.values());
+        }
+        if (missingQueries.isEmpty()) {
+            return alterations;
+        }
+
+        Map<Object, Object> computed = new HashMap<>();
+        for (Map.Entry<String, VariantAnnotation> entry : GenomeNexusUtils.getVariantAnnotations(gnVariantAnnotationType, missingQueries, referenceGenome).entrySet()) {
+            Alteration alteration = AlterationUtils.getAlterationFromTranscriptConsequence(GenomeNexusUtils.getTranscriptConsequence(entry.getValue(), referenceGenome));
+            alterations.put(entry.getKey(), alteration);
+            computed.put(getAlterationFromGenomeNexusCacheKey(gnVariantAnnotationType, referenceGenome, entry.getKey()), alteration);
+        }
+        if (cache instanceof BatchCache && !computed.isEmpty()) {
+            ((BatchCache) cache).putAll(computed);
+        }
+        return alterations;
+    }
+
+    // The key of the concatKeyGenerator for getAlterationFromGenomeNexus
+    private String getAlterationFromGenomeNexusCacheKey(GNVariantAnnotationType gnVariantAnnotationType, ReferenceGenome referenceGenome, String query) {
+        return String.join(REDIS_KEY_SEPARATOR, new String[]{gnVariantAnnotationType.name(), referenceGenome.name(), query});
+    }
+
     public void cacheAlterationFromGenomeNexus(GenomeNexusAnnotatedVariantInfo gnAnnotatedVariantInfo) throws IllegalStateException {
         if (cacheManager == null) {
-            throw new IllegalStateException("Cannot cache pre-annotated GN variants. Change property redis.enable to True.");
+            throw new IllegalStateException("Cannot cache pre-annotated GN variants. Change property cache.backend to redis or local.");
         }
 
         // Build the Alteration object from the pre-annotated GN variant object.
@@ -281,13 +473,11 @@ public class CacheFetcher {
         // Store pre-annotated alteration into Redis cache
         Cache cache = cacheManager.getCache(CacheCategory.GENERAL.getKey() + REDIS_KEY_SEPARATOR + "getAlterationFromGenomeNexus");
         if (StringUtils.isNotEmpty(hgvsg)) {
-            String cacheKey = String.join(REDIS_KEY_SEPARATOR, new String[]{GNVariantAnnotationType.HGVS_G.name(), referenceGenome.name(), hgvsg});
-            cache.put(cacheKey, alteration);
+            cache.put(getAlterationFromGenomeNexusCacheKey(GNVariantAnnotationType.HGVS_G, referenceGenome, hgvsg), alteration);
         }
 
         if (StringUtils.isNotEmpty(genomicLocation)) {
-            String cacheKey = String.join(REDIS_KEY_SEPARATOR, new String[]{GNVariantAnnotationType.GENOMIC_LOCATION.name(), referenceGenome.name(), genomicLocation});
-            cache.put(cacheKey, alteration);
+            cache.put(getAlterationFromGenomeNexusCacheKey(GNVariantAnnotationType.GENOMIC_LOCATION, referenceGenome, genomicLocation), alteration);
         }
 
     }
@@ -333,16 +523,18 @@ public class CacheFetcher {
                 return false;
             }
         }
-        GenomicLocation finalGl = gl;
-        int bpBuffer = 10000; // add some buffer on determine which genomic change should be annotated. We use the gene range from oncokb-transcript but that does not include gene regulatory sequence. Before having proper range, we use a buffer range instead.
-        Boolean shouldBeAnnotated = allTranscriptsGenes.stream().anyMatch(gene -> {
-            Set<EnsemblGene> ensemblGenes = gene.getEnsemblGenes().stream().filter(ensemblGene -> ensemblGene.getCanonical() && ensemblGene.getReferenceGenome().equals(referenceGenome.name())).collect(Collectors.toSet());
-            if (ensemblGenes.size() > 0) {
-                return ensemblGenes.stream().anyMatch(ensemblGene -> finalGl.getChromosome().equals(ensemblGene.getChromosome()) && rangesIntersect(ensemblGene.getStart() > bpBuffer ? (ensemblGene.getStart() - bpBuffer) : 0, ensemblGene.getEnd() + bpBuffer, finalGl.getStart(), finalGl.getEnd()));
-            } else {
-                return false;
-            }
-        });
-        return shouldBeAnnotated;
+        return getTranscriptGeneIndex(allTranscriptsGenes).intersects(referenceGenome.name(), gl.getChromosome(), gl.getStart(), gl.getEnd());
+    }
+
+    // The index of the transcript genes, built once for each value of getAllTranscriptGenes. The cached value is the
+    // same instance until it is evicted or reloaded, then the genes of the caller are indexed again, they may differ.
+    private TranscriptGeneIndex getTranscriptGeneIndex(Set<org.oncokb.oncokb_transcript.client.Gene> allTranscriptsGenes) {
+        Map.Entry<Set<org.oncokb.oncokb_transcript.client.Gene>, TranscriptGeneIndex> index = transcriptGeneIndex;
+        if (index != null && index.getKey() == allTranscriptsGenes) {
+            return index.getValue();
+        }
+        TranscriptGeneIndex builtIndex = TranscriptGeneIndex.fromTranscriptGenes(allTranscriptsGenes, TRANSCRIPT_GENE_BP_BUFFER);
+        transcriptGeneIndex = new AbstractMap.SimpleImmutableEntry<>(allTranscriptsGenes, builtIndex);
+        return builtIndex;
     }
 }
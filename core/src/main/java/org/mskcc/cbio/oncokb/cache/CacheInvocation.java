@@ -0,0 +1,48 @@
+package org.mskcc.cbio.oncokb.cache;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+
+/**
+ * The cached method invocation of the current thread. It is recorded by the GeneralCacheResolver right before
+ * the cache is read, so the cache can compute the value of the key again without the caller, see CacheRefresher.
+ */
+public final class CacheInvocation {
+    private static final ThreadLocal<CacheInvocation> CURRENT = new ThreadLocal<>();
+
+    private final String cacheName;
+    private final Object target;
+    private final Method method;
+    private final Object[] args;
+
+    private CacheInvocation(String cacheName, Object target, Method method, Object[] args) {
+        this.cacheName = cacheName;
+        this.target = target;
+        this.method = method;
+        this.args = args == null ? new Object[0] : args.clone();
+    }
+
+    public static void set(String cacheName, Object target, Method method, Object[] args) {
+        CURRENT.set(new CacheInvocation(cacheName, target, method, args));
+    }
+
+    /**
+     * @return the invocation which computes the values of the cache, null when the current thread is not reading it
+     * through a cached method
+     */
+    public static Callable<Object> getLoader(String cacheName) {
+        CacheInvocation invocation = CURRENT.get();
+        if (invocation == null || !invocation.cacheName.equals(cacheName)) {
+            return null;
+        }
+        // The target is the bean itself, not its proxy, the value is computed without going through the cache
+        return () -> {
+            try {
+                return invocation.method.invoke(invocation.target, invocation.args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        };
+    }
+}
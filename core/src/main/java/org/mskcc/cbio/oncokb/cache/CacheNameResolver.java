@@ -1,18 +1,63 @@
 package org.mskcc.cbio.oncokb.cache;
 
+import org.apache.commons.lang3.StringUtils;
+import org.mskcc.cbio.oncokb.model.Info;
+import org.mskcc.cbio.oncokb.util.CacheUtils;
 import org.mskcc.cbio.oncokb.util.PropertiesUtils;
 import org.springframework.stereotype.Component;
 
 import static org.mskcc.cbio.oncokb.cache.Constants.REDIS_KEY_SEPARATOR;
 
+/**
+ * The cache names are in the namespace of the build and the data loaded:
+ * [app name]:[app version]:[data version]:[data hash].
+ * The nodes running the same build on the same data share their entries. A new data version or a new build starts
+ * in an empty namespace, so the entries computed by another version of the code, or encoded from other versions of
+ * the models, are not read. The entries of the previous namespaces expire with their TTL, nothing needs to be
+ * cleared when a node starts. The namespace is resolved when the first cache is created, the data is loaded by
+ * CacheUtils at that point.
+ */
 @Component
 public class CacheNameResolver {
+    private static final String UNKNOWN = "unknown";
+
     String appName;
+    // The version of the build, from the manifest of the jar
+    String appVersion;
+    private volatile String namespace;
+
     public CacheNameResolver() {
         this.appName = PropertiesUtils.getProperties("app.name");
+        this.appVersion = CacheNameResolver.class.getPackage().getImplementationVersion();
     }
 
     public String getCacheName(String cacheKey) {
-        return this.appName + REDIS_KEY_SEPARATOR + cacheKey;
+        return getNamespace() + REDIS_KEY_SEPARATOR + cacheKey;
+    }
+
+    public String getNamespace() {
+        String current = namespace;
+        if (current == null) {
+            synchronized (this) {
+                if (namespace == null) {
+                    Info info = CacheUtils.getInfo();
+                    String dataVersion = info == null ? null : info.getDataVersion();
+                    String dataHash = CacheUtils.getDataHash();
+                    namespace = this.appName
+                        + REDIS_KEY_SEPARATOR + (StringUtils.isEmpty(this.appVersion) ? UNKNOWN : this.appVersion)
+                        + REDIS_KEY_SEPARATOR + (StringUtils.isEmpty(dataVersion) ? UNKNOWN : dataVersion)
+                        + REDIS_KEY_SEPARATOR + (StringUtils.isEmpty(dataHash) ? UNKNOWN : dataHash);
+                }
+                current = namespace;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Resolve the namespace again from the data loaded, when all the caches of CacheUtils are reset.
+     */
+    public synchronized void resetNamespace() {
+        this.namespace = null;
     }
 }
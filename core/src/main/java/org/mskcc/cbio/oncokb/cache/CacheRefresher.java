@@ -0,0 +1,52 @@
+package org.mskcc.cbio.oncokb.cache;
+
+import java.util.concurrent.*;
+
+/**
+ * Computes the hot cache entries again before they expire, on a bounded pool shared by the caches.
+ * An entry is refreshed when it has been read at least minHits times since it was stored and its remaining time to
+ * live is within the last refreshWindow (percentage) of the TTL. The stored value keeps being served until the new
+ * one replaces it. When the pool is busy, the refresh is skipped and the entry expires as usual.
+ */
+public class CacheRefresher {
+    private final ThreadPoolExecutor executor;
+    private final int minHits;
+    private final int refreshWindow;
+    private final int maxTrackedKeys;
+
+    public CacheRefresher(int poolSize, int queueCapacity, int minHits, int refreshWindow, int maxTrackedKeys) {
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+            Thread thread = new Thread(runnable, "cache-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.minHits = minHits;
+        this.refreshWindow = refreshWindow;
+        this.maxTrackedKeys = maxTrackedKeys;
+    }
+
+    public int getMinHits() {
+        return minHits;
+    }
+
+    public int getMaxTrackedKeys() {
+        return maxTrackedKeys;
+    }
+
+    public boolean isInRefreshWindow(long expiresAt, long ttlInMillis) {
+        return expiresAt - System.currentTimeMillis() <= ttlInMillis * refreshWindow / 100;
+    }
+
+    /**
+     * @return false when the pool is busy and the refresh is skipped
+     */
+    public boolean submit(Runnable refresh) {
+        try {
+            executor.execute(refresh);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+}
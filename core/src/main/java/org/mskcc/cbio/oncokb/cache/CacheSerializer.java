@@ -0,0 +1,17 @@
+package org.mskcc.cbio.oncokb.cache;
+
+import java.io.IOException;
+
+/**
+ * Turns the cached values into bytes and back, see CacheValueCodec.
+ */
+public interface CacheSerializer {
+    /**
+     * The id is stored with every value, a value written by another serializer is ignored.
+     */
+    byte getId();
+
+    byte[] serialize(Object value) throws IOException;
+
+    Object deserialize(byte[] bytes) throws IOException;
+}
@@ -0,0 +1,82 @@
+package org.mskcc.cbio.oncokb.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xerial.snappy.Snappy;
+
+import java.io.IOException;
+
+/**
+ * Encodes the values stored in Redis. A value is a two bytes header, the format version and the id of
+ * the serializer, followed by the serialized value compressed once with Snappy.
+ * A stored value with another header, written by an older version or another serializer, is ignored and the
+ * value is computed again. Change FORMAT_VERSION when the encoding changes. The values of another build are not
+ * read either, each build has its own namespace (see CacheNameResolver).
+ */
+public class CacheValueCodec {
+    private static final Logger LOG = LoggerFactory.getLogger(CacheValueCodec.class);
+    // 2: the Kryo values are written with CompatibleFieldSerializer
+    public static final byte FORMAT_VERSION = 2;
+    private static final int HEADER_LENGTH = 2;
+
+    private final CacheSerializer serializer;
+
+    public CacheValueCodec(CacheSerializer serializer) {
+        this.serializer = serializer;
+    }
+
+    /**
+     * @param name java or kryo, kryo when not set
+     */
+    public static CacheValueCodec getByName(String name) {
+        if (name != null && name.trim().equalsIgnoreCase("java")) {
+            return new CacheValueCodec(new JavaCacheSerializer());
+        }
+        return new CacheValueCodec(new KryoCacheSerializer());
+    }
+
+    public CacheSerializer getSerializer() {
+        return serializer;
+    }
+
+    /**
+     * @return the encoded value, null when the value is null or cannot be encoded
+     */
+    public byte[] encode(Object value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            byte[] compressed = Snappy.compress(serializer.serialize(value));
+            byte[] encoded = new byte[HEADER_LENGTH + compressed.length];
+            encoded[0] = FORMAT_VERSION;
+            encoded[1] = serializer.getId();
+            System.arraycopy(compressed, 0, encoded, HEADER_LENGTH, compressed.length);
+            return encoded;
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Error encoding object for cache: ", e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the decoded value, null when the value is not set or was not encoded with this codec
+     */
+    public Object decode(Object storeValue) {
+        if (!(storeValue instanceof byte[])) {
+            return null;
+        }
+        byte[] bytes = (byte[]) storeValue;
+        if (bytes.length <= HEADER_LENGTH || bytes[0] != FORMAT_VERSION || bytes[1] != serializer.getId()) {
+            return null;
+        }
+        try {
+            byte[] uncompressed = new byte[Snappy.uncompressedLength(bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH)];
+            Snappy.uncompress(bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH, uncompressed, 0);
+            return serializer.deserialize(uncompressed);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Error decoding object from cache: ", e);
+            return null;
+        }
+    }
+}
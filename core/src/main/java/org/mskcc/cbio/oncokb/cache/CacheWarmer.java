@@ -0,0 +1,124 @@
+package org.mskcc.cbio.oncokb.cache;
+
+import org.apache.commons.lang3.StringUtils;
+import org.mskcc.cbio.oncokb.model.EvidenceType;
+import org.mskcc.cbio.oncokb.model.Query;
+import org.mskcc.cbio.oncokb.util.GeneCacheObservable;
+import org.mskcc.cbio.oncokb.util.MainUtils;
+import org.mskcc.cbio.oncokb.util.PropertiesUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fills the caches with the most frequent queries of the QueryReplayLog when the application starts and after all
+ * the caches are reset, so they are hot before the traffic arrives. The queries go through the batch path
+ * (IndicatorQueryCoreFetcher.processQueryCores) in the background, at most cache.warmup.rate queries per second.
+ * <p>
+ * Enable with cache.warmup.enable, cache.warmup.topN is the number of queries replayed.
+ */
+@Component
+public class CacheWarmer implements ApplicationListener<ContextRefreshedEvent>, Observer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheWarmer.class);
+    private static final int DEFAULT_TOP_N = 1000;
+    private static final int DEFAULT_BATCH_SIZE = 100;
+    // queries per second
+    private static final int DEFAULT_RATE = 50;
+
+    @Autowired(required = false)
+    CacheManager cacheManager;
+
+    @Autowired
+    IndicatorQueryCoreFetcher indicatorQueryCoreFetcher;
+
+    @Autowired
+    QueryReplayLog queryReplayLog;
+
+    private final ExecutorService warmer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cache-warmer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private final AtomicBoolean warming = new AtomicBoolean(false);
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        // The event is sent by every context of the application
+        if (isEnabled() && started.compareAndSet(false, true)) {
+            GeneCacheObservable.getInstance().addObserver(this);
+            warm();
+        }
+    }
+
+    @Override
+    public void update(Observable o, Object arg) {
+        Map<String, String> operation = (Map<String, String>) arg;
+        if ("reset".equals(operation.get("cmd"))) {
+            warm();
+        }
+    }
+
+    public boolean isEnabled() {
+        return cacheManager != null && Boolean.parseBoolean(StringUtils.trimToEmpty(PropertiesUtils.getProperties("cache.warmup.enable")));
+    }
+
+    /**
+     * Replay the most frequent queries in the background, nothing is done when a warm up is running already.
+     */
+    public void warm() {
+        if (!warming.compareAndSet(false, true)) {
+            return;
+        }
+        warmer.submit(() -> {
+            try {
+                replay(getIntegerProperty("cache.warmup.topN", DEFAULT_TOP_N),
+                    Math.max(1, getIntegerProperty("cache.warmup.batchSize", DEFAULT_BATCH_SIZE)),
+                    Math.max(1, getIntegerProperty("cache.warmup.rate", DEFAULT_RATE)));
+            } catch (Exception e) {
+                LOGGER.error("Failed to warm the caches", e);
+            } finally {
+                warming.set(false);
+            }
+        });
+    }
+
+    private void replay(int topN, int batchSize, int rate) throws InterruptedException {
+        long start = MainUtils.getCurrentTimestamp();
+        List<Map.Entry<Query, Set<EvidenceType>>> topQueries = queryReplayLog.getTopQueries(topN);
+        for (int from = 0; from < topQueries.size(); from += batchSize) {
+            long batchStart = System.currentTimeMillis();
+            List<Query> queries = new ArrayList<>();
+            List<Set<EvidenceType>> coreEvidenceTypes = new ArrayList<>();
+            for (Map.Entry<Query, Set<EvidenceType>> query : topQueries.subList(from, Math.min(from + batchSize, topQueries.size()))) {
+                queries.add(query.getKey());
+                coreEvidenceTypes.add(query.getValue());
+            }
+            indicatorQueryCoreFetcher.processQueryCores(queries, coreEvidenceTypes);
+
+            // Wait until the batch has taken its share of the rate
+            long remaining = queries.size() * 1000L / rate - (System.currentTimeMillis() - batchStart);
+            if (remaining > 0) {
+                Thread.sleep(remaining);
+            }
+        }
+        LOGGER.info("Warmed the caches with {} queries in {}", topQueries.size(), MainUtils.getTimestampDiff(start));
+    }
+
+    private int getIntegerProperty(String name, int defaultValue) {
+        String value = PropertiesUtils.getProperties(name);
+        if (StringUtils.isNotEmpty(value)) {
+            return Integer.parseInt(value.trim());
+        }
+        return defaultValue;
+    }
+}
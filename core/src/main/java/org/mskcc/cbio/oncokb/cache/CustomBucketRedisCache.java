@@ -4,7 +4,7 @@ import org.redisson.api.RedissonClient;
 import org.springframework.cache.interceptor.CacheErrorHandler;
 
 public class CustomBucketRedisCache extends CustomRedisCache {
-    public CustomBucketRedisCache(String name, RedissonClient client, long ttlMinutes, CacheErrorHandler cacheErrorHandler) {
-        super(name, client, ttlMinutes, cacheErrorHandler);
+    public CustomBucketRedisCache(String name, RedissonClient client, long ttlMinutes, CacheValueCodec codec, CacheErrorHandler cacheErrorHandler) {
+        super(name, client, ttlMinutes, codec, cacheErrorHandler);
     }
 }
@@ -1,21 +1,33 @@
 package org.mskcc.cbio.oncokb.cache;
 
+import org.redisson.api.RMap;
 import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.codec.CompositeCodec;
 import org.springframework.cache.interceptor.CacheErrorHandler;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 public class CustomMapRedisCache extends CustomRedisCache {
-    public CustomMapRedisCache(String name, RedissonClient client, long ttlMinutes, CacheErrorHandler cacheErrorHandler) {
-        super(name, client, ttlMinutes, cacheErrorHandler);
+    private static final Codec MAP_CODEC = new CompositeCodec(StringCodec.INSTANCE, ByteArrayCodec.INSTANCE);
+
+    public CustomMapRedisCache(String name, RedissonClient client, long ttlMinutes, CacheValueCodec codec, CacheErrorHandler cacheErrorHandler) {
+        super(name, client, ttlMinutes, codec, cacheErrorHandler);
+    }
+
+    // The keys are strings like the bucket cache keys, the values are encoded by the CacheValueCodec
+    private RMap<String, Object> getMap() {
+        return this.store.getMap(name, MAP_CODEC);
     }
 
     @Override
     protected Object lookup(Object key) {
         try {
-            Object value = this.store.getMap(name).get(key);
-            if (value != null) {
-                value = fromStoreValue(value);
-            }
-            return value;        
+            return fromStoreValue(key, getMap().get(String.valueOf(key)));
         } catch (RuntimeException e) {
             cacheErrorHandler.handleCacheGetError(e, this, key);
             return null;
@@ -25,16 +37,107 @@ public class CustomMapRedisCache extends CustomRedisCache {
     @Override
     public void put(Object key, Object value) {
         try {
-            this.store.getMap(name).putAsync(key, toStoreValue(value));
+            Object storeValue = toStoreValue(key, value);
+            if (storeValue != null) {
+                getMap().putAsync(String.valueOf(key), storeValue);
+            }
+        } catch (RuntimeException e) {
+            cacheErrorHandler.handleCachePutError(e, this, key, value);
+        }
+        tagGenes(key, value);
+        completeFlight(key, value);
+        onStored(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        Object storeValue = toStoreValue(key, value);
+        if (storeValue == null) {
+            completeFlight(key, null);
+            return toValueWrapper(lookup(key));
+        }
+        try {
+            // HSETNX, only one of the concurrent callers writes its value
+            if (getMap().fastPutIfAbsent(String.valueOf(key), storeValue)) {
+                tagGenes(key, value);
+                completeFlight(key, value);
+                onStored(key, value);
+                return null;
+            }
         } catch (RuntimeException e) {
             cacheErrorHandler.handleCachePutError(e, this, key, value);
+            completeFlight(key, null);
+            return null;
+        }
+        Object existing = lookup(key);
+        completeFlight(key, existing);
+        return toValueWrapper(existing);
+    }
+
+    @Override
+    public Map<Object, Object> getAll(Collection<?> keys) {
+        Map<Object, Object> values = new HashMap<>();
+        try {
+            Map<String, Object> keysByMapKey = new HashMap<>();
+            for (Object key : keys) {
+                keysByMapKey.put(String.valueOf(key), key);
+            }
+            for (Map.Entry<String, Object> entry : getMap().getAll(keysByMapKey.keySet()).entrySet()) {
+                Object key = keysByMapKey.get(entry.getKey());
+                Object value = fromStoreValue(key, entry.getValue());
+                if (value != null) {
+                    values.put(key, value);
+                }
+            }
+        } catch (RuntimeException e) {
+            cacheErrorHandler.handleCacheGetError(e, this, keys);
+        }
+        return values;
+    }
+
+    @Override
+    public void putAll(Map<?, ?> values) {
+        try {
+            Map<String, Object> storeValues = new HashMap<>();
+            for (Map.Entry<?, ?> entry : values.entrySet()) {
+                Object storeValue = toStoreValue(entry.getKey(), entry.getValue());
+                if (storeValue != null) {
+                    storeValues.put(String.valueOf(entry.getKey()), storeValue);
+                }
+            }
+            getMap().putAllAsync(storeValues);
+        } catch (RuntimeException e) {
+            cacheErrorHandler.handleCachePutError(e, this, values.keySet(), values);
+        }
+        for (Map.Entry<?, ?> entry : values.entrySet()) {
+            tagGenes(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        try {
+            getMap().fastRemoveAsync(String.valueOf(key));
+        } catch (RuntimeException e) {
+            cacheErrorHandler.handleCacheEvictError(e, this, key);
         }
     }
 
+    @Override
+    protected String getIndexMember(Object key) {
+        return String.valueOf(key);
+    }
+
+    @Override
+    protected void deleteIndexMembers(Collection<String> members) {
+        getMap().fastRemove(members.toArray(new String[0]));
+    }
+
     @Override
     public void clear() {
+        clearHotEntries();
         try {
-            this.store.getMap(name).clear();
+            getMap().clear();
         } catch (RuntimeException e) {
             cacheErrorHandler.handleCacheClearError(e, this);
         }
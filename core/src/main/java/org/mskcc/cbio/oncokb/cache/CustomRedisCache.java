@@ -1,6 +1,13 @@
 package org.mskcc.cbio.oncokb.cache;
 
+import org.mskcc.cbio.oncokb.cache.keygenerator.HashedCacheKey;
+import org.redisson.api.RBatch;
+import org.redisson.api.RBucket;
+import org.redisson.api.RBucketAsync;
+import org.redisson.api.RSet;
+import org.redisson.api.RSetAsync;
 import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cache.Cache;
@@ -8,35 +15,60 @@ import org.springframework.cache.interceptor.CacheErrorHandler;
 import org.springframework.cache.support.AbstractValueAdaptingCache;
 import org.springframework.cache.support.SimpleValueWrapper;
 
-import java.io.*;
-import java.util.concurrent.TimeUnit;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.mskcc.cbio.oncokb.cache.Constants.REDIS_KEY_SEPARATOR;
 
 /**
+ * When single flight is enabled (see setSingleFlightTimeoutInMillis), the concurrent misses of a key are coalesced.
+ * The first caller of the JVM takes a short lease in Redis and computes the value, the others wait for the value
+ * it puts. A caller of another node which finds the lease taken waits for the value as well. When the computation
+ * fails or its value is not stored, the flight and the lease are released once the cached method returns (see
+ * SingleFlightCacheInterceptor). The waiting is bounded by the timeout in any case, after which the callers compute
+ * the value themselves.
+ * <p>
+ * When a CacheRefresher is set, the entries read often are computed again in the background before they expire.
+ * <p>
+ * The keys of the values computed from genes (see GeneTags) are recorded in a set per gene, so the values of a gene
+ * can be evicted when the gene is updated without touching the others.
+ *
  * @author Luke Sikina, Hongxin Zhang
  **/
-public abstract class CustomRedisCache extends AbstractValueAdaptingCache {
+public abstract class CustomRedisCache extends AbstractValueAdaptingCache implements BatchCache, GeneTaggedCache {
     private static final Logger LOG = LoggerFactory.getLogger(CustomRedisCache.class);
     public static final int INFINITE_TTL = -1;
+    // The maximum number of keys read with one MGET
+    protected static final int BATCH_SIZE = 1000;
+    private static final String LEASE_SUFFIX = REDIS_KEY_SEPARATOR + "lease";
+    private static final long POLL_INTERVAL_IN_MILLIS = 50;
+    private static final String GENE_INDEX_PREFIX = REDIS_KEY_SEPARATOR + "gene" + REDIS_KEY_SEPARATOR;
 
     protected final String name;
     protected final long ttlMinutes;
     protected final RedissonClient store;
+    protected final CacheValueCodec codec;
     
     protected CacheErrorHandler cacheErrorHandler;
 
+    private SingleFlight singleFlight;
+    private long singleFlightTimeoutInMillis = 0;
+    private final ConcurrentMap<String, HotEntry> hotEntries = new ConcurrentHashMap<>();
+    private CacheRefresher refresher;
+
     /**
      * Create a new ConcurrentMapCache with the specified name.
      * @param name the name of the cache
+     * @param codec encodes the values, the client stores them as they are
      */
-    public CustomRedisCache(String name, RedissonClient client, long ttlMinutes, CacheErrorHandler cacheErrorHandler) {
+    public CustomRedisCache(String name, RedissonClient client, long ttlMinutes, CacheValueCodec codec, CacheErrorHandler cacheErrorHandler) {
         super(true);
         this.name = name;
         this.store = client;
         this.ttlMinutes = ttlMinutes;
+        this.codec = codec;
         this.cacheErrorHandler = cacheErrorHandler;
     }
 
@@ -50,10 +82,35 @@ public abstract class CustomRedisCache extends AbstractValueAdaptingCache {
         return this.store;
     }
 
+    /**
+     * @param singleFlightTimeoutInMillis the longest time to wait for the value computed by another caller, 0 disables the single flight
+     */
+    public void setSingleFlightTimeoutInMillis(long singleFlightTimeoutInMillis) {
+        this.singleFlightTimeoutInMillis = singleFlightTimeoutInMillis;
+        this.singleFlight = singleFlightTimeoutInMillis > 0 ? new SingleFlight(singleFlightTimeoutInMillis) : null;
+    }
+
+    public void setRefresher(CacheRefresher refresher) {
+        this.refresher = refresher;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper wrapper = super.get(key);
+        if (refresher != null && ttlMinutes != INFINITE_TTL) {
+            trackAccess(key, wrapper != null);
+        }
+        if (wrapper != null || singleFlight == null) {
+            return wrapper;
+        }
+        Object value = awaitFlight(key);
+        return value == null ? null : toValueWrapper(value);
+    }
+
     @Override
     protected Object lookup(Object key) {
         try {
-            return this.store.getBucket(name + REDIS_KEY_SEPARATOR + key).get();
+            return fromStoreValue(key, this.store.getBucket(getRedisKey(key)).get());
         } catch (RuntimeException e) {
             this.cacheErrorHandler.handleCacheGetError(e, this, key);
             // After CacheErrorHandler handles the error, return null to use non-cached version.
@@ -61,44 +118,314 @@ public abstract class CustomRedisCache extends AbstractValueAdaptingCache {
         }
     }
 
-    private void asyncRefresh(Object key) {
-        if (ttlMinutes != INFINITE_TTL) {
-            this.store.getBucket(name + REDIS_KEY_SEPARATOR + key).expireAsync(ttlMinutes, TimeUnit.MINUTES);
+    @Override
+    public Map<Object, Object> getAll(Collection<?> keys) {
+        Map<Object, Object> values = new HashMap<>();
+        try {
+            List<Object> keyList = new ArrayList<>(keys);
+            for (int start = 0; start < keyList.size(); start += BATCH_SIZE) {
+                List<Object> batchKeys = keyList.subList(start, Math.min(start + BATCH_SIZE, keyList.size()));
+                Map<String, Object> keysByRedisKey = new HashMap<>();
+                for (Object key : batchKeys) {
+                    keysByRedisKey.put(getRedisKey(key), key);
+                }
+                Map<String, Object> storeValues = this.store.getBuckets().get(keysByRedisKey.keySet().toArray(new String[0]));
+                for (Map.Entry<String, Object> entry : storeValues.entrySet()) {
+                    Object key = keysByRedisKey.get(entry.getKey());
+                    Object value = fromStoreValue(key, entry.getValue());
+                    if (value != null) {
+                        values.put(key, value);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            this.cacheErrorHandler.handleCacheGetError(e, this, keys);
+        }
+        return values;
+    }
+
+    @Override
+    public void putAll(Map<?, ?> values) {
+        try {
+            // All the writes are sent in one pipeline
+            RBatch batch = this.store.createBatch();
+            for (Map.Entry<?, ?> entry : values.entrySet()) {
+                Object storeValue = toStoreValue(entry.getKey(), entry.getValue());
+                if (storeValue == null) {
+                    continue;
+                }
+                RBucketAsync<Object> bucket = batch.getBucket(getRedisKey(entry.getKey()));
+                if (ttlMinutes == INFINITE_TTL) {
+                    bucket.setAsync(storeValue);
+                } else {
+                    bucket.setAsync(storeValue, ttlMinutes, TimeUnit.MINUTES);
+                }
+                addToGeneIndexes(batch, entry.getKey(), entry.getValue());
+            }
+            batch.executeAsync();
+        } catch (RuntimeException e) {
+            this.cacheErrorHandler.handleCachePutError(e, this, values.keySet(), values);
+        }
+    }
+
+    protected String getRedisKey(Object key) {
+        return name + REDIS_KEY_SEPARATOR + key;
+    }
+
+    // How the entry is referred to in the gene indexes
+    protected String getIndexMember(Object key) {
+        return getRedisKey(key);
+    }
+
+    // Delete the entries referred to in a gene index
+    protected void deleteIndexMembers(Collection<String> members) {
+        this.store.getKeys().delete(members.toArray(new String[0]));
+    }
+
+    private String getGeneIndexKey(Integer entrezGeneId) {
+        return name + GENE_INDEX_PREFIX + entrezGeneId;
+    }
+
+    private void addToGeneIndexes(RBatch batch, Object key, Object value) {
+        for (Integer entrezGeneId : GeneTags.getEntrezGeneIds(value)) {
+            RSetAsync<String> index = batch.getSet(getGeneIndexKey(entrezGeneId), StringCodec.INSTANCE);
+            index.addAsync(getIndexMember(key));
+            if (ttlMinutes != INFINITE_TTL) {
+                // The index lives as long as its last entry
+                index.expireAsync(ttlMinutes, TimeUnit.MINUTES);
+            }
+        }
+    }
+
+    /**
+     * Record the genes of a stored value.
+     */
+    protected void tagGenes(Object key, Object value) {
+        if (GeneTags.getEntrezGeneIds(value).isEmpty()) {
+            return;
+        }
+        try {
+            RBatch batch = this.store.createBatch();
+            addToGeneIndexes(batch, key, value);
+            batch.executeAsync();
+        } catch (RuntimeException e) {
+            this.cacheErrorHandler.handleCachePutError(e, this, key, value);
+        }
+    }
+
+    @Override
+    public void evictGene(Integer entrezGeneId) {
+        try {
+            RSet<String> index = this.store.getSet(getGeneIndexKey(entrezGeneId), StringCodec.INSTANCE);
+            Set<String> members = index.readAll();
+            if (!members.isEmpty()) {
+                deleteIndexMembers(members);
+                // Only the members read, the entries stored since then are kept
+                index.removeAll(members);
+            }
+        } catch (RuntimeException e) {
+            this.cacheErrorHandler.handleCacheEvictError(e, this, GENE_INDEX_PREFIX + entrezGeneId);
+        }
+        for (String member : new ArrayList<>(hotEntries.keySet())) {
+            HotEntry entry = hotEntries.get(member);
+            if (entry != null && entry.entrezGeneIds.contains(entrezGeneId)) {
+                hotEntries.remove(member, entry);
+            }
+        }
+    }
+
+    /**
+     * Wait for the value of a key which another caller is computing.
+     *
+     * @return the value, null when this caller has to compute the value
+     */
+    private Object awaitFlight(Object key) {
+        String redisKey = getRedisKey(key);
+        SingleFlight.Flight flight = singleFlight.join(redisKey);
+        if (!flight.isLeader()) {
+            return flight.getValue();
+        }
+
+        // This caller computes the value for the JVM, unless another node is computing it already
+        try {
+            RBucket<String> lease = this.store.getBucket(redisKey + LEASE_SUFFIX, StringCodec.INSTANCE);
+            if (lease.trySet(flight.getToken(), singleFlightTimeoutInMillis, TimeUnit.MILLISECONDS)) {
+                flight.setOnRelease(() -> releaseLease(key, flight.getToken()));
+                return null;
+            }
+            while (System.currentTimeMillis() < flight.getDeadline()) {
+                Thread.sleep(POLL_INTERVAL_IN_MILLIS);
+                Object value = lookup(key);
+                if (value != null) {
+                    completeFlight(key, value);
+                    return value;
+                }
+                if (!lease.isExists()) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            this.cacheErrorHandler.handleCacheGetError(e, this, key);
+        }
+        return null;
+    }
+
+    private void releaseLease(Object key, String token) {
+        try {
+            this.store.getBucket(getRedisKey(key) + LEASE_SUFFIX, StringCodec.INSTANCE).compareAndSetAsync(token, null);
+        } catch (RuntimeException e) {
+            this.cacheErrorHandler.handleCacheEvictError(e, this, key);
+        }
+    }
+
+    protected void clearHotEntries() {
+        hotEntries.clear();
+    }
+
+    /**
+     * Restart the tracking of the entry, it expires one TTL from now.
+     */
+    protected void onStored(Object key, Object value) {
+        if (hotEntries.isEmpty()) {
+            return;
+        }
+        HotEntry entry = hotEntries.get(getRedisKey(key));
+        if (entry != null) {
+            entry.hits.set(0);
+            entry.expiresAt = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(ttlMinutes);
+            entry.entrezGeneIds = GeneTags.getEntrezGeneIds(value);
+        }
+    }
+
+    /**
+     * Release the callers waiting for the value of the key, and the lease of the key when this JVM holds it.
+     *
+     * @param value null when no value was stored, the callers compute it themselves
+     */
+    protected void completeFlight(Object key, Object value) {
+        if (singleFlight != null) {
+            singleFlight.complete(getRedisKey(key), value);
+        }
+    }
+
+    private void trackAccess(Object key, boolean hit) {
+        String redisKey = getRedisKey(key);
+        HotEntry entry = hotEntries.get(redisKey);
+        if (entry == null) {
+            Callable<Object> loader = CacheInvocation.getLoader(name);
+            if (loader == null) {
+                return;
+            }
+            if (hotEntries.size() >= refresher.getMaxTrackedKeys()) {
+                // Drop the entries which expired without being refreshed
+                long now = System.currentTimeMillis();
+                hotEntries.values().removeIf(hotEntry -> hotEntry.expiresAt > 0 && hotEntry.expiresAt < now);
+                if (hotEntries.size() >= refresher.getMaxTrackedKeys()) {
+                    return;
+                }
+            }
+            entry = new HotEntry(loader);
+            HotEntry current = hotEntries.putIfAbsent(redisKey, entry);
+            if (current != null) {
+                entry = current;
+            } else if (hit) {
+                // The entry was stored by another node, get its expiration once
+                HotEntry newEntry = entry;
+                this.store.getBucket(redisKey).remainTimeToLiveAsync().thenAccept(remaining -> {
+                    if (remaining != null && remaining > 0) {
+                        newEntry.expiresAt = System.currentTimeMillis() + remaining;
+                    }
+                });
+            }
+        }
+        if (!hit) {
+            return;
+        }
+        int hits = entry.hits.incrementAndGet();
+        HotEntry hotEntry = entry;
+        if (hits >= refresher.getMinHits() && entry.expiresAt > 0
+            && refresher.isInRefreshWindow(entry.expiresAt, TimeUnit.MINUTES.toMillis(ttlMinutes))
+            && entry.refreshing.compareAndSet(false, true)) {
+            if (!refresher.submit(() -> asyncRefresh(key, hotEntry))) {
+                entry.refreshing.set(false);
+            }
+        }
+    }
+
+    private void asyncRefresh(Object key, HotEntry entry) {
+        try {
+            put(key, entry.loader.call());
+        } catch (Exception e) {
+            LOG.warn("Failed to refresh the entry {} of the cache {}", key, name, e);
+            // Let the entry expire, it will be tracked again the next time it is computed
+            hotEntries.remove(getRedisKey(key), entry);
+        } finally {
+            entry.refreshing.set(false);
         }
     }
 
     @Override
     public void put(Object key, Object value) {
         try{
-            if (ttlMinutes == INFINITE_TTL) {
-                this.store.getBucket(name + REDIS_KEY_SEPARATOR + key).setAsync(value);
-            } else {
-                this.store.getBucket(name + REDIS_KEY_SEPARATOR + key).setAsync(value, ttlMinutes, TimeUnit.MINUTES);
+            Object storeValue = toStoreValue(key, value);
+            if (storeValue != null) {
+                if (ttlMinutes == INFINITE_TTL) {
+                    this.store.getBucket(getRedisKey(key)).setAsync(storeValue);
+                } else {
+                    this.store.getBucket(getRedisKey(key)).setAsync(storeValue, ttlMinutes, TimeUnit.MINUTES);
+                }
             }
         } catch (RuntimeException e) {
             this.cacheErrorHandler.handleCachePutError(e, this, key, value);
         }
-
+        tagGenes(key, value);
+        completeFlight(key, value);
+        onStored(key, value);
     }
 
     @Override
     public ValueWrapper putIfAbsent(Object key, Object value) {
-        Object cached = lookup(key);
-        if (cached != null) {
-            return toValueWrapper(cached);
-        } else {
-            put(key, value);
+        Object storeValue = toStoreValue(key, value);
+        if (storeValue == null) {
+            completeFlight(key, null);
+            return toValueWrapper(lookup(key));
+        }
+        try {
+            // SET NX, only one of the concurrent callers writes its value
+            boolean set = ttlMinutes == INFINITE_TTL ?
+                this.store.getBucket(getRedisKey(key)).trySet(storeValue) :
+                this.store.getBucket(getRedisKey(key)).trySet(storeValue, ttlMinutes, TimeUnit.MINUTES);
+            if (set) {
+                tagGenes(key, value);
+                completeFlight(key, value);
+                onStored(key, value);
+                return null;
+            }
+        } catch (RuntimeException e) {
+            this.cacheErrorHandler.handleCachePutError(e, this, key, value);
+            completeFlight(key, null);
+            return null;
         }
-        return toValueWrapper(value);
+        Object existing = lookup(key);
+        completeFlight(key, existing);
+        return toValueWrapper(existing);
     }
 
     @Override
     public void evict(Object key) {
-        // no op: Redis handles evictions
+        try {
+            this.store.getBucket(getRedisKey(key)).deleteAsync();
+        } catch (RuntimeException e) {
+            this.cacheErrorHandler.handleCacheEvictError(e, this, key);
+        }
+        hotEntries.remove(getRedisKey(key));
     }
 
     @Override
     public void clear() {
+        clearHotEntries();
         try {
             this.store.getKeys().deleteByPattern(name + REDIS_KEY_SEPARATOR + "*");
         } catch (RuntimeException e) {
@@ -112,60 +439,51 @@ public abstract class CustomRedisCache extends AbstractValueAdaptingCache {
             LOG.warn("Storing null value in cache. That's probably not great.");
             return null;
         }
-
-        ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
-        ObjectOutputStream objectOut;
-        try {
-            // serialize to byte array
-            objectOut = new ObjectOutputStream(byteOut);
-            objectOut.writeObject(userValue);
-            objectOut.flush();
-            byte[] uncompressedByteArray = byteOut.toByteArray();
-
-            // compress byte array
-            byteOut = new ByteArrayOutputStream(uncompressedByteArray.length);
-            GZIPOutputStream g = new GZIPOutputStream(byteOut);
-            g.write(uncompressedByteArray);
-            g.close();
-            return byteOut.toByteArray();
-        } catch (IOException e) {
-            LOG.warn("Error compressing object for cache: ", e);
-            return null;
-        }
+        return codec.encode(userValue);
     }
 
     @Override
     protected Object fromStoreValue(Object storeValue) {
-        if (storeValue == null) {
-            return null;
+        return codec.decode(storeValue);
+    }
+
+    /**
+     * The value of a HashedCacheKey is stored with a checksum of the key, so a hash collision is not read as a hit.
+     */
+    protected Object toStoreValue(Object key, Object userValue) {
+        if (key instanceof HashedCacheKey && userValue != null) {
+            return toStoreValue(((HashedCacheKey) key).wrap(userValue));
         }
+        return toStoreValue(userValue);
+    }
 
-        byte[] bytes = (byte[]) storeValue;
-        ByteArrayInputStream byteIn = new ByteArrayInputStream(bytes);
-        ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
-        GZIPInputStream gzipIn;
-        try {
-            // inflate to byte array
-            gzipIn = new GZIPInputStream(byteIn);
-            byte[] buffer = new byte[1024];
-            int len;
-            while ((len = gzipIn.read(buffer)) != -1) {
-                byteOut.write(buffer, 0, len);
+    protected Object fromStoreValue(Object key, Object storeValue) {
+        Object value = fromStoreValue(storeValue);
+        if (key instanceof HashedCacheKey && value != null) {
+            Object unwrapped = ((HashedCacheKey) key).unwrap(value);
+            if (unwrapped == null) {
+                LOG.warn("The entry {} of the cache {} was stored with another key", key, name);
             }
-            byte[] unzippedBytes = byteOut.toByteArray();
-
-            // deserialize byte array to object
-            byteIn = new ByteArrayInputStream(unzippedBytes);
-            ObjectInputStream oi = new ObjectInputStream(byteIn);
-            return oi.readObject();
-        } catch (IOException | ClassNotFoundException e) {
-            LOG.warn("Error inflating object from cache: ", e);
-            return null;
+            return unwrapped;
         }
+        return value;
     }
 
     @Override
     protected Cache.ValueWrapper toValueWrapper(Object storeValue) {
         return (storeValue != null ? new SimpleValueWrapper(storeValue) : null);
     }
+
+    private static class HotEntry {
+        private final Callable<Object> loader;
+        private final AtomicInteger hits = new AtomicInteger();
+        private final AtomicBoolean refreshing = new AtomicBoolean(false);
+        // 0 until it is known
+        private volatile long expiresAt = 0;
+        private volatile Set<Integer> entrezGeneIds = Collections.emptySet();
+
+        HotEntry(Callable<Object> loader) {
+            this.loader = loader;
+        }
+    }
 }
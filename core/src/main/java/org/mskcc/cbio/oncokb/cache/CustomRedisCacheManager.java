@@ -1,24 +1,47 @@
 package org.mskcc.cbio.oncokb.cache;
 
+import org.apache.commons.lang3.StringUtils;
+import org.mskcc.cbio.oncokb.util.PropertiesUtils;
 import org.redisson.api.RedissonClient;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.interceptor.CacheErrorHandler;
 
-import java.util.Collection;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
-public class CustomRedisCacheManager implements CacheManager {
-    private final ConcurrentMap<String, CustomRedisCache> caches = new ConcurrentHashMap<>();
+import static org.mskcc.cbio.oncokb.cache.Constants.REDIS_KEY_SEPARATOR;
+
+/**
+ * When the local tier is enabled (cache.l1.enable), every cache is a TwoTierCache, see TwoTierCache.
+ * The size and the TTL (in seconds) of the local tier are cache.l1.maxSize and cache.l1.ttl, they can be set for
+ * a single cache with cache.l1.[method name].maxSize and cache.l1.[method name].ttl. The local TTL is never longer
+ * than the Redis one.
+ * <p>
+ * When a gene is updated through GeneCacheObservable, only the entries tagged with the gene are evicted from both
+ * tiers (see GeneTaggedCache). After a reset, the caches are created again in the namespace of the data reloaded,
+ * see CacheNameResolver.
+ */
+public class CustomRedisCacheManager implements CacheManager, Observer {
+    private static final int DEFAULT_LOCAL_MAX_SIZE = 10000;
+    // in seconds
+    private static final int DEFAULT_LOCAL_TTL = 300;
+
+    private final ConcurrentMap<String, Cache> caches = new ConcurrentHashMap<>();
     private final RedissonClient client;
     private final long ttlInMins;
+    private final CacheValueCodec codec;
     private CacheNameResolver cacheNameResolver;
     private CacheErrorHandler cacheErrorHandler;
+    private boolean localTierEnabled = false;
+    private long singleFlightTimeoutInMillis = 0;
+    private CacheRefresher refresher;
 
-    public CustomRedisCacheManager(RedissonClient client, long ttlInMins, CacheNameResolver cacheNameResolver, CacheErrorHandler cacheErrorHandler) {
+    public CustomRedisCacheManager(RedissonClient client, long ttlInMins, CacheValueCodec codec, CacheNameResolver cacheNameResolver, CacheErrorHandler cacheErrorHandler) {
         this.client = client;
         this.ttlInMins = ttlInMins;
+        this.codec = codec;
         this.cacheNameResolver = cacheNameResolver;
         this.cacheErrorHandler = cacheErrorHandler;
     }
@@ -44,17 +67,93 @@ public class CustomRedisCacheManager implements CacheManager {
 
     public void clearAll() {
         // remove all cache within the application
+        clearLocalTiers();
         this.getCache("*").clear();
     }
 
+    public void setLocalTierEnabled(boolean localTierEnabled) {
+        this.localTierEnabled = localTierEnabled;
+    }
+
+    /**
+     * @param singleFlightTimeoutInMillis see CustomRedisCache.setSingleFlightTimeoutInMillis
+     */
+    public void setSingleFlightTimeoutInMillis(long singleFlightTimeoutInMillis) {
+        this.singleFlightTimeoutInMillis = singleFlightTimeoutInMillis;
+    }
+
+    /**
+     * @param refresher refreshes the hot entries of the caches which expire, null disables the refresh-ahead
+     */
+    public void setRefresher(CacheRefresher refresher) {
+        this.refresher = refresher;
+    }
+
     public Cache getCache(String name, boolean expires) {
         long clientTTLInMinutes = expires ? ttlInMins : CustomRedisCache.INFINITE_TTL;
         String cacheName = this.cacheNameResolver.getCacheName(name);
         return caches.computeIfAbsent(cacheName, k -> {
-            return new CustomBucketRedisCache(cacheName, client, clientTTLInMinutes, cacheErrorHandler);
+            CustomRedisCache redisCache = new CustomBucketRedisCache(cacheName, client, clientTTLInMinutes, codec, cacheErrorHandler);
+            redisCache.setSingleFlightTimeoutInMillis(singleFlightTimeoutInMillis);
+            redisCache.setRefresher(refresher);
+            Cache cache = redisCache;
+            if (localTierEnabled && !"*".equals(name)) {
+                long localTTLInMillis = getLocalTierProperty(name, "ttl", DEFAULT_LOCAL_TTL) * 1000L;
+                if (expires) {
+                    localTTLInMillis = Math.min(localTTLInMillis, ttlInMins * 60 * 1000);
+                }
+                cache = new TwoTierCache(cache, getLocalTierProperty(name, "maxSize", DEFAULT_LOCAL_MAX_SIZE), localTTLInMillis);
+            }
+            return cache;
         });
     }
 
+    public List<TwoTierCache> getTwoTierCaches() {
+        List<TwoTierCache> twoTierCaches = new ArrayList<>();
+        for (Cache cache : caches.values()) {
+            if (cache instanceof TwoTierCache) {
+                twoTierCaches.add((TwoTierCache) cache);
+            }
+        }
+        return twoTierCaches;
+    }
+
+    public void clearLocalTiers() {
+        for (TwoTierCache cache : getTwoTierCaches()) {
+            cache.clearLocal();
+        }
+    }
+
+    @Override
+    public void update(Observable o, Object arg) {
+        Map<String, String> operation = (Map<String, String>) arg;
+        if ("update".equals(operation.get("cmd"))) {
+            Integer entrezGeneId = Integer.parseInt(operation.get("val"));
+            for (Cache cache : caches.values()) {
+                if (cache instanceof GeneTaggedCache) {
+                    ((GeneTaggedCache) cache).evictGene(entrezGeneId);
+                }
+            }
+        } else if ("reset".equals(operation.get("cmd"))) {
+            clearLocalTiers();
+            cacheNameResolver.resetNamespace();
+            caches.clear();
+        }
+    }
+
+    private int getLocalTierProperty(String name, String property, int defaultValue) {
+        // The method name, the cache names have the category as prefix, see GeneralCacheResolver
+        String methodName = name.substring(name.lastIndexOf(REDIS_KEY_SEPARATOR) + 1);
+        String value = PropertiesUtils.getProperties("cache.l1." + methodName + "." + property);
+        if (StringUtils.isEmpty(value)) {
+            value = PropertiesUtils.getProperties("cache.l1." + property);
+        }
+        if (StringUtils.isNotEmpty(value)) {
+            return Integer.parseInt(value.trim());
+        }
+        return defaultValue;
+    }
+
     /**
      * Get a collection of the cache names known by this manager.
      *
@@ -0,0 +1,11 @@
+package org.mskcc.cbio.oncokb.cache;
+
+/**
+ * A cache which keeps track of the genes of its values, see GeneTags.
+ */
+public interface GeneTaggedCache {
+    /**
+     * Evict the values computed from the gene.
+     */
+    void evictGene(Integer entrezGeneId);
+}
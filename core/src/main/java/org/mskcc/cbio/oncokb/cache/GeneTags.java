@@ -0,0 +1,49 @@
+package org.mskcc.cbio.oncokb.cache;
+
+import org.mskcc.cbio.oncokb.model.Alteration;
+import org.mskcc.cbio.oncokb.model.Gene;
+import org.mskcc.cbio.oncokb.model.IndicatorQueryCore;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The genes a cached value is computed from, the value is evicted when one of them is updated.
+ */
+public final class GeneTags {
+    private GeneTags() {
+    }
+
+    /**
+     * @return the entrez gene ids of the value, empty when the value does not belong to specific genes
+     */
+    public static Set<Integer> getEntrezGeneIds(Object value) {
+        if (value instanceof IndicatorQueryCore) {
+            IndicatorQueryCore queryCore = (IndicatorQueryCore) value;
+            Set<Integer> entrezGeneIds = new HashSet<>();
+            addGene(entrezGeneIds, queryCore.getGene());
+            if (queryCore.getFusionGenes() != null) {
+                for (Gene gene : queryCore.getFusionGenes()) {
+                    addGene(entrezGeneIds, gene);
+                }
+            }
+            return entrezGeneIds;
+        } else if (value instanceof Alteration) {
+            Set<Integer> entrezGeneIds = new HashSet<>();
+            addGene(entrezGeneIds, ((Alteration) value).getGene());
+            return entrezGeneIds;
+        } else if (value instanceof Gene) {
+            Set<Integer> entrezGeneIds = new HashSet<>();
+            addGene(entrezGeneIds, (Gene) value);
+            return entrezGeneIds;
+        }
+        return Collections.emptySet();
+    }
+
+    private static void addGene(Set<Integer> entrezGeneIds, Gene gene) {
+        if (gene != null && gene.getEntrezGeneId() != null) {
+            entrezGeneIds.add(gene.getEntrezGeneId());
+        }
+    }
+}
@@ -20,7 +20,12 @@ public class GeneralCacheResolver implements CacheResolver {
     @Override
     public Collection<? extends Cache> resolveCaches(CacheOperationInvocationContext<?> context) {
         Collection<Cache> caches = new ArrayList<>();
-        caches.add(cacheManager.getCache(CacheCategory.GENERAL.getKey() + REDIS_KEY_SEPARATOR + context.getMethod().getName()));
+        Cache cache = cacheManager.getCache(CacheCategory.GENERAL.getKey() + REDIS_KEY_SEPARATOR + context.getMethod().getName());
+        caches.add(cache);
+        if (cache != null) {
+            // The cache is read right after, it can use the invocation to refresh the entry, see CacheRefresher
+            CacheInvocation.set(cache.getName(), context.getTarget(), context.getMethod(), context.getArgs());
+        }
         return caches;
     }
 }
@@ -0,0 +1,128 @@
+package org.mskcc.cbio.oncokb.cache;
+
+import org.mskcc.cbio.oncokb.model.*;
+import org.mskcc.cbio.oncokb.util.IndicatorUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+import java.util.*;
+
+import static org.mskcc.cbio.oncokb.Constants.DEFAULT_REFERENCE_GENOME;
+import static org.mskcc.cbio.oncokb.cache.Constants.REDIS_KEY_SEPARATOR;
+
+/**
+ * Caches the tumor type independent part of the annotation. This has to be a separate bean from CacheFetcher,
+ * the cache proxy is not applied to calls within the same bean.
+ */
+@Component
+public class IndicatorQueryCoreFetcher {
+    private static final Method PROCESS_QUERY_CORE = ReflectionUtils.findMethod(IndicatorQueryCoreFetcher.class, "processQueryCore",
+        ReferenceGenome.class, Integer.class, String.class, String.class, String.class, String.class, Integer.class, Integer.class, StructuralVariantType.class, String.class, Set.class);
+
+    @Autowired(required = false)
+    CacheManager cacheManager;
+
+    @Autowired(required = false)
+    @Qualifier("canonicalKeyGenerator")
+    KeyGenerator keyGenerator;
+
+    @Cacheable(
+        cacheResolver = "generalCacheResolver",
+        keyGenerator = "canonicalKeyGenerator"
+    )
+    public IndicatorQueryCore processQueryCore(ReferenceGenome referenceGenome,
+                                               Integer entrezGeneId,
+                                               String hugoSymbol,
+                                               String alteration,
+                                               String alterationType,
+                                               String consequence,
+                                               Integer proteinStart,
+                                               Integer proteinEnd,
+                                               StructuralVariantType svType,
+                                               String hgvs,
+                                               Set<EvidenceType> coreEvidenceTypes) {
+        if (referenceGenome == null) {
+            referenceGenome = DEFAULT_REFERENCE_GENOME;
+        }
+        Query query = new Query(null, referenceGenome, entrezGeneId, hugoSymbol, alteration, alterationType, svType, null, consequence, proteinStart, proteinEnd, hgvs);
+        return IndicatorUtils.processQueryCore(query, coreEvidenceTypes);
+    }
+
+    /**
+     * The same as processQueryCore for a batch of queries, with the same cache entries. The cached entries are read
+     * with a few multi-gets instead of one round trip per query, the missing ones are computed once per distinct query
+     * and written back in one pipeline.
+     *
+     * @param queries           the queries, the tumor types are ignored
+     * @param coreEvidenceTypes the core evidence types of every query, in the same order
+     * @return the annotations in the order of the queries
+     */
+    public List<IndicatorQueryCore> processQueryCores(List<Query> queries, List<Set<EvidenceType>> coreEvidenceTypes) {
+        List<Object[]> arguments = new ArrayList<>();
+        for (int i = 0; i < queries.size(); i++) {
+            Query query = queries.get(i);
+            arguments.add(new Object[]{query.getReferenceGenome(), query.getEntrezGeneId(), query.getHugoSymbol(), query.getAlteration(),
+                query.getAlterationType(), query.getConsequence(), query.getProteinStart(), query.getProteinEnd(), query.getSvType(),
+                query.getHgvs(), coreEvidenceTypes.get(i)});
+        }
+
+        Cache cache = getCache();
+        if (!(cache instanceof BatchCache) || keyGenerator == null) {
+            List<IndicatorQueryCore> queryCores = new ArrayList<>();
+            for (Object[] argument : arguments) {
+                queryCores.add(processQueryCore(argument));
+            }
+            return queryCores;
+        }
+
+        // The position of the first query of every key, the queries with the same key are computed once
+        Map<Object, Integer> firstPositions = new LinkedHashMap<>();
+        List<Object> keys = new ArrayList<>();
+        for (int i = 0; i < arguments.size(); i++) {
+            Object key = keyGenerator.generate(this, PROCESS_QUERY_CORE, arguments.get(i));
+            keys.add(key);
+            firstPositions.putIfAbsent(key, i);
+        }
+
+        BatchCache batchCache = (BatchCache) cache;
+        Map<Object, Object> values = new HashMap<>(batchCache.getAll(firstPositions.keySet()));
+        Map<Object, Object> computed = new HashMap<>();
+        for (Map.Entry<Object, Integer> entry : firstPositions.entrySet()) {
+            if (!values.containsKey(entry.getKey())) {
+                IndicatorQueryCore queryCore = processQueryCore(arguments.get(entry.getValue()));
+                computed.put(entry.getKey(), queryCore);
+                values.put(entry.getKey(), queryCore);
+            }
+        }
+        if (!computed.isEmpty()) {
+            batchCache.putAll(computed);
+        }
+
+        List<IndicatorQueryCore> queryCores = new ArrayList<>();
+        for (Object key : keys) {
+            queryCores.add((IndicatorQueryCore) values.get(key));
+        }
+        return queryCores;
+    }
+
+    private Cache getCache() {
+        if (cacheManager == null) {
+            return null;
+        }
+        // The cache resolved by the generalCacheResolver for processQueryCore
+        return cacheManager.getCache(CacheCategory.GENERAL.getKey() + REDIS_KEY_SEPARATOR + PROCESS_QUERY_CORE.getName());
+    }
+
+    private IndicatorQueryCore processQueryCore(Object[] argument) {
+        return processQueryCore((ReferenceGenome) argument[0], (Integer) argument[1], (String) argument[2], (String) argument[3],
+            (String) argument[4], (String) argument[5], (Integer) argument[6], (Integer) argument[7],
+            (StructuralVariantType) argument[8], (String) argument[9], (Set<EvidenceType>) argument[10]);
+    }
+}
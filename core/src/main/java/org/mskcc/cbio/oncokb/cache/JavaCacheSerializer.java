@@ -0,0 +1,33 @@
+package org.mskcc.cbio.oncokb.cache;
+
+import java.io.*;
+
+/**
+ * Java serialization, all the cached values are Serializable.
+ */
+public class JavaCacheSerializer implements CacheSerializer {
+    public static final byte ID = 1;
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOut = new ObjectOutputStream(byteOut)) {
+            objectOut.writeObject(value);
+        }
+        return byteOut.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws IOException {
+        try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return objectIn.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+}
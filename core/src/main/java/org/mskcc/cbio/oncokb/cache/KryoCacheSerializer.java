@@ -0,0 +1,59 @@
+package org.mskcc.cbio.oncokb.cache;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.CompatibleFieldSerializer;
+import com.esotericsoftware.kryo.util.DefaultInstantiatorStrategy;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+
+import java.io.IOException;
+
+/**
+ * Kryo binary encoding. The class of a value is written once and the output is a fraction of the Java serialization
+ * and is faster to read. The objects are written with CompatibleFieldSerializer, the field names are written once per
+ * class, so a value written before a field of its model was added or removed is still read.
+ * Kryo instances are not thread safe, every thread has its own.
+ */
+public class KryoCacheSerializer implements CacheSerializer {
+    public static final byte ID = 2;
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+
+    private final ThreadLocal<Kryo> kryos = ThreadLocal.withInitial(() -> {
+        Kryo kryo = new Kryo();
+        // The cached values are the models and collections of them, there is no fixed list of classes to register
+        kryo.setRegistrationRequired(false);
+        // The models reference each other, e.g. the alterations and their gene
+        kryo.setReferences(true);
+        // Not all the models have a no-arg constructor
+        kryo.setInstantiatorStrategy(new DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+        // The models change between the releases, the default FieldSerializer reads the fields by position only
+        kryo.setDefaultSerializer(CompatibleFieldSerializer.class);
+        return kryo;
+    });
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws IOException {
+        try (Output output = new Output(INITIAL_BUFFER_SIZE, -1)) {
+            kryos.get().writeClassAndObject(output, value);
+            return output.toBytes();
+        } catch (KryoException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws IOException {
+        try (Input input = new Input(bytes)) {
+            return kryos.get().readClassAndObject(input);
+        } catch (KryoException e) {
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package org.mskcc.cbio.oncokb.cache;
+
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A size bounded on-heap cache, the least recently used entry is dropped when the cache is full and an entry
+ * expires after the TTL. It is the local tier of a TwoTierCache, and the whole cache when the caches are local,
+ * see LocalCacheManager.
+ * <p>
+ * The values are shared by all the callers, they must be treated as immutable. Null values are not stored.
+ */
+public class LocalCache implements BatchCache, GeneTaggedCache {
+    public static final long INFINITE_TTL = -1;
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlInMillis;
+    private final Map<Object, LocalEntry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param ttlInMillis INFINITE_TTL when the entries never expire, nothing is stored when it is 0
+     */
+    public LocalCache(String name, int maxSize, long ttlInMillis) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlInMillis = ttlInMillis;
+        this.entries = new LinkedHashMap<Object, LocalEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, LocalEntry> eldest) {
+                if (size() > LocalCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return entries;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        Object value = getValue(key);
+        if (value == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return new SimpleValueWrapper(value);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper == null ? null : wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null || maxSize <= 0 || ttlInMillis == 0) {
+            return;
+        }
+        long expiresAt = ttlInMillis == INFINITE_TTL ? Long.MAX_VALUE : System.currentTimeMillis() + ttlInMillis;
+        synchronized (entries) {
+            entries.put(key, new LocalEntry(value, expiresAt));
+        }
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        synchronized (entries) {
+            Object existingValue = getValue(key);
+            if (existingValue != null) {
+                return new SimpleValueWrapper(existingValue);
+            }
+            put(key, value);
+            return null;
+        }
+    }
+
+    @Override
+    public Map<Object, Object> getAll(Collection<?> keys) {
+        Map<Object, Object> values = new HashMap<>();
+        for (Object key : keys) {
+            ValueWrapper wrapper = get(key);
+            if (wrapper != null) {
+                values.put(key, wrapper.get());
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public void putAll(Map<?, ?> values) {
+        for (Map.Entry<?, ?> entry : values.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    @Override
+    public void evictGene(Integer entrezGeneId) {
+        synchronized (entries) {
+            entries.values().removeIf(entry -> GeneTags.getEntrezGeneIds(entry.value).contains(entrezGeneId));
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getTtlInMillis() {
+        return ttlInMillis;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public double getHitRatio() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    private Object getValue(Object key) {
+        synchronized (entries) {
+            LocalEntry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt < System.currentTimeMillis()) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.value;
+        }
+    }
+
+    private static class LocalEntry {
+        private final Object value;
+        private final long expiresAt;
+
+        LocalEntry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
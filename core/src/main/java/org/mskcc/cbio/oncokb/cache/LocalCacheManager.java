@@ -0,0 +1,90 @@
+package org.mskcc.cbio.oncokb.cache;
+
+import org.apache.commons.lang3.StringUtils;
+import org.mskcc.cbio.oncokb.util.PropertiesUtils;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.mskcc.cbio.oncokb.cache.Constants.REDIS_KEY_SEPARATOR;
+
+/**
+ * The caches of a single node, used instead of CustomRedisCacheManager when cache.backend is local.
+ * The caches have the same names and TTL as the Redis ones, the static caches never expire. Every cache is a
+ * LocalCache of at most cache.local.maxSize entries, or cache.local.[method name].maxSize for a single cache.
+ * <p>
+ * Like CustomRedisCacheManager, the entries of a gene updated through GeneCacheObservable are evicted and
+ * a reset drops all the caches.
+ */
+public class LocalCacheManager implements CacheManager, Observer {
+    private static final int DEFAULT_MAX_SIZE = 10000;
+
+    private final ConcurrentMap<String, LocalCache> caches = new ConcurrentHashMap<>();
+    private final long ttlInMins;
+    private final CacheNameResolver cacheNameResolver;
+
+    public LocalCacheManager(long ttlInMins, CacheNameResolver cacheNameResolver) {
+        this.ttlInMins = ttlInMins;
+        this.cacheNameResolver = cacheNameResolver;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        // Same as CustomRedisCacheManager.getCache, the static caches do not expire
+        return getCache(name, !name.toLowerCase().contains("static"));
+    }
+
+    public Cache getCache(String name, boolean expires) {
+        String cacheName = this.cacheNameResolver.getCacheName(name);
+        return caches.computeIfAbsent(cacheName, k -> new LocalCache(
+            cacheName,
+            getMaxSize(name),
+            expires ? ttlInMins * 60 * 1000 : LocalCache.INFINITE_TTL
+        ));
+    }
+
+    public List<LocalCache> getLocalCaches() {
+        return new ArrayList<>(caches.values());
+    }
+
+    public void clearAll() {
+        for (LocalCache cache : caches.values()) {
+            cache.clear();
+        }
+    }
+
+    @Override
+    public void update(Observable o, Object arg) {
+        Map<String, String> operation = (Map<String, String>) arg;
+        if ("update".equals(operation.get("cmd"))) {
+            Integer entrezGeneId = Integer.parseInt(operation.get("val"));
+            for (LocalCache cache : caches.values()) {
+                cache.evictGene(entrezGeneId);
+            }
+        } else if ("reset".equals(operation.get("cmd"))) {
+            cacheNameResolver.resetNamespace();
+            caches.clear();
+        }
+    }
+
+    private int getMaxSize(String name) {
+        // The method name, the cache names have the category as prefix, see GeneralCacheResolver
+        String methodName = name.substring(name.lastIndexOf(REDIS_KEY_SEPARATOR) + 1);
+        String value = PropertiesUtils.getProperties("cache.local." + methodName + ".maxSize");
+        if (StringUtils.isEmpty(value)) {
+            value = PropertiesUtils.getProperties("cache.local.maxSize");
+        }
+        if (StringUtils.isNotEmpty(value)) {
+            return Integer.parseInt(value.trim());
+        }
+        return DEFAULT_MAX_SIZE;
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return caches.keySet();
+    }
+}
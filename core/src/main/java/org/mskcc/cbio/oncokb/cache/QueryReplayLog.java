@@ -0,0 +1,303 @@
+package org.mskcc.cbio.oncokb.cache;
+
+import org.apache.commons.lang3.StringUtils;
+import org.mskcc.cbio.oncokb.model.*;
+import org.mskcc.cbio.oncokb.util.PropertiesUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A sample of the variant level queries processed by CacheFetcher (the arguments of
+ * IndicatorQueryCoreFetcher.processQueryCore) with the number of times they were sampled. The counts are kept in
+ * memory and written periodically to a gzipped file, one tab separated query per line, so they survive restarts.
+ * The most frequent queries are replayed by the CacheWarmer.
+ * <p>
+ * The counts are halved every cache.warmup.log.halfLife hours, so the queries which are not asked anymore fade out.
+ * When more than cache.warmup.log.maxQueries distinct queries are recorded, the least frequent ones are dropped to
+ * make room for the new ones.
+ * <p>
+ * Enable with cache.warmup.log.enable, cache.warmup.log.file is then required and should be on a persistent volume.
+ * cache.warmup.log.sampleRate is the fraction of the queries recorded.
+ */
+@Component
+public class QueryReplayLog {
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryReplayLog.class);
+    private static final double DEFAULT_SAMPLE_RATE = 0.01;
+    private static final int DEFAULT_MAX_QUERIES = 100000;
+    // in seconds
+    private static final int DEFAULT_FLUSH_INTERVAL = 60;
+    // in hours
+    private static final int DEFAULT_HALF_LIFE = 24;
+    // The fraction of maxQueries dropped at once, so the least frequent queries are not sorted for every new query
+    private static final int EVICTED_FRACTION = 10;
+    private static final String FIELD_SEPARATOR = "\t";
+    private static final String DECAYED_AT_PREFIX = "#";
+    private static final String NULL = "\\N";
+
+    private final ConcurrentMap<String, AtomicLong> counts = new ConcurrentHashMap<>();
+    private boolean enabled = false;
+    private double sampleRate = DEFAULT_SAMPLE_RATE;
+    private int maxQueries = DEFAULT_MAX_QUERIES;
+    private long halfLifeInMillis = DEFAULT_HALF_LIFE * 3600 * 1000L;
+    // The last time the counts were halved, in milliseconds
+    private volatile long decayedAt = System.currentTimeMillis();
+    private File file;
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    public void init() {
+        enabled = Boolean.parseBoolean(StringUtils.trimToEmpty(PropertiesUtils.getProperties("cache.warmup.log.enable")));
+        String configuredFile = PropertiesUtils.getProperties("cache.warmup.log.file");
+        file = StringUtils.isEmpty(configuredFile) ? null : new File(configuredFile.trim());
+        if (!enabled) {
+            return;
+        }
+        if (file == null) {
+            throw new IllegalStateException("cache.warmup.log.file is required when the query replay log is enabled");
+        }
+        String configuredSampleRate = PropertiesUtils.getProperties("cache.warmup.log.sampleRate");
+        if (StringUtils.isNotEmpty(configuredSampleRate)) {
+            sampleRate = Double.parseDouble(configuredSampleRate.trim());
+        }
+        String configuredMaxQueries = PropertiesUtils.getProperties("cache.warmup.log.maxQueries");
+        if (StringUtils.isNotEmpty(configuredMaxQueries)) {
+            maxQueries = Integer.parseInt(configuredMaxQueries.trim());
+        }
+        String configuredFlushInterval = PropertiesUtils.getProperties("cache.warmup.log.flushInterval");
+        int flushInterval = StringUtils.isNotEmpty(configuredFlushInterval) ? Integer.parseInt(configuredFlushInterval.trim()) : DEFAULT_FLUSH_INTERVAL;
+        String configuredHalfLife = PropertiesUtils.getProperties("cache.warmup.log.halfLife");
+        if (StringUtils.isNotEmpty(configuredHalfLife)) {
+            halfLifeInMillis = Integer.parseInt(configuredHalfLife.trim()) * 3600 * 1000L;
+        }
+
+        for (Map.Entry<String, Long> entry : read().entrySet()) {
+            counts.put(entry.getKey(), new AtomicLong(entry.getValue()));
+        }
+        evictLeastFrequent(null);
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "query-replay-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(() -> {
+            if (System.currentTimeMillis() - decayedAt >= halfLifeInMillis) {
+                decay();
+            }
+            flush();
+        }, flushInterval, flushInterval, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (flusher != null) {
+            flusher.shutdown();
+            flush();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sample a query, the arguments are the ones of IndicatorQueryCoreFetcher.processQueryCore.
+     */
+    public void record(Query query, Set<EvidenceType> coreEvidenceTypes) {
+        if (!enabled || query == null || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        String line = encode(query, coreEvidenceTypes);
+        AtomicLong count = counts.get(line);
+        if (count == null) {
+            count = counts.computeIfAbsent(line, k -> new AtomicLong());
+            if (counts.size() > maxQueries) {
+                evictLeastFrequent(line);
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    /**
+     * Drop the least frequent queries when there are more than maxQueries, a tenth of maxQueries at once.
+     *
+     * @param kept the query just recorded, which is not dropped
+     */
+    synchronized void evictLeastFrequent(String kept) {
+        if (counts.size() <= maxQueries) {
+            return;
+        }
+        int evicted = counts.size() - maxQueries + maxQueries / EVICTED_FRACTION;
+        List<Map.Entry<String, Long>> leastFrequent = new ArrayList<>();
+        counts.forEach((line, count) -> {
+            if (!line.equals(kept)) {
+                leastFrequent.add(new AbstractMap.SimpleEntry<>(line, count.get()));
+            }
+        });
+        leastFrequent.sort(Map.Entry.comparingByValue());
+        for (Map.Entry<String, Long> entry : leastFrequent.subList(0, Math.min(evicted, leastFrequent.size()))) {
+            counts.remove(entry.getKey());
+        }
+    }
+
+    // Halve the counts, the queries not recorded since the last time are dropped
+    synchronized void decay() {
+        for (Map.Entry<String, AtomicLong> entry : counts.entrySet()) {
+            if (entry.getValue().updateAndGet(count -> count / 2) == 0) {
+                counts.remove(entry.getKey(), entry.getValue());
+            }
+        }
+        decayedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * The most frequent queries recorded, with the core evidence types of each query at the same position.
+     */
+    public List<Map.Entry<Query, Set<EvidenceType>>> getTopQueries(int limit) {
+        Map<String, Long> snapshot = new HashMap<>();
+        if (enabled) {
+            counts.forEach((line, count) -> snapshot.put(line, count.get()));
+        } else {
+            // Queries recorded by a previous run
+            snapshot.putAll(read());
+        }
+        List<Map.Entry<Query, Set<EvidenceType>>> queries = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : snapshot.entrySet().stream()
+            .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+            .limit(limit)
+            .collect(Collectors.toList())) {
+            Map.Entry<Query, Set<EvidenceType>> query = decode(entry.getKey());
+            if (query != null) {
+                queries.add(query);
+            }
+        }
+        return queries;
+    }
+
+    synchronized void flush() {
+        File partialFile = new File(file.getAbsolutePath() + ".part");
+        try {
+            try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(partialFile)), StandardCharsets.UTF_8)) {
+                // The counts keep decaying from the last time they were halved after a restart
+                writer.write(DECAYED_AT_PREFIX + decayedAt + "\n");
+                for (Map.Entry<String, AtomicLong> entry : counts.entrySet()) {
+                    writer.write(entry.getValue().get() + FIELD_SEPARATOR + entry.getKey() + "\n");
+                }
+            }
+            if (!partialFile.renameTo(file)) {
+                throw new IOException("Cannot move " + partialFile.getAbsolutePath() + " to " + file.getAbsolutePath());
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Failed to write the query replay log", e);
+            partialFile.delete();
+        }
+    }
+
+    private Map<String, Long> read() {
+        Map<String, Long> lines = new HashMap<>();
+        if (file == null || !file.exists()) {
+            return lines;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(file)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(DECAYED_AT_PREFIX)) {
+                    decayedAt = Long.parseLong(line.substring(DECAYED_AT_PREFIX.length()));
+                    continue;
+                }
+                int separator = line.indexOf(FIELD_SEPARATOR);
+                if (separator > 0) {
+                    lines.put(line.substring(separator + 1), Long.parseLong(line.substring(0, separator)));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            LOGGER.warn("Failed to read the query replay log {}", file.getAbsolutePath(), e);
+        }
+        return lines;
+    }
+
+    static String encode(Query query, Set<EvidenceType> coreEvidenceTypes) {
+        List<String> fields = new ArrayList<>();
+        fields.add(query.getReferenceGenome() == null ? null : query.getReferenceGenome().name());
+        fields.add(query.getEntrezGeneId() == null ? null : query.getEntrezGeneId().toString());
+        fields.add(query.getHugoSymbol());
+        fields.add(query.getAlteration());
+        fields.add(query.getAlterationType());
+        fields.add(query.getConsequence());
+        fields.add(query.getProteinStart() == null ? null : query.getProteinStart().toString());
+        fields.add(query.getProteinEnd() == null ? null : query.getProteinEnd().toString());
+        fields.add(query.getSvType() == null ? null : query.getSvType().name());
+        fields.add(query.getHgvs());
+        fields.add(coreEvidenceTypes == null ? null : coreEvidenceTypes.stream().map(Enum::name).sorted().collect(Collectors.joining(",")));
+        return fields.stream().map(QueryReplayLog::escape).collect(Collectors.joining(FIELD_SEPARATOR));
+    }
+
+    static Map.Entry<Query, Set<EvidenceType>> decode(String line) {
+        String[] fields = line.split(FIELD_SEPARATOR, -1);
+        if (fields.length != 11) {
+            return null;
+        }
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = unescape(fields[i]);
+        }
+        try {
+            Query query = new Query(null,
+                fields[0] == null ? null : ReferenceGenome.valueOf(fields[0]),
+                fields[1] == null ? null : Integer.valueOf(fields[1]),
+                fields[2], fields[3], fields[4],
+                fields[8] == null ? null : StructuralVariantType.valueOf(fields[8]),
+                null, fields[5],
+                fields[6] == null ? null : Integer.valueOf(fields[6]),
+                fields[7] == null ? null : Integer.valueOf(fields[7]),
+                fields[9]);
+            Set<EvidenceType> coreEvidenceTypes = null;
+            if (fields[10] != null) {
+                coreEvidenceTypes = new HashSet<>();
+                for (String evidenceType : fields[10].split(",")) {
+                    if (!evidenceType.isEmpty()) {
+                        coreEvidenceTypes.add(EvidenceType.valueOf(evidenceType));
+                    }
+                }
+            }
+            return new AbstractMap.SimpleEntry<>(query, coreEvidenceTypes);
+        } catch (IllegalArgumentException e) {
+            // Written by another version
+            return null;
+        }
+    }
+
+    private static String escape(String field) {
+        if (field == null) {
+            return NULL;
+        }
+        return field.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String field) {
+        if (NULL.equals(field)) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '\\' && i + 1 < field.length()) {
+                char next = field.charAt(++i);
+                builder.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+}
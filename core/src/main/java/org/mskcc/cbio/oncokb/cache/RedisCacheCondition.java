@@ -0,0 +1,12 @@
+package org.mskcc.cbio.oncokb.cache;
+
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+public class RedisCacheCondition implements Condition {
+    @Override
+    public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        return CacheBackend.getConfigured() == CacheBackend.REDIS;
+    }
+}
@@ -0,0 +1,180 @@
+package org.mskcc.cbio.oncokb.cache;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * Coalesces the concurrent computations of a key in the JVM. The first caller of a key leads the flight and computes
+ * the value, the others wait for the value it completes the flight with, at most until the timeout.
+ * <p>
+ * The flights a thread leads are recorded in its innermost scope (see openScope), closing the scope releases the ones
+ * which were not completed, e.g. because the computation failed or its value was not stored. The waiting callers are
+ * released right away and one of them leads a new flight. A flight led outside of a scope is only released by its
+ * timeout.
+ */
+class SingleFlight {
+    private static final ThreadLocal<Deque<List<Led>>> SCOPES = new ThreadLocal<>();
+
+    private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<>();
+    private final long timeoutInMillis;
+
+    SingleFlight(long timeoutInMillis) {
+        this.timeoutInMillis = timeoutInMillis;
+    }
+
+    /**
+     * Wait for the value of the key which another caller is computing, or lead a new flight.
+     *
+     * @return the flight led by this caller when it has to compute the value, a completed flight otherwise
+     */
+    Flight join(String key) {
+        while (true) {
+            Flight flight = new Flight(System.currentTimeMillis() + timeoutInMillis, true);
+            Flight current = flights.putIfAbsent(key, flight);
+            if (current == null) {
+                Deque<List<Led>> scopes = SCOPES.get();
+                if (scopes != null && !scopes.isEmpty()) {
+                    scopes.peek().add(new Led(this, key, flight));
+                }
+                return flight;
+            }
+            long remaining = current.deadline - System.currentTimeMillis();
+            if (remaining > 0) {
+                try {
+                    return Flight.completed(current.value.get(remaining, TimeUnit.MILLISECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    // The caller computes the value without leading a flight
+                    return Flight.completed(null);
+                } catch (ExecutionException | TimeoutException e) {
+                    // The leader failed, or did not complete the flight in time
+                }
+            }
+            flights.remove(key, current);
+        }
+    }
+
+    /**
+     * Release the callers waiting for the value of the key.
+     *
+     * @param value null when there is no value, the callers compute it themselves
+     */
+    void complete(String key, Object value) {
+        if (flights.isEmpty()) {
+            return;
+        }
+        Flight flight = flights.remove(key);
+        if (flight != null) {
+            flight.value.complete(value);
+            flight.release();
+        }
+    }
+
+    int size() {
+        return flights.size();
+    }
+
+    /**
+     * Open a scope on the current thread, the flights it leads from now on belong to it until closeScope.
+     */
+    static void openScope() {
+        Deque<List<Led>> scopes = SCOPES.get();
+        if (scopes == null) {
+            scopes = new ArrayDeque<>();
+            SCOPES.set(scopes);
+        }
+        scopes.push(new ArrayList<>());
+    }
+
+    /**
+     * Close the innermost scope of the current thread, its flights which were not completed are released.
+     */
+    static void closeScope() {
+        Deque<List<Led>> scopes = SCOPES.get();
+        if (scopes == null || scopes.isEmpty()) {
+            return;
+        }
+        for (Led led : scopes.pop()) {
+            led.abort();
+        }
+        if (scopes.isEmpty()) {
+            SCOPES.remove();
+        }
+    }
+
+    static class Flight {
+        private final CompletableFuture<Object> value = new CompletableFuture<>();
+        private final String token = UUID.randomUUID().toString();
+        private final long deadline;
+        private final boolean leader;
+        // Run once the flight is completed or aborted, e.g. to release the lease of the key in Redis
+        private volatile Runnable onRelease;
+
+        private Flight(long deadline, boolean leader) {
+            this.deadline = deadline;
+            this.leader = leader;
+        }
+
+        private static Flight completed(Object value) {
+            Flight flight = new Flight(0, false);
+            flight.value.complete(value);
+            return flight;
+        }
+
+        boolean isLeader() {
+            return leader;
+        }
+
+        /**
+         * @return the value computed by the leader, null when there is none
+         */
+        Object getValue() {
+            return value.getNow(null);
+        }
+
+        String getToken() {
+            return token;
+        }
+
+        long getDeadline() {
+            return deadline;
+        }
+
+        void setOnRelease(Runnable onRelease) {
+            this.onRelease = onRelease;
+        }
+
+        private void release() {
+            Runnable callback = onRelease;
+            onRelease = null;
+            if (callback != null) {
+                callback.run();
+            }
+        }
+    }
+
+    private static class Led {
+        private final SingleFlight singleFlight;
+        private final String key;
+        private final Flight flight;
+
+        Led(SingleFlight singleFlight, String key, Flight flight) {
+            this.singleFlight = singleFlight;
+            this.key = key;
+            this.flight = flight;
+        }
+
+        void abort() {
+            if (flight.value.isDone()) {
+                return;
+            }
+            singleFlight.flights.remove(key, flight);
+            flight.value.completeExceptionally(new IllegalStateException("The value of " + key + " was not stored"));
+            flight.release();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.mskcc.cbio.oncokb.cache;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.cache.interceptor.CacheInterceptor;
+
+/**
+ * The cached methods run in a SingleFlight scope, the flights the invocation leads are released when it returns.
+ * When the method throws, or its value is not stored, the callers waiting for the value do not wait for the
+ * timeout of the single flight.
+ */
+public class SingleFlightCacheInterceptor extends CacheInterceptor {
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        SingleFlight.openScope();
+        try {
+            return super.invoke(invocation);
+        } finally {
+            SingleFlight.closeScope();
+        }
+    }
+}
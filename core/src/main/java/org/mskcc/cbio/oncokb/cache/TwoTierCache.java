@@ -0,0 +1,162 @@
+package org.mskcc.cbio.oncokb.cache;
+
+import org.springframework.cache.Cache;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A size bounded on-heap tier (L1, see LocalCache) in front of a Redis cache (L2). Hot entries are served without
+ * the round trip to Redis and the decoding of the value, the least recently used entry is dropped when the tier is
+ * full and an entry expires after the L1 TTL even when it is still in Redis.
+ * <p>
+ * The values are shared by all the requests served from the L1, they must be treated as immutable by the callers.
+ * Null values are only kept in Redis.
+ */
+public class TwoTierCache implements BatchCache, GeneTaggedCache {
+    private final Cache redisCache;
+    private final LocalCache localCache;
+
+    private final AtomicLong redisHits = new AtomicLong();
+
+    public TwoTierCache(Cache redisCache, int maxSize, long ttlInMillis) {
+        this.redisCache = redisCache;
+        this.localCache = new LocalCache(redisCache.getName(), maxSize, ttlInMillis);
+    }
+
+    @Override
+    public String getName() {
+        return redisCache.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return redisCache.getNativeCache();
+    }
+
+    public Cache getRedisCache() {
+        return redisCache;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper localWrapper = localCache.get(key);
+        if (localWrapper != null) {
+            return localWrapper;
+        }
+        ValueWrapper wrapper = redisCache.get(key);
+        if (wrapper != null && wrapper.get() != null) {
+            redisHits.incrementAndGet();
+            localCache.put(key, wrapper.get());
+        }
+        return wrapper;
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper == null ? null : wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        localCache.put(key, value);
+        redisCache.put(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper wrapper = redisCache.putIfAbsent(key, value);
+        if (wrapper != null) {
+            localCache.put(key, wrapper.get());
+        }
+        return wrapper;
+    }
+
+    @Override
+    public Map<Object, Object> getAll(Collection<?> keys) {
+        Map<Object, Object> values = localCache.getAll(keys);
+        List<Object> missingKeys = new ArrayList<>();
+        for (Object key : keys) {
+            if (!values.containsKey(key)) {
+                missingKeys.add(key);
+            }
+        }
+        if (missingKeys.isEmpty()) {
+            return values;
+        }
+        Map<Object, Object> redisValues = new HashMap<>();
+        if (redisCache instanceof BatchCache) {
+            redisValues = ((BatchCache) redisCache).getAll(missingKeys);
+        } else {
+            for (Object key : missingKeys) {
+                ValueWrapper wrapper = redisCache.get(key);
+                if (wrapper != null && wrapper.get() != null) {
+                    redisValues.put(key, wrapper.get());
+                }
+            }
+        }
+        for (Map.Entry<Object, Object> entry : redisValues.entrySet()) {
+            redisHits.incrementAndGet();
+            localCache.put(entry.getKey(), entry.getValue());
+        }
+        values.putAll(redisValues);
+        return values;
+    }
+
+    @Override
+    public void putAll(Map<?, ?> values) {
+        localCache.putAll(values);
+        if (redisCache instanceof BatchCache) {
+            ((BatchCache) redisCache).putAll(values);
+        } else {
+            for (Map.Entry<?, ?> entry : values.entrySet()) {
+                redisCache.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        evictLocal(key);
+        redisCache.evict(key);
+    }
+
+    @Override
+    public void evictGene(Integer entrezGeneId) {
+        localCache.evictGene(entrezGeneId);
+        if (redisCache instanceof GeneTaggedCache) {
+            ((GeneTaggedCache) redisCache).evictGene(entrezGeneId);
+        }
+    }
+
+    @Override
+    public void clear() {
+        clearLocal();
+        redisCache.clear();
+    }
+
+    /**
+     * Drop all the entries of the L1 tier, the Redis tier is not touched.
+     */
+    public void clearLocal() {
+        localCache.clear();
+    }
+
+    public void evictLocal(Object key) {
+        localCache.evict(key);
+    }
+
+    public LocalCache getLocalCache() {
+        return localCache;
+    }
+
+    // The L1 misses which were served by Redis
+    public long getRedisHitCount() {
+        return redisHits.get();
+    }
+}
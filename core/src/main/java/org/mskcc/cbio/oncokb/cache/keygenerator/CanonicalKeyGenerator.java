@@ -0,0 +1,78 @@
+package org.mskcc.cbio.oncokb.cache.keygenerator;
+
+import org.mskcc.cbio.oncokb.model.ReferenceGenome;
+import org.springframework.cache.interceptor.KeyGenerator;
+
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+import static org.mskcc.cbio.oncokb.Constants.DEFAULT_REFERENCE_GENOME;
+
+/**
+ * Generates the same key for the equivalent invocations of a method. Every argument is written with its type and
+ * length so no two argument lists share a canonical form, the sets are sorted and a null reference genome is the
+ * default one. The key is the first 128 bits of the SHA-256 of the canonical form, see HashedCacheKey.
+ * <p>
+ * The strings keep their case and spaces, the annotations echo the query and some alterations are case sensitive.
+ */
+public class CanonicalKeyGenerator implements KeyGenerator {
+    private static final int HASH_LENGTH = 16;
+
+    @Override
+    public Object generate(Object target, Method method, Object... params) {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        StringBuilder canonicalKey = new StringBuilder();
+        for (int i = 0; i < params.length; i++) {
+            Object param = params[i];
+            if (param == null && i < parameterTypes.length && ReferenceGenome.class.equals(parameterTypes[i])) {
+                param = DEFAULT_REFERENCE_GENOME;
+            }
+            appendCanonical(canonicalKey, param);
+        }
+        return new HashedCacheKey(canonicalKey.toString(), hash(canonicalKey.toString()));
+    }
+
+    static void appendCanonical(StringBuilder builder, Object value) {
+        if (value == null) {
+            builder.append('n');
+        } else if (value instanceof Enum) {
+            appendString(builder.append('e'), ((Enum<?>) value).name());
+        } else if (value instanceof Number || value instanceof Boolean) {
+            appendString(builder.append('v'), value.toString());
+        } else if (value instanceof String) {
+            appendString(builder.append('s'), (String) value);
+        } else if (value instanceof Collection) {
+            List<String> elements = new ArrayList<>();
+            for (Object element : (Collection<?>) value) {
+                StringBuilder elementBuilder = new StringBuilder();
+                appendCanonical(elementBuilder, element);
+                elements.add(elementBuilder.toString());
+            }
+            // The order of a set is not part of its value
+            if (value instanceof Set) {
+                Collections.sort(elements);
+            }
+            builder.append('c').append(elements.size()).append('[');
+            elements.forEach(builder::append);
+            builder.append(']');
+        } else {
+            appendString(builder.append('o'), value.toString());
+        }
+    }
+
+    private static void appendString(StringBuilder builder, String value) {
+        builder.append(value.length()).append(':').append(value);
+    }
+
+    private static String hash(String canonicalKey) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonicalKey.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, HASH_LENGTH));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
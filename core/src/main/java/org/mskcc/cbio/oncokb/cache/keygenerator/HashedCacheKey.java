@@ -0,0 +1,79 @@
+package org.mskcc.cbio.oncokb.cache.keygenerator;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * A cache key stored as a fixed length hash of its canonical form, see CanonicalKeyGenerator.
+ * The keys are equal when their canonical forms are equal. The value stored in Redis is wrapped with the length and
+ * the CRC32 of the canonical form (see VerifiedValue), a check independent of the hash, so a hash collision is read
+ * as a miss instead of the value of another key without storing the canonical form with every value.
+ */
+public final class HashedCacheKey {
+    private final String canonicalKey;
+    private final String hash;
+    private final long checksum;
+
+    public HashedCacheKey(String canonicalKey, String hash) {
+        this.canonicalKey = canonicalKey;
+        this.hash = hash;
+        CRC32 crc = new CRC32();
+        crc.update(canonicalKey.getBytes(StandardCharsets.UTF_8));
+        this.checksum = crc.getValue();
+    }
+
+    public String getCanonicalKey() {
+        return canonicalKey;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public Object wrap(Object value) {
+        return new VerifiedValue(canonicalKey.length(), checksum, value);
+    }
+
+    /**
+     * @return the value of the stored one, null when it was stored with another key
+     */
+    public Object unwrap(Object storedValue) {
+        if (!(storedValue instanceof VerifiedValue)) {
+            return null;
+        }
+        VerifiedValue verifiedValue = (VerifiedValue) storedValue;
+        return verifiedValue.keyLength == canonicalKey.length() && verifiedValue.keyChecksum == checksum ? verifiedValue.value : null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof HashedCacheKey)) return false;
+        return canonicalKey.equals(((HashedCacheKey) o).canonicalKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(canonicalKey);
+    }
+
+    // The Redis key
+    @Override
+    public String toString() {
+        return hash;
+    }
+
+    private static class VerifiedValue implements Serializable {
+        private int keyLength;
+        private long keyChecksum;
+        private Object value;
+
+        VerifiedValue(int keyLength, long keyChecksum, Object value) {
+            this.keyLength = keyLength;
+            this.keyChecksum = keyChecksum;
+            this.value = value;
+        }
+    }
+}
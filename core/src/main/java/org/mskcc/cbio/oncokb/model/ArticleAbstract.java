@@ -31,6 +31,13 @@ public class ArticleAbstract implements java.io.Serializable {
     public ArticleAbstract() {
     }
 
+    public ArticleAbstract copy() {
+        ArticleAbstract newAbstract = new ArticleAbstract();
+        newAbstract.setAbstractContent(this.abstractContent);
+        newAbstract.setLink(this.link);
+        return newAbstract;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
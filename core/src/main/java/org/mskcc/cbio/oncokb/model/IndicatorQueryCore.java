@@ -0,0 +1,181 @@
+package org.mskcc.cbio.oncokb.model;
+
+import org.mskcc.cbio.oncokb.apiModels.MutationEffectResp;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The tumor type independent part of an annotation. It only depends on the gene/variant in the query,
+ * so it can be shared by all tumor types the variant is queried with.
+ */
+public class IndicatorQueryCore implements java.io.Serializable {
+    // The normalized query without tumor type
+    private Query query;
+    // For fusions where more than one gene has relevant alterations, the best gene can only be picked with the tumor type
+    private List<Gene> fusionGenes = new ArrayList<>();
+    private Gene gene;
+    private Alteration matchedAlteration;
+    private List<Alteration> alleles = new ArrayList<>();
+    private List<Alteration> relevantAlterationsWithoutAlternativeAlleles = new ArrayList<>();
+    private List<Alteration> hotspotOncogenicMutations = new ArrayList<>();
+    private Boolean hasNonVUSRelevantAlterations = false;
+    private Boolean geneExist;
+    private Boolean variantExist;
+    private Boolean alleleExist;
+    private Boolean VUS;
+    private Boolean hotspot;
+    private String oncogenic;
+    private MutationEffectResp mutationEffect;
+    private String geneSummary = "";
+    private String variantSummary = "";
+    private Date lastEdit;
+
+    public IndicatorQueryCore() {
+    }
+
+    public Query getQuery() {
+        return query;
+    }
+
+    public void setQuery(Query query) {
+        this.query = query;
+    }
+
+    public List<Gene> getFusionGenes() {
+        return fusionGenes;
+    }
+
+    public void setFusionGenes(List<Gene> fusionGenes) {
+        this.fusionGenes = fusionGenes;
+    }
+
+    public Gene getGene() {
+        return gene;
+    }
+
+    public void setGene(Gene gene) {
+        this.gene = gene;
+    }
+
+    public Alteration getMatchedAlteration() {
+        return matchedAlteration;
+    }
+
+    public void setMatchedAlteration(Alteration matchedAlteration) {
+        this.matchedAlteration = matchedAlteration;
+    }
+
+    public List<Alteration> getAlleles() {
+        return alleles;
+    }
+
+    public void setAlleles(List<Alteration> alleles) {
+        this.alleles = alleles;
+    }
+
+    public List<Alteration> getRelevantAlterationsWithoutAlternativeAlleles() {
+        return relevantAlterationsWithoutAlternativeAlleles;
+    }
+
+    public void setRelevantAlterationsWithoutAlternativeAlleles(List<Alteration> relevantAlterationsWithoutAlternativeAlleles) {
+        this.relevantAlterationsWithoutAlternativeAlleles = relevantAlterationsWithoutAlternativeAlleles;
+    }
+
+    public List<Alteration> getHotspotOncogenicMutations() {
+        return hotspotOncogenicMutations;
+    }
+
+    public void setHotspotOncogenicMutations(List<Alteration> hotspotOncogenicMutations) {
+        this.hotspotOncogenicMutations = hotspotOncogenicMutations;
+    }
+
+    public Boolean getHasNonVUSRelevantAlterations() {
+        return hasNonVUSRelevantAlterations;
+    }
+
+    public void setHasNonVUSRelevantAlterations(Boolean hasNonVUSRelevantAlterations) {
+        this.hasNonVUSRelevantAlterations = hasNonVUSRelevantAlterations;
+    }
+
+    public Boolean getGeneExist() {
+        return geneExist;
+    }
+
+    public void setGeneExist(Boolean geneExist) {
+        this.geneExist = geneExist;
+    }
+
+    public Boolean getVariantExist() {
+        return variantExist;
+    }
+
+    public void setVariantExist(Boolean variantExist) {
+        this.variantExist = variantExist;
+    }
+
+    public Boolean getAlleleExist() {
+        return alleleExist;
+    }
+
+    public void setAlleleExist(Boolean alleleExist) {
+        this.alleleExist = alleleExist;
+    }
+
+    public Boolean getVUS() {
+        return VUS;
+    }
+
+    public void setVUS(Boolean VUS) {
+        this.VUS = VUS;
+    }
+
+    public Boolean getHotspot() {
+        return hotspot;
+    }
+
+    public void setHotspot(Boolean hotspot) {
+        this.hotspot = hotspot;
+    }
+
+    public String getOncogenic() {
+        return oncogenic;
+    }
+
+    public void setOncogenic(String oncogenic) {
+        this.oncogenic = oncogenic;
+    }
+
+    public MutationEffectResp getMutationEffect() {
+        return mutationEffect;
+    }
+
+    public void setMutationEffect(MutationEffectResp mutationEffect) {
+        this.mutationEffect = mutationEffect;
+    }
+
+    public String getGeneSummary() {
+        return geneSummary;
+    }
+
+    public void setGeneSummary(String geneSummary) {
+        this.geneSummary = geneSummary;
+    }
+
+    public String getVariantSummary() {
+        return variantSummary;
+    }
+
+    public void setVariantSummary(String variantSummary) {
+        this.variantSummary = variantSummary;
+    }
+
+    public Date getLastEdit() {
+        return lastEdit;
+    }
+
+    public void setLastEdit(Date lastEdit) {
+        this.lastEdit = lastEdit;
+    }
+}
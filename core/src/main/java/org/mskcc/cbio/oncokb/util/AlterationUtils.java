@@ -608,37 +608,41 @@ public final class AlterationUtils {
     }
 
     public static Alteration getAlterationFromGenomeNexus(GNVariantAnnotationType type, ReferenceGenome referenceGenome, String query) throws ApiException {
-        Alteration alteration = new Alteration();
         if (query != null && !query.trim().isEmpty()) {
-            TranscriptConsequenceSummary transcriptConsequenceSummary = GenomeNexusUtils.getTranscriptConsequence(type, query, referenceGenome);
-            if (transcriptConsequenceSummary != null) {
-                String hugoSymbol = transcriptConsequenceSummary.getHugoGeneSymbol();
-                Integer entrezGeneId = StringUtils.isNumeric(transcriptConsequenceSummary.getEntrezGeneId()) ? Integer.parseInt(transcriptConsequenceSummary.getEntrezGeneId()) : null;
-                if (StringUtils.isNotEmpty(transcriptConsequenceSummary.getHugoGeneSymbol())) {
-                    Gene gene = GeneUtils.getGene(hugoSymbol);
-                    if (gene == null) {
-                        gene = new Gene();
-                        gene.setHugoSymbol(transcriptConsequenceSummary.getHugoGeneSymbol());
-                        gene.setEntrezGeneId(entrezGeneId);
-                    }
-                    alteration.setGene(gene);
+            return getAlterationFromTranscriptConsequence(GenomeNexusUtils.getTranscriptConsequence(type, query, referenceGenome));
+        }
+        return new Alteration();
+    }
+
+    public static Alteration getAlterationFromTranscriptConsequence(TranscriptConsequenceSummary transcriptConsequenceSummary) {
+        Alteration alteration = new Alteration();
+        if (transcriptConsequenceSummary != null) {
+            String hugoSymbol = transcriptConsequenceSummary.getHugoGeneSymbol();
+            Integer entrezGeneId = StringUtils.isNumeric(transcriptConsequenceSummary.getEntrezGeneId()) ? Integer.parseInt(transcriptConsequenceSummary.getEntrezGeneId()) : null;
+            if (StringUtils.isNotEmpty(transcriptConsequenceSummary.getHugoGeneSymbol())) {
+                Gene gene = GeneUtils.getGene(hugoSymbol);
+                if (gene == null) {
+                    gene = new Gene();
+                    gene.setHugoSymbol(transcriptConsequenceSummary.getHugoGeneSymbol());
+                    gene.setEntrezGeneId(entrezGeneId);
                 }
+                alteration.setGene(gene);
+            }
 
-                if (transcriptConsequenceSummary.getHgvspShort() != null) {
-                    alteration.setAlteration(transcriptConsequenceSummary.getHgvspShort());
+            if (transcriptConsequenceSummary.getHgvspShort() != null) {
+                alteration.setAlteration(transcriptConsequenceSummary.getHgvspShort());
+            }
+            if (transcriptConsequenceSummary.getProteinPosition() != null) {
+                if (transcriptConsequenceSummary.getProteinPosition().getStart() != null) {
+                    alteration.setProteinStart(transcriptConsequenceSummary.getProteinPosition().getStart());
                 }
                 if (transcriptConsequenceSummary.getProteinPosition() != null) {
-                    if (transcriptConsequenceSummary.getProteinPosition().getStart() != null) {
-                        alteration.setProteinStart(transcriptConsequenceSummary.getProteinPosition().getStart());
-                    }
-                    if (transcriptConsequenceSummary.getProteinPosition() != null) {
-                        alteration.setProteinEnd(transcriptConsequenceSummary.getProteinPosition().getEnd());
-                    }
-                }
-                if (StringUtils.isNotEmpty(transcriptConsequenceSummary.getConsequenceTerms())) {
-                    alteration.setConsequence(VariantConsequenceUtils.findVariantConsequenceByTerm(transcriptConsequenceSummary.getConsequenceTerms()));
+                    alteration.setProteinEnd(transcriptConsequenceSummary.getProteinPosition().getEnd());
                 }
             }
+            if (StringUtils.isNotEmpty(transcriptConsequenceSummary.getConsequenceTerms())) {
+                alteration.setConsequence(VariantConsequenceUtils.findVariantConsequenceByTerm(transcriptConsequenceSummary.getConsequenceTerms()));
+            }
         }
         return alteration;
     }
@@ -7,6 +7,9 @@ import org.mskcc.cbio.oncokb.model.*;
 import org.mskcc.cbio.oncokb.model.TumorType;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -60,6 +63,8 @@ public class CacheUtils {
     private static Map<String, Long> recordTime = new HashedMap();
 
     private static Info oncokbInfo;
+    // Computed when it is first read, after all the content is loaded
+    private static volatile String dataHash;
 
     private static Observer numbersObserver = new Observer() {
         @Override
@@ -131,6 +136,18 @@ public class CacheUtils {
         }
     };
 
+    private static Observer summariesObserver = new Observer() {
+        @Override
+        public void update(Observable o, Object arg) {
+            Map<String, String> operation = (Map<String, String>) arg;
+            if (operation.get("cmd") == "update") {
+                SummaryUtils.clearMemoizedSummaries(Integer.parseInt(operation.get("val")));
+            } else if (operation.get("cmd") == "reset") {
+                SummaryUtils.clearMemoizedSummaries();
+            }
+        }
+    };
+
     private static void notifyOtherServices(String cmd, Set<Integer> entrezGeneIds) throws IOException {
         System.out.println("Notify other services..." + " at " + MainUtils.getCurrentTime());
         if (cmd == null) {
@@ -165,6 +182,7 @@ public class CacheUtils {
             GeneObservable.getInstance().addObserver(VUSObserver);
             GeneObservable.getInstance().addObserver(numbersObserver);
             GeneObservable.getInstance().addObserver(drugsObserver);
+            GeneObservable.getInstance().addObserver(summariesObserver);
 
             System.out.println("Observer: " + MainUtils.getTimestampDiff(current) + " at " + MainUtils.getCurrentTime());
 
@@ -599,6 +617,7 @@ public class CacheUtils {
             return;
         }
         entrezGeneIds.forEach(entrezGeneId -> GeneObservable.getInstance().update("update", entrezGeneId.toString()));
+        entrezGeneIds.forEach(entrezGeneId -> GeneCacheObservable.getInstance().update("update", entrezGeneId.toString()));
         if (propagate) {
             notifyOtherServices("update", entrezGeneIds);
         }else{
@@ -609,12 +628,14 @@ public class CacheUtils {
     public static void resetAll() throws IOException {
         System.out.println("Reset all genes cache on instance " + PropertiesUtils.getProperties("app.name") + " at " + MainUtils.getCurrentTime());
         GeneObservable.getInstance().update("reset", null);
+        GeneCacheObservable.getInstance().update("reset", null);
         notifyOtherServices("reset", null);
     }
 
     public static void resetAll(Boolean propagate) throws IOException {
         System.out.println("Reset all genes cache on instance " + PropertiesUtils.getProperties("app.name") + " at " + MainUtils.getCurrentTime());
         GeneObservable.getInstance().update("reset", null);
+        GeneCacheObservable.getInstance().update("reset", null);
         if (propagate == null) {
             propagate = false;
         }
@@ -637,9 +658,66 @@ public class CacheUtils {
             evidences.put(entrezGeneId, pair.getValue());
             updateEvidenceRelevantCancerTypes(entrezGeneId, pair.getValue());
         }
+        dataHash = null;
         System.out.println("Cached all evidences by gene: " + MainUtils.getTimestampDiff(current) + " at " + MainUtils.getCurrentTime());
     }
 
+    // The data version, the genes, drugs and cancer types, and the last edit of every evidence,
+    // the content loaded is the same when the hash is the same
+    private static String computeDataHash() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            if (oncokbInfo != null) {
+                Long dataVersionDate = oncokbInfo.getDataVersionDate() == null ? null : oncokbInfo.getDataVersionDate().getTime();
+                digest.update((oncokbInfo.getDataVersion() + ":" + dataVersionDate + ";").getBytes(StandardCharsets.UTF_8));
+            }
+            List<Gene> sortedGenes = new ArrayList<>(genes);
+            sortedGenes.sort(Comparator.comparing(Gene::getEntrezGeneId));
+            for (Gene gene : sortedGenes) {
+                digest.update((gene.getEntrezGeneId() + ":" + gene.getHugoSymbol() + ";").getBytes(StandardCharsets.UTF_8));
+            }
+            List<Drug> sortedDrugs = new ArrayList<>(drugs);
+            sortedDrugs.sort(Comparator.comparing(Drug::getId, Comparator.nullsFirst(Comparator.naturalOrder())));
+            for (Drug drug : sortedDrugs) {
+                digest.update((drug.getId() + ":" + drug.getDrugName() + ":" + drug.getNcitCode() + ";").getBytes(StandardCharsets.UTF_8));
+            }
+            List<TumorType> sortedCancerTypes = new ArrayList<>(cancerTypes);
+            sortedCancerTypes.sort(Comparator.comparing(TumorType::getId, Comparator.nullsFirst(Comparator.naturalOrder())));
+            for (TumorType cancerType : sortedCancerTypes) {
+                digest.update((cancerType.getId() + ":" + cancerType.getCode() + ":" + cancerType.getMainType() + ":" + cancerType.getSubtype() + ";").getBytes(StandardCharsets.UTF_8));
+            }
+            List<Evidence> sortedEvidences = new ArrayList<>(getAllEvidences());
+            sortedEvidences.sort(Comparator.comparing(Evidence::getId, Comparator.nullsFirst(Comparator.naturalOrder())));
+            for (Evidence evidence : sortedEvidences) {
+                Long lastEdit = evidence.getLastEdit() == null ? null : evidence.getLastEdit().getTime();
+                digest.update((evidence.getId() + ":" + lastEdit + ";").getBytes(StandardCharsets.UTF_8));
+            }
+            StringBuilder hash = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hash.append(String.format("%02x", b));
+            }
+            return hash.substring(0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the hash of the content loaded when the caches were built, it changes when all the caches are reset
+     */
+    public static String getDataHash() {
+        String current = dataHash;
+        if (current == null) {
+            synchronized (CacheUtils.class) {
+                if (dataHash == null) {
+                    dataHash = computeDataHash();
+                }
+                current = dataHash;
+            }
+        }
+        return current;
+    }
+
     public static void updateEvidenceRelevantCancerTypes(Integer entrezGeneId, List<Evidence> geneEvidences) {
         evidenceRelevantCancerTypes.put(entrezGeneId, new HashMap<>());
         for (Evidence evidence : geneEvidences) {
@@ -0,0 +1,174 @@
+package org.mskcc.cbio.oncokb.util;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.concurrent.Semaphore;
+import java.util.function.Predicate;
+
+/**
+ * Protects the request threads from a slow or failing external service (Genome Nexus, Ensembl, OncoKB Transcript).
+ * <p>
+ * After failureThreshold consecutive failures the circuit opens and the calls are rejected right away with a
+ * CallRejectedException, the service is not called. Once openDuration has passed, the circuit is half open and
+ * up to halfOpenMaxCalls calls are let through to probe the service, it closes again when a probe succeeds and
+ * opens again when one fails. At most maxConcurrentCalls calls are in flight at the same time, the other ones are
+ * rejected instead of waiting for the service. A call is not started once the RequestBudget of the request is used
+ * up, and getCallTimeout is the timeout the client should use for the call.
+ * <p>
+ * The settings are read from [name].timeout (in milliseconds) and [name].circuitBreaker.failureThreshold,
+ * [name].circuitBreaker.openDuration (in seconds), [name].circuitBreaker.halfOpenMaxCalls and
+ * [name].circuitBreaker.maxConcurrentCalls.
+ */
+public class CircuitBreaker {
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final int DEFAULT_TIMEOUT = 30000;
+    private static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    // in seconds
+    private static final int DEFAULT_OPEN_DURATION = 30;
+    private static final int DEFAULT_HALF_OPEN_MAX_CALLS = 1;
+    private static final int DEFAULT_MAX_CONCURRENT_CALLS = 32;
+
+    private final String name;
+    private final int timeoutInMillis;
+    private final int failureThreshold;
+    private final long openDurationInMillis;
+    private final int halfOpenMaxCalls;
+    private final Semaphore bulkhead;
+    // Whether an exception of a call means the service is failing, e.g. not when the service rejects the request
+    private final Predicate<Exception> isFailure;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAt = 0;
+    private int halfOpenCalls = 0;
+
+    public CircuitBreaker(String name, int timeoutInMillis, int failureThreshold, long openDurationInMillis, int halfOpenMaxCalls, int maxConcurrentCalls, Predicate<Exception> isFailure) {
+        this.name = name;
+        this.timeoutInMillis = timeoutInMillis;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openDurationInMillis = openDurationInMillis;
+        this.halfOpenMaxCalls = Math.max(1, halfOpenMaxCalls);
+        this.bulkhead = new Semaphore(Math.max(1, maxConcurrentCalls));
+        this.isFailure = isFailure;
+    }
+
+    public static CircuitBreaker fromProperties(String name, Predicate<Exception> isFailure) {
+        return new CircuitBreaker(
+            name,
+            getIntegerProperty(name + ".timeout", DEFAULT_TIMEOUT),
+            getIntegerProperty(name + ".circuitBreaker.failureThreshold", DEFAULT_FAILURE_THRESHOLD),
+            getIntegerProperty(name + ".circuitBreaker.openDuration", DEFAULT_OPEN_DURATION) * 1000L,
+            getIntegerProperty(name + ".circuitBreaker.halfOpenMaxCalls", DEFAULT_HALF_OPEN_MAX_CALLS),
+            getIntegerProperty(name + ".circuitBreaker.maxConcurrentCalls", DEFAULT_MAX_CONCURRENT_CALLS),
+            isFailure
+        );
+    }
+
+    /**
+     * Call the service through the circuit breaker.
+     *
+     * @throws CallRejectedException when the call is not started, the exception of the call otherwise
+     */
+    public <T, E extends Exception> T execute(Call<T, E> call) throws E {
+        if (RequestBudget.getRemainingMillis() <= 0) {
+            throw new CallRejectedException("The time budget of the request is used up before calling " + name + ".", 1);
+        }
+        if (!bulkhead.tryAcquire()) {
+            throw new CallRejectedException("Too many concurrent calls to " + name + ".", 1);
+        }
+        try {
+            acquirePermission();
+            boolean succeeded = false;
+            try {
+                T result = call.call();
+                succeeded = true;
+                return result;
+            } catch (Exception e) {
+                succeeded = !isFailure.test(e);
+                throw e;
+            } finally {
+                onCompleted(succeeded);
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            // Only E can be thrown by the call
+            throw (E) e;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * @return the timeout of a call in milliseconds, at most the time left in the RequestBudget of the request
+     */
+    public int getCallTimeout() {
+        return (int) Math.max(1, Math.min(timeoutInMillis, RequestBudget.getRemainingMillis()));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private synchronized void acquirePermission() {
+        if (state == State.OPEN) {
+            long openFor = System.currentTimeMillis() - openedAt;
+            if (openFor < openDurationInMillis) {
+                throw new CallRejectedException(name + " is unavailable, the calls are suspended.", (long) Math.ceil((openDurationInMillis - openFor) / 1000.0));
+            }
+            state = State.HALF_OPEN;
+            halfOpenCalls = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenCalls >= halfOpenMaxCalls) {
+                throw new CallRejectedException(name + " is unavailable, waiting for it to recover.", 1);
+            }
+            halfOpenCalls++;
+        }
+    }
+
+    private synchronized void onCompleted(boolean succeeded) {
+        if (succeeded) {
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+        } else if (state == State.HALF_OPEN || (state == State.CLOSED && ++consecutiveFailures >= failureThreshold)) {
+            // The probes are counted again the next time the circuit is half open
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            consecutiveFailures = 0;
+        }
+    }
+
+    private static int getIntegerProperty(String name, int defaultValue) {
+        String value = PropertiesUtils.getProperties(name);
+        if (StringUtils.isNotEmpty(value)) {
+            return Integer.parseInt(value.trim());
+        }
+        return defaultValue;
+    }
+
+    public interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    public static class CallRejectedException extends RuntimeException {
+        private final long retryAfter;
+
+        public CallRejectedException(String message, long retryAfter) {
+            super(message);
+            this.retryAfter = retryAfter;
+        }
+
+        // in seconds
+        public long getRetryAfter() {
+            return retryAfter;
+        }
+    }
+}
@@ -1,79 +1,176 @@
 package org.mskcc.cbio.oncokb.util;
 
+import org.apache.commons.lang3.StringUtils;
 import org.mskcc.cbio.oncokb.model.EvidenceType;
 
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 /**
  * Created by Hongxin on 11/09/16.
  */
 public class EvidenceTypeUtils {
-    public static Set<EvidenceType> getGeneEvidenceTypes() {
-        Set<EvidenceType> evidenceTypes = new HashSet<>();
-        evidenceTypes.add(EvidenceType.GENE_SUMMARY);
-        evidenceTypes.add(EvidenceType.GENE_BACKGROUND);
-        return evidenceTypes;
-    }
+    private static final EnumSet<EvidenceType> GENE_EVIDENCE_TYPES = EnumSet.of(
+        EvidenceType.GENE_SUMMARY,
+        EvidenceType.GENE_BACKGROUND
+    );
 
-    public static Set<EvidenceType> getMutationEvidenceTypes() {
-        Set<EvidenceType> evidenceTypes = new HashSet<>();
-        evidenceTypes.add(EvidenceType.ONCOGENIC);
-        evidenceTypes.add(EvidenceType.MUTATION_EFFECT);
-        evidenceTypes.add(EvidenceType.VUS);
-        evidenceTypes.add(EvidenceType.MUTATION_SUMMARY);
-        return evidenceTypes;
-    }
+    private static final EnumSet<EvidenceType> MUTATION_EVIDENCE_TYPES = EnumSet.of(
+        EvidenceType.ONCOGENIC,
+        EvidenceType.MUTATION_EFFECT,
+        EvidenceType.VUS,
+        EvidenceType.MUTATION_SUMMARY
+    );
 
-    public static Set<EvidenceType> getTumorTypeEvidenceTypes() {
-        Set<EvidenceType> evidenceTypes = new HashSet<>();
+    private static final EnumSet<EvidenceType> SENSITIVE_TREATMENT_EVIDENCE_TYPES = EnumSet.of(
+        EvidenceType.STANDARD_THERAPEUTIC_IMPLICATIONS_FOR_DRUG_SENSITIVITY,
+        EvidenceType.INVESTIGATIONAL_THERAPEUTIC_IMPLICATIONS_DRUG_SENSITIVITY
+    );
 
-        evidenceTypes.add(EvidenceType.TUMOR_TYPE_SUMMARY);
-        evidenceTypes.add(EvidenceType.DIAGNOSTIC_SUMMARY);
-        evidenceTypes.add(EvidenceType.PROGNOSTIC_SUMMARY);
+    private static final EnumSet<EvidenceType> TREATMENT_EVIDENCE_TYPES = EnumSet.of(
+        EvidenceType.STANDARD_THERAPEUTIC_IMPLICATIONS_FOR_DRUG_SENSITIVITY,
+        EvidenceType.STANDARD_THERAPEUTIC_IMPLICATIONS_FOR_DRUG_RESISTANCE,
+        EvidenceType.INVESTIGATIONAL_THERAPEUTIC_IMPLICATIONS_DRUG_RESISTANCE,
+        EvidenceType.INVESTIGATIONAL_THERAPEUTIC_IMPLICATIONS_DRUG_SENSITIVITY
+    );
 
+    private static final EnumSet<EvidenceType> IMPLICATION_EVIDENCE_TYPES = EnumSet.of(
+        EvidenceType.STANDARD_THERAPEUTIC_IMPLICATIONS_FOR_DRUG_SENSITIVITY,
+        EvidenceType.STANDARD_THERAPEUTIC_IMPLICATIONS_FOR_DRUG_RESISTANCE,
+        EvidenceType.INVESTIGATIONAL_THERAPEUTIC_IMPLICATIONS_DRUG_RESISTANCE,
+        EvidenceType.INVESTIGATIONAL_THERAPEUTIC_IMPLICATIONS_DRUG_SENSITIVITY,
+        EvidenceType.DIAGNOSTIC_IMPLICATION,
+        EvidenceType.PROGNOSTIC_IMPLICATION
+    );
 
-        evidenceTypes.add(EvidenceType.DIAGNOSTIC_IMPLICATION);
-        evidenceTypes.add(EvidenceType.PROGNOSTIC_IMPLICATION);
+    private static final EnumSet<EvidenceType> TUMOR_TYPE_EVIDENCE_TYPES = EnumSet.of(
+        EvidenceType.TUMOR_TYPE_SUMMARY,
+        EvidenceType.DIAGNOSTIC_SUMMARY,
+        EvidenceType.PROGNOSTIC_SUMMARY,
+        EvidenceType.DIAGNOSTIC_IMPLICATION,
+        EvidenceType.PROGNOSTIC_IMPLICATION,
+        EvidenceType.STANDARD_THERAPEUTIC_IMPLICATIONS_FOR_DRUG_SENSITIVITY,
+        EvidenceType.INVESTIGATIONAL_THERAPEUTIC_IMPLICATIONS_DRUG_SENSITIVITY,
+        EvidenceType.STANDARD_THERAPEUTIC_IMPLICATIONS_FOR_DRUG_RESISTANCE,
+        EvidenceType.INVESTIGATIONAL_THERAPEUTIC_IMPLICATIONS_DRUG_RESISTANCE
+    );
 
-        evidenceTypes.add(EvidenceType.STANDARD_THERAPEUTIC_IMPLICATIONS_FOR_DRUG_SENSITIVITY);
-        evidenceTypes.add(EvidenceType.INVESTIGATIONAL_THERAPEUTIC_IMPLICATIONS_DRUG_SENSITIVITY);
+    public static Set<EvidenceType> getGeneEvidenceTypes() {
+        return EnumSet.copyOf(GENE_EVIDENCE_TYPES);
+    }
 
-        evidenceTypes.add(EvidenceType.STANDARD_THERAPEUTIC_IMPLICATIONS_FOR_DRUG_RESISTANCE);
-        evidenceTypes.add(EvidenceType.INVESTIGATIONAL_THERAPEUTIC_IMPLICATIONS_DRUG_RESISTANCE);
-        return evidenceTypes;
+    public static Set<EvidenceType> getMutationEvidenceTypes() {
+        return EnumSet.copyOf(MUTATION_EVIDENCE_TYPES);
+    }
+
+    public static Set<EvidenceType> getTumorTypeEvidenceTypes() {
+        return EnumSet.copyOf(TUMOR_TYPE_EVIDENCE_TYPES);
     }
 
     public static Set<EvidenceType> getSensitiveTreatmentEvidenceTypes() {
-        Set<EvidenceType> types = new HashSet<>();
-        types.add(EvidenceType.STANDARD_THERAPEUTIC_IMPLICATIONS_FOR_DRUG_SENSITIVITY);
-        types.add(EvidenceType.INVESTIGATIONAL_THERAPEUTIC_IMPLICATIONS_DRUG_SENSITIVITY);
-        return types;
+        return EnumSet.copyOf(SENSITIVE_TREATMENT_EVIDENCE_TYPES);
     }
 
     public static Set<EvidenceType> getTreatmentEvidenceTypes() {
-        Set<EvidenceType> types = new HashSet<>();
-        types.add(EvidenceType.STANDARD_THERAPEUTIC_IMPLICATIONS_FOR_DRUG_SENSITIVITY);
-        types.add(EvidenceType.STANDARD_THERAPEUTIC_IMPLICATIONS_FOR_DRUG_RESISTANCE);
-        types.add(EvidenceType.INVESTIGATIONAL_THERAPEUTIC_IMPLICATIONS_DRUG_RESISTANCE);
-        types.add(EvidenceType.INVESTIGATIONAL_THERAPEUTIC_IMPLICATIONS_DRUG_SENSITIVITY);
-        return types;
+        return EnumSet.copyOf(TREATMENT_EVIDENCE_TYPES);
     }
 
     public static Set<EvidenceType> getImplicationEvidenceTypes(){
-        Set<EvidenceType> types = new HashSet<>();
-        types.add(EvidenceType.STANDARD_THERAPEUTIC_IMPLICATIONS_FOR_DRUG_SENSITIVITY);
-        types.add(EvidenceType.STANDARD_THERAPEUTIC_IMPLICATIONS_FOR_DRUG_RESISTANCE);
-        types.add(EvidenceType.INVESTIGATIONAL_THERAPEUTIC_IMPLICATIONS_DRUG_RESISTANCE);
-        types.add(EvidenceType.INVESTIGATIONAL_THERAPEUTIC_IMPLICATIONS_DRUG_SENSITIVITY);
-        types.add(EvidenceType.DIAGNOSTIC_IMPLICATION);
-        types.add(EvidenceType.PROGNOSTIC_IMPLICATION);
-        return types;
+        return EnumSet.copyOf(IMPLICATION_EVIDENCE_TYPES);
+    }
+
+    public static boolean isTumorTypeEvidenceType(EvidenceType evidenceType) {
+        return evidenceType != null && TUMOR_TYPE_EVIDENCE_TYPES.contains(evidenceType);
+    }
+
+    public static boolean isTreatmentEvidenceType(EvidenceType evidenceType) {
+        return evidenceType != null && TREATMENT_EVIDENCE_TYPES.contains(evidenceType);
+    }
+
+    public static boolean isSensitiveTreatmentEvidenceType(EvidenceType evidenceType) {
+        return evidenceType != null && SENSITIVE_TREATMENT_EVIDENCE_TYPES.contains(evidenceType);
     }
 
     public static List<EvidenceType> getAllEvidenceTypes() {
         return Arrays.asList(EvidenceType.values());
     }
+
+    /**
+     * Map the IndicatorQueryResp fields requested through the API to the evidence types that
+     * IndicatorUtils.processQuery needs to compute them. Null means the full response has to be computed.
+     *
+     * @param fields comma separated IndicatorQueryResp field names
+     * @return the evidence types needed, or null if all of them are needed
+     */
+    public static Set<EvidenceType> getEvidenceTypesByResponseFields(String fields) {
+        if (StringUtils.isEmpty(fields)) {
+            return null;
+        }
+        // VUS is not used for filtering in processQuery, the VUS flag is always resolved.
+        // Including it keeps the selection non-empty, an empty set means all evidence types in processQuery.
+        Set<EvidenceType> evidenceTypes = new HashSet<>();
+        evidenceTypes.add(EvidenceType.VUS);
+        for (String field : fields.trim().split("\\s*,\\s*")) {
+            if (StringUtils.isEmpty(field)) {
+                continue;
+            }
+            if (!RESPONSE_FIELD_EVIDENCE_TYPES.containsKey(field)) {
+                // Unknown field or the field depends on everything computed (e.g. lastUpdate)
+                return null;
+            }
+            evidenceTypes.addAll(RESPONSE_FIELD_EVIDENCE_TYPES.get(field));
+        }
+        return evidenceTypes;
+    }
+
+    /**
+     * Narrow down the evidence types requested by the user to the ones needed for the response fields.
+     *
+     * @param evidenceTypes evidence types requested, null or empty means all
+     * @param fields        comma separated IndicatorQueryResp field names
+     * @return the evidence types to compute
+     */
+    public static Set<EvidenceType> getEvidenceTypesForResponseFields(Set<EvidenceType> evidenceTypes, String fields) {
+        Set<EvidenceType> fieldEvidenceTypes = getEvidenceTypesByResponseFields(fields);
+        if (fieldEvidenceTypes == null) {
+            return evidenceTypes;
+        }
+        if (evidenceTypes == null || evidenceTypes.isEmpty()) {
+            return fieldEvidenceTypes;
+        }
+        Set<EvidenceType> selected = new HashSet<>(evidenceTypes);
+        selected.retainAll(fieldEvidenceTypes);
+        selected.add(EvidenceType.VUS);
+        return selected;
+    }
+
+    private static final Map<String, Set<EvidenceType>> RESPONSE_FIELD_EVIDENCE_TYPES = new HashMap<>();
+
+    static {
+        Set<EvidenceType> noEvidenceTypes = Collections.emptySet();
+        for (String field : Arrays.asList("query", "geneExist", "variantExist", "alleleExist", "VUS", "hotspot", "dataVersion")) {
+            RESPONSE_FIELD_EVIDENCE_TYPES.put(field, noEvidenceTypes);
+        }
+
+        RESPONSE_FIELD_EVIDENCE_TYPES.put("oncogenic", Collections.singleton(EvidenceType.ONCOGENIC));
+        RESPONSE_FIELD_EVIDENCE_TYPES.put("mutationEffect", Collections.singleton(EvidenceType.MUTATION_EFFECT));
+
+        // The hotspot oncogenicity adjustment pulls in Oncogenic Mutations treatments, so treatments need the oncogenicity
+        Set<EvidenceType> treatmentTypes = getTreatmentEvidenceTypes();
+        treatmentTypes.add(EvidenceType.ONCOGENIC);
+        for (String field : Arrays.asList("treatments", "highestSensitiveLevel", "highestResistanceLevel", "highestFdaLevel", "otherSignificantSensitiveLevels", "otherSignificantResistanceLevels")) {
+            RESPONSE_FIELD_EVIDENCE_TYPES.put(field, treatmentTypes);
+        }
+
+        RESPONSE_FIELD_EVIDENCE_TYPES.put("diagnosticImplications", Collections.singleton(EvidenceType.DIAGNOSTIC_IMPLICATION));
+        RESPONSE_FIELD_EVIDENCE_TYPES.put("highestDiagnosticImplicationLevel", Collections.singleton(EvidenceType.DIAGNOSTIC_IMPLICATION));
+        RESPONSE_FIELD_EVIDENCE_TYPES.put("prognosticImplications", Collections.singleton(EvidenceType.PROGNOSTIC_IMPLICATION));
+        RESPONSE_FIELD_EVIDENCE_TYPES.put("highestPrognosticImplicationLevel", Collections.singleton(EvidenceType.PROGNOSTIC_IMPLICATION));
+
+        RESPONSE_FIELD_EVIDENCE_TYPES.put("geneSummary", Collections.singleton(EvidenceType.GENE_SUMMARY));
+        RESPONSE_FIELD_EVIDENCE_TYPES.put("variantSummary", Collections.singleton(EvidenceType.MUTATION_SUMMARY));
+        RESPONSE_FIELD_EVIDENCE_TYPES.put("tumorTypeSummary", Collections.singleton(EvidenceType.TUMOR_TYPE_SUMMARY));
+        RESPONSE_FIELD_EVIDENCE_TYPES.put("prognosticSummary", Collections.singleton(EvidenceType.PROGNOSTIC_SUMMARY));
+        // The diagnostic summary is picked based on whether there is a Dx1 implication
+        RESPONSE_FIELD_EVIDENCE_TYPES.put("diagnosticSummary", new HashSet<>(Arrays.asList(EvidenceType.DIAGNOSTIC_SUMMARY, EvidenceType.DIAGNOSTIC_IMPLICATION)));
+    }
 }
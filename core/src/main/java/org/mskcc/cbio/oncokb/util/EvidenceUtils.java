@@ -1,7 +1,6 @@
 package org.mskcc.cbio.oncokb.util;
 
 import com.google.common.collect.Sets;
-import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.map.HashedMap;
 import org.apache.commons.lang3.StringUtils;
 import org.mskcc.cbio.oncokb.bo.AlterationBo;
@@ -12,11 +11,13 @@ import org.mskcc.cbio.oncokb.model.TumorType;
 
 import javax.xml.parsers.ParserConfigurationException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static java.util.stream.Collectors.*;
 import static org.mskcc.cbio.oncokb.model.RelevantTumorTypeDirection.DOWNWARD;
-import static org.mskcc.cbio.oncokb.util.LevelUtils.INFO_LEVELS;
 
 /**
  * Created by Hongxin on 8/10/15.
@@ -24,6 +25,17 @@ import static org.mskcc.cbio.oncokb.util.LevelUtils.INFO_LEVELS;
 public class EvidenceUtils {
     private static EvidenceBo evidenceBo = ApplicationContextSingleton.getEvidenceBo();
 
+    // The queries of an evidence lookup are processed on this pool, configured by evidence.lookup.parallelism
+    private static final ForkJoinPool LOOKUP_POOL = new ForkJoinPool(getLookupParallelism());
+
+    private static int getLookupParallelism() {
+        String parallelism = PropertiesUtils.getProperties("evidence.lookup.parallelism");
+        if (StringUtils.isNotEmpty(parallelism)) {
+            return Math.max(1, Integer.parseInt(parallelism.trim()));
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
     /**
      * Remove evidences if its alteration in the alteration list
      *
@@ -59,6 +71,12 @@ public class EvidenceUtils {
     public static Set<Evidence> getRelevantEvidences(
         Query query, Alteration matchedAlt,
         Set<EvidenceType> evidenceTypes, Set<LevelOfEvidence> levelOfEvidences, List<Alteration> relevantAlterations, List<Alteration> alternativeAlleles) {
+        return getRelevantEvidences(query, matchedAlt, evidenceTypes, levelOfEvidences, relevantAlterations, alternativeAlleles, new QueryResolutionContext());
+    }
+
+    public static Set<Evidence> getRelevantEvidences(
+        Query query, Alteration matchedAlt,
+        Set<EvidenceType> evidenceTypes, Set<LevelOfEvidence> levelOfEvidences, List<Alteration> relevantAlterations, List<Alteration> alternativeAlleles, QueryResolutionContext context) {
         if (query == null) {
             return new HashSet<>();
         }
@@ -77,7 +95,7 @@ public class EvidenceUtils {
 
             List<TumorType> relevantTumorTypes = new ArrayList<>();
             if (query.getTumorType() != null) {
-                relevantTumorTypes = TumorTypeUtils.findRelevantTumorTypes(query.getTumorType());
+                relevantTumorTypes = context.findRelevantTumorTypes(query.getTumorType());
                 evidenceQueryRes.setExactMatchedTumorType(ApplicationContextSingleton.getTumorTypeBo().getByName(query.getTumorType()));
             }
             evidenceQueryRes.setGene(gene);
@@ -87,7 +105,7 @@ public class EvidenceUtils {
             evidenceQueryRes.setExactMatchedAlteration(matchedAlt);
             evidenceQueryRes.setLevelOfEvidences(levelOfEvidences == null ? null : new ArrayList<>(levelOfEvidences));
 
-            relevantEvidences = getEvidence(query.getReferenceGenome(), evidenceQueryRes, evidenceTypes, levelOfEvidences);
+            relevantEvidences = getEvidence(query.getReferenceGenome(), evidenceQueryRes, evidenceTypes, levelOfEvidences, context);
 
             return filterEvidence(relevantEvidences, evidenceQueryRes);
         } else {
@@ -164,7 +182,7 @@ public class EvidenceUtils {
         }
     }
 
-    private static Set<Evidence> getEvidence(ReferenceGenome referenceGenome, EvidenceQueryRes query, Set<EvidenceType> evidenceTypes, Set<LevelOfEvidence> levelOfEvidences) {
+    private static Set<Evidence> getEvidence(ReferenceGenome referenceGenome, EvidenceQueryRes query, Set<EvidenceType> evidenceTypes, Set<LevelOfEvidence> levelOfEvidences, QueryResolutionContext context) {
         Set<Evidence> evidences = new HashSet<>();
 
         Set<Gene> genes = new HashSet<>(); //Get gene evidences
@@ -176,7 +194,7 @@ public class EvidenceUtils {
         if (query.getOncoTreeTypes() != null) {
             upwardTumorTypes.addAll(query.getOncoTreeTypes());
         }
-        downwardTumorTypes.addAll(TumorTypeUtils.findRelevantTumorTypes(query.getQuery().getTumorType(),null, DOWNWARD));
+        downwardTumorTypes.addAll(context.findRelevantTumorTypes(query.getQuery().getTumorType(),null, DOWNWARD));
 
         if (query.getGene() != null) {
             genes.add(query.getGene());
@@ -203,7 +221,7 @@ public class EvidenceUtils {
                         Set<TumorType> relevantCancerTypes = TumorTypeUtils.findEvidenceRelevantCancerTypes(evidence);
                         if (evidence.getEvidenceType().equals(EvidenceType.DIAGNOSTIC_IMPLICATION) && evidence.getLevelOfEvidence() != null && evidence.getLevelOfEvidence().equals(LevelOfEvidence.LEVEL_Dx1)) {
                             return !Collections.disjoint(downwardTumorTypes, relevantCancerTypes);
-                        } else if (EvidenceTypeUtils.getTumorTypeEvidenceTypes().contains(evidence.getEvidenceType())) {
+                        } else if (EvidenceTypeUtils.isTumorTypeEvidenceType(evidence.getEvidenceType())) {
                             return !Collections.disjoint(upwardTumorTypes, relevantCancerTypes);
                         } else {
                             return true;
@@ -333,7 +351,7 @@ public class EvidenceUtils {
                     }
 
                     // Don't include any resistance evidence if tumor type is not matched.
-                    if (LevelUtils.getResistanceLevels().contains(tmpEvidence.getLevelOfEvidence())) {
+                    if (LevelUtils.isResistanceLevel(tmpEvidence.getLevelOfEvidence())) {
                         flag = false;
                     }
                 }
@@ -579,9 +597,9 @@ public class EvidenceUtils {
         LevelOfEvidence highestLevel = LevelUtils.getHighestLevel(keys);
         LevelOfEvidence highestSensitiveLevel = LevelUtils.getHighestSensitiveLevel(keys);
 
-        Set<Evidence> tagAlongEvidences = (highestLevel == null || INFO_LEVELS.contains(highestLevel)) ? new HashSet<>() :
+        Set<Evidence> tagAlongEvidences = (highestLevel == null || LevelUtils.isInfoLevel(highestLevel)) ? new HashSet<>() :
             evidences.stream().filter(
-                evidence -> INFO_LEVELS.contains(evidence.getLevelOfEvidence())
+                evidence -> LevelUtils.isInfoLevel(evidence.getLevelOfEvidence())
             ).collect(Collectors.toSet());
 
         // When resistance level is not null, we need to consider whether the sensitive/resistance level is alteration specific
@@ -820,14 +838,13 @@ public class EvidenceUtils {
 
         if (evidenceTypes == null) {
             if (levelOfEvidences == null) {
-                evidenceTypes = new HashSet<>(EvidenceTypeUtils.getAllEvidenceTypes());
+                evidenceTypes = EnumSet.allOf(EvidenceType.class);
             } else {
-                evidenceTypes = new HashSet<>(EvidenceTypeUtils.getTreatmentEvidenceTypes());
+                evidenceTypes = EvidenceTypeUtils.getTreatmentEvidenceTypes();
             }
         }
 
-        levelOfEvidences = levelOfEvidences == null ? levelOfEvidences :
-            new HashSet<>(CollectionUtils.intersection(levelOfEvidences, LevelUtils.getPublicLevels()));
+        levelOfEvidences = levelOfEvidences == null ? levelOfEvidences : LevelUtils.filterPublicLevels(levelOfEvidences);
 
         highestLevelOnly = highestLevelOnly == null ? false : highestLevelOnly;
 
@@ -855,91 +872,123 @@ public class EvidenceUtils {
             query.setEvidences(new ArrayList<>(evidences));
             return Collections.singletonList(query);
         } else {
-            for (Query requestQuery : requestQueries) {
-                EvidenceQueryRes query = new EvidenceQueryRes();
+            final Set<EvidenceType> selectedEvidenceTypes = evidenceTypes;
+            final Set<LevelOfEvidence> selectedLevels = levelOfEvidences;
+            final boolean selectedHighestLevelOnly = highestLevelOnly;
+            if (requestQueries.size() == 1) {
+                evidenceQueries.add(processQuery(requestQueries.get(0), selectedEvidenceTypes, selectedLevels, selectedHighestLevelOnly));
+            } else {
+                // The queries are independent, the order of the responses follows the order of the queries
+                try {
+                    evidenceQueries.addAll(LOOKUP_POOL.submit(() -> IntStream.range(0, requestQueries.size()).parallel()
+                        .mapToObj(i -> processQuery(requestQueries.get(i), selectedEvidenceTypes, selectedLevels, selectedHighestLevelOnly))
+                        .collect(Collectors.toList())).get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("The evidence lookup is interrupted", e);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        }
 
-                requestQuery.enrich();
+        return evidenceQueries;
+    }
 
-                query.setQuery(requestQuery);
+    private static EvidenceQueryRes processQuery(Query requestQuery, Set<EvidenceType> evidenceTypes,
+                                                 Set<LevelOfEvidence> levelOfEvidences, boolean highestLevelOnly) {
+        EvidenceQueryRes query = new EvidenceQueryRes();
+        QueryResolutionContext context = new QueryResolutionContext();
 
-                query.setGene(GeneUtils.getGene(requestQuery.getEntrezGeneId(), requestQuery.getHugoSymbol()));
+        requestQuery.enrich();
 
-                if (requestQuery.getTumorType() != null && !requestQuery.getTumorType().isEmpty()) {
-                    query.setExactMatchedTumorType(ApplicationContextSingleton.getTumorTypeBo().getByName(requestQuery.getTumorType()));
-                    query.setOncoTreeTypes(
-                        TumorTypeUtils.findRelevantTumorTypes(requestQuery.getTumorType()));
-                }
-                if (query.getGene() != null) {
+        query.setQuery(requestQuery);
 
-                    if (!com.mysql.jdbc.StringUtils.isNullOrEmpty(requestQuery.getAlteration())) {
-                        Alteration alt = AlterationUtils.findAlteration(query.getGene(), requestQuery.getReferenceGenome(), requestQuery.getAlteration());
+        query.setGene(GeneUtils.getGene(requestQuery.getEntrezGeneId(), requestQuery.getHugoSymbol()));
 
-                        if (alt == null) {
-                            alt = AlterationUtils.getAlteration(query.getGene().getHugoSymbol(),
-                                requestQuery.getAlteration(), null, requestQuery.getConsequence(),
-                                requestQuery.getProteinStart(), requestQuery.getProteinEnd(), requestQuery.getReferenceGenome());
-                            AlterationUtils.annotateAlteration(alt, alt.getAlteration());
-                        }
-                        query.setExactMatchedAlteration(alt);
-                        List<Alteration> relevantAlts = AlterationUtils.getRelevantAlterations(requestQuery.getReferenceGenome(), alt);
-
-                        // Look for Oncogenic Mutations if no relevantAlt found for alt and alt is hotspot
-                        if (relevantAlts.isEmpty()
-                            && HotspotUtils.isHotspot(alt)) {
-                            List<Alteration> oncogenicMutations = AlterationUtils.findOncogenicMutations(AlterationUtils.getAllAlterations(requestQuery.getReferenceGenome(), alt.getGene()));
-                            if (!oncogenicMutations.isEmpty()) {
-                                relevantAlts.addAll(oncogenicMutations);
-                            }
-                        }
+        if (requestQuery.getTumorType() != null && !requestQuery.getTumorType().isEmpty()) {
+            query.setExactMatchedTumorType(ApplicationContextSingleton.getTumorTypeBo().getByName(requestQuery.getTumorType()));
+            query.setOncoTreeTypes(
+                context.findRelevantTumorTypes(requestQuery.getTumorType()));
+        }
+        if (query.getGene() != null) {
 
-                        Alteration alteration = AlterationUtils.getAlteration(query.getGene().getHugoSymbol(), requestQuery.getAlteration(), AlterationType.MUTATION, requestQuery.getConsequence(), requestQuery.getProteinStart(), requestQuery.getProteinEnd(), requestQuery.getReferenceGenome());
-                        List<Alteration> allelesAlts = AlterationUtils.getAlleleAlterations(requestQuery.getReferenceGenome(), alteration);
-                        relevantAlts.removeAll(allelesAlts);
-                        query.setAlterations(relevantAlts);
+            if (!com.mysql.jdbc.StringUtils.isNullOrEmpty(requestQuery.getAlteration())) {
+                Alteration alt = AlterationUtils.findAlteration(query.getGene(), requestQuery.getReferenceGenome(), requestQuery.getAlteration());
 
-                        query.setAlleles(new ArrayList<>(allelesAlts));
-                    } else {
-                        // if no alteration assigned, but has tumor type
-                        query.setAlterations(new ArrayList<>(AlterationUtils.getAllAlterations(requestQuery.getReferenceGenome(), query.getGene())));
-                    }
+                if (alt == null) {
+                    alt = AlterationUtils.getAlteration(query.getGene().getHugoSymbol(),
+                        requestQuery.getAlteration(), null, requestQuery.getConsequence(),
+                        requestQuery.getProteinStart(), requestQuery.getProteinEnd(), requestQuery.getReferenceGenome());
+                    AlterationUtils.annotateAlteration(alt, alt.getAlteration());
                 }
-                query.setLevelOfEvidences(levelOfEvidences == null ? null : new ArrayList<>(levelOfEvidences));
-                Set<Evidence> relevantEvidences = getEvidence(requestQuery.getReferenceGenome(), query, evidenceTypes, levelOfEvidences);
-                query = assignEvidence(relevantEvidences,
-                    Collections.singletonList(query), highestLevelOnly).iterator().next();
-
-                Set<Evidence> updatedEvidences = new HashSet<>();
-                final List<LevelOfEvidence> allowedLevels = query.getLevelOfEvidences();
-                final List<TumorType> upwardTumorTypes = query.getOncoTreeTypes();
-                TumorForm tumorForm = TumorTypeUtils.checkTumorForm(new HashSet<>(upwardTumorTypes));
-                for (Evidence evidence : query.getEvidences()) {
-                    if (evidence.getLevelOfEvidence() != null && EvidenceTypeUtils.getTreatmentEvidenceTypes().contains(evidence.getEvidenceType()) && tumorForm != null) {
-                        boolean disjoint = Collections.disjoint(TumorTypeUtils.findEvidenceRelevantCancerTypes(evidence), query.getExactMatchedTumorType() == null ? upwardTumorTypes : Collections.singleton(query.getExactMatchedTumorType()));
-                        if (disjoint) {
-                            Evidence propagatedLevel = getPropagateEvidence(allowedLevels, evidence, tumorForm);
-                            if (propagatedLevel != null) {
-                                updatedEvidences.add(propagatedLevel);
-                            }
-                        } else {
-                            updatedEvidences.add(new Evidence(evidence, evidence.getId()));
-                        }
-                    } else {
-                        updatedEvidences.add(new Evidence(evidence, evidence.getId()));
+                query.setExactMatchedAlteration(alt);
+                List<Alteration> relevantAlts = context.getRelevantAlterations(requestQuery.getReferenceGenome(), alt);
+
+                // Look for Oncogenic Mutations if no relevantAlt found for alt and alt is hotspot
+                if (relevantAlts.isEmpty()
+                    && context.isHotspot(alt)) {
+                    List<Alteration> oncogenicMutations = AlterationUtils.findOncogenicMutations(context.getAllAlterations(requestQuery.getReferenceGenome(), alt.getGene()));
+                    if (!oncogenicMutations.isEmpty()) {
+                        relevantAlts.addAll(oncogenicMutations);
                     }
                 }
 
-                if (!StringUtils.isEmpty(requestQuery.getHugoSymbol()) || query.getGene() != null) {
-                    String hugoSymbol = StringUtils.isEmpty(requestQuery.getHugoSymbol()) ? query.getGene().getHugoSymbol() : requestQuery.getHugoSymbol();
-                    for (Evidence evidence : updatedEvidences) {
-                        evidence.setDescription(SummaryUtils.enrichDescription(evidence.getDescription(), hugoSymbol));
+                Alteration alteration = AlterationUtils.getAlteration(query.getGene().getHugoSymbol(), requestQuery.getAlteration(), AlterationType.MUTATION, requestQuery.getConsequence(), requestQuery.getProteinStart(), requestQuery.getProteinEnd(), requestQuery.getReferenceGenome());
+                List<Alteration> allelesAlts = context.getAlleleAlterations(requestQuery.getReferenceGenome(), alteration);
+                relevantAlts.removeAll(allelesAlts);
+                query.setAlterations(relevantAlts);
+
+                query.setAlleles(new ArrayList<>(allelesAlts));
+            } else {
+                // if no alteration assigned, but has tumor type
+                query.setAlterations(new ArrayList<>(context.getAllAlterations(requestQuery.getReferenceGenome(), query.getGene())));
+            }
+        }
+        query.setLevelOfEvidences(levelOfEvidences == null ? null : new ArrayList<>(levelOfEvidences));
+        Set<Evidence> relevantEvidences = getEvidence(requestQuery.getReferenceGenome(), query, evidenceTypes, levelOfEvidences, context);
+        query = assignEvidence(relevantEvidences,
+            Collections.singletonList(query), highestLevelOnly).iterator().next();
+
+        // The evidences are shared with the cache, they are only copied when the query changes them
+        Set<Evidence> updatedEvidences = new HashSet<>();
+        final List<LevelOfEvidence> allowedLevels = query.getLevelOfEvidences();
+        final List<TumorType> upwardTumorTypes = query.getOncoTreeTypes();
+        TumorForm tumorForm = TumorTypeUtils.checkTumorForm(new HashSet<>(upwardTumorTypes));
+        for (Evidence evidence : query.getEvidences()) {
+            if (evidence.getLevelOfEvidence() != null && EvidenceTypeUtils.isTreatmentEvidenceType(evidence.getEvidenceType()) && tumorForm != null) {
+                boolean disjoint = Collections.disjoint(TumorTypeUtils.findEvidenceRelevantCancerTypes(evidence), query.getExactMatchedTumorType() == null ? upwardTumorTypes : Collections.singleton(query.getExactMatchedTumorType()));
+                if (disjoint) {
+                    Evidence propagatedLevel = getPropagateEvidence(allowedLevels, evidence, tumorForm);
+                    if (propagatedLevel != null) {
+                        updatedEvidences.add(propagatedLevel);
                     }
+                } else {
+                    updatedEvidences.add(evidence);
                 }
-                query.setEvidences(new ArrayList<>(StringUtils.isEmpty(query.getQuery().getTumorType()) ? updatedEvidences : keepHighestLevelForSameTreatments(updatedEvidences, requestQuery.getReferenceGenome(), query.getExactMatchedAlteration())));
-                evidenceQueries.add(query);
+            } else {
+                updatedEvidences.add(evidence);
             }
         }
 
-        return evidenceQueries;
+        if (!StringUtils.isEmpty(requestQuery.getHugoSymbol()) || query.getGene() != null) {
+            String hugoSymbol = StringUtils.isEmpty(requestQuery.getHugoSymbol()) ? query.getGene().getHugoSymbol() : requestQuery.getHugoSymbol();
+            Set<Evidence> enrichedEvidences = new HashSet<>();
+            for (Evidence evidence : updatedEvidences) {
+                String description = SummaryUtils.enrichDescription(evidence.getDescription(), hugoSymbol);
+                if (!description.equals(evidence.getDescription())) {
+                    evidence = new Evidence(evidence, evidence.getId());
+                    evidence.setDescription(description);
+                }
+                enrichedEvidences.add(evidence);
+            }
+            updatedEvidences = enrichedEvidences;
+        }
+        query.setEvidences(new ArrayList<>(StringUtils.isEmpty(query.getQuery().getTumorType()) ? updatedEvidences : keepHighestLevelForSameTreatments(updatedEvidences, requestQuery.getReferenceGenome(), query.getExactMatchedAlteration())));
+        return query;
     }
 
     private static List<EvidenceQueryRes> assignEvidence(Set<Evidence> evidences, List<EvidenceQueryRes> evidenceQueries,
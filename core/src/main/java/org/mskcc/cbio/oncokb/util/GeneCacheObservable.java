@@ -0,0 +1,63 @@
+package org.mskcc.cbio.oncokb.util;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Notified by CacheUtils after GeneObservable, once the caches of CacheUtils have been updated.
+ * The caches built on top of them (e.g. the annotation caches) observe this one, so what they compute
+ * after being invalidated uses the updated gene.
+ * The operations are the same as GeneObservable: {"cmd": "update", "val": entrez gene id} or {"cmd": "reset"}.
+ * Unlike Observable, the observers are notified in the order they were added, e.g. the cache managers
+ * before the CacheWarmer.
+ */
+public class GeneCacheObservable extends Observable {
+    private static GeneCacheObservable instance = new GeneCacheObservable();
+
+    private final List<Observer> observers = new CopyOnWriteArrayList<>();
+
+    public void update(String cmd, String value) {
+        if (cmd != null) {
+            Map<String, String> operation = new HashMap<>();
+            operation.put("cmd", cmd);
+            operation.put("val", value);
+            notifyObservers(operation);
+        }
+    }
+
+    @Override
+    public synchronized void addObserver(Observer observer) {
+        if (observer == null) {
+            throw new NullPointerException();
+        }
+        if (!observers.contains(observer)) {
+            observers.add(observer);
+        }
+    }
+
+    @Override
+    public synchronized void deleteObserver(Observer observer) {
+        observers.remove(observer);
+    }
+
+    @Override
+    public synchronized void deleteObservers() {
+        observers.clear();
+    }
+
+    @Override
+    public synchronized int countObservers() {
+        return observers.size();
+    }
+
+    @Override
+    public void notifyObservers(Object arg) {
+        for (Observer observer : observers) {
+            observer.update(this, arg);
+        }
+    }
+
+    public static GeneCacheObservable getInstance() {
+        return instance;
+    }
+}
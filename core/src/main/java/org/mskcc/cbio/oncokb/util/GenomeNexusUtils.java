@@ -15,16 +15,27 @@ import org.mskcc.cbio.oncokb.model.Gene;
 import org.mskcc.cbio.oncokb.model.ReferenceGenome;
 import org.mskcc.cbio.oncokb.model.VariantConsequence;
 import org.mskcc.cbio.oncokb.model.genomeNexusPreAnnotations.GenomeNexusAnnotatedVariantInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.*;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 /**
  * Created by Hongxin on 6/26/17.
  */
 public class GenomeNexusUtils {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GenomeNexusUtils.class);
 
     private static final String MSK_ISOFORM_OVERRIDE = "mskcc";
 
@@ -33,7 +44,24 @@ public class GenomeNexusUtils {
 
     private static final String GN_37_URL = "https://www.genomenexus.org";
     private static final String GN_38_URL = "https://grch38.genomenexus.org";
-    private static final int GN_READ_TIMEOUT_OVERRIDE = 30000;
+    private static final int DEFAULT_GN_BATCH_SIZE = 100;
+    private static final int DEFAULT_GN_BATCH_CONCURRENCY = 4;
+    private static final String GENOMIC_LOCATION_SEPARATOR = ",";
+
+    // A variant Genome Nexus cannot annotate is not a failure of the service
+    private static final CircuitBreaker GENOME_NEXUS_CIRCUIT_BREAKER = CircuitBreaker.fromProperties("genome_nexus",
+        e -> !(e instanceof ApiException) || ((ApiException) e).getCode() == 0 || ((ApiException) e).getCode() >= 500);
+    private static final CircuitBreaker ENSEMBL_CIRCUIT_BREAKER = CircuitBreaker.fromProperties("ensembl",
+        e -> !(e instanceof HttpClientErrorException));
+
+    // Sends the chunks of the batch annotations, genome_nexus.batch.concurrency chunks at most at the same time
+    private static final ExecutorService GN_BATCH_EXECUTOR = Executors.newFixedThreadPool(
+        Math.max(1, getIntegerProperty("genome_nexus.batch.concurrency", DEFAULT_GN_BATCH_CONCURRENCY)),
+        runnable -> {
+            Thread thread = new Thread(runnable, "genome-nexus-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
 
     public static String getEnsemblSequencePOSTUrl(ReferenceGenome referenceGenome) {
         return getEnsemblAPIUrl(referenceGenome) + "/sequence/id";
@@ -72,7 +100,8 @@ public class GenomeNexusUtils {
 
     private static ApiClient getGNApiClient(String url) {
         ApiClient client = new ApiClient();
-        client.setReadTimeout(GN_READ_TIMEOUT_OVERRIDE);
+        client.setConnectTimeout(GENOME_NEXUS_CIRCUIT_BREAKER.getCallTimeout());
+        client.setReadTimeout(GENOME_NEXUS_CIRCUIT_BREAKER.getCallTimeout());
         client.setBasePath(url);
         return client;
     }
@@ -118,6 +147,13 @@ public class GenomeNexusUtils {
         }
     }
 
+    private static RestTemplate getEnsemblRestTemplate() {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(ENSEMBL_CIRCUIT_BREAKER.getCallTimeout());
+        requestFactory.setReadTimeout(ENSEMBL_CIRCUIT_BREAKER.getCallTimeout());
+        return new RestTemplate(requestFactory);
+    }
+
     private static String getEnsemblSequenceGETUrl(ReferenceGenome referenceGenome, String transcript) {
         return getEnsemblAPIUrl(referenceGenome) + "/sequence/id/" + transcript;
     }
@@ -141,15 +177,137 @@ public class GenomeNexusUtils {
         return getConsequence(annotation, referenceGenome);
     }
 
+    public static TranscriptConsequenceSummary getTranscriptConsequence(VariantAnnotation annotation, ReferenceGenome referenceGenome) {
+        return getConsequence(annotation, referenceGenome);
+    }
+
+    /**
+     * Annotate the distinct queries with the batch endpoints of Genome Nexus, genome_nexus.batch.size queries per
+     * request. The queries of a request which fails, and the ones Genome Nexus does not return, are left out so
+     * the caller can annotate them one by one with the error handling of a single query.
+     *
+     * @return the annotations by query
+     */
+    public static Map<String, VariantAnnotation> getVariantAnnotations(GNVariantAnnotationType type, Collection<String> queries, ReferenceGenome referenceGenome) {
+        List<String> distinctQueries = new ArrayList<>();
+        for (String query : new LinkedHashSet<>(queries)) {
+            if (StringUtils.isNotEmpty(query) && StringUtils.isNotEmpty(query.replace(",", ""))) {
+                distinctQueries.add(query);
+            }
+        }
+        Map<String, VariantAnnotation> annotations = new HashMap<>();
+        if (type == null || referenceGenome == null || distinctQueries.isEmpty()) {
+            return annotations;
+        }
+
+        int batchSize = Math.max(1, getIntegerProperty("genome_nexus.batch.size", DEFAULT_GN_BATCH_SIZE));
+        List<Future<Map<String, VariantAnnotation>>> chunks = new ArrayList<>();
+        for (int start = 0; start < distinctQueries.size(); start += batchSize) {
+            List<String> chunk = distinctQueries.subList(start, Math.min(start + batchSize, distinctQueries.size()));
+            chunks.add(GN_BATCH_EXECUTOR.submit(RequestBudget.propagate(() -> getVariantAnnotationChunk(type, chunk, referenceGenome))));
+        }
+        for (Future<Map<String, VariantAnnotation>> chunk : chunks) {
+            try {
+                annotations.putAll(chunk.get(Math.max(0, RequestBudget.getRemainingMillis()), TimeUnit.MILLISECONDS));
+            } catch (ExecutionException e) {
+                // The queries of the chunk are annotated one by one
+                LOGGER.warn("Failed to annotate a chunk of {} variants with Genome Nexus", type, e.getCause());
+            } catch (TimeoutException e) {
+                // The request is out of time, the calls one by one are rejected right away
+                chunk.cancel(true);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return annotations;
+    }
+
+    private static Map<String, VariantAnnotation> getVariantAnnotationChunk(GNVariantAnnotationType type, List<String> queries, ReferenceGenome referenceGenome) throws ApiException {
+        List<String> gnFields = new ArrayList<>();
+        gnFields.add("annotation_summary");
+        // The queries by the variant Genome Nexus returns as the originalVariantQuery of its annotation
+        Map<String, List<String>> queriesByVariant = new HashMap<>();
+        List<VariantAnnotation> variantAnnotations;
+        if (type.equals(GNVariantAnnotationType.HGVS_G)) {
+            for (String query : queries) {
+                queriesByVariant.computeIfAbsent(query, variant -> new ArrayList<>()).add(query);
+            }
+            List<String> hgvsgs = new ArrayList<>(queriesByVariant.keySet());
+            variantAnnotations = GENOME_NEXUS_CIRCUIT_BREAKER.execute(() -> getAnnotationControllerApi(referenceGenome).fetchVariantAnnotationPOST(hgvsgs, MSK_ISOFORM_OVERRIDE, null, gnFields));
+        } else {
+            List<org.genome_nexus.client.GenomicLocation> genomicLocations = new ArrayList<>();
+            for (String query : queries) {
+                org.genome_nexus.client.GenomicLocation genomicLocation = getGenomicLocation(query);
+                // The malformed ones are annotated one by one to get the same error
+                if (genomicLocation != null) {
+                    List<String> variantQueries = queriesByVariant.computeIfAbsent(getGenomicLocationVariant(genomicLocation), variant -> new ArrayList<>());
+                    if (variantQueries.isEmpty()) {
+                        genomicLocations.add(genomicLocation);
+                    }
+                    variantQueries.add(query);
+                }
+            }
+            if (genomicLocations.isEmpty()) {
+                return new HashMap<>();
+            }
+            variantAnnotations = GENOME_NEXUS_CIRCUIT_BREAKER.execute(() -> getAnnotationControllerApi(referenceGenome).fetchVariantAnnotationByGenomicLocationPOST(genomicLocations, MSK_ISOFORM_OVERRIDE, null, gnFields));
+        }
+
+        Map<String, VariantAnnotation> annotations = new HashMap<>();
+        if (variantAnnotations == null) {
+            return annotations;
+        }
+        // The annotations are not necessarily in the order of the request, nor one for each variant
+        for (VariantAnnotation variantAnnotation : variantAnnotations) {
+            if (variantAnnotation == null || variantAnnotation.getOriginalVariantQuery() == null) {
+                continue;
+            }
+            for (String query : queriesByVariant.getOrDefault(variantAnnotation.getOriginalVariantQuery(), Collections.emptyList())) {
+                annotations.put(query, variantAnnotation);
+            }
+        }
+        return annotations;
+    }
+
+    // The genomic location as Genome Nexus writes it in the originalVariantQuery of its annotation
+    private static String getGenomicLocationVariant(org.genome_nexus.client.GenomicLocation genomicLocation) {
+        return String.join(GENOMIC_LOCATION_SEPARATOR, genomicLocation.getChromosome(), String.valueOf(genomicLocation.getStart()),
+            String.valueOf(genomicLocation.getEnd()), genomicLocation.getReferenceAllele(), genomicLocation.getVariantAllele());
+    }
+
+    // chromosome,start,end,reference allele,variant allele
+    private static org.genome_nexus.client.GenomicLocation getGenomicLocation(String query) {
+        String[] parts = query.split(GENOMIC_LOCATION_SEPARATOR, -1);
+        if (parts.length != 5) {
+            return null;
+        }
+        try {
+            org.genome_nexus.client.GenomicLocation genomicLocation = new org.genome_nexus.client.GenomicLocation();
+            genomicLocation.setChromosome(parts[0].trim());
+            genomicLocation.setStart(Integer.parseInt(parts[1].trim()));
+            genomicLocation.setEnd(Integer.parseInt(parts[2].trim()));
+            genomicLocation.setReferenceAllele(parts[3].trim());
+            genomicLocation.setVariantAllele(parts[4].trim());
+            return genomicLocation;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static int getIntegerProperty(String name, int defaultValue) {
+        String value = PropertiesUtils.getProperties(name);
+        if (StringUtils.isNotEmpty(value)) {
+            return Integer.parseInt(value.trim());
+        }
+        return defaultValue;
+    }
+
     public static GenomeNexusAnnotatedVariantInfo getAnnotatedVariantFromGenomeNexus(GNVariantAnnotationType type, String query, ReferenceGenome referenceGenome) throws ApiException {
         if (StringUtils.isEmpty(query) || StringUtils.isEmpty(query.replace(",", ""))) {
             return null;
         }
 
-        GenomeNexusAnnotatedVariantInfo preAnnotatedVariantInfo = new GenomeNexusAnnotatedVariantInfo();
-        preAnnotatedVariantInfo.setOriginalVariantQuery(query);
-        preAnnotatedVariantInfo.setReferenceGenome(referenceGenome);
-
         VariantAnnotation annotation = null;
         try {
             annotation = getVariantAnnotation(type, query, referenceGenome);
@@ -157,7 +315,33 @@ public class GenomeNexusUtils {
             // If there is an ApiException thrown by GN because it cannot annotate the variant, then we still
             // want to finish annotating the rest of the annotations in the POST request.
             e.printStackTrace();
+        } catch (CircuitBreaker.CallRejectedException e) {
+            // Genome Nexus is unavailable or the request is out of time, the variant is not annotated
         }
+        return getAnnotatedVariantInfo(type, query, referenceGenome, annotation);
+    }
+
+    /**
+     * The same as getAnnotatedVariantFromGenomeNexus for every query, in the same order. The distinct queries are
+     * annotated together, see getVariantAnnotations, the ones left out are annotated one by one.
+     */
+    public static List<GenomeNexusAnnotatedVariantInfo> getAnnotatedVariantsFromGenomeNexus(GNVariantAnnotationType type, List<String> queries, ReferenceGenome referenceGenome) throws ApiException {
+        Map<String, VariantAnnotation> annotations = getVariantAnnotations(type, queries, referenceGenome);
+        List<GenomeNexusAnnotatedVariantInfo> variantInfos = new ArrayList<>();
+        for (String query : queries) {
+            if (annotations.containsKey(query)) {
+                variantInfos.add(getAnnotatedVariantInfo(type, query, referenceGenome, annotations.get(query)));
+            } else {
+                variantInfos.add(getAnnotatedVariantFromGenomeNexus(type, query, referenceGenome));
+            }
+        }
+        return variantInfos;
+    }
+
+    private static GenomeNexusAnnotatedVariantInfo getAnnotatedVariantInfo(GNVariantAnnotationType type, String query, ReferenceGenome referenceGenome, VariantAnnotation annotation) {
+        GenomeNexusAnnotatedVariantInfo preAnnotatedVariantInfo = new GenomeNexusAnnotatedVariantInfo();
+        preAnnotatedVariantInfo.setOriginalVariantQuery(query);
+        preAnnotatedVariantInfo.setReferenceGenome(referenceGenome);
 
         if (annotation != null) {
             // Use original query for HGVSg/Genomic Location.
@@ -225,9 +409,9 @@ public class GenomeNexusUtils {
             List<String> gnFields = new ArrayList<>();
             gnFields.add("annotation_summary");
             if (type.equals(GNVariantAnnotationType.HGVS_G)) {
-                variantAnnotation = getAnnotationControllerApi(referenceGenome).fetchVariantAnnotationGET(query, MSK_ISOFORM_OVERRIDE, null, gnFields);
+                variantAnnotation = GENOME_NEXUS_CIRCUIT_BREAKER.execute(() -> getAnnotationControllerApi(referenceGenome).fetchVariantAnnotationGET(query, MSK_ISOFORM_OVERRIDE, null, gnFields));
             } else {
-                variantAnnotation = getAnnotationControllerApi(referenceGenome).fetchVariantAnnotationByGenomicLocationGET(query, MSK_ISOFORM_OVERRIDE, null, gnFields);
+                variantAnnotation = GENOME_NEXUS_CIRCUIT_BREAKER.execute(() -> getAnnotationControllerApi(referenceGenome).fetchVariantAnnotationByGenomicLocationGET(query, MSK_ISOFORM_OVERRIDE, null, gnFields));
             }
         }
         return variantAnnotation;
@@ -315,7 +499,7 @@ public class GenomeNexusUtils {
         EnsemblControllerApi controllerApi = GenomeNexusUtils.getEnsemblControllerApi(referenceGenome);
         EnsemblFilter ensemblFilter = new EnsemblFilter();
         ensemblFilter.setTranscriptIds(ensembelTranscriptIds);
-        return controllerApi.fetchEnsemblTranscriptsByEnsemblFilterPOST(ensemblFilter);
+        return GENOME_NEXUS_CIRCUIT_BREAKER.execute(() -> controllerApi.fetchEnsemblTranscriptsByEnsemblFilterPOST(ensemblFilter));
     }
 
     private static List<EnsemblTranscript> getEnsemblTranscriptList(String hugoSymbol, ReferenceGenome referenceGenome) throws ApiException {
@@ -325,14 +509,14 @@ public class GenomeNexusUtils {
         if (canonicalTranscript != null) {
             transcripts.add(canonicalTranscript);
         }
-        transcripts.addAll(controllerApi.fetchEnsemblTranscriptsGET(null, null, hugoSymbol));
+        transcripts.addAll(GENOME_NEXUS_CIRCUIT_BREAKER.execute(() -> controllerApi.fetchEnsemblTranscriptsGET(null, null, hugoSymbol)));
         return new ArrayList<>(transcripts);
     }
 
     public static EnsemblTranscript getCanonicalEnsemblTranscript(String hugoSymbol, ReferenceGenome referenceGenome) throws ApiException {
         EnsemblControllerApi controllerApi = GenomeNexusUtils.getEnsemblControllerApi(referenceGenome);
         try {
-            return controllerApi.fetchCanonicalEnsemblTranscriptByHugoSymbolGET(hugoSymbol, MSK_ISOFORM_OVERRIDE);
+            return GENOME_NEXUS_CIRCUIT_BREAKER.execute(() -> controllerApi.fetchCanonicalEnsemblTranscriptByHugoSymbolGET(hugoSymbol, MSK_ISOFORM_OVERRIDE));
         } catch (ApiException e) {
             if (e.getCode() == HttpStatus.NOT_FOUND.value()) {
                 return null;
@@ -351,9 +535,8 @@ public class GenomeNexusUtils {
         httpHeaders.setContentType(MediaType.APPLICATION_JSON);
         HttpEntity<String> entity = new HttpEntity<>(httpHeaders);
 
-        RestTemplate restTemplate = new RestTemplate();
-        ResponseEntity<Sequence> response = restTemplate.exchange(
-            GenomeNexusUtils.getEnsemblSequenceGETUrl(referenceGenome, transcript), HttpMethod.GET, entity, Sequence.class);
+        ResponseEntity<Sequence> response = ENSEMBL_CIRCUIT_BREAKER.execute(() -> getEnsemblRestTemplate().exchange(
+            GenomeNexusUtils.getEnsemblSequenceGETUrl(referenceGenome, transcript), HttpMethod.GET, entity, Sequence.class));
         return Optional.of(response.getBody());
     }
 
@@ -373,9 +556,8 @@ public class GenomeNexusUtils {
         }
         HttpEntity<String> entity = new HttpEntity<>(jsonObject.toString(), httpHeaders);
 
-        RestTemplate restTemplate = new RestTemplate();
-        ResponseEntity<Sequence[]> response = restTemplate.postForEntity(
-            GenomeNexusUtils.getEnsemblSequencePOSTUrl(referenceGenome), entity, Sequence[].class);
+        ResponseEntity<Sequence[]> response = ENSEMBL_CIRCUIT_BREAKER.execute(() -> getEnsemblRestTemplate().postForEntity(
+            GenomeNexusUtils.getEnsemblSequencePOSTUrl(referenceGenome), entity, Sequence[].class));
         return Arrays.asList(response.getBody());
     }
 
@@ -1,7 +1,6 @@
 package org.mskcc.cbio.oncokb.util;
 
 import com.google.common.collect.Sets;
-import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.map.HashedMap;
 import org.apache.commons.lang3.StringUtils;
 import org.mskcc.cbio.oncokb.apiModels.Citations;
@@ -12,6 +11,7 @@ import org.mskcc.cbio.oncokb.model.TumorType;
 
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static org.mskcc.cbio.oncokb.util.LevelUtils.getTherapeuticLevelsWithPriorityLIstIterator;
@@ -23,27 +23,59 @@ public class IndicatorUtils {
     public static IndicatorQueryResp processQuery(Query query,
                                                   Set<LevelOfEvidence> levels, Boolean highestLevelOnly,
                                                   Set<EvidenceType> evidenceTypes) {
-        highestLevelOnly = highestLevelOnly == null ? false : highestLevelOnly;
+        if (query == null) {
+            return new IndicatorQueryResp();
+        }
 
-        levels = levels == null ? LevelUtils.getPublicLevels() :
-            new HashSet<>(CollectionUtils.intersection(levels, LevelUtils.getPublicLevels()));
+        // The core is resolved on a copy without tumor type so it stays the same across tumor types
+        Query coreQuery = query.copy();
+        coreQuery.setId(null);
+        coreQuery.setTumorType(null);
 
-        Set<EvidenceType> selectedTreatmentEvidence = new HashSet<>();
-        if (evidenceTypes == null || evidenceTypes.isEmpty()) {
-            evidenceTypes = new HashSet<>(EvidenceTypeUtils.getAllEvidenceTypes());
-            selectedTreatmentEvidence = EvidenceTypeUtils.getTreatmentEvidenceTypes();
-        } else {
-            selectedTreatmentEvidence = Sets.intersection(evidenceTypes, EvidenceTypeUtils.getTreatmentEvidenceTypes());
+        // Both parts share the lookups, the overlay reuses the alterations resolved for the core
+        QueryResolutionContext context = new QueryResolutionContext();
+        IndicatorQueryCore queryCore = processQueryCore(coreQuery, getCoreEvidenceTypes(evidenceTypes), context);
+        return processTumorTypeOverlay(queryCore, query.getId(), query.getTumorType(), levels, highestLevelOnly, evidenceTypes, null, context);
+    }
+
+    /**
+     * The evidence types processQueryCore needs to compute. Unlike processQuery, an empty set means none of them.
+     *
+     * @param evidenceTypes evidence types requested, null or empty means all
+     * @return the tumor type independent evidence types requested
+     */
+    public static Set<EvidenceType> getCoreEvidenceTypes(Set<EvidenceType> evidenceTypes) {
+        Set<EvidenceType> coreEvidenceTypes = new HashSet<>();
+        for (EvidenceType evidenceType : Arrays.asList(EvidenceType.GENE_SUMMARY, EvidenceType.MUTATION_SUMMARY, EvidenceType.ONCOGENIC, EvidenceType.MUTATION_EFFECT)) {
+            if (evidenceTypes == null || evidenceTypes.isEmpty() || evidenceTypes.contains(evidenceType)) {
+                coreEvidenceTypes.add(evidenceType);
+            }
+        }
+        return coreEvidenceTypes;
+    }
+
+    /**
+     * Resolve the tumor type independent part of the annotation: the gene, the matched/relevant alterations,
+     * hotspot, VUS, oncogenicity, mutation effect, gene summary and variant summary.
+     *
+     * @param query         the query, tumor type is ignored. The query will be normalized in place.
+     * @param evidenceTypes the tumor type independent evidence types to compute, see getCoreEvidenceTypes
+     * @return the core of the annotation
+     */
+    public static IndicatorQueryCore processQueryCore(Query query, Set<EvidenceType> evidenceTypes) {
+        return processQueryCore(query, evidenceTypes, new QueryResolutionContext());
+    }
+
+    private static IndicatorQueryCore processQueryCore(Query query, Set<EvidenceType> evidenceTypes, QueryResolutionContext context) {
+        if (evidenceTypes == null) {
+            evidenceTypes = new HashSet<>();
         }
 
-        boolean hasTreatmentEvidence = !selectedTreatmentEvidence.isEmpty();
-        boolean hasDiagnosticImplicationEvidence = evidenceTypes.contains(EvidenceType.DIAGNOSTIC_IMPLICATION);
-        boolean hasPrognosticImplicationEvidence = evidenceTypes.contains(EvidenceType.PROGNOSTIC_IMPLICATION);
         boolean hasOncogenicEvidence = evidenceTypes.contains(EvidenceType.ONCOGENIC);
         boolean hasMutationEffectEvidence = evidenceTypes.contains(EvidenceType.MUTATION_EFFECT);
 
-        IndicatorQueryResp indicatorQuery = new IndicatorQueryResp();
-        indicatorQuery.setQuery(query);
+        IndicatorQueryCore queryCore = new IndicatorQueryCore();
+        queryCore.setQuery(query);
 
         Gene gene = null;
         List<Alteration> relevantAlterations = new ArrayList<>();
@@ -54,7 +86,7 @@ public class IndicatorUtils {
         Alteration alteration;
 
         if (query == null) {
-            return indicatorQuery;
+            return queryCore;
         }
 
         query.enrich();
@@ -141,7 +173,7 @@ public class IndicatorUtils {
                 Alteration truncatingMutations = AlterationUtils.getTruncatingMutations(gene);
                 if (truncatingMutations != null && !relevantAlterations.contains(truncatingMutations)) {
                     relevantAlterations.add(truncatingMutations);
-                    List<Alteration> truncMutRelevants = AlterationUtils.getRelevantAlterations(query.getReferenceGenome(), truncatingMutations);
+                    List<Alteration> truncMutRelevants = context.getRelevantAlterations(query.getReferenceGenome(), truncatingMutations);
                     for (Alteration alt : truncMutRelevants) {
                         if (!relevantAlterations.contains(alt)) {
                             relevantAlterations.add(alt);
@@ -155,22 +187,16 @@ public class IndicatorUtils {
                 Alteration alt = AlterationUtils.getAlteration(gene.getHugoSymbol(), query.getAlteration(),
                     null, query.getConsequence(), query.getProteinStart(), query.getProteinEnd(), query.getReferenceGenome());
 
-                relevantAlterations = AlterationUtils.getRelevantAlterations(query.getReferenceGenome(), alt);
+                relevantAlterations = context.getRelevantAlterations(query.getReferenceGenome(), alt);
             }
         }
 
         // For fusions
         if (fusionGeneAltsMap.containsKey("hasRelevantAltsGenes")) {
-            // If there are more than two genes have matches we need to compare the highest level, then oncogenicity
-            TreeSet<IndicatorQueryResp> result = new TreeSet<>(new IndicatorQueryRespComp());
-            for (Gene tmpGene : (List<Gene>) fusionGeneAltsMap.get("hasRelevantAltsGenes")) {
-                Query tmpQuery = new Query(query.getId(), query.getReferenceGenome(), tmpGene.getEntrezGeneId(),
-                    tmpGene.getHugoSymbol(), query.getAlteration(), null, query.getSvType(),
-                    query.getTumorType(), query.getConsequence(), query.getProteinStart(),
-                    query.getProteinEnd(), query.getHgvs());
-                result.add(IndicatorUtils.processQuery(tmpQuery, levels, highestLevelOnly, evidenceTypes));
-            }
-            return result.iterator().next();
+            // If there are more than two genes have matches we need to compare the highest level, then oncogenicity.
+            // The highest level depends on the tumor type, so the gene is picked in the tumor type overlay.
+            queryCore.setFusionGenes((List<Gene>) fusionGeneAltsMap.get("hasRelevantAltsGenes"));
+            return queryCore;
         }
 
         if (gene != null) {
@@ -181,12 +207,12 @@ public class IndicatorUtils {
             query.setEntrezGeneId(gene.getEntrezGeneId());
 
             // Gene exist should only be set to true if entrezGeneId is bigger than 0
-            indicatorQuery.setGeneExist(gene.getEntrezGeneId() > 0);
+            queryCore.setGeneExist(gene.getEntrezGeneId() > 0);
 
             // Gene summary
 
             if (evidenceTypes.contains(EvidenceType.GENE_SUMMARY)) {
-                indicatorQuery.setGeneSummary(SummaryUtils.geneSummary(gene, query.getHugoSymbol()));
+                queryCore.setGeneSummary(SummaryUtils.geneSummary(gene, query.getHugoSymbol()));
                 allQueryRelatedEvidences.addAll(EvidenceUtils.getEvidenceByGeneAndEvidenceTypes(gene, Collections.singleton(EvidenceType.GENE_SUMMARY)));
             }
 
@@ -194,77 +220,65 @@ public class IndicatorUtils {
                 null, query.getConsequence(), query.getProteinStart(), query.getProteinEnd(), query.getReferenceGenome());
 
             List<Alteration> nonVUSRelevantAlts = AlterationUtils.excludeVUS(relevantAlterations);
-            Map<String, LevelOfEvidence> highestLevels = new HashMap<>();
-            TumorType matchedTumorType = ApplicationContextSingleton.getTumorTypeBo().getByName(query.getTumorType());
-            List<TumorType> relevantUpwardTumorTypes = new ArrayList<>();
-            List<TumorType> relevantDownwardTumorTypes = new ArrayList<>();
 
-            Alteration matchedAlt = ApplicationContextSingleton.getAlterationBo().findExactlyMatchedAlteration(query.getReferenceGenome(), alteration, AlterationUtils.getAllAlterations(query.getReferenceGenome(), gene));
+            Alteration matchedAlt = context.findExactlyMatchedAlteration(query.getReferenceGenome(), alteration, gene);
 
             if (matchedAlt == null && isStructuralVariantEvent) {
                 matchedAlt = AlterationUtils.getRevertFusions(query.getReferenceGenome(), alteration);
             }
 
-            indicatorQuery.setVariantExist(matchedAlt != null);
+            queryCore.setVariantExist(matchedAlt != null);
 
             if(matchedAlt == null) {
                 matchedAlt = alteration;
             }
 
-            List<Alteration> alleles = AlterationUtils.getAlleleAlterations(query.getReferenceGenome(), matchedAlt);
+            List<Alteration> alleles = context.getAlleleAlterations(query.getReferenceGenome(), matchedAlt);
 
             // This is for tumor type level info. We do not want to map the alternative alleles on tumor type level
             List<Alteration> relevantAlterationsWithoutAlternativeAlleles = new ArrayList<>(relevantAlterations);
             AlterationUtils.removeAlternativeAllele(query.getReferenceGenome(), matchedAlt, relevantAlterationsWithoutAlternativeAlleles);
 
-            indicatorQuery.setHotspot(HotspotUtils.isHotspot(matchedAlt));
-
-            if (query.getTumorType() != null) {
-                relevantUpwardTumorTypes = TumorTypeUtils.findRelevantTumorTypes(query.getTumorType());
-            }
-
-            relevantDownwardTumorTypes = TumorTypeUtils.findRelevantTumorTypes(query.getTumorType(), null, RelevantTumorTypeDirection.DOWNWARD);
+            queryCore.setHotspot(context.isHotspot(matchedAlt));
 
-            indicatorQuery.setVUS(isVUS(matchedAlt));
+            queryCore.setVUS(isVUS(matchedAlt));
 
-            if (indicatorQuery.getVUS()) {
-                List<Evidence> vusEvidences = EvidenceUtils.getEvidence(Collections.singletonList(matchedAlt), Collections.singleton(EvidenceType.VUS), null);
+            if (queryCore.getVUS()) {
+                List<Evidence> vusEvidences = context.getEvidence(Collections.singletonList(matchedAlt), Collections.singleton(EvidenceType.VUS), null);
                 if (vusEvidences != null) {
                     allQueryRelatedEvidences.addAll(vusEvidences);
                 }
             }
 
             if (alleles == null || alleles.size() == 0) {
-                indicatorQuery.setAlleleExist(false);
+                queryCore.setAlleleExist(false);
             } else {
-                indicatorQuery.setAlleleExist(true);
+                queryCore.setAlleleExist(true);
             }
 
-            Set<Evidence> treatmentEvidences = new HashSet<>();
-
             if (nonVUSRelevantAlts.size() > 0) {
                 if (hasOncogenicEvidence) {
-                    IndicatorQueryOncogenicity indicatorQueryOncogenicity = getOncogenicity(matchedAlt, alleles, nonVUSRelevantAlts);
+                    IndicatorQueryOncogenicity indicatorQueryOncogenicity = getOncogenicity(matchedAlt, alleles, nonVUSRelevantAlts, context);
 
                     if (indicatorQueryOncogenicity.getOncogenicityEvidence() != null) {
                         allQueryRelatedEvidences.add(indicatorQueryOncogenicity.getOncogenicityEvidence());
                     }
 
                     // Only set oncogenicity if no previous data assigned.
-                    if (indicatorQuery.getOncogenic() == null && indicatorQueryOncogenicity.getOncogenicity() != null) {
-                        indicatorQuery.setOncogenic(indicatorQueryOncogenicity.getOncogenicity().getOncogenic());
+                    if (queryCore.getOncogenic() == null && indicatorQueryOncogenicity.getOncogenicity() != null) {
+                        queryCore.setOncogenic(indicatorQueryOncogenicity.getOncogenicity().getOncogenic());
                     }
                 }
 
                 if (hasMutationEffectEvidence) {
-                    IndicatorQueryMutationEffect indicatorQueryMutationEffect = getMutationEffect(matchedAlt, alleles, nonVUSRelevantAlts);
+                    IndicatorQueryMutationEffect indicatorQueryMutationEffect = getMutationEffect(matchedAlt, alleles, nonVUSRelevantAlts, context);
 
                     if (indicatorQueryMutationEffect.getMutationEffectEvidence() != null) {
                         allQueryRelatedEvidences.add(indicatorQueryMutationEffect.getMutationEffectEvidence());
                     }
 
                     // Only set mutation effect if no previous data assigned.
-                    if (indicatorQuery.getMutationEffect() == null && indicatorQueryMutationEffect.getMutationEffect() != null) {
+                    if (queryCore.getMutationEffect() == null && indicatorQueryMutationEffect.getMutationEffect() != null) {
                         MutationEffectResp mutationEffectResp = new MutationEffectResp();
                         mutationEffectResp.setKnownEffect(indicatorQueryMutationEffect.getMutationEffect().getMutationEffect());
                         if (indicatorQueryMutationEffect.getMutationEffectEvidence() != null) {
@@ -272,30 +286,191 @@ public class IndicatorUtils {
                             mutationEffectResp.setDescription(SummaryUtils.enrichDescription(indicatorQueryMutationEffect.getMutationEffectEvidence().getDescription(), hugoSymbol));
                             mutationEffectResp.setCitations(MainUtils.getCitationsByEvidence(indicatorQueryMutationEffect.getMutationEffectEvidence()));
                         }
-                        indicatorQuery.setMutationEffect(mutationEffectResp);
+                        queryCore.setMutationEffect(mutationEffectResp);
                     }
                 }
+            }
+
+            // Set hotspot oncogenicity to Likely Oncogenic
+            if (queryCore.getHotspot() && !MainUtils.isValidHotspotOncogenicity(Oncogenicity.getByEffect(queryCore.getOncogenic()))) {
+                queryCore.setOncogenic(Oncogenicity.LIKELY.getOncogenic());
+
+                // Check whether the gene has Oncogenic Mutations annotated
+                List<Alteration> oncogenicMutations = new ArrayList<>(AlterationUtils.findOncogenicMutations(context.getAllAlterations(query.getReferenceGenome(), gene)));
+                if (!oncogenicMutations.isEmpty()) {
+                    relevantAlterations.addAll(oncogenicMutations);
+                    // The treatments from Oncogenic Mutations are added in the tumor type overlay
+                    queryCore.setHotspotOncogenicMutations(oncogenicMutations);
+                }
+            }
+
+            // Mutation summary
+            if (evidenceTypes.contains(EvidenceType.MUTATION_SUMMARY)) {
+                queryCore.setVariantSummary(SummaryUtils.variantSummary(gene, matchedAlt,
+                    new ArrayList<>(relevantAlterations), query, context));
+            }
+
+            queryCore.setGene(gene);
+            queryCore.setMatchedAlteration(matchedAlt);
+            queryCore.setAlleles(alleles);
+            queryCore.setRelevantAlterationsWithoutAlternativeAlleles(relevantAlterationsWithoutAlternativeAlleles);
+            queryCore.setHasNonVUSRelevantAlterations(nonVUSRelevantAlts.size() > 0);
+        } else {
+            queryCore.setGeneExist(false);
+        }
+
+        if(StringUtils.isEmpty(queryCore.getOncogenic()) && StringUtils.isNotEmpty(query.getAlteration()) && query.getAlteration().trim().toLowerCase().startsWith(InferredMutation.ONCOGENIC_MUTATIONS.getVariant().toLowerCase())) {
+            queryCore.setOncogenic(Oncogenicity.YES.getOncogenic());
+        }
+
+        if (queryCore.getMutationEffect() == null) {
+            queryCore.setMutationEffect(getDefaultMutationEffectResponse());
+        }
+
+        // Give default oncogenicity if no data has been assigned.
+        if (queryCore.getOncogenic() == null) {
+            queryCore.setOncogenic(Oncogenicity.UNKNOWN.getOncogenic());
+        }
+
+        queryCore.setLastEdit(getLatestDateFromEvidences(allQueryRelatedEvidences));
+        return queryCore;
+    }
+
+    /**
+     * Apply the tumor type specific part of the annotation on top of the core: treatments, levels,
+     * implications and tumor type/diagnostic/prognostic summaries. The core is not modified.
+     *
+     * @param queryCore        the result of processQueryCore
+     * @param queryId          the id of the query to be returned in the response
+     * @param tumorType        the queried tumor type
+     * @param levels           levels of evidence to include, null means all public levels
+     * @param highestLevelOnly only include the highest level treatments
+     * @param evidenceTypes    evidence types requested, null or empty means all
+     * @return the annotation
+     */
+    public static IndicatorQueryResp processTumorTypeOverlay(IndicatorQueryCore queryCore, String queryId, String tumorType,
+                                                             Set<LevelOfEvidence> levels, Boolean highestLevelOnly,
+                                                             Set<EvidenceType> evidenceTypes) {
+        return processTumorTypeOverlay(queryCore, queryId, tumorType, levels, highestLevelOnly, evidenceTypes, (Function<Query, IndicatorQueryCore>) null);
+    }
+
+    /**
+     * The same as processTumorTypeOverlay, the cores of the genes of a fusion are resolved by coreResolver.
+     *
+     * @param coreResolver the core of a query without tumor type (e.g. cached), null to resolve it with processQueryCore
+     */
+    public static IndicatorQueryResp processTumorTypeOverlay(IndicatorQueryCore queryCore, String queryId, String tumorType,
+                                                             Set<LevelOfEvidence> levels, Boolean highestLevelOnly,
+                                                             Set<EvidenceType> evidenceTypes, Function<Query, IndicatorQueryCore> coreResolver) {
+        return processTumorTypeOverlay(queryCore, queryId, tumorType, levels, highestLevelOnly, evidenceTypes, coreResolver, new QueryResolutionContext());
+    }
+
+    private static IndicatorQueryResp processTumorTypeOverlay(IndicatorQueryCore queryCore, String queryId, String tumorType,
+                                                              Set<LevelOfEvidence> levels, Boolean highestLevelOnly,
+                                                              Set<EvidenceType> evidenceTypes, Function<Query, IndicatorQueryCore> coreResolver,
+                                                              QueryResolutionContext context) {
+        highestLevelOnly = highestLevelOnly == null ? false : highestLevelOnly;
+
+        levels = levels == null ? LevelUtils.getPublicLevels() : LevelUtils.filterPublicLevels(levels);
+
+        Set<EvidenceType> selectedTreatmentEvidence = new HashSet<>();
+        if (evidenceTypes == null || evidenceTypes.isEmpty()) {
+            evidenceTypes = EnumSet.allOf(EvidenceType.class);
+            selectedTreatmentEvidence = EvidenceTypeUtils.getTreatmentEvidenceTypes();
+        } else {
+            selectedTreatmentEvidence = Sets.intersection(evidenceTypes, EvidenceTypeUtils.getTreatmentEvidenceTypes());
+        }
+
+        boolean hasTreatmentEvidence = !selectedTreatmentEvidence.isEmpty();
+        boolean hasDiagnosticImplicationEvidence = evidenceTypes.contains(EvidenceType.DIAGNOSTIC_IMPLICATION);
+        boolean hasPrognosticImplicationEvidence = evidenceTypes.contains(EvidenceType.PROGNOSTIC_IMPLICATION);
+
+        Query query = queryCore.getQuery().copy();
+        query.setId(queryId);
+        query.setTumorType(tumorType);
+
+        // For fusions
+        if (queryCore.getFusionGenes() != null && !queryCore.getFusionGenes().isEmpty()) {
+            // If there are more than two genes have matches we need to compare the highest level, then oncogenicity
+            TreeSet<IndicatorQueryResp> result = new TreeSet<>(new IndicatorQueryRespComp());
+            for (Gene tmpGene : queryCore.getFusionGenes()) {
+                Query tmpQuery = new Query(query.getId(), query.getReferenceGenome(), tmpGene.getEntrezGeneId(),
+                    tmpGene.getHugoSymbol(), query.getAlteration(), null, query.getSvType(),
+                    query.getTumorType(), query.getConsequence(), query.getProteinStart(),
+                    query.getProteinEnd(), query.getHgvs());
+                if (coreResolver == null) {
+                    result.add(IndicatorUtils.processQuery(tmpQuery, levels, highestLevelOnly, evidenceTypes));
+                } else {
+                    Query coreQuery = tmpQuery.copy();
+                    coreQuery.setId(null);
+                    coreQuery.setTumorType(null);
+                    result.add(processTumorTypeOverlay(coreResolver.apply(coreQuery), query.getId(), query.getTumorType(),
+                        levels, highestLevelOnly, evidenceTypes, coreResolver, new QueryResolutionContext()));
+                }
+            }
+            return result.iterator().next();
+        }
+
+        IndicatorQueryResp indicatorQuery = new IndicatorQueryResp();
+        indicatorQuery.setQuery(query);
+        indicatorQuery.setGeneExist(queryCore.getGeneExist());
+        indicatorQuery.setVariantExist(queryCore.getVariantExist());
+        indicatorQuery.setAlleleExist(queryCore.getAlleleExist());
+        indicatorQuery.setVUS(queryCore.getVUS());
+        indicatorQuery.setHotspot(queryCore.getHotspot());
+        indicatorQuery.setOncogenic(queryCore.getOncogenic());
+        // The core may be a cached value shared by the callers
+        indicatorQuery.setMutationEffect(queryCore.getMutationEffect() == null ? null : queryCore.getMutationEffect().copy());
+        indicatorQuery.setGeneSummary(queryCore.getGeneSummary());
+        indicatorQuery.setVariantSummary(queryCore.getVariantSummary());
+
+        Set<Evidence> allQueryRelatedEvidences = new HashSet<>();
+        if (queryCore.getLastEdit() != null) {
+            Evidence lastEditCore = new Evidence();
+            lastEditCore.setLastEdit(queryCore.getLastEdit());
+            allQueryRelatedEvidences.add(lastEditCore);
+        }
 
+        Gene gene = queryCore.getGene();
+        if (gene != null) {
+            Alteration matchedAlt = queryCore.getMatchedAlteration();
+            List<Alteration> alleles = queryCore.getAlleles();
+            List<Alteration> relevantAlterationsWithoutAlternativeAlleles = queryCore.getRelevantAlterationsWithoutAlternativeAlleles();
+
+            Map<String, LevelOfEvidence> highestLevels = new HashMap<>();
+            TumorType matchedTumorType = ApplicationContextSingleton.getTumorTypeBo().getByName(query.getTumorType());
+            List<TumorType> relevantUpwardTumorTypes = new ArrayList<>();
+            List<TumorType> relevantDownwardTumorTypes = new ArrayList<>();
+
+            if (query.getTumorType() != null) {
+                relevantUpwardTumorTypes = context.findRelevantTumorTypes(query.getTumorType());
+            }
+
+            relevantDownwardTumorTypes = context.findRelevantTumorTypes(query.getTumorType(), null, RelevantTumorTypeDirection.DOWNWARD);
+
+            Set<Evidence> treatmentEvidences = new HashSet<>();
+
+            if (queryCore.getHasNonVUSRelevantAlterations()) {
                 if (hasTreatmentEvidence) {
                     if (StringUtils.isEmpty(query.getTumorType())) {
                         treatmentEvidences = EvidenceUtils.getRelevantEvidences(query, matchedAlt,
-                            selectedTreatmentEvidence, levels, relevantAlterationsWithoutAlternativeAlleles, alleles);
+                            selectedTreatmentEvidence, levels, new ArrayList<>(relevantAlterationsWithoutAlternativeAlleles), new ArrayList<>(alleles), context);
                     } else {
                         treatmentEvidences = EvidenceUtils.keepHighestLevelForSameTreatments(
                             EvidenceUtils.getRelevantEvidences(query, matchedAlt,
-                                selectedTreatmentEvidence, levels, relevantAlterationsWithoutAlternativeAlleles, alleles), query.getReferenceGenome(), matchedAlt);
+                                selectedTreatmentEvidence, levels, new ArrayList<>(relevantAlterationsWithoutAlternativeAlleles), new ArrayList<>(alleles), context), query.getReferenceGenome(), matchedAlt);
                     }
                 }
 
                 if (hasDiagnosticImplicationEvidence) {
                     List<Implication> implications = new ArrayList<>();
-                    implications.addAll(getImplications(matchedAlt, alleles, relevantAlterationsWithoutAlternativeAlleles, EvidenceType.DIAGNOSTIC_IMPLICATION, matchedTumorType, StringUtils.isEmpty(query.getTumorType()) ? null : relevantDownwardTumorTypes, query.getHugoSymbol(), Collections.singleton(LevelOfEvidence.LEVEL_Dx1)));
+                    implications.addAll(getImplications(matchedAlt, alleles, relevantAlterationsWithoutAlternativeAlleles, EvidenceType.DIAGNOSTIC_IMPLICATION, matchedTumorType, StringUtils.isEmpty(query.getTumorType()) ? null : relevantDownwardTumorTypes, query.getHugoSymbol(), Collections.singleton(LevelOfEvidence.LEVEL_Dx1), context));
 
                     // For Dx2 and Dx3, the logic is the same as Tx/Px
                     Set<LevelOfEvidence> levelOfEvidences = new HashSet<>();
                     levelOfEvidences.add(LevelOfEvidence.LEVEL_Dx2);
                     levelOfEvidences.add(LevelOfEvidence.LEVEL_Dx3);
-                    implications.addAll(getImplications(matchedAlt, alleles, relevantAlterationsWithoutAlternativeAlleles, EvidenceType.DIAGNOSTIC_IMPLICATION, matchedTumorType, StringUtils.isEmpty(query.getTumorType()) ? null : relevantUpwardTumorTypes, query.getHugoSymbol(), levelOfEvidences));
+                    implications.addAll(getImplications(matchedAlt, alleles, relevantAlterationsWithoutAlternativeAlleles, EvidenceType.DIAGNOSTIC_IMPLICATION, matchedTumorType, StringUtils.isEmpty(query.getTumorType()) ? null : relevantUpwardTumorTypes, query.getHugoSymbol(), levelOfEvidences, context));
                     indicatorQuery.setDiagnosticImplications(implications);
                     if (indicatorQuery.getDiagnosticImplications().size() > 0) {
                         indicatorQuery.setHighestDiagnosticImplicationLevel(LevelUtils.getHighestDiagnosticImplicationLevel(indicatorQuery.getDiagnosticImplications().stream().map(implication -> implication.getLevelOfEvidence()).collect(Collectors.toSet())));
@@ -303,31 +478,23 @@ public class IndicatorUtils {
                 }
 
                 if (hasPrognosticImplicationEvidence) {
-                    indicatorQuery.setPrognosticImplications(getImplications(matchedAlt, alleles, relevantAlterationsWithoutAlternativeAlleles, EvidenceType.PROGNOSTIC_IMPLICATION, matchedTumorType, StringUtils.isEmpty(query.getTumorType()) ? null : relevantUpwardTumorTypes, query.getHugoSymbol(), null));
+                    indicatorQuery.setPrognosticImplications(getImplications(matchedAlt, alleles, relevantAlterationsWithoutAlternativeAlleles, EvidenceType.PROGNOSTIC_IMPLICATION, matchedTumorType, StringUtils.isEmpty(query.getTumorType()) ? null : relevantUpwardTumorTypes, query.getHugoSymbol(), null, context));
                     if (indicatorQuery.getPrognosticImplications().size() > 0) {
                         indicatorQuery.setHighestPrognosticImplicationLevel(LevelUtils.getHighestPrognosticImplicationLevel(indicatorQuery.getPrognosticImplications().stream().map(implication -> implication.getLevelOfEvidence()).collect(Collectors.toSet())));
                     }
                 }
             }
 
-            // Set hotspot oncogenicity to Likely Oncogenic
-            if (indicatorQuery.getHotspot() && !MainUtils.isValidHotspotOncogenicity(Oncogenicity.getByEffect(indicatorQuery.getOncogenic()))) {
-                indicatorQuery.setOncogenic(Oncogenicity.LIKELY.getOncogenic());
-
-                // Check whether the gene has Oncogenic Mutations annotated
-                List<Alteration> oncogenicMutations = new ArrayList<>(AlterationUtils.findOncogenicMutations(AlterationUtils.getAllAlterations(query.getReferenceGenome(), gene)));
-                if (!oncogenicMutations.isEmpty()) {
-                    relevantAlterations.addAll(oncogenicMutations);
-                    if (hasTreatmentEvidence) {
-                        if (StringUtils.isEmpty(query.getTumorType())) {
-                            treatmentEvidences.addAll(EvidenceUtils.getEvidence(oncogenicMutations, selectedTreatmentEvidence, levels));
-                        } else {
-                            treatmentEvidences.addAll(EvidenceUtils.keepHighestLevelForSameTreatments(
-                                EvidenceUtils.convertEvidenceLevel(
-                                    EvidenceUtils.getEvidence(oncogenicMutations,
-                                        selectedTreatmentEvidence, levels), new HashSet<>(relevantUpwardTumorTypes)), query.getReferenceGenome(), matchedAlt));
-                        }
-                    }
+            // The hotspot has been assigned Likely Oncogenic in the core, attach the Oncogenic Mutations treatments
+            List<Alteration> oncogenicMutations = queryCore.getHotspotOncogenicMutations();
+            if (hasTreatmentEvidence && oncogenicMutations != null && !oncogenicMutations.isEmpty()) {
+                if (StringUtils.isEmpty(query.getTumorType())) {
+                    treatmentEvidences.addAll(context.getEvidence(oncogenicMutations, selectedTreatmentEvidence, levels));
+                } else {
+                    treatmentEvidences.addAll(EvidenceUtils.keepHighestLevelForSameTreatments(
+                        EvidenceUtils.convertEvidenceLevel(
+                            context.getEvidence(oncogenicMutations,
+                                selectedTreatmentEvidence, levels), new HashSet<>(relevantUpwardTumorTypes)), query.getReferenceGenome(), matchedAlt));
                 }
             }
 
@@ -365,7 +532,7 @@ public class IndicatorUtils {
                 Map<String, Object> tumorTypeSummary = SummaryUtils.tumorTypeSummary(EvidenceType.TUMOR_TYPE_SUMMARY, gene, query, matchedAlt,
                     new ArrayList<>(relevantAlterationsWithoutAlternativeAlleles),
                     matchedTumorType,
-                    relevantUpwardTumorTypes);
+                    relevantUpwardTumorTypes, context);
                 if (tumorTypeSummary != null) {
                     indicatorQuery.setTumorTypeSummary((String) tumorTypeSummary.get("summary"));
                     Date lateEdit = tumorTypeSummary.get("lastEdit") == null ? null : (Date) tumorTypeSummary.get("lastEdit");
@@ -377,12 +544,6 @@ public class IndicatorUtils {
                 }
             }
 
-            // Mutation summary
-            if (evidenceTypes.contains(EvidenceType.MUTATION_SUMMARY)) {
-                indicatorQuery.setVariantSummary(SummaryUtils.variantSummary(gene, matchedAlt,
-                    new ArrayList<>(relevantAlterations), query));
-            }
-
             // Diagnostic summary
             if (evidenceTypes.contains(EvidenceType.DIAGNOSTIC_SUMMARY) && matchedTumorType != null) {
                 Map<String, Object> diagnosticSummary = new HashMap<>();
@@ -390,13 +551,13 @@ public class IndicatorUtils {
                     diagnosticSummary = SummaryUtils.tumorTypeSummary(EvidenceType.DIAGNOSTIC_SUMMARY, gene, query, matchedAlt,
                         new ArrayList<>(relevantAlterationsWithoutAlternativeAlleles),
                         matchedTumorType,
-                        relevantDownwardTumorTypes);
+                        relevantDownwardTumorTypes, context);
                 }
                 if (StringUtils.isEmpty((String) diagnosticSummary.get("summary"))) {
                     diagnosticSummary = SummaryUtils.tumorTypeSummary(EvidenceType.DIAGNOSTIC_SUMMARY, gene, query, matchedAlt,
                         new ArrayList<>(relevantAlterationsWithoutAlternativeAlleles),
                         matchedTumorType,
-                        relevantUpwardTumorTypes);
+                        relevantUpwardTumorTypes, context);
                 }
 
                 if(StringUtils.isEmpty((String) diagnosticSummary.get("summary"))) {
@@ -417,7 +578,7 @@ public class IndicatorUtils {
                 Map<String, Object> prognosticSummary = SummaryUtils.tumorTypeSummary(EvidenceType.PROGNOSTIC_SUMMARY, gene, query, matchedAlt,
                     new ArrayList<>(relevantAlterationsWithoutAlternativeAlleles),
                     matchedTumorType,
-                    relevantUpwardTumorTypes);
+                    relevantUpwardTumorTypes, context);
                 if (prognosticSummary != null) {
                     indicatorQuery.setPrognosticSummary((String) prognosticSummary.get("summary"));
                     Date lateEdit = prognosticSummary.get("lastEdit") == null ? null : (Date) prognosticSummary.get("lastEdit");
@@ -445,16 +606,6 @@ public class IndicatorUtils {
                     indicatorQuery.setHighestSensitiveLevel(null);
                 }
             }
-        } else {
-            indicatorQuery.setGeneExist(false);
-        }
-
-        if(StringUtils.isEmpty(indicatorQuery.getOncogenic()) && StringUtils.isNotEmpty(query.getAlteration()) && query.getAlteration().trim().toLowerCase().startsWith(InferredMutation.ONCOGENIC_MUTATIONS.getVariant().toLowerCase())) {
-            indicatorQuery.setOncogenic(Oncogenicity.YES.getOncogenic());
-        }
-
-        if (indicatorQuery.getMutationEffect() == null) {
-            indicatorQuery.setMutationEffect(getDefaultMutationEffectResponse());
         }
 
         indicatorQuery.setDataVersion(MainUtils.getDataVersion());
@@ -463,10 +614,6 @@ public class IndicatorUtils {
         indicatorQuery.setLastUpdate(lastUpdate == null ? MainUtils.getDataVersionDate() :
             new SimpleDateFormat("MM/dd/yyy").format(lastUpdate));
 
-        // Give default oncogenicity if no data has been assigned.
-        if (indicatorQuery.getOncogenic() == null) {
-            indicatorQuery.setOncogenic(Oncogenicity.UNKNOWN.getOncogenic());
-        }
         return indicatorQuery;
     }
 
@@ -535,11 +682,11 @@ public class IndicatorUtils {
         return implications;
     }
 
-    private static List<Implication> getImplications(Alteration matchedAlt, List<Alteration> alternativeAlleles, List<Alteration> relevantAlterations, EvidenceType evidenceType, TumorType matchedTumorType, List<TumorType> tumorTypes, String queryHugoSymbol, Set<LevelOfEvidence> levelOfEvidences) {
+    private static List<Implication> getImplications(Alteration matchedAlt, List<Alteration> alternativeAlleles, List<Alteration> relevantAlterations, EvidenceType evidenceType, TumorType matchedTumorType, List<TumorType> tumorTypes, String queryHugoSymbol, Set<LevelOfEvidence> levelOfEvidences, QueryResolutionContext context) {
         List<Implication> implications = new ArrayList<>();
 
         // Find alteration specific evidence
-        List<Evidence> selfAltEvis = EvidenceUtils.getEvidence(Collections.singletonList(matchedAlt), Collections.singleton(evidenceType), matchedTumorType, tumorTypes, levelOfEvidences);
+        List<Evidence> selfAltEvis = context.getEvidence(Collections.singletonList(matchedAlt), Collections.singleton(evidenceType), matchedTumorType, tumorTypes, levelOfEvidences);
         if (selfAltEvis != null && selfAltEvis.size() > 0) {
             implications.addAll(getImplicationFromEvidence(selfAltEvis, queryHugoSymbol));
         }
@@ -548,7 +695,7 @@ public class IndicatorUtils {
         listToBeRemoved.add(matchedAlt);
 
         for (Alteration alt : AlterationUtils.removeAlterationsFromList(relevantAlterations, listToBeRemoved)) {
-            List<Evidence> altEvis = EvidenceUtils.getEvidence(Collections.singletonList(alt), Collections.singleton(evidenceType), matchedTumorType, tumorTypes, levelOfEvidences);
+            List<Evidence> altEvis = context.getEvidence(Collections.singletonList(alt), Collections.singleton(evidenceType), matchedTumorType, tumorTypes, levelOfEvidences);
             if (altEvis != null && altEvis.size() > 0) {
                 implications.addAll(getImplicationFromEvidence(altEvis, queryHugoSymbol));
             }
@@ -566,11 +713,15 @@ public class IndicatorUtils {
     }
 
     public static IndicatorQueryOncogenicity getOncogenicity(Alteration alteration, List<Alteration> alternativeAllele, List<Alteration> relevantAlterations) {
+        return getOncogenicity(alteration, alternativeAllele, relevantAlterations, new QueryResolutionContext());
+    }
+
+    private static IndicatorQueryOncogenicity getOncogenicity(Alteration alteration, List<Alteration> alternativeAllele, List<Alteration> relevantAlterations, QueryResolutionContext context) {
         Oncogenicity oncogenicity = null;
         Evidence oncogenicityEvidence = null;
 
         // Find alteration specific oncogenicity
-        oncogenicity = MainUtils.getCuratedAlterationOncogenicity(alteration);
+        oncogenicity = MainUtils.getCuratedAlterationOncogenicity(alteration, context);
 
         if(StringUtils.isNotEmpty(alteration.getAlteration()) && alteration.getAlteration().trim().toLowerCase().startsWith(InferredMutation.ONCOGENIC_MUTATIONS.getVariant().toLowerCase())) {
             oncogenicity = Oncogenicity.YES;
@@ -579,7 +730,7 @@ public class IndicatorUtils {
         if (oncogenicity == null || oncogenicity.equals(Oncogenicity.UNKNOWN)) {
             // Find Oncogenicity from alternative alleles
             if (alternativeAllele.size() > 0) {
-                oncogenicityEvidence = MainUtils.findHighestOncogenicEvidenceByEvidences(new HashSet<>(EvidenceUtils.getEvidence(new ArrayList<>(alternativeAllele), Collections.singleton(EvidenceType.ONCOGENIC), null)));
+                oncogenicityEvidence = MainUtils.findHighestOncogenicEvidenceByEvidences(new HashSet<>(context.getEvidence(new ArrayList<>(alternativeAllele), Collections.singleton(EvidenceType.ONCOGENIC), null)));
                 if (oncogenicityEvidence != null) {
                     Oncogenicity tmpOncogenicity = MainUtils.setToAlleleOncogenicity(Oncogenicity.getByEffect(oncogenicityEvidence.getKnownEffect()));
                     if (tmpOncogenicity != null) {
@@ -595,7 +746,7 @@ public class IndicatorUtils {
                 listToBeRemoved.add(alteration);
 
                 oncogenicityEvidence = MainUtils.findHighestOncogenicEvidenceByEvidences(
-                    new HashSet<>(EvidenceUtils.getEvidence(new ArrayList<>(AlterationUtils.removeAlterationsFromList(relevantAlterations, listToBeRemoved)), Collections.singleton(EvidenceType.ONCOGENIC), null))
+                    new HashSet<>(context.getEvidence(new ArrayList<>(AlterationUtils.removeAlterationsFromList(relevantAlterations, listToBeRemoved)), Collections.singleton(EvidenceType.ONCOGENIC), null))
                 );
                 if (oncogenicityEvidence != null) {
                     Oncogenicity tmpOncogenicity = Oncogenicity.getByEffect(oncogenicityEvidence.getKnownEffect());
@@ -609,7 +760,7 @@ public class IndicatorUtils {
         if (oncogenicity == null) {
             oncogenicity = Oncogenicity.UNKNOWN;
 
-            if (HotspotUtils.isHotspot(alteration)) {
+            if (context.isHotspot(alteration)) {
                 oncogenicity = Oncogenicity.LIKELY;
                 oncogenicityEvidence = null;
             }
@@ -617,10 +768,10 @@ public class IndicatorUtils {
         return new IndicatorQueryOncogenicity(oncogenicity, oncogenicityEvidence);
     }
 
-    private static IndicatorQueryMutationEffect getMutationEffect(Alteration alteration, List<Alteration> alternativeAllele, List<Alteration> relevantAlterations) {
+    private static IndicatorQueryMutationEffect getMutationEffect(Alteration alteration, List<Alteration> alternativeAllele, List<Alteration> relevantAlterations, QueryResolutionContext context) {
         IndicatorQueryMutationEffect indicatorQueryMutationEffect = new IndicatorQueryMutationEffect();
         // Find alteration specific mutation effect
-        List<Evidence> selfAltMEEvis = EvidenceUtils.getEvidence(Collections.singletonList(alteration),
+        List<Evidence> selfAltMEEvis = context.getEvidence(Collections.singletonList(alteration),
             Collections.singleton(EvidenceType.MUTATION_EFFECT), null);
         if (selfAltMEEvis != null) {
             indicatorQueryMutationEffect = MainUtils.findHighestMutationEffectByEvidence(new HashSet<>(selfAltMEEvis));
@@ -634,7 +785,7 @@ public class IndicatorUtils {
                     MainUtils.setToAlternativeAlleleMutationEffect(
                         MainUtils.findHighestMutationEffectByEvidence(
                             new HashSet<>(
-                                EvidenceUtils.getEvidence(
+                                context.getEvidence(
                                     new ArrayList<>(alternativeAllele)
                                     , Collections.singleton(EvidenceType.MUTATION_EFFECT)
                                     , null
@@ -651,7 +802,7 @@ public class IndicatorUtils {
                 listToBeRemoved.add(alteration);
 
                 indicatorQueryMutationEffect = MainUtils.findHighestMutationEffectByEvidence(
-                    new HashSet<>(EvidenceUtils.getEvidence(AlterationUtils.removeAlterationsFromList(relevantAlterations, listToBeRemoved), Collections.singleton(EvidenceType.MUTATION_EFFECT), null))
+                    new HashSet<>(context.getEvidence(AlterationUtils.removeAlterationsFromList(relevantAlterations, listToBeRemoved), Collections.singleton(EvidenceType.MUTATION_EFFECT), null))
                 );
             }
 
@@ -763,7 +914,7 @@ public class IndicatorUtils {
         boolean exists = false;
         // Info level treatment can be included even the drug(s) is the same
         for (IndicatorQueryTreatment treatment : treatments) {
-            if (getSortedTreatmentName(treatment.getDrugs()).equals(getSortedTreatmentName(newTreatment)) && !LevelUtils.INFO_LEVELS.contains(newTreatmentLevel)) {
+            if (getSortedTreatmentName(treatment.getDrugs()).equals(getSortedTreatmentName(newTreatment)) && !LevelUtils.isInfoLevel(newTreatmentLevel)) {
                 exists = true;
                 break;
             }
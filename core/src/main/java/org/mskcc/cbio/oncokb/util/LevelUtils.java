@@ -70,11 +70,63 @@ public class LevelUtils {
         Arrays.asList(LevelOfEvidence.LEVEL_R2)
     );
 
+    // The rank of a level is its index in the level list, indexed by the level ordinal. -1 when the list does not have the level.
+    // They replace the List.indexOf lookups in the level comparisons.
+    private static final int[] PUBLIC_LEVEL_RANKS = getRanks(PUBLIC_LEVELS);
+    private static final int[] THERAPEUTIC_SENSITIVE_LEVEL_RANKS = getRanks(THERAPEUTIC_SENSITIVE_LEVELS);
+    private static final int[] THERAPEUTIC_RESISTANCE_LEVEL_RANKS = getRanks(THERAPEUTIC_RESISTANCE_LEVELS);
+    private static final int[] PROGNOSTIC_LEVEL_RANKS = getRanks(PROGNOSTIC_LEVELS);
+    private static final int[] DIAGNOSTIC_LEVEL_RANKS = getRanks(DIAGNOSTIC_LEVELS);
+    private static final int[] FDA_LEVEL_RANKS = getRanks(FDA_LEVELS);
+    private static final Map<List<LevelOfEvidence>, int[]> LEVEL_RANKS = new IdentityHashMap<>();
+
+    static {
+        LEVEL_RANKS.put(PUBLIC_LEVELS, PUBLIC_LEVEL_RANKS);
+        LEVEL_RANKS.put(THERAPEUTIC_SENSITIVE_LEVELS, THERAPEUTIC_SENSITIVE_LEVEL_RANKS);
+        LEVEL_RANKS.put(THERAPEUTIC_RESISTANCE_LEVELS, THERAPEUTIC_RESISTANCE_LEVEL_RANKS);
+        LEVEL_RANKS.put(PROGNOSTIC_LEVELS, PROGNOSTIC_LEVEL_RANKS);
+        LEVEL_RANKS.put(DIAGNOSTIC_LEVELS, DIAGNOSTIC_LEVEL_RANKS);
+        LEVEL_RANKS.put(FDA_LEVELS, FDA_LEVEL_RANKS);
+    }
+
+    // All of the level groups are public levels
+    private static final EnumSet<LevelOfEvidence> PUBLIC_LEVEL_SET = EnumSet.copyOf(PUBLIC_LEVELS);
+    private static final EnumSet<LevelOfEvidence> SENSITIVE_LEVEL_SET = EnumSet.copyOf(THERAPEUTIC_SENSITIVE_LEVELS);
+    private static final EnumSet<LevelOfEvidence> RESISTANCE_LEVEL_SET = EnumSet.copyOf(THERAPEUTIC_RESISTANCE_LEVELS);
+    private static final EnumSet<LevelOfEvidence> PROGNOSTIC_LEVEL_SET = EnumSet.copyOf(PROGNOSTIC_LEVELS);
+    private static final EnumSet<LevelOfEvidence> DIAGNOSTIC_LEVEL_SET = EnumSet.copyOf(DIAGNOSTIC_LEVELS);
+    private static final EnumSet<LevelOfEvidence> FDA_LEVEL_SET = EnumSet.copyOf(FDA_LEVELS);
+    private static final EnumSet<LevelOfEvidence> INFO_LEVEL_SET = EnumSet.copyOf(INFO_LEVELS);
+
+    private static int[] getRanks(List<LevelOfEvidence> levels) {
+        int[] ranks = new int[LevelOfEvidence.values().length];
+        Arrays.fill(ranks, -1);
+        for (int i = 0; i < levels.size(); i++) {
+            ranks[levels.get(i).ordinal()] = i;
+        }
+        return ranks;
+    }
+
+    private static int getRank(LevelOfEvidence level, int[] ranks) {
+        return level == null ? -1 : ranks[level.ordinal()];
+    }
+
+    /**
+     * The rank of the level among the public levels, the higher the better. -1 when the level is not public.
+     */
+    public static int getPublicLevelRank(LevelOfEvidence level) {
+        return getRank(level, PUBLIC_LEVEL_RANKS);
+    }
+
     public static Integer compareLevel(LevelOfEvidence a, LevelOfEvidence b) {
-        return compareLevel(a, b, PUBLIC_LEVELS);
+        return compareLevel(a, b, PUBLIC_LEVEL_RANKS);
     }
 
     public static Integer compareLevel(LevelOfEvidence a, LevelOfEvidence b, List<LevelOfEvidence> levels) {
+        int[] ranks = LEVEL_RANKS.get(levels);
+        if (ranks != null) {
+            return compareLevel(a, b, ranks);
+        }
         if (!levels.contains(a)) {
             if (!levels.contains(b)) {
                 return 0;
@@ -88,16 +140,24 @@ public class LevelUtils {
         return levels.indexOf(b) - levels.indexOf(a);
     }
 
+    private static Integer compareLevel(LevelOfEvidence a, LevelOfEvidence b, int[] ranks) {
+        int rankA = getRank(a, ranks);
+        int rankB = getRank(b, ranks);
+        if (rankA < 0) {
+            return rankB < 0 ? 0 : 1;
+        }
+        if (rankB < 0) {
+            return -1;
+        }
+        return rankB - rankA;
+    }
+
     public static LevelOfEvidence getHighestLevelFromEvidence(Set<Evidence> evidences) {
         if (evidences != null) {
-            Integer highestLevelIndex = -1;
+            int highestLevelIndex = -1;
 
             for (Evidence evidence : evidences) {
-                LevelOfEvidence level = evidence.getLevelOfEvidence();
-                if (level != null) {
-                    Integer _index = PUBLIC_LEVELS.indexOf(level);
-                    highestLevelIndex = _index > highestLevelIndex ? _index : highestLevelIndex;
-                }
+                highestLevelIndex = Math.max(highestLevelIndex, getRank(evidence.getLevelOfEvidence(), PUBLIC_LEVEL_RANKS));
             }
 
             return highestLevelIndex > -1 ? PUBLIC_LEVELS.get(highestLevelIndex) : null;
@@ -106,36 +166,37 @@ public class LevelUtils {
         return null;
     }
 
-    public static LevelOfEvidence getHighestLevel(Set<LevelOfEvidence> levels) {
+    public static LevelOfEvidence getHighestLevel(Collection<LevelOfEvidence> levels) {
         return getHighestLevelByType(levels, PUBLIC_LEVELS);
     }
 
-    public static LevelOfEvidence getHighestDiagnosticImplicationLevel(Set<LevelOfEvidence> levels) {
+    public static LevelOfEvidence getHighestDiagnosticImplicationLevel(Collection<LevelOfEvidence> levels) {
         return getHighestLevelByType(levels, DIAGNOSTIC_LEVELS);
     }
 
-    public static LevelOfEvidence getHighestPrognosticImplicationLevel(Set<LevelOfEvidence> levels) {
+    public static LevelOfEvidence getHighestPrognosticImplicationLevel(Collection<LevelOfEvidence> levels) {
         return getHighestLevelByType(levels, PROGNOSTIC_LEVELS);
     }
 
-    public static LevelOfEvidence getHighestSensitiveLevel(Set<LevelOfEvidence> levels) {
+    public static LevelOfEvidence getHighestSensitiveLevel(Collection<LevelOfEvidence> levels) {
         return getHighestLevelByType(levels, THERAPEUTIC_SENSITIVE_LEVELS);
     }
-    public static LevelOfEvidence getHighestResistanceLevel(Set<LevelOfEvidence> levels) {
+    public static LevelOfEvidence getHighestResistanceLevel(Collection<LevelOfEvidence> levels) {
         return getHighestLevelByType(levels, THERAPEUTIC_RESISTANCE_LEVELS);
     }
 
-    public static LevelOfEvidence getHighestFdaLevel(Set<LevelOfEvidence> levels) {
+    public static LevelOfEvidence getHighestFdaLevel(Collection<LevelOfEvidence> levels) {
         return getHighestLevelByType(levels, FDA_LEVELS);
     }
 
-    public static LevelOfEvidence getHighestLevelByType(Set<LevelOfEvidence> levels, List<LevelOfEvidence> levelPool) {
-        Integer highestLevelIndex = -1;
+    public static LevelOfEvidence getHighestLevelByType(Collection<LevelOfEvidence> levels, List<LevelOfEvidence> levelPool) {
+        int[] ranks = LEVEL_RANKS.get(levelPool);
+        if (ranks == null) {
+            ranks = getRanks(levelPool);
+        }
+        int highestLevelIndex = -1;
         for (LevelOfEvidence levelOfEvidence : levels) {
-            if (levelOfEvidence != null) {
-                Integer _index = levelPool.indexOf(levelOfEvidence);
-                highestLevelIndex = _index > highestLevelIndex ? _index : highestLevelIndex;
-            }
+            highestLevelIndex = Math.max(highestLevelIndex, getRank(levelOfEvidence, ranks));
         }
         return highestLevelIndex > -1 ? levelPool.get(highestLevelIndex) : null;
     }
@@ -145,15 +206,12 @@ public class LevelUtils {
             return getHighestLevelFromEvidence(evidences);
         }
         if (evidences != null) {
-            Integer highestLevelIndex = -1;
+            int highestLevelIndex = -1;
 
             for (Evidence evidence : evidences) {
                 LevelOfEvidence level = evidence.getLevelOfEvidence();
                 if (levels.contains(level)) {
-                    if (level != null) {
-                        Integer _index = PUBLIC_LEVELS.indexOf(level);
-                        highestLevelIndex = _index > highestLevelIndex ? _index : highestLevelIndex;
-                    }
+                    highestLevelIndex = Math.max(highestLevelIndex, getRank(level, PUBLIC_LEVEL_RANKS));
                 }
             }
 
@@ -214,46 +272,96 @@ public class LevelUtils {
     }
 
     public static Boolean isSensitiveLevel(LevelOfEvidence levelOfEvidence) {
-        Boolean flag = false;
-        if (levelOfEvidence != null && THERAPEUTIC_SENSITIVE_LEVELS.contains(levelOfEvidence)) {
-            flag = true;
-        }
-        return flag;
+        return levelOfEvidence != null && SENSITIVE_LEVEL_SET.contains(levelOfEvidence);
     }
 
     public static Boolean isResistanceLevel(LevelOfEvidence levelOfEvidence) {
-        Boolean flag = false;
-        if (levelOfEvidence != null && THERAPEUTIC_RESISTANCE_LEVELS.contains(levelOfEvidence)) {
-            flag = true;
+        return levelOfEvidence != null && RESISTANCE_LEVEL_SET.contains(levelOfEvidence);
+    }
+
+    public static boolean isPublicLevel(LevelOfEvidence levelOfEvidence) {
+        return levelOfEvidence != null && PUBLIC_LEVEL_SET.contains(levelOfEvidence);
+    }
+
+    public static boolean isDiagnosticLevel(LevelOfEvidence levelOfEvidence) {
+        return levelOfEvidence != null && DIAGNOSTIC_LEVEL_SET.contains(levelOfEvidence);
+    }
+
+    public static boolean isPrognosticLevel(LevelOfEvidence levelOfEvidence) {
+        return levelOfEvidence != null && PROGNOSTIC_LEVEL_SET.contains(levelOfEvidence);
+    }
+
+    public static boolean isFdaLevel(LevelOfEvidence levelOfEvidence) {
+        return levelOfEvidence != null && FDA_LEVEL_SET.contains(levelOfEvidence);
+    }
+
+    public static boolean isInfoLevel(LevelOfEvidence levelOfEvidence) {
+        return levelOfEvidence != null && INFO_LEVEL_SET.contains(levelOfEvidence);
+    }
+
+    /**
+     * The public levels among the levels, null levels are dropped.
+     */
+    public static Set<LevelOfEvidence> filterPublicLevels(Collection<LevelOfEvidence> levels) {
+        return filterLevels(levels, PUBLIC_LEVEL_SET);
+    }
+
+    public static Set<LevelOfEvidence> filterSensitiveLevels(Collection<LevelOfEvidence> levels) {
+        return filterLevels(levels, SENSITIVE_LEVEL_SET);
+    }
+
+    public static Set<LevelOfEvidence> filterResistanceLevels(Collection<LevelOfEvidence> levels) {
+        return filterLevels(levels, RESISTANCE_LEVEL_SET);
+    }
+
+    public static Set<LevelOfEvidence> filterDiagnosticLevels(Collection<LevelOfEvidence> levels) {
+        return filterLevels(levels, DIAGNOSTIC_LEVEL_SET);
+    }
+
+    public static Set<LevelOfEvidence> filterPrognosticLevels(Collection<LevelOfEvidence> levels) {
+        return filterLevels(levels, PROGNOSTIC_LEVEL_SET);
+    }
+
+    public static Set<LevelOfEvidence> filterFdaLevels(Collection<LevelOfEvidence> levels) {
+        return filterLevels(levels, FDA_LEVEL_SET);
+    }
+
+    private static Set<LevelOfEvidence> filterLevels(Collection<LevelOfEvidence> levels, EnumSet<LevelOfEvidence> levelPool) {
+        EnumSet<LevelOfEvidence> result = EnumSet.noneOf(LevelOfEvidence.class);
+        if (levels != null) {
+            for (LevelOfEvidence level : levels) {
+                if (level != null && levelPool.contains(level)) {
+                    result.add(level);
+                }
+            }
         }
-        return flag;
+        return result;
     }
 
     public static Set<LevelOfEvidence> getPublicLevels() {
-        return new HashSet<>(PUBLIC_LEVELS);
+        return EnumSet.copyOf(PUBLIC_LEVEL_SET);
     }
 
     public static Set<LevelOfEvidence> getSensitiveLevels() {
-        return new HashSet<>(CollectionUtils.intersection(PUBLIC_LEVELS, THERAPEUTIC_SENSITIVE_LEVELS));
+        return EnumSet.copyOf(SENSITIVE_LEVEL_SET);
     }
 
     public static Set<LevelOfEvidence> getResistanceLevels() {
-        return new HashSet<>(CollectionUtils.intersection(PUBLIC_LEVELS, THERAPEUTIC_RESISTANCE_LEVELS));
+        return EnumSet.copyOf(RESISTANCE_LEVEL_SET);
     }
 
     public static Set<LevelOfEvidence> getTherapeuticLevels() {
-        Set<LevelOfEvidence> levels = new HashSet<>();
-        levels.addAll(new HashSet<>(CollectionUtils.intersection(PUBLIC_LEVELS, THERAPEUTIC_SENSITIVE_LEVELS)));
-        levels.addAll(new HashSet<>(CollectionUtils.intersection(PUBLIC_LEVELS, THERAPEUTIC_RESISTANCE_LEVELS)));
+        EnumSet<LevelOfEvidence> levels = EnumSet.copyOf(SENSITIVE_LEVEL_SET);
+        levels.addAll(RESISTANCE_LEVEL_SET);
         return levels;
     }
 
     public static int getSensitiveLevelIndex(LevelOfEvidence levelOfEvidence) {
-        return THERAPEUTIC_SENSITIVE_LEVELS.indexOf(levelOfEvidence);
+        return getRank(levelOfEvidence, THERAPEUTIC_SENSITIVE_LEVEL_RANKS);
     }
 
     public static int getResistanceLevelIndex(LevelOfEvidence levelOfEvidence) {
-        return THERAPEUTIC_RESISTANCE_LEVELS.indexOf(levelOfEvidence);
+        return getRank(levelOfEvidence, THERAPEUTIC_RESISTANCE_LEVEL_RANKS);
     }
 
     public static LevelOfEvidence getSensitiveLevelByIndex(int index) {
@@ -273,19 +381,19 @@ public class LevelUtils {
     }
 
     public static Set<LevelOfEvidence> getPrognosticLevels() {
-        return new HashSet<>(CollectionUtils.intersection(PUBLIC_LEVELS, PROGNOSTIC_LEVELS));
+        return EnumSet.copyOf(PROGNOSTIC_LEVEL_SET);
     }
 
     public static Set<LevelOfEvidence> getDiagnosticLevels() {
-        return new HashSet<>(CollectionUtils.intersection(PUBLIC_LEVELS, DIAGNOSTIC_LEVELS));
+        return EnumSet.copyOf(DIAGNOSTIC_LEVEL_SET);
     }
 
     public static Set<LevelOfEvidence> geFdaLevels() {
-        return new HashSet<>(CollectionUtils.intersection(PUBLIC_LEVELS, FDA_LEVELS));
+        return EnumSet.copyOf(FDA_LEVEL_SET);
     }
 
     public static Set<LevelOfEvidence> getAllowedCurationLevels() {
-        Set levels = new HashSet<>(PUBLIC_LEVELS);
+        Set<LevelOfEvidence> levels = EnumSet.copyOf(PUBLIC_LEVEL_SET);
         levels.remove(LevelOfEvidence.LEVEL_3B);
         return levels;
     }
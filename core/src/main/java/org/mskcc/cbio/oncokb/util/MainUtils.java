@@ -45,7 +45,11 @@ public class MainUtils {
     );
 
     public static Oncogenicity getCuratedAlterationOncogenicity(Alteration alteration) {
-        List<Evidence> selfAltOncogenicEvis = EvidenceUtils.getEvidence(Collections.singletonList(alteration),
+        return getCuratedAlterationOncogenicity(alteration, new QueryResolutionContext());
+    }
+
+    public static Oncogenicity getCuratedAlterationOncogenicity(Alteration alteration, QueryResolutionContext context) {
+        List<Evidence> selfAltOncogenicEvis = context.getEvidence(Collections.singletonList(alteration),
             Collections.singleton(EvidenceType.ONCOGENIC), null);
         if (selfAltOncogenicEvis != null) {
             Evidence highestOncogenicEvidenceByEvidence = MainUtils.findHighestOncogenicEvidenceByEvidences(new HashSet<>(selfAltOncogenicEvis));
@@ -498,7 +502,6 @@ public class MainUtils {
             alterations = AlterationUtils.excludeVUS(gene, new ArrayList<>(AlterationUtils.getAllAlterations(null, gene)));
             Set<EvidenceType> evidenceTypes = EvidenceTypeUtils.getImplicationEvidenceTypes();
             Map<Alteration, Map<LevelOfEvidence, Set<Evidence>>> evidences = new HashMap<>();
-            Set<LevelOfEvidence> publicLevels = LevelUtils.getPublicLevels();
 
             for (Alteration alteration : alterations) {
                 evidences.put(alteration, new HashMap<>());
@@ -519,7 +522,7 @@ public class MainUtils {
                     }
                     for (Alteration alteration : evidence.getAlterations()) {
                         if (evidences.containsKey(alteration)) {
-                            if (publicLevels.contains(evidence.getLevelOfEvidence())) {
+                            if (LevelUtils.isPublicLevel(evidence.getLevelOfEvidence())) {
                                 LevelOfEvidence levelOfEvidence = evidence.getLevelOfEvidence();
                                 if (!evidences.get(alteration).containsKey(levelOfEvidence)) {
                                     evidences.get(alteration).put(levelOfEvidence, new HashSet<Evidence>());
@@ -596,7 +599,11 @@ public class MainUtils {
     }
 
     public static Boolean isVUS(Alteration alteration) {
-        List<Evidence> evidenceList = EvidenceUtils.getEvidence(Collections.singletonList(alteration), Collections.singleton(EvidenceType.VUS), null);
+        return isVUS(alteration, new QueryResolutionContext());
+    }
+
+    public static Boolean isVUS(Alteration alteration, QueryResolutionContext context) {
+        List<Evidence> evidenceList = context.getEvidence(Collections.singletonList(alteration), Collections.singleton(EvidenceType.VUS), null);
         return !(evidenceList == null || evidenceList.isEmpty());
     }
 
@@ -0,0 +1,105 @@
+package org.mskcc.cbio.oncokb.util;
+
+import org.mskcc.cbio.oncokb.model.*;
+import org.mskcc.cbio.oncokb.model.TumorType;
+
+import java.util.*;
+
+/**
+ * Memoizes the intermediate lookups done while resolving a single query. IndicatorUtils, SummaryUtils,
+ * EvidenceUtils and MainUtils look up the same relevant alterations, alleles, tumor types, hotspot status
+ * and evidences several times with the same inputs, the context makes sure each of them is computed once.
+ * <p>
+ * The context is not thread safe and should only live as long as the query it is created for.
+ * Lists are copied on the way out so callers can modify them the same way they modify the uncached results,
+ * except getAllAlterations which is shared the same way AlterationUtils.getAllAlterations shares the cached list.
+ */
+public class QueryResolutionContext {
+    private final Map<List<Object>, List<Alteration>> allAlterations = new HashMap<>();
+    private final Map<List<Object>, List<Alteration>> relevantAlterations = new HashMap<>();
+    private final Map<List<Object>, Alteration> exactlyMatchedAlterations = new HashMap<>();
+    private final Map<List<Object>, List<Alteration>> alleleAlterations = new HashMap<>();
+    private final Map<List<Object>, List<TumorType>> relevantTumorTypes = new HashMap<>();
+    private final Map<Alteration, Boolean> hotspots = new HashMap<>();
+    private final Map<List<Object>, List<Evidence>> evidences = new HashMap<>();
+
+    public List<Alteration> getAllAlterations(ReferenceGenome referenceGenome, Gene gene) {
+        List<Object> key = Arrays.asList(referenceGenome, gene);
+        if (!allAlterations.containsKey(key)) {
+            allAlterations.put(key, AlterationUtils.getAllAlterations(referenceGenome, gene));
+        }
+        return allAlterations.get(key);
+    }
+
+    public List<Alteration> getRelevantAlterations(ReferenceGenome referenceGenome, Alteration alteration) {
+        List<Object> key = Arrays.asList(referenceGenome, alteration);
+        if (!relevantAlterations.containsKey(key)) {
+            relevantAlterations.put(key, AlterationUtils.getRelevantAlterations(referenceGenome, alteration, alteration == null ? null : getAllAlterations(referenceGenome, alteration.getGene())));
+        }
+        return copy(relevantAlterations.get(key));
+    }
+
+    public Alteration findExactlyMatchedAlteration(ReferenceGenome referenceGenome, Alteration alteration, Gene gene) {
+        List<Object> key = Arrays.asList(referenceGenome, alteration, gene);
+        if (!exactlyMatchedAlterations.containsKey(key)) {
+            exactlyMatchedAlterations.put(key, ApplicationContextSingleton.getAlterationBo().findExactlyMatchedAlteration(referenceGenome, alteration, getAllAlterations(referenceGenome, gene)));
+        }
+        return exactlyMatchedAlterations.get(key);
+    }
+
+    public List<Alteration> getAlleleAlterations(ReferenceGenome referenceGenome, Alteration alteration) {
+        List<Object> key = Arrays.asList(referenceGenome, alteration);
+        if (!alleleAlterations.containsKey(key)) {
+            alleleAlterations.put(key, AlterationUtils.getAlleleAlterations(referenceGenome, alteration, getAllAlterations(referenceGenome, alteration.getGene())));
+        }
+        return copy(alleleAlterations.get(key));
+    }
+
+    public List<TumorType> findRelevantTumorTypes(String tumorType) {
+        return findRelevantTumorTypes(tumorType, null, RelevantTumorTypeDirection.UPWARD);
+    }
+
+    public List<TumorType> findRelevantTumorTypes(String tumorType, Boolean isMainType, RelevantTumorTypeDirection direction) {
+        List<Object> key = Arrays.asList(tumorType, isMainType, direction);
+        if (!relevantTumorTypes.containsKey(key)) {
+            relevantTumorTypes.put(key, TumorTypeUtils.findRelevantTumorTypes(tumorType, isMainType, direction));
+        }
+        return copy(relevantTumorTypes.get(key));
+    }
+
+    public boolean isHotspot(Alteration alteration) {
+        if (alteration == null) {
+            return false;
+        }
+        Boolean isHotspot = hotspots.get(alteration);
+        if (isHotspot == null) {
+            isHotspot = HotspotUtils.isHotspot(alteration);
+            hotspots.put(alteration, isHotspot);
+        }
+        return isHotspot;
+    }
+
+    public List<Evidence> getEvidence(List<Alteration> alterations, Set<EvidenceType> evidenceTypes, Set<LevelOfEvidence> levelOfEvidences) {
+        List<Object> key = Arrays.asList(copy(alterations), copy(evidenceTypes), copy(levelOfEvidences));
+        if (!evidences.containsKey(key)) {
+            evidences.put(key, EvidenceUtils.getEvidence(alterations, evidenceTypes, levelOfEvidences));
+        }
+        return copy(evidences.get(key));
+    }
+
+    public List<Evidence> getEvidence(List<Alteration> alterations, Set<EvidenceType> evidenceTypes, TumorType matchedTumorType, List<TumorType> tumorTypes, Set<LevelOfEvidence> levelOfEvidences) {
+        List<Object> key = Arrays.asList(copy(alterations), copy(evidenceTypes), matchedTumorType, copy(tumorTypes), copy(levelOfEvidences));
+        if (!evidences.containsKey(key)) {
+            evidences.put(key, EvidenceUtils.getEvidence(alterations, evidenceTypes, matchedTumorType, tumorTypes, levelOfEvidences));
+        }
+        return copy(evidences.get(key));
+    }
+
+    private static <T> List<T> copy(List<T> list) {
+        return list == null ? null : new ArrayList<>(list);
+    }
+
+    private static <T> Set<T> copy(Set<T> set) {
+        return set == null ? null : new HashSet<>(set);
+    }
+}
@@ -0,0 +1,62 @@
+package org.mskcc.cbio.oncokb.util;
+
+import java.util.concurrent.Callable;
+
+/**
+ * The deadline of the request processed by the current thread. The calls to the external services
+ * (see CircuitBreaker) are not started once it has passed, and their timeout is cut to the time left.
+ * A thread without a deadline has no limit.
+ */
+public class RequestBudget {
+    private static final ThreadLocal<Long> deadline = new ThreadLocal<>();
+
+    /**
+     * @return the deadline of the current thread, as a timestamp in milliseconds, null when there is none
+     */
+    public static Long getDeadline() {
+        return deadline.get();
+    }
+
+    /**
+     * @return the milliseconds left before the deadline of the current thread, Long.MAX_VALUE when there is none
+     */
+    public static long getRemainingMillis() {
+        Long currentDeadline = deadline.get();
+        if (currentDeadline == null) {
+            return Long.MAX_VALUE;
+        }
+        return currentDeadline - System.currentTimeMillis();
+    }
+
+    /**
+     * Run the callable with the deadline, the deadline of the thread is restored afterwards.
+     *
+     * @param requestDeadline the deadline as a timestamp in milliseconds, null for no limit
+     */
+    public static <T> Callable<T> withDeadline(Long requestDeadline, Callable<T> callable) {
+        return () -> {
+            Long previousDeadline = deadline.get();
+            setDeadline(requestDeadline);
+            try {
+                return callable.call();
+            } finally {
+                setDeadline(previousDeadline);
+            }
+        };
+    }
+
+    /**
+     * The callable with the deadline of the current thread, to run it on another thread for the same request.
+     */
+    public static <T> Callable<T> propagate(Callable<T> callable) {
+        return withDeadline(deadline.get(), callable);
+    }
+
+    private static void setDeadline(Long requestDeadline) {
+        if (requestDeadline == null) {
+            deadline.remove();
+        } else {
+            deadline.set(requestDeadline);
+        }
+    }
+}
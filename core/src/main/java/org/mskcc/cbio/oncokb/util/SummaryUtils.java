@@ -7,6 +7,8 @@ import org.mskcc.cbio.oncokb.model.TumorType;
 
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -21,7 +23,26 @@ public class SummaryUtils {
     public static final String TERT_PROMOTER_NO_THERAPY_TUMOR_TYPE_SUMMARY = "There are no FDA-approved or NCCN-compendium listed treatments specifically for patients with TERT promoter mutations in [[tumor type]].";
     public static final String ONCOGENIC_MUTATIONS_DEFAULT_SUMMARY = "\"Oncogenic Mutations\" includes all variants annotated as oncogenic and likely oncogenic.";
 
+    private static final String PLACEHOLDER_PREFIX = "[[";
+    private static final Pattern WHITESPACES = Pattern.compile("\\s+");
+    private static final Pattern UPPERCASE_WORD = Pattern.compile("(\\b[A-Z0-9]+\\b)");
+    private static final List<String> TUMOR_TYPE_SPECIAL_WORDS = Collections.unmodifiableList(
+        Arrays.asList("Wilms", "IgA", "IgG", "IgM", "Sezary", "Down", "Hodgkin", "Ewing", "Merkel")
+    );
+
+    // The summaries and names that only depend on the gene and the alteration, grouped by the gene entrez id.
+    // They are kept for the data version they are computed with and dropped when the gene is updated.
+    private static final int MAX_MEMOIZED_SUMMARIES_PER_GENE = 5000;
+    private static final int MAX_MEMOIZED_TUMOR_TYPE_NAMES = 10000;
+    private static final Map<Integer, Map<String, String>> memoizedSummaries = new ConcurrentHashMap<>();
+    private static final Map<String, String> memoizedTumorTypeNames = new ConcurrentHashMap<>();
+    private static volatile String memoizedDataVersion;
+
     public static Map<String, Object> tumorTypeSummary(EvidenceType evidenceType, Gene gene, Query query, Alteration exactMatchedAlt, List<Alteration> alterations, TumorType matchedTumorType, List<TumorType> relevantTumorTypes) {
+        return tumorTypeSummary(evidenceType, gene, query, exactMatchedAlt, alterations, matchedTumorType, relevantTumorTypes, new QueryResolutionContext());
+    }
+
+    public static Map<String, Object> tumorTypeSummary(EvidenceType evidenceType, Gene gene, Query query, Alteration exactMatchedAlt, List<Alteration> alterations, TumorType matchedTumorType, List<TumorType> relevantTumorTypes, QueryResolutionContext context) {
         Map<String, Object> tumorTypeSummary = newTumorTypeSummary();
         String queryTumorType = query.getTumorType();
         String key = query.getQueryId();
@@ -33,12 +54,12 @@ public class SummaryUtils {
         }
 
         query.setTumorType(queryTumorType);
-        tumorTypeSummary = getTumorTypeSummarySubFunc(evidenceType, gene, query, exactMatchedAlt, alterations, matchedTumorType, relevantTumorTypes);
+        tumorTypeSummary = getTumorTypeSummarySubFunc(evidenceType, gene, query, exactMatchedAlt, alterations, matchedTumorType, relevantTumorTypes, context);
 
         return tumorTypeSummary;
     }
 
-    private static Map<String, Object> getTumorTypeSummarySubFunc(EvidenceType evidenceType, Gene gene, Query query, Alteration exactMatchedAlt, List<Alteration> relevantAlterations, TumorType matchedTumorType, List<TumorType> relevantTumorTypes) {
+    private static Map<String, Object> getTumorTypeSummarySubFunc(EvidenceType evidenceType, Gene gene, Query query, Alteration exactMatchedAlt, List<Alteration> relevantAlterations, TumorType matchedTumorType, List<TumorType> relevantTumorTypes, QueryResolutionContext context) {
         Map<String, Object> tumorTypeSummary = newTumorTypeSummary();
         Alteration alteration = null;
 
@@ -65,7 +86,7 @@ public class SummaryUtils {
         // Tumor type has high priority. Get relevant tumor type summary across all alternative alleles, then look for other tumor types summary
         if (tumorTypeSummary == null) {
             for (Alteration allele : alternativeAlleles) {
-                tumorTypeSummary = getRelevantTumorTypeSummaryByAlt(evidenceType, allele, matchedTumorType, relevantTumorTypes);
+                tumorTypeSummary = getRelevantTumorTypeSummaryByAlt(evidenceType, allele, matchedTumorType, relevantTumorTypes, context);
                 if (tumorTypeSummary != null) {
                     break;
                 }
@@ -73,7 +94,7 @@ public class SummaryUtils {
 
             if (tumorTypeSummary == null) {
                 for (Alteration allele : alternativeAlleles) {
-                    tumorTypeSummary = getOtherTumorTypeSummaryByAlt(evidenceType, allele, new HashSet<>(relevantTumorTypes));
+                    tumorTypeSummary = getOtherTumorTypeSummaryByAlt(evidenceType, allele, new HashSet<>(relevantTumorTypes), context);
                     if (tumorTypeSummary != null) {
                         break;
                     }
@@ -115,7 +136,7 @@ public class SummaryUtils {
 
             // Base on the priority of relevant alterations
             for (Alteration alt : relevantAlterations) {
-                tumorTypeSummary = getRelevantTumorTypeSummaryByAlt(evidenceType, alt, matchedTumorType, relevantTumorTypes);
+                tumorTypeSummary = getRelevantTumorTypeSummaryByAlt(evidenceType, alt, matchedTumorType, relevantTumorTypes, context);
                 if (tumorTypeSummary != null) {
                     break;
                 }
@@ -126,7 +147,7 @@ public class SummaryUtils {
                 // Get Other Tumor Types summary
 
                 for (TumorType tumorType : relevantTumorTypes) {
-                    tumorTypeSummary = getOtherTumorTypeSummaryByAlt(evidenceType, alt, Collections.singleton(tumorType));
+                    tumorTypeSummary = getOtherTumorTypeSummaryByAlt(evidenceType, alt, Collections.singleton(tumorType), context);
                     if (tumorTypeSummary != null) {
                         break;
                     }
@@ -158,11 +179,11 @@ public class SummaryUtils {
         return tumorTypeSummary;
     }
 
-    private static Map<String, Object> getRelevantTumorTypeSummaryByAlt(EvidenceType evidenceType, Alteration alteration, TumorType matchedTumorType, List<TumorType> relevantTumorTypes) {
-        return getTumorTypeSummaryFromEvidences(EvidenceUtils.getEvidence(Collections.singletonList(alteration), Collections.singleton(evidenceType), matchedTumorType, relevantTumorTypes, null));
+    private static Map<String, Object> getRelevantTumorTypeSummaryByAlt(EvidenceType evidenceType, Alteration alteration, TumorType matchedTumorType, List<TumorType> relevantTumorTypes, QueryResolutionContext context) {
+        return getTumorTypeSummaryFromEvidences(context.getEvidence(Collections.singletonList(alteration), Collections.singleton(evidenceType), matchedTumorType, relevantTumorTypes, null));
     }
 
-    private static Map<String, Object> getOtherTumorTypeSummaryByAlt(EvidenceType evidenceType, Alteration alteration, Set<TumorType> relevantTumorTypes) {
+    private static Map<String, Object> getOtherTumorTypeSummaryByAlt(EvidenceType evidenceType, Alteration alteration, Set<TumorType> relevantTumorTypes, QueryResolutionContext context) {
         // Check other tumor types summary based on tumor form
         List<SpecialTumorType> specialTumorTypes = new ArrayList<>();
         TumorForm tumorForm = TumorTypeUtils.checkTumorForm(relevantTumorTypes);
@@ -175,7 +196,7 @@ public class SummaryUtils {
 
         for (SpecialTumorType specialTumorType : specialTumorTypes) {
 
-            List<Evidence> evidences = EvidenceUtils.getEvidence(
+            List<Evidence> evidences = context.getEvidence(
                 Collections.singletonList(alteration),
                 Collections.singleton(evidenceType),
                 ApplicationContextSingleton.getTumorTypeBo().getBySpecialTumor(specialTumorType),
@@ -204,13 +225,71 @@ public class SummaryUtils {
     }
 
     public static String variantSummary(Gene gene, Alteration exactMatchAlteration, List<Alteration> alterations, Query query) {
-        if (!StringUtils.isEmpty(query.getAlteration()) && query.getAlteration().toLowerCase().startsWith(InferredMutation.ONCOGENIC_MUTATIONS.getVariant().toLowerCase())) {
+        if (isOncogenicMutationsQuery(query)) {
+            return ONCOGENIC_MUTATIONS_DEFAULT_SUMMARY;
+        }
+        return getOncogenicSummarySubFunc(gene, exactMatchAlteration, alterations, query, new QueryResolutionContext());
+    }
+
+    /**
+     * The variant summary of the query in IndicatorUtils.processQueryCore. The relevant alterations are resolved
+     * from the query there, so the summary is memoized by the query gene and alteration.
+     */
+    public static String variantSummary(Gene gene, Alteration exactMatchAlteration, List<Alteration> alterations, Query query, QueryResolutionContext context) {
+        if (isOncogenicMutationsQuery(query)) {
             return ONCOGENIC_MUTATIONS_DEFAULT_SUMMARY;
         }
-        return getOncogenicSummarySubFunc(gene, exactMatchAlteration, alterations, query);
+        String key = "variant" + getQueryKey(query) + "|" + (exactMatchAlteration == null ? "" : exactMatchAlteration.getId());
+        return memoize(gene, key, () -> getOncogenicSummarySubFunc(gene, exactMatchAlteration, alterations, query, context));
+    }
+
+    private static boolean isOncogenicMutationsQuery(Query query) {
+        return !StringUtils.isEmpty(query.getAlteration()) && query.getAlteration().toLowerCase().startsWith(InferredMutation.ONCOGENIC_MUTATIONS.getVariant().toLowerCase());
+    }
+
+    private static String getQueryKey(Query query) {
+        return "|" + query.getReferenceGenome()
+            + "|" + query.getHugoSymbol()
+            + "|" + query.getAlteration()
+            + "|" + query.getAlterationType()
+            + "|" + query.getConsequence()
+            + "|" + query.getProteinStart()
+            + "|" + query.getProteinEnd()
+            + "|" + query.getSvType();
+    }
+
+    private static String memoize(Gene gene, String key, Supplier<String> summarySupplier) {
+        if (gene == null || gene.getEntrezGeneId() == null) {
+            return summarySupplier.get();
+        }
+        String dataVersion = MainUtils.getDataVersion();
+        if (!Objects.equals(dataVersion, memoizedDataVersion)) {
+            clearMemoizedSummaries();
+            memoizedDataVersion = dataVersion;
+        }
+        Map<String, String> geneSummaries = memoizedSummaries.computeIfAbsent(gene.getEntrezGeneId(), entrezGeneId -> new ConcurrentHashMap<>());
+        String summary = geneSummaries.get(key);
+        if (summary == null) {
+            summary = summarySupplier.get();
+            if (summary != null && geneSummaries.size() < MAX_MEMOIZED_SUMMARIES_PER_GENE) {
+                geneSummaries.put(key, summary);
+            }
+        }
+        return summary;
+    }
+
+    public static void clearMemoizedSummaries(Integer entrezGeneId) {
+        if (entrezGeneId != null) {
+            memoizedSummaries.remove(entrezGeneId);
+        }
+    }
+
+    public static void clearMemoizedSummaries() {
+        memoizedSummaries.clear();
+        memoizedTumorTypeNames.clear();
     }
 
-    private static String getOncogenicSummarySubFunc(Gene gene, Alteration exactMatchAlteration, List<Alteration> alterations, Query query) {
+    private static String getOncogenicSummarySubFunc(Gene gene, Alteration exactMatchAlteration, List<Alteration> alterations, Query query, QueryResolutionContext context) {
         StringBuilder sb = new StringBuilder();
 
         Oncogenicity oncogenic = null;
@@ -226,7 +305,7 @@ public class SummaryUtils {
         // if the gene is Other Biomarker, return the mutation effect description for alteration instead
         if (gene.getHugoSymbol().equals(SpecialStrings.OTHERBIOMARKERS)) {
             if (exactMatchAlteration != null) {
-                List<Evidence> evidences = EvidenceUtils.getEvidence(Collections.singletonList(exactMatchAlteration), Collections.singleton(EvidenceType.MUTATION_EFFECT), null);
+                List<Evidence> evidences = context.getEvidence(Collections.singletonList(exactMatchAlteration), Collections.singleton(EvidenceType.MUTATION_EFFECT), null);
 
                 // Technically the list should only contain no more than one record.
                 for (Evidence evidence : evidences) {
@@ -255,7 +334,7 @@ public class SummaryUtils {
             }
 
             // Find oncogenic info from exact matched variant
-            List<Evidence> oncogenicEvidences = EvidenceUtils.getEvidence(Collections.singletonList(exactMatchAlteration), Collections.singleton(EvidenceType.ONCOGENIC), null);
+            List<Evidence> oncogenicEvidences = context.getEvidence(Collections.singletonList(exactMatchAlteration), Collections.singleton(EvidenceType.ONCOGENIC), null);
             if (oncogenicEvidences != null && oncogenicEvidences.size() > 0) {
                 Set<Oncogenicity> oncogenicities = new HashSet<>();
                 for (Evidence evidence : oncogenicEvidences) {
@@ -276,15 +355,15 @@ public class SummaryUtils {
             return getOncogenicSummaryFromOncogenicity(oncogenic, alteration, query);
         }
 
-        isHotspot = HotspotUtils.isHotspot(alteration);
+        isHotspot = context.isHotspot(alteration);
 
         if(AlterationUtils.isPositionedAlteration(alteration)) {
-            return positionalVariantSummary(alteration, query, isHotspot);
+            return positionalVariantSummary(alteration, query, isHotspot, context);
         }
 
         if (isHotspot) {
-            if (alteration != null && MainUtils.isVUS(alteration)) {
-                return vusAndHotspotSummary(alteration, query, isHotspot);
+            if (alteration != null && MainUtils.isVUS(alteration, context)) {
+                return vusAndHotspotSummary(alteration, query, isHotspot, context);
             } else {
                 return hotspotSummary(alteration, query, false);
             }
@@ -292,12 +371,12 @@ public class SummaryUtils {
 
         if (oncogenic == null || oncogenic.equals(Oncogenicity.UNKNOWN)) {
             // Get oncogenic summary from alternative alleles
-            List<Alteration> alternativeAlleles = AlterationUtils.getAlleleAlterations(query.getReferenceGenome(), alteration);
+            List<Alteration> alternativeAlleles = context.getAlleleAlterations(query.getReferenceGenome(), alteration);
             List<Alteration> alternativeAllelesWithoutVUS = AlterationUtils.excludeVUS(gene, alternativeAlleles);
 
             // VUS alternative alleles are not accounted into oncogenic summary calculation
             if (alternativeAllelesWithoutVUS.size() > 0) {
-                sb.append(alleleSummary(query.getReferenceGenome(), alteration, query.getHugoSymbol()));
+                sb.append(alleleSummary(query.getReferenceGenome(), alteration, query.getHugoSymbol(), context));
                 return sb.toString();
             }
 
@@ -305,7 +384,7 @@ public class SummaryUtils {
             alterations.removeAll(alternativeAlleles);
             Set<Oncogenicity> oncogenicities = new HashSet<>();
             for (Alteration a : alterations) {
-                List<Evidence> oncogenicEvidences = EvidenceUtils.getEvidence(Collections.singletonList(a), Collections.singleton(EvidenceType.ONCOGENIC), null);
+                List<Evidence> oncogenicEvidences = context.getEvidence(Collections.singletonList(a), Collections.singleton(EvidenceType.ONCOGENIC), null);
                 if (oncogenicEvidences != null && oncogenicEvidences.size() > 0) {
                     Evidence evidence = oncogenicEvidences.iterator().next();
                     if (evidence != null) {
@@ -333,8 +412,8 @@ public class SummaryUtils {
             return getOncogenicSummaryFromOncogenicity(oncogenic, alteration, query);
         }
 
-        if (alteration != null && MainUtils.isVUS(alteration)) {
-            return getVUSOncogenicSummary(query.getReferenceGenome(), alteration, query);
+        if (alteration != null && MainUtils.isVUS(alteration, context)) {
+            return getVUSOncogenicSummary(query.getReferenceGenome(), alteration, query, context);
         }
 
         String summary = unknownOncogenicSummary(gene, query.getReferenceGenome(), query);
@@ -342,8 +421,8 @@ public class SummaryUtils {
         return summary;
     }
 
-    private static String getVUSOncogenicSummary(ReferenceGenome referenceGenome, Alteration alteration, Query query) {
-        List<Evidence> evidences = EvidenceUtils.getEvidence(Collections.singletonList(alteration), Collections.singleton(EvidenceType.VUS), null);
+    private static String getVUSOncogenicSummary(ReferenceGenome referenceGenome, Alteration alteration, Query query, QueryResolutionContext context) {
+        List<Evidence> evidences = context.getEvidence(Collections.singletonList(alteration), Collections.singleton(EvidenceType.VUS), null);
         StringBuilder sb = new StringBuilder();
         sb.append("The biologic significance of the ");
         sb.append(getGeneMutationNameInVariantSummary(alteration.getGene(), referenceGenome, query.getHugoSymbol(), alteration.getAlteration()));
@@ -453,6 +532,10 @@ public class SummaryUtils {
     }
 
     private static String enrichGeneEvidenceDescription(EvidenceType evidenceType, Gene gene, String hugoSymbol) {
+        return memoize(gene, evidenceType.name() + "|" + hugoSymbol, () -> getGeneEvidenceDescription(evidenceType, gene, hugoSymbol));
+    }
+
+    private static String getGeneEvidenceDescription(EvidenceType evidenceType, Gene gene, String hugoSymbol) {
         Set<Evidence> geneBackgroundEvs = EvidenceUtils.getEvidenceByGeneAndEvidenceTypes(gene, Collections.singleton(evidenceType));
         String summary = "";
         if (!geneBackgroundEvs.isEmpty()) {
@@ -472,15 +555,19 @@ public class SummaryUtils {
     }
 
     public static String alleleSummary(ReferenceGenome referenceGenome, Alteration alteration, String queryHugoSymbol) {
+        return alleleSummary(referenceGenome, alteration, queryHugoSymbol, new QueryResolutionContext());
+    }
+
+    private static String alleleSummary(ReferenceGenome referenceGenome, Alteration alteration, String queryHugoSymbol, QueryResolutionContext context) {
         StringBuilder sb = new StringBuilder();
 
         String altStr = getGeneMutationNameInVariantSummary(alteration.getGene(), referenceGenome, queryHugoSymbol, alteration.getAlteration());
 
         sb.append("The " + altStr + " has not been functionally or clinically validated.");
 
-        Set<Alteration> alleles = new HashSet<>(AlterationUtils.getAlleleAlterations(referenceGenome, alteration));
+        Set<Alteration> alleles = new HashSet<>(context.getAlleleAlterations(referenceGenome, alteration));
 
-        Map<String, Object> map = geAlterationsWithHighestOncogenicity(new HashSet<>(alleles));
+        Map<String, Object> map = geAlterationsWithHighestOncogenicity(new HashSet<>(alleles), context);
         Oncogenicity highestOncogenicity = (Oncogenicity) map.get("oncogenicity");
         Set<Alteration> highestAlts = (Set<Alteration>) map.get("alterations");
 
@@ -519,12 +606,16 @@ public class SummaryUtils {
     }
 
     public static String positionalVariantSummary(Alteration alteration, Query query, boolean isHotspot) {
+        return positionalVariantSummary(alteration, query, isHotspot, new QueryResolutionContext());
+    }
+
+    private static String positionalVariantSummary(Alteration alteration, Query query, boolean isHotspot, QueryResolutionContext context) {
         if (isHotspot) {
             return hotspotSummary(alteration, query, false, true);
         } else {
             StringBuilder sb = new StringBuilder();
             sb.append("OncoKB assigns biological and oncogenic effects at the allele level, not the positional level.");
-            Set<Alteration> alleles = new HashSet<>(AlterationUtils.getAlleleAlterations(query.getReferenceGenome(), alteration));
+            Set<Alteration> alleles = new HashSet<>(context.getAlleleAlterations(query.getReferenceGenome(), alteration));
             if (alleles.size() > 0) {
                 sb.append(" Biological and oncogenic effects are curated for the following " + query.getHugoSymbol() + " " + query.getAlteration() + " allele" + (alleles.size() > 1 ? "s" : "") + ": ");
                 sb.append(allelesToStr(alleles));
@@ -566,9 +657,9 @@ public class SummaryUtils {
         return sb.toString();
     }
 
-    private static String vusAndHotspotSummary(Alteration alteration, Query query, Boolean isHotspot) {
+    private static String vusAndHotspotSummary(Alteration alteration, Query query, Boolean isHotspot, QueryResolutionContext context) {
         StringBuilder sb = new StringBuilder();
-        sb.append(getVUSOncogenicSummary(query.getReferenceGenome(), alteration, query));
+        sb.append(getVUSOncogenicSummary(query.getReferenceGenome(), alteration, query, context));
 
         if (isHotspot) {
             sb.append(" However, it has been identified as a statistically significant hotspot and is likely to be oncogenic.");
@@ -643,14 +734,14 @@ public class SummaryUtils {
         return MainUtils.listToString(alterationNames);
     }
 
-    private static Map<String, Object> geAlterationsWithHighestOncogenicity(Set<Alteration> alleles) {
+    private static Map<String, Object> geAlterationsWithHighestOncogenicity(Set<Alteration> alleles, QueryResolutionContext context) {
         Map<Oncogenicity, Set<Alteration>> oncoCate = new HashMap<>();
 
         // Get oncogenicity info in alleles
         for (Alteration alt : alleles) {
             Set<EvidenceType> evidenceTypes = new HashSet<>();
             evidenceTypes.add(EvidenceType.ONCOGENIC);
-            List<Evidence> allelesOnco = EvidenceUtils.getEvidence(Collections.singletonList(alt), evidenceTypes, null);
+            List<Evidence> allelesOnco = context.getEvidence(Collections.singletonList(alt), evidenceTypes, null);
 
             for (Evidence evidence : allelesOnco) {
                 String oncoStr = evidence.getKnownEffect();
@@ -703,12 +794,15 @@ public class SummaryUtils {
     }
 
     public static String getGeneMutationNameInVariantSummary(Gene gene, ReferenceGenome referenceGenome, String queryHugoSymbol, String queryAlteration) {
-        StringBuilder sb = new StringBuilder();
         if (queryAlteration == null) {
             return "";
-        } else {
-            queryAlteration = queryAlteration.trim();
         }
+        return memoize(gene, "variantName|" + referenceGenome + "|" + queryHugoSymbol + "|" + queryAlteration,
+            () -> getGeneMutationNameInVariantSummarySubFunc(gene, referenceGenome, queryHugoSymbol, queryAlteration.trim()));
+    }
+
+    private static String getGeneMutationNameInVariantSummarySubFunc(Gene gene, ReferenceGenome referenceGenome, String queryHugoSymbol, String queryAlteration) {
+        StringBuilder sb = new StringBuilder();
         Alteration alteration = AlterationUtils.findAlteration(gene, referenceGenome, queryAlteration);
         if (alteration == null) {
             alteration = AlterationUtils.getAlteration(gene.getHugoSymbol(), queryAlteration, null, null, null, null, referenceGenome);
@@ -767,12 +861,15 @@ public class SummaryUtils {
     }
 
     public static String getGeneMutationNameInTumorTypeSummary(Gene gene, ReferenceGenome referenceGenome, String queryHugoSymbol, String queryAlteration) {
-        StringBuilder sb = new StringBuilder();
         if (queryAlteration == null) {
             return "";
-        } else {
-            queryAlteration = queryAlteration.trim();
         }
+        return memoize(gene, "tumorTypeName|" + referenceGenome + "|" + queryHugoSymbol + "|" + queryAlteration,
+            () -> getGeneMutationNameInTumorTypeSummarySubFunc(gene, referenceGenome, queryHugoSymbol, queryAlteration.trim()));
+    }
+
+    private static String getGeneMutationNameInTumorTypeSummarySubFunc(Gene gene, ReferenceGenome referenceGenome, String queryHugoSymbol, String queryAlteration) {
+        StringBuilder sb = new StringBuilder();
         Alteration alteration = AlterationUtils.findAlteration(gene, referenceGenome, queryAlteration);
         if (alteration == null) {
             alteration = AlterationUtils.getAlteration(queryHugoSymbol, queryAlteration, null, null, null, null, referenceGenome);
@@ -817,6 +914,10 @@ public class SummaryUtils {
     }
 
     private static String replaceSpecialCharacterInTumorTypeSummary(String summary, Gene gene, ReferenceGenome referenceGenome, Query query, TumorType matchedTumorType) {
+        // Most of the curated summaries do not have any placeholder
+        if (!summary.contains(PLACEHOLDER_PREFIX)) {
+            return WHITESPACES.matcher(summary.trim()).replaceAll(" ");
+        }
         String altName = getGeneMutationNameInTumorTypeSummary(gene, referenceGenome, query.getHugoSymbol(), query.getAlteration());
         String alterationName = getGeneMutationNameInVariantSummary(gene, referenceGenome, query.getHugoSymbol(), query.getAlteration());
         String tumorTypeName = convertTumorTypeNameInSummary(matchedTumorType == null ? query.getTumorType() : (StringUtils.isEmpty(matchedTumorType.getSubtype()) ? matchedTumorType.getMainType() : matchedTumorType.getSubtype()));
@@ -863,18 +964,30 @@ public class SummaryUtils {
         summary = summary.replace("[[tumor type]]", tumorTypeName);
         summary = summary.replace("[[fusion name]]", altName);
         summary = summary.replace("[[fusion name]]", altName);
-        return summary.trim().replaceAll("\\s+", " ");
+        return WHITESPACES.matcher(summary.trim()).replaceAll(" ");
     }
 
     public static String convertTumorTypeNameInSummary(String tumorType) {
+        if (tumorType == null) {
+            return null;
+        }
+        String name = memoizedTumorTypeNames.get(tumorType);
+        if (name == null) {
+            name = convertTumorTypeNameInSummarySubFunc(tumorType);
+            if (memoizedTumorTypeNames.size() < MAX_MEMOIZED_TUMOR_TYPE_NAMES) {
+                memoizedTumorTypeNames.put(tumorType, name);
+            }
+        }
+        return name;
+    }
+
+    private static String convertTumorTypeNameInSummarySubFunc(String tumorType) {
         if (tumorType != null) {
-            String[] specialWords = {"Wilms", "IgA", "IgG", "IgM", "Sezary", "Down", "Hodgkin", "Ewing", "Merkel"};
-            List<String> specialWordsList = Arrays.asList(specialWords);
             String lowerCaseStr = tumorType.toLowerCase();
 
             StringBuilder sb = new StringBuilder(lowerCaseStr);
 
-            for (String item : specialWordsList) {
+            for (String item : TUMOR_TYPE_SPECIAL_WORDS) {
                 Integer startIndex = tumorType.indexOf(item);
                 if (startIndex != -1) {
                     sb.replace(startIndex, startIndex + item.length(), item);
@@ -882,8 +995,7 @@ public class SummaryUtils {
             }
 
             // Find all uppercased string
-            Pattern p = Pattern.compile("(\\b[A-Z0-9]+\\b)");
-            Matcher m = p.matcher(tumorType);
+            Matcher m = UPPERCASE_WORD.matcher(tumorType);
 
             while (m.find()) {
                 sb.replace(m.start(), m.end(), m.group(1));
@@ -0,0 +1,113 @@
+package org.mskcc.cbio.oncokb.util;
+
+import org.oncokb.oncokb_transcript.client.EnsemblGene;
+import org.oncokb.oncokb_transcript.client.Gene;
+
+import java.util.*;
+
+/**
+ * The spans of the canonical Ensembl genes of the transcript genes, by reference genome and chromosome, to find
+ * whether a genomic location is covered without going through all the genes. The intervals of a chromosome are
+ * sorted by start, with the maximum end of every prefix, so a lookup is a binary search.
+ * <p>
+ * The index is built once, it is immutable after build().
+ */
+public class TranscriptGeneIndex {
+    private final Map<String, Map<String, List<long[]>>> spans = new HashMap<>();
+    private final Map<String, Map<String, Intervals>> intervals = new HashMap<>();
+
+    /**
+     * @param genes    the genes of getAllTranscriptGenes
+     * @param bpBuffer the number of base pairs added on both sides of every gene
+     */
+    public static TranscriptGeneIndex fromTranscriptGenes(Collection<Gene> genes, int bpBuffer) {
+        TranscriptGeneIndex index = new TranscriptGeneIndex();
+        for (Gene gene : genes) {
+            if (gene.getEnsemblGenes() == null) {
+                continue;
+            }
+            for (EnsemblGene ensemblGene : gene.getEnsemblGenes()) {
+                if (Boolean.TRUE.equals(ensemblGene.getCanonical())) {
+                    Long start = ensemblGene.getStart() == null ? null : Math.max((long) ensemblGene.getStart() - bpBuffer, 0);
+                    Long end = ensemblGene.getEnd() == null ? null : (long) ensemblGene.getEnd() + bpBuffer;
+                    index.add(ensemblGene.getReferenceGenome(), ensemblGene.getChromosome(), start, end);
+                }
+            }
+        }
+        return index.build();
+    }
+
+    /**
+     * Add the span of a gene, the positions are inclusive, a missing start or end is unbounded.
+     */
+    public TranscriptGeneIndex add(String referenceGenome, String chromosome, Long start, Long end) {
+        if (referenceGenome == null || chromosome == null) {
+            return this;
+        }
+        spans.computeIfAbsent(referenceGenome, k -> new HashMap<>())
+            .computeIfAbsent(chromosome, k -> new ArrayList<>())
+            .add(new long[]{start == null ? Long.MIN_VALUE : start, end == null ? Long.MAX_VALUE : end});
+        return this;
+    }
+
+    public TranscriptGeneIndex build() {
+        intervals.clear();
+        for (Map.Entry<String, Map<String, List<long[]>>> referenceGenome : spans.entrySet()) {
+            Map<String, Intervals> chromosomes = new HashMap<>();
+            for (Map.Entry<String, List<long[]>> chromosome : referenceGenome.getValue().entrySet()) {
+                chromosomes.put(chromosome.getKey(), new Intervals(chromosome.getValue()));
+            }
+            intervals.put(referenceGenome.getKey(), chromosomes);
+        }
+        return this;
+    }
+
+    /**
+     * Whether a span of the reference genome and chromosome intersects the location, same as
+     * MainUtils.rangesIntersect. A missing start or end is unbounded.
+     */
+    public boolean intersects(String referenceGenome, String chromosome, Integer start, Integer end) {
+        Map<String, Intervals> chromosomes = intervals.get(referenceGenome);
+        if (chromosomes == null || chromosome == null) {
+            return false;
+        }
+        Intervals chromosomeIntervals = chromosomes.get(chromosome);
+        if (chromosomeIntervals == null) {
+            return false;
+        }
+        return chromosomeIntervals.intersects(start == null ? Long.MIN_VALUE : start, end == null ? Long.MAX_VALUE : end);
+    }
+
+    private static class Intervals {
+        private final long[] starts;
+        // the maximum end of the intervals up to every position
+        private final long[] maxEnds;
+
+        Intervals(List<long[]> spans) {
+            List<long[]> sorted = new ArrayList<>(spans);
+            sorted.sort(Comparator.comparingLong(span -> span[0]));
+            starts = new long[sorted.size()];
+            maxEnds = new long[sorted.size()];
+            long maxEnd = Long.MIN_VALUE;
+            for (int i = 0; i < sorted.size(); i++) {
+                starts[i] = sorted.get(i)[0];
+                maxEnd = Math.max(maxEnd, sorted.get(i)[1]);
+                maxEnds[i] = maxEnd;
+            }
+        }
+
+        boolean intersects(long start, long end) {
+            // The last interval which starts before the end of the location, all the ones before it start before too
+            int position = Arrays.binarySearch(starts, end);
+            if (position >= 0) {
+                // Move to the last interval with the same start
+                while (position + 1 < starts.length && starts[position + 1] == end) {
+                    position++;
+                }
+            } else {
+                position = -position - 2;
+            }
+            return position >= 0 && maxEnds[position] >= start;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package org.mskcc.cbio.oncokb.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import junit.framework.TestCase;
+import org.mskcc.cbio.oncokb.model.*;
+import org.mskcc.cbio.oncokb.util.GeneUtils;
+import org.mskcc.cbio.oncokb.util.IndicatorUtils;
+
+import java.util.*;
+
+import static org.mskcc.cbio.oncokb.Constants.DEFAULT_REFERENCE_GENOME;
+
+public class AnnotationCubeTest extends TestCase {
+    private final CacheValueCodec codec = CacheValueCodec.getByName("java");
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public void testKeyKeepsTheAlterationAsWritten() throws Exception {
+        assertEquals(AnnotationCube.getKey(ReferenceGenome.GRCh37, "V600E", "MEL"), AnnotationCube.getKey(ReferenceGenome.GRCh37, " V600E ", "MEL"));
+        assertFalse(AnnotationCube.getKey(ReferenceGenome.GRCh37, "V600E", "MEL").equals(AnnotationCube.getKey(ReferenceGenome.GRCh37, "v600e", "MEL")));
+        assertFalse(AnnotationCube.getKey(ReferenceGenome.GRCh37, "V600E", "MEL").equals(AnnotationCube.getKey(ReferenceGenome.GRCh38, "V600E", "MEL")));
+        assertFalse(AnnotationCube.getKey(ReferenceGenome.GRCh37, "V600E", "MEL").equals(AnnotationCube.getKey(ReferenceGenome.GRCh37, "V600E", null)));
+        assertEquals(AnnotationCube.getKey(DEFAULT_REFERENCE_GENOME, "V600E", null), AnnotationCube.getKey(null, "V600E", ""));
+    }
+
+    public void testTumorTypeCodes() throws Exception {
+        assertEquals(Collections.singletonList(null), AnnotationCube.getTumorTypeCodes(null));
+        assertEquals(Collections.singletonList(null), AnnotationCube.getTumorTypeCodes(""));
+        assertEquals(Arrays.asList(null, "MEL", "LUAD"), AnnotationCube.getTumorTypeCodes("MEL, LUAD ,,"));
+    }
+
+    public void testMaxCells() throws Exception {
+        AnnotationCube cube = new AnnotationCube(2, codec);
+        AnnotationCube.Cells cells = new AnnotationCube.Cells(null);
+        Map<String, byte[]> geneCells = new HashMap<>();
+        cube.putCell(cells, geneCells, "a", new byte[]{1});
+        cube.putCell(cells, geneCells, "a", new byte[]{1});
+        assertEquals(1, cells.size());
+        assertFalse(cube.isFull(cells));
+
+        cube.putCell(cells, geneCells, "b", new byte[]{1});
+        cube.putCell(cells, geneCells, "c", new byte[]{1});
+        cube.putCell(cells, geneCells, "d", null);
+        assertTrue(cube.isFull(cells));
+        assertEquals(2, cells.size());
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), geneCells.keySet());
+    }
+
+    public void testResponseHasTheQueryOfTheCaller() throws Exception {
+        AnnotationCube cube = new AnnotationCube(10, codec);
+        Gene gene = getGene();
+        Map<String, byte[]> geneCells = new HashMap<>();
+        cube.putCell(new AnnotationCube.Cells(null), geneCells, AnnotationCube.getKey(ReferenceGenome.GRCh37, "V600E", "MEL"), codec.encode(getResp(gene)));
+
+        Query query = new Query("1", ReferenceGenome.GRCh37, 673, null, "V600E", null, null, "MEL", null, null, null, null);
+        IndicatorQueryResp resp = cube.getCell(geneCells, gene, query, "MEL");
+        assertNotNull(resp);
+        assertEquals("Oncogenic", resp.getOncogenic());
+        assertEquals("1", resp.getQuery().getId());
+        assertEquals(ReferenceGenome.GRCh37, resp.getQuery().getReferenceGenome());
+        assertEquals(Integer.valueOf(673), resp.getQuery().getEntrezGeneId());
+        assertEquals("BRAF", resp.getQuery().getHugoSymbol());
+        assertEquals("V600E", resp.getQuery().getAlteration());
+        assertEquals("MEL", resp.getQuery().getTumorType());
+        assertNotSame(query, resp.getQuery());
+
+        // Every caller gets its own copy
+        resp.setOncogenic("Unknown");
+        assertEquals("Oncogenic", cube.getCell(geneCells, gene, query, "MEL").getOncogenic());
+
+        query.setHugoSymbol("BRAF");
+        assertNotNull(cube.getCell(geneCells, gene, query, "MEL"));
+    }
+
+    public void testQueryWrittenOtherwiseIsNotInTheCube() throws Exception {
+        AnnotationCube cube = new AnnotationCube(10, codec);
+        Gene gene = getGene();
+        Map<String, byte[]> geneCells = new HashMap<>();
+        cube.putCell(new AnnotationCube.Cells(null), geneCells, AnnotationCube.getKey(ReferenceGenome.GRCh37, "V600E", "MEL"), codec.encode(getResp(gene)));
+
+        assertNull(cube.getCell(geneCells, gene, new Query(null, ReferenceGenome.GRCh37, 673, null, "v600e", null, null, "MEL", null, null, null, null), "MEL"));
+        assertNull(cube.getCell(geneCells, gene, new Query(null, ReferenceGenome.GRCh37, 673, null, "V600E", null, null, "LUAD", null, null, null, null), "LUAD"));
+        assertNull(cube.getCell(geneCells, gene, new Query(null, ReferenceGenome.GRCh37, null, "BRAF1", "V600E", null, null, "MEL", null, null, null, null), "MEL"));
+        assertNull(cube.getCell(null, gene, new Query(null, ReferenceGenome.GRCh37, 673, null, "V600E", null, null, "MEL", null, null, null, null), "MEL"));
+    }
+
+    public void testTumorTypeIsResolvedToItsOncoTreeCode() throws Exception {
+        assertEquals("", AnnotationCube.getTumorTypeCode(null));
+        assertEquals("MEL", AnnotationCube.getTumorTypeCode("MEL"));
+        assertEquals("MEL", AnnotationCube.getTumorTypeCode("mel"));
+        assertEquals("MEL", AnnotationCube.getTumorTypeCode("Melanoma"));
+        // Not an OncoTree code
+        assertNull(AnnotationCube.getTumorTypeCode("All Solid Tumors"));
+        assertNull(AnnotationCube.getTumorTypeCode("Unknown Tumor Type"));
+    }
+
+    public void testCubeMatchesTheAnnotation() throws Exception {
+        Gene gene = GeneUtils.getGeneByHugoSymbol("BRAF");
+        AnnotationCube cube = new AnnotationCube(Integer.MAX_VALUE, codec);
+        Map<String, byte[]> geneCells = cube.buildGene(new AnnotationCube.Cells(null), gene, Arrays.asList(null, "MEL"));
+
+        String[][] queries = {{"V600E", null}, {"V600E", "MEL"}, {"V600E", "Melanoma"}, {"Amplification", null}, {"Fusions", "MEL"}};
+        for (ReferenceGenome referenceGenome : ReferenceGenome.values()) {
+            for (String[] query : queries) {
+                Query cubeQuery = new Query(null, referenceGenome, gene.getEntrezGeneId(), gene.getHugoSymbol(), query[0], null, null, query[1], null, null, null, null);
+                IndicatorQueryResp resp = cube.getCell(geneCells, gene, cubeQuery, AnnotationCube.getTumorTypeCode(query[1]));
+                assertNotNull(query[0] + " " + query[1] + " is not in the cube", resp);
+
+                IndicatorQueryResp expected = IndicatorUtils.processQuery(cubeQuery.copy(), null, false, null);
+                assertEquals(query[0] + " " + query[1], objectMapper.writeValueAsString(expected), objectMapper.writeValueAsString(resp));
+            }
+        }
+        // Not precomputed
+        Query query = new Query(null, ReferenceGenome.GRCh37, gene.getEntrezGeneId(), gene.getHugoSymbol(), "V600E", null, null, "LUAD", null, null, null, null);
+        assertNull(cube.getCell(geneCells, gene, query, AnnotationCube.getTumorTypeCode("LUAD")));
+    }
+
+    private Gene getGene() {
+        Gene gene = new Gene();
+        gene.setEntrezGeneId(673);
+        gene.setHugoSymbol("BRAF");
+        gene.setGeneAliases(new HashSet<>(Collections.singletonList("BRAF1")));
+        return gene;
+    }
+
+    private IndicatorQueryResp getResp(Gene gene) {
+        Query query = new Query(null, ReferenceGenome.GRCh37, gene.getEntrezGeneId(), gene.getHugoSymbol(), "V600E", null, null, "MEL", null, null, null, null);
+        IndicatorQueryResp resp = new IndicatorQueryResp();
+        resp.setQuery(query);
+        resp.setGeneExist(true);
+        resp.setVariantExist(true);
+        resp.setOncogenic("Oncogenic");
+        return resp;
+    }
+}
@@ -0,0 +1,167 @@
+package org.mskcc.cbio.oncokb.cache;
+
+import junit.framework.TestCase;
+import org.mskcc.cbio.oncokb.model.*;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.util.*;
+
+import static org.mskcc.cbio.oncokb.cache.Constants.REDIS_KEY_SEPARATOR;
+
+public class BatchCacheTest extends TestCase {
+    public void testLocalCacheGetAllLeavesOutMisses() throws Exception {
+        LocalCache cache = new LocalCache("test", 10, LocalCache.INFINITE_TTL);
+        cache.put("a", 1);
+        cache.put("b", 2);
+
+        Map<Object, Object> values = cache.getAll(Arrays.asList("a", "b", "c"));
+        assertEquals(2, values.size());
+        assertEquals(1, values.get("a"));
+        assertEquals(2, values.get("b"));
+        assertFalse(values.containsKey("c"));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        Map<Object, Object> puts = new HashMap<>();
+        puts.put("c", 3);
+        puts.put("d", null);
+        cache.putAll(puts);
+        assertEquals(3, cache.getAll(Arrays.asList("a", "b", "c", "d")).size());
+    }
+
+    public void testTwoTierGetAllReadsTheMissesFromRedis() throws Exception {
+        LocalCache redisCache = new LocalCache("test", 10, LocalCache.INFINITE_TTL);
+        TwoTierCache cache = new TwoTierCache(redisCache, 10, LocalCache.INFINITE_TTL);
+        cache.getLocalCache().put("a", 1);
+        redisCache.put("b", 2);
+
+        Map<Object, Object> values = cache.getAll(Arrays.asList("a", "b", "c"));
+        assertEquals(2, values.size());
+        assertEquals(1, values.get("a"));
+        assertEquals(2, values.get("b"));
+        assertEquals(1, cache.getRedisHitCount());
+        // Only the L1 misses are read from Redis
+        assertEquals(1, redisCache.getHitCount());
+        assertEquals(1, redisCache.getMissCount());
+
+        // The Redis hits are kept in the L1
+        assertEquals(2, cache.getLocalCache().getSize());
+        cache.getAll(Arrays.asList("a", "b"));
+        assertEquals(1, cache.getRedisHitCount());
+    }
+
+    public void testTwoTierPutAllWritesBothTiers() throws Exception {
+        LocalCache redisCache = new LocalCache("test", 10, LocalCache.INFINITE_TTL);
+        TwoTierCache cache = new TwoTierCache(redisCache, 10, LocalCache.INFINITE_TTL);
+        Map<Object, Object> values = new HashMap<>();
+        values.put("a", 1);
+        values.put("b", 2);
+        cache.putAll(values);
+
+        assertEquals(values, cache.getLocalCache().getAll(values.keySet()));
+        assertEquals(values, redisCache.getAll(values.keySet()));
+    }
+
+    public void testTwoTierWithoutBatchRedisCache() throws Exception {
+        ConcurrentMapCache redisCache = new ConcurrentMapCache("test");
+        TwoTierCache cache = new TwoTierCache(redisCache, 10, LocalCache.INFINITE_TTL);
+        redisCache.put("a", 1);
+
+        Map<Object, Object> values = new HashMap<>();
+        values.put("b", 2);
+        cache.putAll(values);
+        assertEquals(2, redisCache.get("b").get());
+
+        Map<Object, Object> all = cache.getAll(Arrays.asList("a", "b", "c"));
+        assertEquals(2, all.size());
+        assertEquals(1, all.get("a"));
+        assertEquals(2, all.get("b"));
+    }
+
+    public void testProcessQueryCoresComputesTheMissesOnce() throws Exception {
+        LocalCache cache = new LocalCache(CacheCategory.GENERAL.getKey() + REDIS_KEY_SEPARATOR + "processQueryCore", 100, LocalCache.INFINITE_TTL);
+        CountingQueryCoreFetcher fetcher = new CountingQueryCoreFetcher(cache);
+
+        Query braf = getQuery("BRAF", "V600E");
+        Query kras = getQuery("KRAS", "G12C");
+        Query egfr = getQuery("EGFR", "L858R");
+        Set<EvidenceType> evidenceTypes = Collections.singleton(EvidenceType.ONCOGENIC);
+        IndicatorQueryCore cachedBraf = getQueryCore(braf);
+        cache.put(fetcher.getKey(braf, evidenceTypes), cachedBraf);
+
+        List<IndicatorQueryCore> queryCores = fetcher.processQueryCores(Arrays.asList(braf, kras, egfr, kras),
+            Arrays.asList(evidenceTypes, evidenceTypes, evidenceTypes, evidenceTypes));
+
+        // The cached one is not computed, the others once per distinct query
+        assertEquals(Arrays.asList("KRAS G12C", "EGFR L858R"), fetcher.computed);
+        assertEquals(4, queryCores.size());
+        assertSame(cachedBraf, queryCores.get(0));
+        assertEquals("KRAS", queryCores.get(1).getQuery().getHugoSymbol());
+        assertEquals("EGFR", queryCores.get(2).getQuery().getHugoSymbol());
+        assertSame(queryCores.get(1), queryCores.get(3));
+
+        // The computed ones are written back
+        assertSame(queryCores.get(1), cache.get(fetcher.getKey(kras, evidenceTypes)).get());
+        assertSame(queryCores.get(2), cache.get(fetcher.getKey(egfr, evidenceTypes)).get());
+
+        fetcher.processQueryCores(Arrays.asList(braf, kras, egfr), Arrays.asList(evidenceTypes, evidenceTypes, evidenceTypes));
+        assertEquals(2, fetcher.computed.size());
+    }
+
+    public void testProcessQueryCoresKeepsTheEvidenceTypesApart() throws Exception {
+        LocalCache cache = new LocalCache(CacheCategory.GENERAL.getKey() + REDIS_KEY_SEPARATOR + "processQueryCore", 100, LocalCache.INFINITE_TTL);
+        CountingQueryCoreFetcher fetcher = new CountingQueryCoreFetcher(cache);
+        Query braf = getQuery("BRAF", "V600E");
+
+        fetcher.processQueryCores(Arrays.asList(braf, braf),
+            Arrays.asList(Collections.singleton(EvidenceType.ONCOGENIC), Collections.singleton(EvidenceType.MUTATION_EFFECT)));
+        assertEquals(2, fetcher.computed.size());
+    }
+
+    private static Query getQuery(String hugoSymbol, String alteration) {
+        return new Query(null, ReferenceGenome.GRCh37, null, hugoSymbol, alteration, null, null, null, null, null, null, null);
+    }
+
+    private static IndicatorQueryCore getQueryCore(Query query) {
+        IndicatorQueryCore queryCore = new IndicatorQueryCore();
+        queryCore.setQuery(query);
+        return queryCore;
+    }
+
+    // Computes a core per query without the database
+    private static class CountingQueryCoreFetcher extends IndicatorQueryCoreFetcher {
+        private final List<String> computed = new ArrayList<>();
+
+        CountingQueryCoreFetcher(Cache cache) {
+            this.cacheManager = new CacheManager() {
+                @Override
+                public Cache getCache(String name) {
+                    return cache.getName().equals(name) ? cache : null;
+                }
+
+                @Override
+                public Collection<String> getCacheNames() {
+                    return Collections.singleton(cache.getName());
+                }
+            };
+            this.keyGenerator = (target, method, params) -> Arrays.asList(params);
+        }
+
+        Object getKey(Query query, Set<EvidenceType> evidenceTypes) {
+            return Arrays.asList(query.getReferenceGenome(), query.getEntrezGeneId(), query.getHugoSymbol(), query.getAlteration(),
+                query.getAlterationType(), query.getConsequence(), query.getProteinStart(), query.getProteinEnd(), query.getSvType(),
+                query.getHgvs(), evidenceTypes);
+        }
+
+        @Override
+        public IndicatorQueryCore processQueryCore(ReferenceGenome referenceGenome, Integer entrezGeneId, String hugoSymbol,
+                                                   String alteration, String alterationType, String consequence,
+                                                   Integer proteinStart, Integer proteinEnd, StructuralVariantType svType,
+                                                   String hgvs, Set<EvidenceType> coreEvidenceTypes) {
+            computed.add(hugoSymbol + " " + alteration);
+            return getQueryCore(new Query(null, referenceGenome, entrezGeneId, hugoSymbol, alteration, alterationType, svType, null, consequence, proteinStart, proteinEnd, hgvs));
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.mskcc.cbio.oncokb.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import junit.framework.TestCase;
+import org.mskcc.cbio.oncokb.apiModels.Implication;
+import org.mskcc.cbio.oncokb.apiModels.MutationEffectResp;
+import org.mskcc.cbio.oncokb.model.*;
+
+import java.util.*;
+
+public class CacheValueCodecTest extends TestCase {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public void testRoundTrip() throws Exception {
+        for (CacheValueCodec codec : getCodecs()) {
+            assertRoundTrip(codec, getIndicatorQueryResp());
+            assertRoundTrip(codec, getAlteration(getGene()));
+            assertRoundTrip(codec, getGene());
+            assertRoundTrip(codec, getDrug());
+            assertRoundTrip(codec, new ArrayList<>(Collections.singletonList(getIndicatorQueryResp())));
+            assertRoundTrip(codec, new HashSet<>(Arrays.asList("BRAF", "KRAS")));
+            assertRoundTrip(codec, "Oncogenic");
+        }
+    }
+
+    public void testSharedReferences() throws Exception {
+        for (CacheValueCodec codec : getCodecs()) {
+            Gene gene = getGene();
+            List<Alteration> alterations = new ArrayList<>(Arrays.asList(getAlteration(gene), getAlteration(gene)));
+            alterations.get(1).setAlteration("V600K");
+
+            List<Alteration> decoded = (List<Alteration>) codec.decode(codec.encode(alterations));
+            assertEquals(2, decoded.size());
+            assertEquals("V600K", decoded.get(1).getAlteration());
+            assertSame(decoded.get(0).getGene(), decoded.get(1).getGene());
+        }
+    }
+
+    public void testOtherHeaderIsRecomputed() throws Exception {
+        CacheValueCodec kryo = new CacheValueCodec(new KryoCacheSerializer());
+        CacheValueCodec java = new CacheValueCodec(new JavaCacheSerializer());
+        byte[] encoded = kryo.encode(getIndicatorQueryResp());
+        assertEquals(CacheValueCodec.FORMAT_VERSION, encoded[0]);
+        assertEquals(KryoCacheSerializer.ID, encoded[1]);
+
+        // Written by another serializer
+        assertNull(java.decode(encoded));
+
+        // Written by an older format version
+        byte[] older = encoded.clone();
+        older[0] = (byte) (CacheValueCodec.FORMAT_VERSION - 1);
+        assertNull(kryo.decode(older));
+
+        // Written by an unknown serializer
+        byte[] unknown = encoded.clone();
+        unknown[1] = 99;
+        assertNull(kryo.decode(unknown));
+
+        // Not written by the codec
+        assertNull(kryo.decode("BRAF V600E".getBytes()));
+        assertNull(kryo.decode(new byte[]{CacheValueCodec.FORMAT_VERSION, KryoCacheSerializer.ID}));
+        assertNull(kryo.decode("BRAF V600E"));
+        assertNull(kryo.decode(null));
+
+        // Corrupted
+        byte[] corrupted = Arrays.copyOf(encoded, encoded.length / 2);
+        assertNull(kryo.decode(corrupted));
+    }
+
+    public void testNullIsNotEncoded() throws Exception {
+        for (CacheValueCodec codec : getCodecs()) {
+            assertNull(codec.encode(null));
+        }
+    }
+
+    private void assertRoundTrip(CacheValueCodec codec, Object value) throws Exception {
+        byte[] encoded = codec.encode(value);
+        assertNotNull(encoded);
+        Object decoded = codec.decode(encoded);
+        assertNotNull(decoded);
+        assertEquals(value.getClass(), decoded.getClass());
+        assertEquals(objectMapper.writeValueAsString(value), objectMapper.writeValueAsString(decoded));
+    }
+
+    private List<CacheValueCodec> getCodecs() {
+        return Arrays.asList(CacheValueCodec.getByName("kryo"), CacheValueCodec.getByName("java"));
+    }
+
+    private Gene getGene() {
+        Gene gene = new Gene();
+        gene.setEntrezGeneId(673);
+        gene.setHugoSymbol("BRAF");
+        gene.setGeneAliases(new HashSet<>(Collections.singletonList("BRAF1")));
+        gene.setOncogene(true);
+        gene.setTSG(false);
+        gene.setGrch37Isoform("ENST00000288602");
+        gene.setGrch37RefSeq("NM_004333.4");
+        return gene;
+    }
+
+    private Alteration getAlteration(Gene gene) {
+        Alteration alteration = new Alteration();
+        alteration.setId(1);
+        alteration.setGene(gene);
+        alteration.setAlteration("V600E");
+        alteration.setName("V600E");
+        alteration.setRefResidues("V");
+        alteration.setProteinStart(600);
+        alteration.setProteinEnd(600);
+        alteration.setVariantResidues("E");
+        alteration.setReferenceGenomes(new HashSet<>(Arrays.asList(ReferenceGenome.GRCh37, ReferenceGenome.GRCh38)));
+        return alteration;
+    }
+
+    private Drug getDrug() {
+        Drug drug = new Drug();
+        drug.setId(1);
+        drug.setDrugName("Vemurafenib");
+        drug.setNcitCode("C64768");
+        drug.setSynonyms(new HashSet<>(Collections.singletonList("PLX4032")));
+        return drug;
+    }
+
+    private IndicatorQueryResp getIndicatorQueryResp() {
+        Query query = new Query();
+        query.setReferenceGenome(ReferenceGenome.GRCh37);
+        query.setHugoSymbol("BRAF");
+        query.setEntrezGeneId(673);
+        query.setAlteration("V600E");
+        query.setTumorType("MEL");
+
+        MutationEffectResp mutationEffect = new MutationEffectResp();
+        mutationEffect.setKnownEffect("Gain-of-function");
+        mutationEffect.setDescription("The BRAF V600E mutation is known to be oncogenic.");
+
+        IndicatorQueryTreatment treatment = new IndicatorQueryTreatment();
+        treatment.setDrugs(Collections.singletonList(getDrug()));
+        treatment.setLevel(LevelOfEvidence.LEVEL_1);
+        treatment.setFdaLevel(LevelOfEvidence.LEVEL_Fda2);
+        treatment.setAlterations(Collections.singletonList("V600E"));
+        treatment.setPmids(new HashSet<>(Arrays.asList("22663011", "22735384")));
+
+        Implication implication = new Implication();
+        implication.setLevelOfEvidence(LevelOfEvidence.LEVEL_Dx1);
+        implication.setAlterations(new HashSet<>(Collections.singletonList("V600E")));
+        implication.setDescription("Diagnostic");
+
+        IndicatorQueryResp resp = new IndicatorQueryResp();
+        resp.setQuery(query);
+        resp.setGeneExist(true);
+        resp.setVariantExist(true);
+        resp.setOncogenic("Oncogenic");
+        resp.setMutationEffect(mutationEffect);
+        resp.setHighestSensitiveLevel(LevelOfEvidence.LEVEL_1);
+        resp.setHighestFdaLevel(LevelOfEvidence.LEVEL_Fda2);
+        resp.setOtherSignificantSensitiveLevels(new ArrayList<>(Collections.singletonList(LevelOfEvidence.LEVEL_2)));
+        resp.setHotspot(true);
+        resp.setGeneSummary("BRAF, an intracellular kinase, is frequently mutated in melanoma.");
+        resp.setVariantSummary("The BRAF V600E mutation is known to be oncogenic.");
+        resp.setTreatments(new ArrayList<>(Collections.singletonList(treatment)));
+        resp.setDiagnosticImplications(new ArrayList<>(Collections.singletonList(implication)));
+        resp.setDataVersion("v3.0");
+        return resp;
+    }
+}
@@ -0,0 +1,97 @@
+package org.mskcc.cbio.oncokb.cache;
+
+import junit.framework.TestCase;
+import org.mskcc.cbio.oncokb.model.Alteration;
+import org.mskcc.cbio.oncokb.model.Gene;
+import org.mskcc.cbio.oncokb.model.IndicatorQueryCore;
+import org.springframework.cache.Cache;
+
+import java.util.*;
+
+public class GeneTagsTest extends TestCase {
+    private static final int BRAF = 673;
+    private static final int KRAS = 3845;
+    private static final int EML4 = 27436;
+    private static final int ALK = 238;
+
+    public void testEntrezGeneIds() throws Exception {
+        assertEquals(Collections.singleton(BRAF), GeneTags.getEntrezGeneIds(getGene(BRAF)));
+        assertEquals(Collections.singleton(KRAS), GeneTags.getEntrezGeneIds(getAlteration(KRAS)));
+        assertEquals(Collections.singleton(BRAF), GeneTags.getEntrezGeneIds(getQueryCore(BRAF)));
+        assertEquals(new HashSet<>(Arrays.asList(EML4, ALK)), GeneTags.getEntrezGeneIds(getQueryCore(EML4, ALK)));
+
+        // Not computed from specific genes
+        assertTrue(GeneTags.getEntrezGeneIds("BRAF").isEmpty());
+        assertTrue(GeneTags.getEntrezGeneIds(Collections.singletonList(getGene(BRAF))).isEmpty());
+        assertTrue(GeneTags.getEntrezGeneIds(null).isEmpty());
+        assertTrue(GeneTags.getEntrezGeneIds(new Gene()).isEmpty());
+        assertTrue(GeneTags.getEntrezGeneIds(new Alteration()).isEmpty());
+        assertTrue(GeneTags.getEntrezGeneIds(new IndicatorQueryCore()).isEmpty());
+    }
+
+    public void testLocalCacheEvictsTheEntriesOfTheGene() throws Exception {
+        LocalCache cache = new LocalCache("test", 10, LocalCache.INFINITE_TTL);
+        putEntries(cache);
+
+        cache.evictGene(BRAF);
+        assertNull(cache.get("BRAF"));
+        assertNull(cache.get("BRAF V600E"));
+        assertNull(cache.get("BRAF V600E core"));
+        assertNotNull(cache.get("KRAS G12C"));
+        assertNotNull(cache.get("EML4-ALK core"));
+        assertNotNull(cache.get("genes"));
+
+        // Either gene of a fusion
+        cache.evictGene(ALK);
+        assertNull(cache.get("EML4-ALK core"));
+        assertEquals(2, cache.getSize());
+    }
+
+    public void testTwoTierCacheEvictsBothTiers() throws Exception {
+        LocalCache redisCache = new LocalCache("test", 10, LocalCache.INFINITE_TTL);
+        TwoTierCache cache = new TwoTierCache(redisCache, 10, LocalCache.INFINITE_TTL);
+        putEntries(cache);
+        assertEquals(6, cache.getLocalCache().getSize());
+        assertEquals(6, redisCache.getSize());
+
+        cache.evictGene(KRAS);
+        assertNull(cache.get("KRAS G12C"));
+        assertNull(cache.getLocalCache().get("KRAS G12C"));
+        assertNull(redisCache.get("KRAS G12C"));
+        assertNotNull(cache.get("BRAF V600E"));
+        assertEquals(5, cache.getLocalCache().getSize());
+        assertEquals(5, redisCache.getSize());
+    }
+
+    private void putEntries(Cache cache) {
+        cache.put("BRAF", getGene(BRAF));
+        cache.put("BRAF V600E", getAlteration(BRAF));
+        cache.put("BRAF V600E core", getQueryCore(BRAF));
+        cache.put("KRAS G12C", getAlteration(KRAS));
+        cache.put("EML4-ALK core", getQueryCore(EML4, ALK));
+        cache.put("genes", new ArrayList<>(Arrays.asList(getGene(BRAF), getGene(KRAS))));
+    }
+
+    private Gene getGene(int entrezGeneId) {
+        Gene gene = new Gene();
+        gene.setEntrezGeneId(entrezGeneId);
+        return gene;
+    }
+
+    private Alteration getAlteration(int entrezGeneId) {
+        Alteration alteration = new Alteration();
+        alteration.setGene(getGene(entrezGeneId));
+        return alteration;
+    }
+
+    private IndicatorQueryCore getQueryCore(int entrezGeneId, int... fusionEntrezGeneIds) {
+        IndicatorQueryCore queryCore = new IndicatorQueryCore();
+        queryCore.setGene(getGene(entrezGeneId));
+        List<Gene> fusionGenes = new ArrayList<>();
+        for (int fusionEntrezGeneId : fusionEntrezGeneIds) {
+            fusionGenes.add(getGene(fusionEntrezGeneId));
+        }
+        queryCore.setFusionGenes(fusionGenes);
+        return queryCore;
+    }
+}
@@ -0,0 +1,141 @@
+package org.mskcc.cbio.oncokb.cache;
+
+import junit.framework.TestCase;
+import org.mskcc.cbio.oncokb.model.Gene;
+import org.springframework.cache.Cache;
+
+import java.util.*;
+
+import static org.mskcc.cbio.oncokb.cache.Constants.REDIS_KEY_SEPARATOR;
+
+public class LocalCacheManagerTest extends TestCase {
+    private static final String GENES_CACHE = CacheCategory.GENERAL.getKey() + REDIS_KEY_SEPARATOR + "getGenes";
+    private static final String STATIC_CACHE = CacheCategory.GENERAL.getKey() + REDIS_KEY_SEPARATOR + "getStaticInfo";
+
+    private TestCacheNameResolver cacheNameResolver;
+    private LocalCacheManager cacheManager;
+
+    @Override
+    protected void setUp() throws Exception {
+        System.setProperty("cache.local.maxSize", "3");
+        System.setProperty("cache.local.getStaticInfo.maxSize", "1");
+        cacheNameResolver = new TestCacheNameResolver();
+        cacheManager = new LocalCacheManager(60, cacheNameResolver);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        System.clearProperty("cache.local.maxSize");
+        System.clearProperty("cache.local.getStaticInfo.maxSize");
+    }
+
+    public void testCachesOfTheNamespace() throws Exception {
+        LocalCache genes = (LocalCache) cacheManager.getCache(GENES_CACHE);
+        assertSame(genes, cacheManager.getCache(GENES_CACHE));
+        assertEquals("1" + REDIS_KEY_SEPARATOR + GENES_CACHE, genes.getName());
+        assertEquals(Collections.singleton(genes.getName()), new HashSet<>(cacheManager.getCacheNames()));
+
+        // The static caches never expire
+        assertEquals(60 * 60 * 1000, genes.getTtlInMillis());
+        LocalCache info = (LocalCache) cacheManager.getCache(STATIC_CACHE);
+        assertEquals(LocalCache.INFINITE_TTL, info.getTtlInMillis());
+
+        // The size of a single cache overrides the one of all the caches
+        assertEquals(3, genes.getMaxSize());
+        assertEquals(1, info.getMaxSize());
+    }
+
+    public void testMaxSizeDropsTheLeastRecentlyUsed() throws Exception {
+        LocalCache cache = (LocalCache) cacheManager.getCache(GENES_CACHE);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("c", 3);
+        assertNotNull(cache.get("a"));
+        cache.put("d", 4);
+
+        assertEquals(3, cache.getSize());
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertNotNull(cache.get("d"));
+    }
+
+    public void testTtl() throws Exception {
+        LocalCache cache = new LocalCache("test", 10, 50);
+        cache.put("a", 1);
+        assertNotNull(cache.get("a"));
+        Thread.sleep(100);
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.getSize());
+
+        // Nothing is stored without a TTL
+        LocalCache disabled = new LocalCache("test", 10, 0);
+        disabled.put("a", 1);
+        assertNull(disabled.get("a"));
+        assertEquals(0, disabled.getSize());
+
+        LocalCache infinite = new LocalCache("test", 10, LocalCache.INFINITE_TTL);
+        infinite.put("a", 1);
+        infinite.put("b", null);
+        assertNotNull(infinite.get("a"));
+        assertEquals(1, infinite.getSize());
+    }
+
+    public void testGeneUpdateEvictsTheEntriesOfTheGene() throws Exception {
+        Cache genes = cacheManager.getCache(GENES_CACHE);
+        Cache info = cacheManager.getCache(STATIC_CACHE);
+        genes.put("BRAF", getGene(673));
+        genes.put("KRAS", getGene(3845));
+        info.put("BRAF", getGene(673));
+
+        cacheManager.update(null, getOperation("update", "673"));
+        assertNull(genes.get("BRAF"));
+        assertNotNull(genes.get("KRAS"));
+        assertNull(info.get("BRAF"));
+        assertEquals(0, cacheNameResolver.resets);
+    }
+
+    public void testResetDropsAllTheCaches() throws Exception {
+        Cache genes = cacheManager.getCache(GENES_CACHE);
+        genes.put("KRAS", getGene(3845));
+
+        cacheManager.update(null, getOperation("reset", null));
+        assertEquals(1, cacheNameResolver.resets);
+        assertTrue(cacheManager.getLocalCaches().isEmpty());
+
+        // The caches of the new namespace are empty
+        Cache newGenes = cacheManager.getCache(GENES_CACHE);
+        assertNotSame(genes, newGenes);
+        assertEquals("2" + REDIS_KEY_SEPARATOR + GENES_CACHE, newGenes.getName());
+        assertNull(newGenes.get("KRAS"));
+    }
+
+    private Map<String, String> getOperation(String cmd, String val) {
+        Map<String, String> operation = new HashMap<>();
+        operation.put("cmd", cmd);
+        operation.put("val", val);
+        return operation;
+    }
+
+    private Gene getGene(int entrezGeneId) {
+        Gene gene = new Gene();
+        gene.setEntrezGeneId(entrezGeneId);
+        return gene;
+    }
+
+    // The namespace is a counter of the resets instead of the data loaded
+    private static class TestCacheNameResolver extends CacheNameResolver {
+        private int resets;
+
+        @Override
+        public String getNamespace() {
+            return String.valueOf(resets + 1);
+        }
+
+        @Override
+        public synchronized void resetNamespace() {
+            resets++;
+        }
+    }
+}
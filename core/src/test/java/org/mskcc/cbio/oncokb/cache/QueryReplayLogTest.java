@@ -0,0 +1,200 @@
+package org.mskcc.cbio.oncokb.cache;
+
+import junit.framework.TestCase;
+import org.mskcc.cbio.oncokb.model.*;
+
+import java.io.File;
+import java.util.*;
+
+public class QueryReplayLogTest extends TestCase {
+    private static final String[] PROPERTIES = {"cache.warmup.log.enable", "cache.warmup.log.file", "cache.warmup.log.sampleRate",
+        "cache.warmup.log.maxQueries", "cache.warmup.log.flushInterval", "cache.warmup.log.halfLife"};
+
+    private File file;
+
+    @Override
+    protected void setUp() throws Exception {
+        file = File.createTempFile("oncokb-query-log", ".tsv.gz");
+        file.delete();
+        System.setProperty("cache.warmup.log.file", file.getAbsolutePath());
+        System.setProperty("cache.warmup.log.sampleRate", "1");
+        System.setProperty("cache.warmup.log.flushInterval", "3600");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        for (String property : PROPERTIES) {
+            System.clearProperty(property);
+        }
+        file.delete();
+    }
+
+    public void testEncodeDecode() throws Exception {
+        Query query = new Query(null, ReferenceGenome.GRCh38, 673, "BRAF", "V600E", "MUTATION", StructuralVariantType.DELETION,
+            "MEL", "missense_variant", 600, 600, "7:g.140453136A>T");
+        Set<EvidenceType> evidenceTypes = new HashSet<>(Arrays.asList(EvidenceType.ONCOGENIC, EvidenceType.MUTATION_EFFECT));
+
+        Map.Entry<Query, Set<EvidenceType>> decoded = QueryReplayLog.decode(QueryReplayLog.encode(query, evidenceTypes));
+        assertNotNull(decoded);
+        assertQuery(query, decoded.getKey());
+        // The tumor type is not part of the query core
+        assertNull(decoded.getKey().getTumorType());
+        assertEquals(evidenceTypes, decoded.getValue());
+
+        // The order of the evidence types is not part of the line
+        Set<EvidenceType> reversed = new LinkedHashSet<>(Arrays.asList(EvidenceType.MUTATION_EFFECT, EvidenceType.ONCOGENIC));
+        assertEquals(QueryReplayLog.encode(query, evidenceTypes), QueryReplayLog.encode(query, reversed));
+    }
+
+    public void testEncodeDecodeNullsAndSeparators() throws Exception {
+        Query query = new Query(null, null, null, "BRAF", "V600E\tV600K\n\\N", null, null, null, null, null, null, null);
+
+        String line = QueryReplayLog.encode(query, null);
+        assertEquals(1, line.split("\n", -1).length);
+        Map.Entry<Query, Set<EvidenceType>> decoded = QueryReplayLog.decode(line);
+        assertNotNull(decoded);
+        assertQuery(query, decoded.getKey());
+        assertNull(decoded.getValue());
+
+        decoded = QueryReplayLog.decode(QueryReplayLog.encode(query, Collections.emptySet()));
+        assertEquals(Collections.emptySet(), decoded.getValue());
+    }
+
+    public void testDecodeLinesOfAnotherVersion() throws Exception {
+        Query query = new Query(null, ReferenceGenome.GRCh37, 673, "BRAF", "V600E", null, null, null, null, null, null, null);
+        String line = QueryReplayLog.encode(query, null);
+
+        assertNull(QueryReplayLog.decode(line + "\t\\N"));
+        assertNull(QueryReplayLog.decode("BRAF\tV600E"));
+        assertNull(QueryReplayLog.decode(line.replace("GRCh37", "GRCh36")));
+        assertNull(QueryReplayLog.decode(line.replace("673", "BRAF")));
+    }
+
+    public void testFlushAndRead() throws Exception {
+        System.setProperty("cache.warmup.log.enable", "true");
+        QueryReplayLog log = new QueryReplayLog();
+        log.init();
+        assertTrue(log.isEnabled());
+
+        Set<EvidenceType> evidenceTypes = Collections.singleton(EvidenceType.ONCOGENIC);
+        Query braf = new Query(null, ReferenceGenome.GRCh37, 673, "BRAF", "V600E", null, null, null, null, null, null, null);
+        Query kras = new Query(null, ReferenceGenome.GRCh37, 3845, "KRAS", "G12C", null, null, null, null, null, null, null);
+        for (int i = 0; i < 3; i++) {
+            log.record(braf, evidenceTypes);
+        }
+        log.record(kras, null);
+        log.flush();
+        log.destroy();
+        assertTrue(file.exists());
+
+        // Read by the next run, the most frequent first
+        System.clearProperty("cache.warmup.log.enable");
+        QueryReplayLog next = new QueryReplayLog();
+        next.init();
+        assertFalse(next.isEnabled());
+        List<Map.Entry<Query, Set<EvidenceType>>> queries = next.getTopQueries(10);
+        assertEquals(2, queries.size());
+        assertQuery(braf, queries.get(0).getKey());
+        assertEquals(evidenceTypes, queries.get(0).getValue());
+        assertQuery(kras, queries.get(1).getKey());
+        assertNull(queries.get(1).getValue());
+        assertEquals(1, next.getTopQueries(1).size());
+
+        // The counts of the previous run are kept when the log is enabled again
+        System.setProperty("cache.warmup.log.enable", "true");
+        QueryReplayLog enabled = new QueryReplayLog();
+        enabled.init();
+        enabled.record(kras, null);
+        enabled.record(kras, null);
+        enabled.record(kras, null);
+        assertQuery(kras, enabled.getTopQueries(1).get(0).getKey());
+        enabled.destroy();
+    }
+
+    public void testMaxQueriesDropsTheLeastFrequent() throws Exception {
+        System.setProperty("cache.warmup.log.enable", "true");
+        System.setProperty("cache.warmup.log.maxQueries", "2");
+        QueryReplayLog log = new QueryReplayLog();
+        log.init();
+
+        Query braf = new Query(null, ReferenceGenome.GRCh37, 673, "BRAF", "V600E", null, null, null, null, null, null, null);
+        log.record(braf, null);
+        log.record(braf, null);
+        log.record(new Query(null, ReferenceGenome.GRCh37, 3845, "KRAS", "G12C", null, null, null, null, null, null, null), null);
+        // A new query replaces the least frequent one
+        log.record(new Query(null, ReferenceGenome.GRCh37, 1956, "EGFR", "L858R", null, null, null, null, null, null, null), null);
+        log.record(braf, null);
+
+        List<Map.Entry<Query, Set<EvidenceType>>> queries = log.getTopQueries(10);
+        assertEquals(2, queries.size());
+        assertEquals("BRAF", queries.get(0).getKey().getHugoSymbol());
+        assertEquals("EGFR", queries.get(1).getKey().getHugoSymbol());
+        log.destroy();
+    }
+
+    public void testDecay() throws Exception {
+        System.setProperty("cache.warmup.log.enable", "true");
+        QueryReplayLog log = new QueryReplayLog();
+        log.init();
+
+        Query braf = new Query(null, ReferenceGenome.GRCh37, 673, "BRAF", "V600E", null, null, null, null, null, null, null);
+        Query kras = new Query(null, ReferenceGenome.GRCh37, 3845, "KRAS", "G12C", null, null, null, null, null, null, null);
+        for (int i = 0; i < 4; i++) {
+            log.record(braf, null);
+        }
+        log.record(kras, null);
+        log.decay();
+        // Not recorded since the last decay
+        List<Map.Entry<Query, Set<EvidenceType>>> queries = log.getTopQueries(10);
+        assertEquals(1, queries.size());
+        assertEquals("BRAF", queries.get(0).getKey().getHugoSymbol());
+
+        // The queries asked lately overtake the ones which are not asked anymore
+        for (int i = 0; i < 3; i++) {
+            log.record(kras, null);
+        }
+        assertEquals("KRAS", log.getTopQueries(1).get(0).getKey().getHugoSymbol());
+        log.destroy();
+    }
+
+    public void testFileIsRequiredWhenEnabled() throws Exception {
+        System.setProperty("cache.warmup.log.enable", "true");
+        System.clearProperty("cache.warmup.log.file");
+        try {
+            new QueryReplayLog().init();
+            fail("The log is enabled without a file");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        // Nothing to read without a file
+        System.clearProperty("cache.warmup.log.enable");
+        QueryReplayLog log = new QueryReplayLog();
+        log.init();
+        assertTrue(log.getTopQueries(10).isEmpty());
+    }
+
+    public void testDisabledLogRecordsNothing() throws Exception {
+        QueryReplayLog log = new QueryReplayLog();
+        log.init();
+        assertFalse(log.isEnabled());
+        log.record(new Query(null, ReferenceGenome.GRCh37, 673, "BRAF", "V600E", null, null, null, null, null, null, null), null);
+        log.destroy();
+
+        assertFalse(file.exists());
+        assertTrue(log.getTopQueries(10).isEmpty());
+    }
+
+    private void assertQuery(Query expected, Query actual) {
+        assertEquals(expected.getReferenceGenome(), actual.getReferenceGenome());
+        assertEquals(expected.getEntrezGeneId(), actual.getEntrezGeneId());
+        assertEquals(expected.getHugoSymbol(), actual.getHugoSymbol());
+        assertEquals(expected.getAlteration(), actual.getAlteration());
+        assertEquals(expected.getAlterationType(), actual.getAlterationType());
+        assertEquals(expected.getConsequence(), actual.getConsequence());
+        assertEquals(expected.getProteinStart(), actual.getProteinStart());
+        assertEquals(expected.getProteinEnd(), actual.getProteinEnd());
+        assertEquals(expected.getSvType(), actual.getSvType());
+        assertEquals(expected.getHgvs(), actual.getHgvs());
+    }
+}
@@ -0,0 +1,146 @@
+package org.mskcc.cbio.oncokb.cache;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SingleFlightTest extends TestCase {
+    private static final long TIMEOUT = 10000;
+
+    private ExecutorService executor;
+
+    @Override
+    protected void setUp() throws Exception {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    public void testValueIsShared() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(TIMEOUT);
+        SingleFlight.Flight leader = singleFlight.join("key");
+        assertTrue(leader.isLeader());
+
+        Future<SingleFlight.Flight> follower = executor.submit(() -> singleFlight.join("key"));
+        waitForFollower(follower);
+        singleFlight.complete("key", "value");
+
+        SingleFlight.Flight flight = follower.get(1, TimeUnit.SECONDS);
+        assertFalse(flight.isLeader());
+        assertEquals("value", flight.getValue());
+        assertEquals(0, singleFlight.size());
+    }
+
+    public void testLeaderFailureReleasesFollowers() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(TIMEOUT);
+        AtomicInteger releasedLeases = new AtomicInteger();
+        CountDownLatch led = new CountDownLatch(1);
+        Future<?> leader = executor.submit(() -> {
+            SingleFlight.openScope();
+            try {
+                SingleFlight.Flight flight = singleFlight.join("key");
+                assertTrue(flight.isLeader());
+                flight.setOnRelease(releasedLeases::incrementAndGet);
+                led.countDown();
+                Thread.sleep(200);
+                throw new IllegalStateException("The computation failed");
+            } finally {
+                SingleFlight.closeScope();
+            }
+        });
+        assertTrue(led.await(1, TimeUnit.SECONDS));
+
+        long start = System.currentTimeMillis();
+        SingleFlight.openScope();
+        try {
+            // The follower leads a new flight as soon as the leader fails, not after the timeout
+            SingleFlight.Flight flight = singleFlight.join("key");
+            assertTrue(flight.isLeader());
+            assertTrue(System.currentTimeMillis() - start < TIMEOUT / 2);
+            try {
+                leader.get(1, TimeUnit.SECONDS);
+                fail("The failure of the leader should be thrown");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+            assertEquals(1, releasedLeases.get());
+        } finally {
+            SingleFlight.closeScope();
+        }
+        assertEquals(0, singleFlight.size());
+    }
+
+    public void testNullValueReleasesFollowers() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(TIMEOUT);
+        AtomicInteger releasedLeases = new AtomicInteger();
+        SingleFlight.Flight leader = singleFlight.join("key");
+        leader.setOnRelease(releasedLeases::incrementAndGet);
+
+        Future<SingleFlight.Flight> follower = executor.submit(() -> singleFlight.join("key"));
+        waitForFollower(follower);
+        long start = System.currentTimeMillis();
+        singleFlight.complete("key", null);
+
+        // The follower computes the value itself
+        SingleFlight.Flight flight = follower.get(1, TimeUnit.SECONDS);
+        assertFalse(flight.isLeader());
+        assertNull(flight.getValue());
+        assertTrue(System.currentTimeMillis() - start < TIMEOUT / 2);
+        assertEquals(1, releasedLeases.get());
+        assertEquals(0, singleFlight.size());
+    }
+
+    public void testNestedScopes() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(TIMEOUT);
+        SingleFlight.openScope();
+        try {
+            assertTrue(singleFlight.join("outer").isLeader());
+            SingleFlight.openScope();
+            try {
+                assertTrue(singleFlight.join("inner").isLeader());
+            } finally {
+                SingleFlight.closeScope();
+            }
+            // The flight of the outer invocation is kept until it returns
+            assertEquals(1, singleFlight.size());
+        } finally {
+            SingleFlight.closeScope();
+        }
+        assertEquals(0, singleFlight.size());
+    }
+
+    public void testCompletedFlightIsNotReleasedAgain() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(TIMEOUT);
+        AtomicInteger releasedLeases = new AtomicInteger();
+        SingleFlight.openScope();
+        try {
+            SingleFlight.Flight flight = singleFlight.join("key");
+            flight.setOnRelease(releasedLeases::incrementAndGet);
+            singleFlight.complete("key", "value");
+
+            // Another caller leads the next flight of the key
+            assertTrue(executor.submit(() -> singleFlight.join("key").isLeader()).get(1, TimeUnit.SECONDS));
+        } finally {
+            SingleFlight.closeScope();
+        }
+        assertEquals(1, releasedLeases.get());
+        assertEquals(1, singleFlight.size());
+    }
+
+    public void testTimeout() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(200);
+        singleFlight.join("key");
+        // The leader never completes the flight, the follower leads a new one after the timeout
+        SingleFlight.Flight flight = executor.submit(() -> singleFlight.join("key")).get(2, TimeUnit.SECONDS);
+        assertTrue(flight.isLeader());
+    }
+
+    private void waitForFollower(Future<?> follower) throws InterruptedException {
+        Thread.sleep(100);
+        assertFalse(follower.isDone());
+    }
+}
@@ -0,0 +1,110 @@
+package org.mskcc.cbio.oncokb.cache.keygenerator;
+
+import junit.framework.TestCase;
+import org.mskcc.cbio.oncokb.model.EvidenceType;
+import org.mskcc.cbio.oncokb.model.ReferenceGenome;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.mskcc.cbio.oncokb.Constants.DEFAULT_REFERENCE_GENOME;
+
+public class CanonicalKeyGeneratorTest extends TestCase {
+    private final CanonicalKeyGenerator keyGenerator = new CanonicalKeyGenerator();
+
+    public void testEquivalentInvocationsHaveTheSameKey() throws Exception {
+        // The order of a set is not part of the key
+        Set<EvidenceType> evidenceTypes = new LinkedHashSet<>(Arrays.asList(EvidenceType.ONCOGENIC, EvidenceType.MUTATION_EFFECT));
+        Set<EvidenceType> reversed = new LinkedHashSet<>(Arrays.asList(EvidenceType.MUTATION_EFFECT, EvidenceType.ONCOGENIC));
+        assertEquals(getKey(ReferenceGenome.GRCh37, "BRAF", "V600E", 600, evidenceTypes),
+            getKey(ReferenceGenome.GRCh37, "BRAF", "V600E", 600, reversed));
+
+        // A null reference genome is the default one
+        assertEquals(getKey(DEFAULT_REFERENCE_GENOME, "BRAF", "V600E", 600, evidenceTypes),
+            getKey(null, "BRAF", "V600E", 600, evidenceTypes));
+    }
+
+    public void testDifferentInvocationsHaveDifferentKeys() throws Exception {
+        HashedCacheKey key = getKey(ReferenceGenome.GRCh37, "BRAF", "V600E", 600, null);
+        // The strings keep their case and spaces
+        assertFalse(key.equals(getKey(ReferenceGenome.GRCh37, "BRAF", "v600e", 600, null)));
+        assertFalse(key.equals(getKey(ReferenceGenome.GRCh37, "BRAF", "V600E ", 600, null)));
+        assertFalse(key.equals(getKey(ReferenceGenome.GRCh38, "BRAF", "V600E", 600, null)));
+        assertFalse(key.equals(getKey(ReferenceGenome.GRCh37, "BRAF", "V600E", null, null)));
+        assertFalse(key.equals(getKey(ReferenceGenome.GRCh37, "BRAF", "V600E", 600, Collections.emptySet())));
+
+        // The arguments are not joined with a separator which could be part of them
+        assertFalse(getKey(ReferenceGenome.GRCh37, "BRAF,V", "600E", 600, null).equals(getKey(ReferenceGenome.GRCh37, "BRAF", "V,600E", 600, null)));
+        assertFalse(getKey(ReferenceGenome.GRCh37, "null", "V600E", 600, null).equals(getKey(ReferenceGenome.GRCh37, null, "V600E", 600, null)));
+
+        // The order of a list is part of the key
+        assertFalse(getCanonical(Arrays.asList("a", "b")).equals(getCanonical(Arrays.asList("b", "a"))));
+        // The type of the value is part of the key
+        assertFalse(getCanonical(600).equals(getCanonical("600")));
+        assertFalse(getCanonical(Collections.singletonList("a,b")).equals(getCanonical(Arrays.asList("a", "b"))));
+    }
+
+    public void testHash() throws Exception {
+        HashedCacheKey key = getKey(ReferenceGenome.GRCh37, "BRAF", "V600E", 600, null);
+        assertEquals(getKey(ReferenceGenome.GRCh37, "BRAF", "V600E", 600, null).getHash(), key.getHash());
+        assertFalse(key.getHash().equals(getKey(ReferenceGenome.GRCh37, "BRAF", "V600K", 600, null).getHash()));
+        // 128 bits in URL safe base 64 without padding
+        assertEquals(22, key.getHash().length());
+        assertTrue(key.getHash().matches("[A-Za-z0-9_-]+"));
+        assertEquals(key.getHash(), key.toString());
+    }
+
+    public void testCollisionIsReadAsAMiss() throws Exception {
+        HashedCacheKey key = new HashedCacheKey("s4:BRAF", "hash");
+        HashedCacheKey colliding = new HashedCacheKey("s4:KRAS", "hash");
+        assertFalse(key.equals(colliding));
+
+        Object stored = key.wrap("Oncogenic");
+        assertEquals("Oncogenic", key.unwrap(stored));
+        assertEquals("Oncogenic", new HashedCacheKey("s4:BRAF", "hash").unwrap(stored));
+        assertNull(colliding.unwrap(stored));
+
+        // Not stored by a HashedCacheKey
+        assertNull(key.unwrap("Oncogenic"));
+        assertNull(key.unwrap(null));
+    }
+
+    public void testCanonicalKeyIsNotStored() throws Exception {
+        HashedCacheKey key = getKey(ReferenceGenome.GRCh37, "BRAF", "V600E", 600, null);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream outputStream = new ObjectOutputStream(bytes)) {
+            outputStream.writeObject(key.wrap("Oncogenic"));
+        }
+        String stored = new String(bytes.toByteArray(), StandardCharsets.ISO_8859_1);
+        assertTrue(stored.contains("Oncogenic"));
+        assertFalse(stored.contains(key.getCanonicalKey()));
+
+        Object storedValue;
+        try (ObjectInputStream inputStream = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            storedValue = inputStream.readObject();
+        }
+        assertEquals("Oncogenic", key.unwrap(storedValue));
+        assertNull(getKey(ReferenceGenome.GRCh37, "BRAF", "V600K", 600, null).unwrap(storedValue));
+    }
+
+    private HashedCacheKey getKey(ReferenceGenome referenceGenome, String hugoSymbol, String alteration, Integer proteinStart, Set<EvidenceType> evidenceTypes) throws Exception {
+        Method method = CanonicalKeyGeneratorTest.class.getDeclaredMethod("annotate", ReferenceGenome.class, String.class, String.class, Integer.class, Set.class);
+        return (HashedCacheKey) keyGenerator.generate(this, method, referenceGenome, hugoSymbol, alteration, proteinStart, evidenceTypes);
+    }
+
+    private String getCanonical(Object value) {
+        StringBuilder builder = new StringBuilder();
+        CanonicalKeyGenerator.appendCanonical(builder, value);
+        return builder.toString();
+    }
+
+    // The cached method the keys are generated for
+    private static Object annotate(ReferenceGenome referenceGenome, String hugoSymbol, String alteration, Integer proteinStart, Set<EvidenceType> evidenceTypes) {
+        return null;
+    }
+}
@@ -0,0 +1,213 @@
+package org.mskcc.cbio.oncokb.util;
+
+import com.sun.net.httpserver.HttpServer;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The circuit breaker in front of a local stub server which injects errors, delays and blocked calls.
+ */
+public class CircuitBreakerTest extends TestCase {
+    private HttpServer server;
+    private final AtomicInteger status = new AtomicInteger(200);
+    private final AtomicInteger delay = new AtomicInteger(0);
+    private final AtomicInteger hits = new AtomicInteger(0);
+    private volatile CountDownLatch gate = new CountDownLatch(0);
+
+    @Override
+    protected void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            hits.incrementAndGet();
+            try {
+                gate.await();
+                Thread.sleep(delay.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(status.get(), -1);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        gate.countDown();
+        server.stop(0);
+    }
+
+    public void testOpensAfterFailuresAndRecoversAfterProbe() throws Exception {
+        CircuitBreaker breaker = getCircuitBreaker(1000, 3, 300, 4);
+        status.set(500);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+            try {
+                call(breaker);
+                fail("The server error should be thrown");
+            } catch (StatusException e) {
+                assertEquals(500, e.code);
+            }
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // Rejected without calling the server
+        assertRejected(breaker);
+        assertEquals(3, hits.get());
+
+        // The probe succeeds once the circuit is half open
+        status.set(200);
+        Thread.sleep(350);
+        assertEquals(200, call(breaker));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(4, hits.get());
+    }
+
+    public void testFailedProbeOpensAgain() throws Exception {
+        CircuitBreaker breaker = getCircuitBreaker(1000, 1, 300, 4);
+        status.set(503);
+        assertServerError(breaker);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        Thread.sleep(350);
+        assertServerError(breaker);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertRejected(breaker);
+        assertEquals(2, hits.get());
+    }
+
+    public void testClientErrorIsNotAFailure() throws Exception {
+        CircuitBreaker breaker = getCircuitBreaker(1000, 2, 300, 4);
+        status.set(404);
+        for (int i = 0; i < 5; i++) {
+            try {
+                call(breaker);
+                fail("The client error should be thrown");
+            } catch (StatusException e) {
+                assertEquals(404, e.code);
+            }
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    public void testCallTimeout() throws Exception {
+        CircuitBreaker breaker = getCircuitBreaker(200, 1, 300, 4);
+        delay.set(2000);
+        long start = System.currentTimeMillis();
+        try {
+            call(breaker);
+            fail("The call should time out");
+        } catch (SocketTimeoutException e) {
+            // expected
+        }
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    public void testRequestBudget() throws Exception {
+        CircuitBreaker breaker = getCircuitBreaker(5000, 5, 300, 4);
+
+        // The budget is used up, the server is not called
+        try {
+            RequestBudget.withDeadline(System.currentTimeMillis() - 1, () -> call(breaker)).call();
+            fail("The call should be rejected");
+        } catch (CircuitBreaker.CallRejectedException e) {
+            // expected
+        }
+        assertEquals(0, hits.get());
+
+        // The call timeout is cut to the budget left
+        delay.set(2000);
+        long start = System.currentTimeMillis();
+        try {
+            RequestBudget.withDeadline(System.currentTimeMillis() + 300, () -> call(breaker)).call();
+            fail("The call should time out");
+        } catch (SocketTimeoutException e) {
+            // expected
+        }
+        assertTrue(System.currentTimeMillis() - start < 1500);
+        assertNull(RequestBudget.getDeadline());
+    }
+
+    public void testBulkhead() throws Exception {
+        CircuitBreaker breaker = getCircuitBreaker(5000, 5, 300, 1);
+        gate = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> blocked = executor.submit(() -> call(breaker));
+            while (hits.get() == 0) {
+                Thread.sleep(10);
+            }
+
+            // The only slot is taken by the blocked call
+            assertRejected(breaker);
+            assertEquals(1, hits.get());
+
+            gate.countDown();
+            assertEquals(200, (int) blocked.get(5, TimeUnit.SECONDS));
+            assertEquals(200, call(breaker));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private CircuitBreaker getCircuitBreaker(int timeoutInMillis, int failureThreshold, long openDurationInMillis, int maxConcurrentCalls) {
+        return new CircuitBreaker("stub", timeoutInMillis, failureThreshold, openDurationInMillis, 1, maxConcurrentCalls,
+            e -> !(e instanceof StatusException) || ((StatusException) e).code >= 500);
+    }
+
+    private void assertRejected(CircuitBreaker breaker) throws IOException {
+        try {
+            call(breaker);
+            fail("The call should be rejected");
+        } catch (CircuitBreaker.CallRejectedException e) {
+            assertTrue(e.getRetryAfter() > 0);
+        }
+    }
+
+    private void assertServerError(CircuitBreaker breaker) throws IOException {
+        try {
+            call(breaker);
+            fail("The server error should be thrown");
+        } catch (StatusException e) {
+            assertTrue(e.code >= 500);
+        }
+    }
+
+    private int call(CircuitBreaker breaker) throws IOException {
+        return breaker.execute(() -> {
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getAddress().getPort() + "/").openConnection();
+            connection.setConnectTimeout(breaker.getCallTimeout());
+            connection.setReadTimeout(breaker.getCallTimeout());
+            try {
+                int code = connection.getResponseCode();
+                if (code >= 400) {
+                    throw new StatusException(code);
+                }
+                try (InputStream ignored = connection.getInputStream()) {
+                    return code;
+                }
+            } finally {
+                connection.disconnect();
+            }
+        });
+    }
+
+    private static class StatusException extends IOException {
+        private final int code;
+
+        StatusException(int code) {
+            super("HTTP " + code);
+            this.code = code;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.mskcc.cbio.oncokb.util;
+
+import org.junit.Test;
+import org.mskcc.cbio.oncokb.model.EvidenceType;
+
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class EvidenceTypeUtilsTest {
+    @Test
+    public void testGetEvidenceTypesByResponseFields() {
+        assertNull(EvidenceTypeUtils.getEvidenceTypesByResponseFields(null));
+        assertNull(EvidenceTypeUtils.getEvidenceTypesByResponseFields(""));
+
+        // Fields depend on all evidence types or unknown fields should not be pushed down
+        assertNull(EvidenceTypeUtils.getEvidenceTypesByResponseFields("oncogenic,lastUpdate"));
+        assertNull(EvidenceTypeUtils.getEvidenceTypesByResponseFields("oncogenic,unknownField"));
+
+        // The selection should never be empty, processQuery treats empty as all
+        Set<EvidenceType> evidenceTypes = EvidenceTypeUtils.getEvidenceTypesByResponseFields("hotspot");
+        assertEquals(Collections.singleton(EvidenceType.VUS), evidenceTypes);
+
+        evidenceTypes = EvidenceTypeUtils.getEvidenceTypesByResponseFields("oncogenic, highestSensitiveLevel");
+        assertTrue(evidenceTypes.contains(EvidenceType.ONCOGENIC));
+        assertTrue(evidenceTypes.containsAll(EvidenceTypeUtils.getTreatmentEvidenceTypes()));
+        assertFalse(evidenceTypes.contains(EvidenceType.GENE_SUMMARY));
+        assertFalse(evidenceTypes.contains(EvidenceType.MUTATION_SUMMARY));
+        assertFalse(evidenceTypes.contains(EvidenceType.TUMOR_TYPE_SUMMARY));
+        assertFalse(evidenceTypes.contains(EvidenceType.MUTATION_EFFECT));
+        assertFalse(evidenceTypes.contains(EvidenceType.DIAGNOSTIC_IMPLICATION));
+        assertFalse(evidenceTypes.contains(EvidenceType.PROGNOSTIC_IMPLICATION));
+
+        evidenceTypes = EvidenceTypeUtils.getEvidenceTypesByResponseFields("diagnosticSummary");
+        assertTrue(evidenceTypes.contains(EvidenceType.DIAGNOSTIC_SUMMARY));
+        assertTrue(evidenceTypes.contains(EvidenceType.DIAGNOSTIC_IMPLICATION));
+    }
+
+    @Test
+    public void testGetEvidenceTypesForResponseFields() {
+        Set<EvidenceType> requested = Collections.singleton(EvidenceType.ONCOGENIC);
+        assertEquals(requested, EvidenceTypeUtils.getEvidenceTypesForResponseFields(requested, null));
+
+        Set<EvidenceType> evidenceTypes = EvidenceTypeUtils.getEvidenceTypesForResponseFields(requested, "oncogenic,geneSummary");
+        assertTrue(evidenceTypes.contains(EvidenceType.ONCOGENIC));
+        assertFalse(evidenceTypes.contains(EvidenceType.GENE_SUMMARY));
+
+        evidenceTypes = EvidenceTypeUtils.getEvidenceTypesForResponseFields(requested, "geneSummary");
+        assertEquals(Collections.singleton(EvidenceType.VUS), evidenceTypes);
+
+        evidenceTypes = EvidenceTypeUtils.getEvidenceTypesForResponseFields(null, "geneSummary");
+        assertTrue(evidenceTypes.contains(EvidenceType.GENE_SUMMARY));
+    }
+}
@@ -328,6 +328,35 @@ public class EvidenceUtilsTest extends TestCase {
 
     }
 
+    public void testProcessRequestInParallel() {
+        String[][] queries = {{"BRAF", "V600E", "MEL"}, {"EGFR", "L858R", "NSCLC"}, {"KRAS", "G12C", null}, {"PIK3CA", "H1047R", "BRCA"}};
+        List<Query> requestQueries = new ArrayList<>();
+        List<EvidenceQueryRes> expected = new ArrayList<>();
+        for (String[] queryInfo : queries) {
+            Query query = new Query();
+            query.setHugoSymbol(queryInfo[0]);
+            query.setAlteration(queryInfo[1]);
+            query.setTumorType(queryInfo[2]);
+            requestQueries.add(query);
+            expected.addAll(EvidenceUtils.processRequest(Collections.singletonList(query), null, null, false));
+        }
+
+        // The responses should keep the order of the queries and be the same as processing the queries one by one
+        List<EvidenceQueryRes> responses = EvidenceUtils.processRequest(requestQueries, null, null, false);
+        assertEquals(expected.size(), responses.size());
+        for (int i = 0; i < responses.size(); i++) {
+            assertEquals(queries[i][0], responses.get(i).getQuery().getHugoSymbol());
+            assertEquals(new HashSet<>(expected.get(i).getEvidences()), new HashSet<>(responses.get(i).getEvidences()));
+        }
+
+        // The gene name should be filled in the descriptions even though the evidences are not copied up front
+        for (EvidenceQueryRes response : responses) {
+            for (Evidence evidence : response.getEvidences()) {
+                assertFalse(evidence.getDescription() != null && evidence.getDescription().contains("[[gene]]"));
+            }
+        }
+    }
+
     private void processRequestSuite(List<EvidenceQueryRes> responses) {
         assertTrue("There should only be one query response", responses.size() == 1);
         assertTrue("There should be evidences associated", responses.get(0).getEvidences().size() > 0);
@@ -0,0 +1,178 @@
+package org.mskcc.cbio.oncokb.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import junit.framework.TestCase;
+import org.apache.commons.io.IOUtils;
+import org.genome_nexus.client.VariantAnnotation;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.mskcc.cbio.oncokb.genomenexus.GNVariantAnnotationType;
+import org.mskcc.cbio.oncokb.model.ReferenceGenome;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * GenomeNexusUtils.getVariantAnnotations against a stub of the Genome Nexus batch endpoints.
+ */
+public class GenomeNexusBatchTest extends TestCase {
+    private static final String BRAF_V600E = "7:g.140453136A>T";
+    private static final String BRAF_V600K = "7:g.140453136_140453137delinsTT";
+    private static final String KRAS_G12C = "12:g.25398285C>A";
+    private static final String KRAS_G12D = "12:g.25398284C>T";
+    private static final String EGFR_L858R = "7:g.55259515T>G";
+    private static final long SLOW_RESPONSE_MILLIS = 3000;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    // The variants of each request received by the stub
+    private final List<List<String>> requests = Collections.synchronizedList(new ArrayList<>());
+    // A request with one of these variants fails
+    private final Set<String> failingVariants = Collections.synchronizedSet(new HashSet<>());
+    // A request with one of these variants is answered after SLOW_RESPONSE_MILLIS
+    private final Set<String> slowVariants = Collections.synchronizedSet(new HashSet<>());
+    // These variants are not in the response
+    private final Set<String> droppedVariants = Collections.synchronizedSet(new HashSet<>());
+
+    @Override
+    protected void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+        System.setProperty("genome_nexus.grch37.url", "http://localhost:" + server.getAddress().getPort());
+        System.setProperty("genome_nexus.batch.size", "2");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        System.clearProperty("genome_nexus.grch37.url");
+        System.clearProperty("genome_nexus.batch.size");
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    public void testChunksAreMappedByVariant() throws Exception {
+        List<String> queries = Arrays.asList(BRAF_V600E, BRAF_V600K, KRAS_G12C, BRAF_V600E, KRAS_G12D, EGFR_L858R);
+        Map<String, VariantAnnotation> annotations = GenomeNexusUtils.getVariantAnnotations(GNVariantAnnotationType.HGVS_G, queries, ReferenceGenome.GRCh37);
+
+        // The distinct variants, genome_nexus.batch.size of them per request
+        assertEquals(3, requests.size());
+        Set<String> requested = new HashSet<>();
+        for (List<String> request : requests) {
+            assertTrue(request.size() <= 2);
+            requested.addAll(request);
+        }
+        assertEquals(new HashSet<>(queries), requested);
+
+        // The stub answers in the reverse order of the request
+        assertEquals(new HashSet<>(queries), annotations.keySet());
+        for (Map.Entry<String, VariantAnnotation> entry : annotations.entrySet()) {
+            assertEquals(entry.getKey(), entry.getValue().getOriginalVariantQuery());
+        }
+    }
+
+    public void testMissingAnnotationsAreLeftOut() throws Exception {
+        droppedVariants.add(KRAS_G12C);
+        Map<String, VariantAnnotation> annotations = GenomeNexusUtils.getVariantAnnotations(GNVariantAnnotationType.HGVS_G, Arrays.asList(KRAS_G12C, KRAS_G12D), ReferenceGenome.GRCh37);
+
+        // KRAS G12D is the only annotation of the response, it is not taken as the one of KRAS G12C
+        assertEquals(Collections.singleton(KRAS_G12D), annotations.keySet());
+        assertEquals(KRAS_G12D, annotations.get(KRAS_G12D).getOriginalVariantQuery());
+    }
+
+    public void testFailedChunkIsLeftOut() throws Exception {
+        failingVariants.add(KRAS_G12C);
+        Map<String, VariantAnnotation> annotations = GenomeNexusUtils.getVariantAnnotations(GNVariantAnnotationType.HGVS_G, Arrays.asList(BRAF_V600E, BRAF_V600K, KRAS_G12C, KRAS_G12D), ReferenceGenome.GRCh37);
+
+        assertEquals(new HashSet<>(Arrays.asList(BRAF_V600E, BRAF_V600K)), annotations.keySet());
+    }
+
+    public void testChunkOutOfTimeIsLeftOut() throws Exception {
+        slowVariants.add(KRAS_G12C);
+        long start = System.currentTimeMillis();
+        Map<String, VariantAnnotation> annotations = RequestBudget.withDeadline(start + 1000,
+            () -> GenomeNexusUtils.getVariantAnnotations(GNVariantAnnotationType.HGVS_G, Arrays.asList(BRAF_V600E, BRAF_V600K, KRAS_G12C, KRAS_G12D), ReferenceGenome.GRCh37)).call();
+
+        assertTrue(System.currentTimeMillis() - start < SLOW_RESPONSE_MILLIS);
+        assertEquals(new HashSet<>(Arrays.asList(BRAF_V600E, BRAF_V600K)), annotations.keySet());
+    }
+
+    public void testGenomicLocationsAreMappedByVariant() throws Exception {
+        String spaced = "7, 140453136, 140453136, A, T";
+        String compact = "7,140453136,140453136,A,T";
+        String other = "12,25398285,25398285,C,A";
+        Map<String, VariantAnnotation> annotations = GenomeNexusUtils.getVariantAnnotations(GNVariantAnnotationType.GENOMIC_LOCATION, Arrays.asList(spaced, compact, other), ReferenceGenome.GRCh37);
+
+        // The same location written otherwise is requested once
+        int requestedLocations = 0;
+        for (List<String> request : requests) {
+            requestedLocations += request.size();
+        }
+        assertEquals(2, requestedLocations);
+        assertEquals(new HashSet<>(Arrays.asList(spaced, compact, other)), annotations.keySet());
+        assertSame(annotations.get(spaced), annotations.get(compact));
+        assertEquals(other, annotations.get(other).getOriginalVariantQuery());
+    }
+
+    private void handle(HttpExchange exchange) {
+        try {
+            JSONArray body = new JSONArray(IOUtils.toString(exchange.getRequestBody(), StandardCharsets.UTF_8));
+            List<String> variants = new ArrayList<>();
+            for (int i = 0; i < body.length(); i++) {
+                Object query = body.get(i);
+                if (query instanceof JSONObject) {
+                    JSONObject location = (JSONObject) query;
+                    variants.add(String.join(",", location.get("chromosome").toString(), location.get("start").toString(),
+                        location.get("end").toString(), location.getString("referenceAllele"), location.getString("variantAllele")));
+                } else {
+                    variants.add(query.toString());
+                }
+            }
+            requests.add(variants);
+
+            if (variants.stream().anyMatch(failingVariants::contains)) {
+                respond(exchange, 500, "{}");
+                return;
+            }
+            if (variants.stream().anyMatch(slowVariants::contains)) {
+                Thread.sleep(SLOW_RESPONSE_MILLIS);
+            }
+            JSONArray response = new JSONArray();
+            for (int i = variants.size() - 1; i >= 0; i--) {
+                if (droppedVariants.contains(variants.get(i))) {
+                    continue;
+                }
+                JSONObject annotation = new JSONObject();
+                annotation.put("variant", variants.get(i));
+                annotation.put("originalVariantQuery", variants.get(i));
+                annotation.put("successfully_annotated", true);
+                response.put(annotation);
+            }
+            respond(exchange, 200, response.toString());
+        } catch (Exception e) {
+            respond(exchange, 500, "{}");
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) {
+        try {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (Exception e) {
+            // The client is gone
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -11,6 +11,7 @@ import org.mskcc.cbio.oncokb.apiModels.TumorType;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -787,6 +788,29 @@ public class IndicatorUtilsTest {
 
     }
 
+    @Test
+    public void testProcessTumorTypeOverlay() {
+        // The same core should be reusable across tumor types and give the same result as processQuery
+        Query coreQuery = new Query(null, DEFAULT_REFERENCE_GENOME, null, "BRAF", "V600E", null, null, null, null, null, null, null);
+        IndicatorQueryCore queryCore = IndicatorUtils.processQueryCore(coreQuery, IndicatorUtils.getCoreEvidenceTypes(null));
+        for (String tumorType : new String[]{"Melanoma", "Colorectal Cancer", "Pancreatic Adenocarcinoma", null}) {
+            Query query = new Query(null, DEFAULT_REFERENCE_GENOME, null, "BRAF", "V600E", null, null, tumorType, null, null, null, null);
+            IndicatorQueryResp expected = IndicatorUtils.processQuery(query, null, false, null);
+            IndicatorQueryResp resp = IndicatorUtils.processTumorTypeOverlay(queryCore, null, tumorType, null, false, null);
+            assertEquals(expected.getOncogenic(), resp.getOncogenic());
+            assertEquals(expected.getHighestSensitiveLevel(), resp.getHighestSensitiveLevel());
+            assertEquals(expected.getHighestResistanceLevel(), resp.getHighestResistanceLevel());
+            assertEquals(expected.getTreatments().size(), resp.getTreatments().size());
+            assertEquals(expected.getGeneSummary(), resp.getGeneSummary());
+            assertEquals(expected.getVariantSummary(), resp.getVariantSummary());
+            assertEquals(expected.getTumorTypeSummary(), resp.getTumorTypeSummary());
+            assertEquals(expected.getLastUpdate(), resp.getLastUpdate());
+        }
+
+        assertTrue(IndicatorUtils.getCoreEvidenceTypes(Collections.singleton(EvidenceType.TUMOR_TYPE_SUMMARY)).isEmpty());
+        assertEquals(Collections.singleton(EvidenceType.ONCOGENIC), IndicatorUtils.getCoreEvidenceTypes(Collections.singleton(EvidenceType.ONCOGENIC)));
+    }
+
     @Test
     public void testFilterImplication() {
         TumorType melanoma = new TumorType();
@@ -3,6 +3,8 @@ package org.mskcc.cbio.oncokb.util;
 import junit.framework.TestCase;
 import org.mskcc.cbio.oncokb.model.LevelOfEvidence;
 
+import java.util.*;
+
 /**
  * Created by Hongxin on 12/29/16.
  */
@@ -24,7 +26,23 @@ public class LevelUtilsTest extends TestCase {
     }
 
     public void testGetHighestLevel() throws Exception {
+        assertNull(LevelUtils.getHighestLevel(new HashSet<>()));
+        assertNull(LevelUtils.getHighestLevel(Collections.singleton(null)));
+        assertEquals(LevelOfEvidence.LEVEL_1, LevelUtils.getHighestLevel(new HashSet<>(Arrays.asList(LevelOfEvidence.LEVEL_3A, null, LevelOfEvidence.LEVEL_1))));
+        assertEquals(LevelOfEvidence.LEVEL_R1, LevelUtils.getHighestResistanceLevel(EnumSet.of(LevelOfEvidence.LEVEL_R2, LevelOfEvidence.LEVEL_R1, LevelOfEvidence.LEVEL_1)));
+        assertNull(LevelUtils.getHighestSensitiveLevel(EnumSet.of(LevelOfEvidence.LEVEL_R1)));
+    }
 
+    public void testCompareLevelByLevelPool() throws Exception {
+        // The level lists not defined in LevelUtils are compared by their index, the result should be the same
+        List<LevelOfEvidence> levelPool = LevelUtils.getIndexedPublicLevels();
+        List<LevelOfEvidence> levels = new ArrayList<>(Arrays.asList(LevelOfEvidence.values()));
+        levels.add(null);
+        for (LevelOfEvidence a : levels) {
+            for (LevelOfEvidence b : levels) {
+                assertEquals(Integer.signum(LevelUtils.compareLevel(a, b, levelPool)), Integer.signum(LevelUtils.compareLevel(a, b)));
+            }
+        }
     }
 
     public void testGetHighestLevelFromEvidenceByLevels() throws Exception {
@@ -40,7 +58,20 @@ public class LevelUtilsTest extends TestCase {
     }
 
     public void testGetPublicLevels() throws Exception {
+        assertEquals(new HashSet<>(LevelUtils.getIndexedPublicLevels()), LevelUtils.getPublicLevels());
 
+        // The returned set belongs to the caller
+        LevelUtils.getPublicLevels().clear();
+        assertFalse(LevelUtils.getPublicLevels().isEmpty());
+    }
+
+    public void testFilterPublicLevels() throws Exception {
+        assertTrue(LevelUtils.filterPublicLevels(null).isEmpty());
+        Set<LevelOfEvidence> levels = new HashSet<>(Arrays.asList(LevelOfEvidence.LEVEL_1, null, LevelOfEvidence.LEVEL_R1));
+        Set<LevelOfEvidence> expected = new HashSet<>(levels);
+        expected.retainAll(LevelUtils.getIndexedPublicLevels());
+        assertEquals(expected, LevelUtils.filterPublicLevels(levels));
+        assertEquals(EnumSet.of(LevelOfEvidence.LEVEL_R1), LevelUtils.filterResistanceLevels(levels));
     }
 
     public void testGetPublicAndOtherIndicationLevels() throws Exception {
@@ -56,7 +87,16 @@ public class LevelUtilsTest extends TestCase {
     }
 
     public void testIsSensitiveLevel() throws Exception {
-
+        assertFalse(LevelUtils.isSensitiveLevel(null));
+        for (LevelOfEvidence level : LevelOfEvidence.values()) {
+            assertEquals(LevelUtils.getSensitiveLevels().contains(level), (boolean) LevelUtils.isSensitiveLevel(level));
+            assertEquals(LevelUtils.getResistanceLevels().contains(level), (boolean) LevelUtils.isResistanceLevel(level));
+            int index = LevelUtils.getSensitiveLevelIndex(level);
+            assertEquals((boolean) LevelUtils.isSensitiveLevel(level), index > -1);
+            if (index > -1) {
+                assertEquals(level, LevelUtils.getSensitiveLevelByIndex(index));
+            }
+        }
     }
 
     public void testIsResistanceLevel() throws Exception {
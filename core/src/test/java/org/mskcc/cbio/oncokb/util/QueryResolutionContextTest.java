@@ -0,0 +1,124 @@
+package org.mskcc.cbio.oncokb.util;
+
+import org.junit.Test;
+import org.mskcc.cbio.oncokb.model.*;
+import org.mskcc.cbio.oncokb.model.TumorType;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mskcc.cbio.oncokb.Constants.DEFAULT_REFERENCE_GENOME;
+
+public class QueryResolutionContextTest {
+    private static final String[][] QUERIES = {
+        {"BRAF", "V600E", "Melanoma"},
+        {"BRAF", "V600", "Colorectal Cancer"},
+        {"AKT1", "E17K", "Breast Cancer"},
+        {"EGFR", "T790M", "Non-Small Cell Lung Cancer"},
+        {"KIT", "D816V", "Gastrointestinal Stromal Tumor"},
+        {"TP53", "R248Q", null},
+        {"PIK3CA", "E545G", "Breast Cancer"},
+        {"KRAS", "Wildtype", "Colorectal Cancer"},
+        {"TERT", "Promoter", "Melanoma"},
+    };
+
+    @Test
+    public void testLookupsMatchUtils() {
+        QueryResolutionContext context = new QueryResolutionContext();
+        for (String[] query : QUERIES) {
+            Alteration alteration = AlterationUtils.getAlteration(query[0], query[1], null, null, null, null, DEFAULT_REFERENCE_GENOME);
+            Gene gene = alteration.getGene();
+
+            // Call twice, the second call should come from the context and still give the same result
+            for (int i = 0; i < 2; i++) {
+                assertEquals(new HashSet<>(AlterationUtils.getRelevantAlterations(DEFAULT_REFERENCE_GENOME, alteration)), new HashSet<>(context.getRelevantAlterations(DEFAULT_REFERENCE_GENOME, alteration)));
+                assertEquals(new HashSet<>(AlterationUtils.getAlleleAlterations(DEFAULT_REFERENCE_GENOME, alteration)), new HashSet<>(context.getAlleleAlterations(DEFAULT_REFERENCE_GENOME, alteration)));
+                assertEquals(ApplicationContextSingleton.getAlterationBo().findExactlyMatchedAlteration(DEFAULT_REFERENCE_GENOME, alteration, AlterationUtils.getAllAlterations(DEFAULT_REFERENCE_GENOME, gene)), context.findExactlyMatchedAlteration(DEFAULT_REFERENCE_GENOME, alteration, gene));
+                assertEquals(HotspotUtils.isHotspot(alteration), context.isHotspot(alteration));
+                assertEquals(new HashSet<>(EvidenceUtils.getEvidence(Collections.singletonList(alteration), Collections.singleton(EvidenceType.ONCOGENIC), null)), new HashSet<>(context.getEvidence(Collections.singletonList(alteration), Collections.singleton(EvidenceType.ONCOGENIC), null)));
+                if (query[2] != null) {
+                    assertEquals(TumorTypeUtils.findRelevantTumorTypes(query[2]), context.findRelevantTumorTypes(query[2]));
+                    assertEquals(TumorTypeUtils.findRelevantTumorTypes(query[2], null, RelevantTumorTypeDirection.DOWNWARD), context.findRelevantTumorTypes(query[2], null, RelevantTumorTypeDirection.DOWNWARD));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testResultsAreNotShared() {
+        QueryResolutionContext context = new QueryResolutionContext();
+        Alteration alteration = AlterationUtils.getAlteration("BRAF", "V600E", null, null, null, null, DEFAULT_REFERENCE_GENOME);
+
+        List<Alteration> relevantAlterations = context.getRelevantAlterations(DEFAULT_REFERENCE_GENOME, alteration);
+        int size = relevantAlterations.size();
+        relevantAlterations.clear();
+        assertEquals(size, context.getRelevantAlterations(DEFAULT_REFERENCE_GENOME, alteration).size());
+
+        List<TumorType> tumorTypes = context.findRelevantTumorTypes("Melanoma");
+        size = tumorTypes.size();
+        tumorTypes.clear();
+        assertEquals(size, context.findRelevantTumorTypes("Melanoma").size());
+    }
+
+    @Test
+    public void testProcessQueryGivesTheKnownAnnotations() {
+        // The annotations asserted by IndicatorUtilsTest, processQuery shares one context across the core and the
+        // tumor type overlay, the public processQueryCore/processTumorTypeOverlay each resolve with a fresh context.
+        // Both have to give the known annotation.
+        for (IndicatorQueryResp resp : processQuery("BRAF", "V600E", "Melanoma", true)) {
+            assertTrue(resp.getGeneExist());
+            assertTrue(resp.getVariantExist());
+            assertTrue(resp.getAlleleExist());
+            assertTrue(resp.getHotspot());
+            assertFalse(resp.getVUS());
+            assertEquals(Oncogenicity.YES.getOncogenic(), resp.getOncogenic());
+            assertEquals(LevelOfEvidence.LEVEL_1, resp.getHighestSensitiveLevel());
+            assertNull(resp.getHighestResistanceLevel());
+            assertEquals(0, resp.getOtherSignificantSensitiveLevels().size());
+        }
+        for (IndicatorQueryResp resp : processQuery("TP53", "R248Q", "Pancreatic Adenocarcinoma", true)) {
+            assertEquals("The TP53 R248Q mutation is likely oncogenic.", resp.getVariantSummary());
+        }
+        for (IndicatorQueryResp resp : processQuery("KRAS", "Q61K", "Colorectal Cancer", false)) {
+            assertEquals(Oncogenicity.LIKELY.getOncogenic(), resp.getOncogenic());
+            assertEquals(LevelOfEvidence.LEVEL_4, resp.getHighestSensitiveLevel());
+            assertEquals(LevelOfEvidence.LEVEL_R1, resp.getHighestResistanceLevel());
+        }
+        for (IndicatorQueryResp resp : processQuery("ALK", "I1171N", "Lung Adenocarcinoma", false)) {
+            assertEquals(Oncogenicity.LIKELY.getOncogenic(), resp.getOncogenic());
+            assertEquals(LevelOfEvidence.LEVEL_1, resp.getHighestSensitiveLevel());
+            assertEquals(LevelOfEvidence.LEVEL_R2, resp.getHighestResistanceLevel());
+        }
+        for (IndicatorQueryResp resp : processQuery("ALK", "R401Q", "Colon Adenocarcinoma", false)) {
+            assertEquals(Oncogenicity.LIKELY_NEUTRAL.getOncogenic(), resp.getOncogenic());
+            assertEquals("The ALK R401Q mutation is likely neutral.", resp.getVariantSummary());
+            assertFalse(resp.getHotspot());
+        }
+        for (IndicatorQueryResp resp : processQuery("BRAF", "R462I", "Gastrointestinal Stromal Tumor", true)) {
+            assertEquals(Oncogenicity.LIKELY_NEUTRAL.getOncogenic(), resp.getOncogenic());
+            assertNull(resp.getHighestSensitiveLevel());
+            assertNull(resp.getHighestResistanceLevel());
+            assertEquals("There are no FDA-approved or NCCN-compendium listed treatments specifically for patients with BRAF R462I mutant gastrointestinal stromal tumors.", resp.getTumorTypeSummary());
+        }
+        for (IndicatorQueryResp resp : processQuery("PDGFRA", "D842Y", "Gastrointestinal Stromal Tumor", true)) {
+            assertEquals(Oncogenicity.LIKELY.getOncogenic(), resp.getOncogenic());
+            assertEquals(LevelOfEvidence.LEVEL_1, resp.getHighestSensitiveLevel());
+            assertNull(resp.getHighestResistanceLevel());
+            assertEquals(1, resp.getTreatments().size());
+        }
+    }
+
+    // The annotation of processQuery, then the one of processQueryCore and processTumorTypeOverlay
+    private List<IndicatorQueryResp> processQuery(String hugoSymbol, String alteration, String tumorType, boolean highestLevelOnly) {
+        Query query = new Query(null, DEFAULT_REFERENCE_GENOME, null, hugoSymbol, alteration, null, null, tumorType, null, null, null, null);
+        Query coreQuery = new Query(null, DEFAULT_REFERENCE_GENOME, null, hugoSymbol, alteration, null, null, null, null, null, null, null);
+        IndicatorQueryCore queryCore = IndicatorUtils.processQueryCore(coreQuery, IndicatorUtils.getCoreEvidenceTypes(null));
+        return Arrays.asList(
+            IndicatorUtils.processQuery(query, null, highestLevelOnly, null),
+            IndicatorUtils.processTumorTypeOverlay(queryCore, null, tumorType, null, highestLevelOnly, null)
+        );
+    }
+}
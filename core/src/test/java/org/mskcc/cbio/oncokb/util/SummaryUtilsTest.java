@@ -1,10 +1,15 @@
 package org.mskcc.cbio.oncokb.util;
 
 import org.junit.Test;
+import org.mskcc.cbio.oncokb.model.Alteration;
 import org.mskcc.cbio.oncokb.model.Gene;
+import org.mskcc.cbio.oncokb.model.Query;
 import org.mskcc.cbio.oncokb.model.TumorType;
 import org.mskcc.cbio.oncokb.model.clinicalTrialsMathcing.Tumor;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
 import static org.mskcc.cbio.oncokb.Constants.DEFAULT_REFERENCE_GENOME;
 
@@ -38,4 +43,25 @@ public class SummaryUtilsTest {
         assertEquals(SummaryUtils.getGeneMutationNameInTumorTypeSummary(gene, DEFAULT_REFERENCE_GENOME, gene.getHugoSymbol(), "Deletion"), SummaryUtils.getGeneMutationNameInTumorTypeSummary(gene, DEFAULT_REFERENCE_GENOME, gene.getHugoSymbol(), " loss"));
         assertEquals(SummaryUtils.getGeneMutationNameInTumorTypeSummary(gene, DEFAULT_REFERENCE_GENOME, gene.getHugoSymbol(), "Deletion"), SummaryUtils.getGeneMutationNameInTumorTypeSummary(gene, DEFAULT_REFERENCE_GENOME, gene.getHugoSymbol(), "deLetion"));
     }
+
+    @Test
+    public void testMemoizedSummaries() throws Exception {
+        Gene gene = GeneUtils.getGene("BRAF");
+        String geneSummary = SummaryUtils.geneSummary(gene, gene.getHugoSymbol());
+        assertEquals(geneSummary, SummaryUtils.geneSummary(gene, gene.getHugoSymbol()));
+
+        // Clearing the memoized summaries of the gene should not change the result
+        SummaryUtils.clearMemoizedSummaries(gene.getEntrezGeneId());
+        assertEquals(geneSummary, SummaryUtils.geneSummary(gene, gene.getHugoSymbol()));
+
+        // The memoized variant summary should be the same as the one computed without memoization
+        Query query = new Query(null, DEFAULT_REFERENCE_GENOME, null, "BRAF", "V600E", null, null, null, null, null, null, null);
+        Alteration alteration = AlterationUtils.getAlteration("BRAF", "V600E", null, null, null, null, DEFAULT_REFERENCE_GENOME);
+        Alteration matchedAlteration = ApplicationContextSingleton.getAlterationBo().findExactlyMatchedAlteration(DEFAULT_REFERENCE_GENOME, alteration, AlterationUtils.getAllAlterations(DEFAULT_REFERENCE_GENOME, gene));
+        List<Alteration> relevantAlterations = AlterationUtils.getRelevantAlterations(DEFAULT_REFERENCE_GENOME, alteration);
+        String variantSummary = SummaryUtils.variantSummary(gene, matchedAlteration, new ArrayList<>(relevantAlterations), query);
+        for (int i = 0; i < 2; i++) {
+            assertEquals(variantSummary, SummaryUtils.variantSummary(gene, matchedAlteration, new ArrayList<>(relevantAlterations), query, new QueryResolutionContext()));
+        }
+    }
 }
@@ -0,0 +1,57 @@
+package org.mskcc.cbio.oncokb.util;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+public class TranscriptGeneIndexTest extends TestCase {
+    public void testIntersects() throws Exception {
+        TranscriptGeneIndex index = new TranscriptGeneIndex()
+            .add("GRCh37", "7", 140000000L, 140500000L)
+            .add("GRCh37", "7", 100L, 200L)
+            .add("GRCh37", "7", 150L, 160L)
+            .add("GRCh38", "7", 300L, 400L)
+            .add("GRCh37", "X", null, 1000L)
+            .build();
+
+        assertTrue(index.intersects("GRCh37", "7", 140453136, 140453136));
+        assertTrue(index.intersects("GRCh37", "7", 140500000, 140500001));
+        assertTrue(index.intersects("GRCh37", "7", 90, 100));
+        assertTrue(index.intersects("GRCh37", "7", 170, 180));
+        assertFalse(index.intersects("GRCh37", "7", 201, 1000));
+        assertFalse(index.intersects("GRCh37", "7", 50, 99));
+
+        // The other reference genome and chromosomes are not matched
+        assertFalse(index.intersects("GRCh38", "7", 140453136, 140453136));
+        assertTrue(index.intersects("GRCh38", "7", 350, 350));
+        assertFalse(index.intersects("GRCh37", "8", 150, 150));
+
+        // Missing positions are unbounded
+        assertTrue(index.intersects("GRCh37", "X", -5, -5));
+        assertTrue(index.intersects("GRCh37", "7", null, 100));
+        assertFalse(index.intersects("GRCh37", "7", null, 99));
+        assertFalse(index.intersects("GRCh37", "X", 1001, null));
+    }
+
+    public void testSameAsRangesIntersect() throws Exception {
+        Random random = new Random(0);
+        int[][] spans = new int[200][];
+        TranscriptGeneIndex index = new TranscriptGeneIndex();
+        for (int i = 0; i < spans.length; i++) {
+            int start = random.nextInt(100000);
+            spans[i] = new int[]{start, start + random.nextInt(2000)};
+            index.add("GRCh37", "1", (long) spans[i][0], (long) spans[i][1]);
+        }
+        index.build();
+
+        for (int i = 0; i < 10000; i++) {
+            int start = random.nextInt(105000);
+            int end = start + random.nextInt(100);
+            boolean expected = false;
+            for (int[] span : spans) {
+                expected = expected || MainUtils.rangesIntersect(span[0], span[1], start, end);
+            }
+            assertEquals(expected, index.intersects("GRCh37", "1", start, end));
+        }
+    }
+}
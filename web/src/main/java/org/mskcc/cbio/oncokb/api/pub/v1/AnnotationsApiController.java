@@ -4,21 +4,33 @@ import io.swagger.annotations.*;
 import org.apache.commons.lang3.StringUtils;
 import org.mskcc.cbio.oncokb.apiModels.annotation.*;
 import org.mskcc.cbio.oncokb.cache.CacheFetcher;
+import org.mskcc.cbio.oncokb.config.AdmissionControl;
+import org.mskcc.cbio.oncokb.config.ExecutionLane;
+import org.mskcc.cbio.oncokb.config.ExecutionLanes;
 import org.mskcc.cbio.oncokb.config.annotation.PremiumPublicApi;
 import org.mskcc.cbio.oncokb.config.annotation.PublicApi;
 import org.mskcc.cbio.oncokb.genomenexus.GNVariantAnnotationType;
 import org.mskcc.cbio.oncokb.model.*;
+import org.mskcc.cbio.oncokb.service.AnnotationJobManager;
+import org.mskcc.cbio.oncokb.service.JsonResultFactory;
 import org.mskcc.cbio.oncokb.util.*;
 import org.oncokb.oncokb_transcript.ApiException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
+import java.io.File;
 import java.util.*;
 
 /**
@@ -28,10 +40,22 @@ import java.util.*;
 @Controller
 public class AnnotationsApiController {
     final String EVIDENCE_TYPES_DESCRIPTION = "Evidence type to compute. This could help to improve the performance if you only look for sub-content. Example: ONCOGENIC. All available evidence type are GENE_SUMMARY, MUTATION_SUMMARY, TUMOR_TYPE_SUMMARY, PROGNOSTIC_SUMMARY, DIAGNOSTIC_SUMMARY, ONCOGENIC, MUTATION_EFFECT, PROGNOSTIC_IMPLICATION, DIAGNOSTIC_IMPLICATION, STANDARD_THERAPEUTIC_IMPLICATIONS_FOR_DRUG_SENSITIVITY, STANDARD_THERAPEUTIC_IMPLICATIONS_FOR_DRUG_RESISTANCE, INVESTIGATIONAL_THERAPEUTIC_IMPLICATIONS_DRUG_SENSITIVITY, INVESTIGATIONAL_THERAPEUTIC_IMPLICATIONS_DRUG_RESISTANCE. For multiple evidence types query, use ',' as separator.";
+    final String FIELDS_DESCRIPTION = "The fields to be returned. Only the evidence needed for these fields will be computed. Example: oncogenic,highestSensitiveLevel. For multiple fields, use ',' as separator.";
 
     @Autowired
     CacheFetcher cacheFetcher;
 
+    // Single queries that only need the local data run separately from the ones waiting on Genome Nexus,
+    // and batches run in their own lane, so slow or large requests cannot starve the cheap ones.
+    @Autowired
+    ExecutionLanes executionLanes;
+
+    @Autowired
+    AdmissionControl admissionControl;
+
+    @Autowired
+    AnnotationJobManager annotationJobManager;
+
     // Annotate mutations by protein change
     @PublicApi
     @PremiumPublicApi
@@ -42,7 +66,7 @@ public class AnnotationsApiController {
     @RequestMapping(value = "/annotate/mutations/byProteinChange",
         produces = {"application/json"},
         method = RequestMethod.GET)
-    public ResponseEntity<IndicatorQueryResp> annotateMutationsByProteinChangeGet(
+    public WebAsyncTask<ResponseEntity<IndicatorQueryResp>> annotateMutationsByProteinChangeGet(
         @ApiParam(value = "The gene symbol used in Human Genome Organisation. Example: BRAF") @RequestParam(value = "hugoSymbol", required = false) String hugoSymbol
         , @ApiParam(value = "The entrez gene ID. (Higher priority than hugoSymbol). Example: 673") @RequestParam(value = "entrezGeneId", required = false) Integer entrezGeneId
         , @ApiParam(value = "Protein Change. Example: V600E") @RequestParam(value = "alteration", required = false) String proteinChange
@@ -52,39 +76,43 @@ public class AnnotationsApiController {
         , @ApiParam(value = "Protein End. Example: 600") @RequestParam(value = "proteinEnd", required = false) Integer proteinEnd
         , @ApiParam(value = "OncoTree(http://oncotree.info) tumor type name. The field supports OncoTree Code, OncoTree Name and OncoTree Main type. Example: Melanoma") @RequestParam(value = "tumorType", required = false) String tumorType
         , @ApiParam(value = EVIDENCE_TYPES_DESCRIPTION) @RequestParam(value = "evidenceType", required = false) String evidenceTypes
+        , @ApiParam(value = FIELDS_DESCRIPTION) @RequestParam(value = "fields", required = false) String fields
     ) {
-        HttpStatus status = HttpStatus.OK;
-        IndicatorQueryResp indicatorQueryResp = null;
-
-        if (entrezGeneId != null && hugoSymbol != null && !GeneUtils.isSameGene(entrezGeneId, hugoSymbol)) {
-            status = HttpStatus.BAD_REQUEST;
-        } else {
-            ReferenceGenome matchedRG = null;
-            if (!StringUtils.isEmpty(referenceGenome)) {
-                matchedRG = MainUtils.searchEnum(ReferenceGenome.class, referenceGenome);
-                if (matchedRG == null) {
-                    return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        admissionControl.admit(AdmissionControl.PROTEIN_CHANGE_QUERY_COST, 1);
+        return executionLanes.submit(ExecutionLane.INTERACTIVE, () -> {
+            HttpStatus status = HttpStatus.OK;
+            IndicatorQueryResp indicatorQueryResp = null;
+
+            if (entrezGeneId != null && hugoSymbol != null && !GeneUtils.isSameGene(entrezGeneId, hugoSymbol)) {
+                status = HttpStatus.BAD_REQUEST;
+            } else {
+                ReferenceGenome matchedRG = null;
+                if (!StringUtils.isEmpty(referenceGenome)) {
+                    matchedRG = MainUtils.searchEnum(ReferenceGenome.class, referenceGenome);
+                    if (matchedRG == null) {
+                        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+                    }
                 }
+                Query query = new Query(null, matchedRG, entrezGeneId, hugoSymbol, proteinChange, null, null, tumorType, consequence, proteinStart, proteinEnd, null);
+                indicatorQueryResp = this.cacheFetcher.processQuery(
+                    query.getReferenceGenome(),
+                    query.getEntrezGeneId(),
+                    query.getHugoSymbol(),
+                    query.getAlteration(),
+                    null,
+                    query.getTumorType(),
+                    query.getConsequence(),
+                    query.getProteinStart(),
+                    query.getProteinEnd(),
+                    null,
+                    null,
+                    null,
+                    false,
+                    EvidenceTypeUtils.getEvidenceTypesForResponseFields(new HashSet<>(MainUtils.stringToEvidenceTypes(evidenceTypes, ",")), fields)
+                );
             }
-            Query query = new Query(null, matchedRG, entrezGeneId, hugoSymbol, proteinChange, null, null, tumorType, consequence, proteinStart, proteinEnd, null);
-            indicatorQueryResp = this.cacheFetcher.processQuery(
-                query.getReferenceGenome(),
-                query.getEntrezGeneId(),
-                query.getHugoSymbol(),
-                query.getAlteration(),
-                null,
-                query.getTumorType(),
-                query.getConsequence(),
-                query.getProteinStart(),
-                query.getProteinEnd(),
-                null,
-                null,
-                null,
-                false,
-                new HashSet<>(MainUtils.stringToEvidenceTypes(evidenceTypes, ","))
-            );
-        }
-        return new ResponseEntity<>(indicatorQueryResp, status);
+            return new ResponseEntity<>(JsonResultFactory.getIndicatorQueryResp(indicatorQueryResp, fields), status);
+        });
     }
 
     @PublicApi
@@ -97,37 +125,28 @@ public class AnnotationsApiController {
         consumes = {"application/json"},
         produces = {"application/json"},
         method = RequestMethod.POST)
-    public ResponseEntity<List<IndicatorQueryResp>> annotateMutationsByProteinChangePost(
+    public WebAsyncTask<ResponseEntity<List<IndicatorQueryResp>>> annotateMutationsByProteinChangePost(
         @ApiParam(value = "List of queries. Please see swagger.json for request body format.", required = true) @RequestBody() List<AnnotateMutationByProteinChangeQuery> body
+        , @ApiParam(value = FIELDS_DESCRIPTION) @RequestParam(value = "fields", required = false) String fields
     ) {
-        HttpStatus status = HttpStatus.OK;
-        List<IndicatorQueryResp> result = new ArrayList<>();
-
-        if (body == null) {
-            status = HttpStatus.BAD_REQUEST;
-        } else {
-            for (AnnotateMutationByProteinChangeQuery query : body) {
-                IndicatorQueryResp resp = this.cacheFetcher.processQuery(
-                    query.getReferenceGenome(),
-                    query.getGene() == null ? null : query.getGene().getEntrezGeneId(),
-                    query.getGene() == null ? null : query.getGene().getHugoSymbol(),
-                    query.getAlteration(),
-                    null,
-                    query.getTumorType(),
-                    query.getConsequence(),
-                    query.getProteinStart(),
-                    query.getProteinEnd(),
-                    null,
-                    null,
-                    null,
-                    false,
-                    query.getEvidenceTypes()
-                );
-                resp.getQuery().setId(query.getId());
-                result.add(resp);
+        admissionControl.admit(AdmissionControl.PROTEIN_CHANGE_QUERY_COST, body == null ? 1 : body.size());
+        return executionLanes.submit(ExecutionLane.BATCH, () -> {
+            HttpStatus status = HttpStatus.OK;
+            List<IndicatorQueryResp> result = new ArrayList<>();
+
+            if (body == null) {
+                status = HttpStatus.BAD_REQUEST;
+            } else {
+                List<Query> queries = new ArrayList<>();
+                List<Set<EvidenceType>> evidenceTypes = new ArrayList<>();
+                for (AnnotateMutationByProteinChangeQuery query : body) {
+                    queries.add(getProteinChangeQuery(query));
+                    evidenceTypes.add(EvidenceTypeUtils.getEvidenceTypesForResponseFields(query.getEvidenceTypes(), fields));
+                }
+                result = this.cacheFetcher.processQueries(queries, evidenceTypes, null, false);
             }
-        }
-        return new ResponseEntity<>(result, status);
+            return new ResponseEntity<>(JsonResultFactory.getIndicatorQueryResp(result, fields), status);
+        });
     }
 
     // Annotate mutations by genomic change
@@ -140,24 +159,28 @@ public class AnnotationsApiController {
     @RequestMapping(value = "/annotate/mutations/byGenomicChange",
         produces = {"application/json"},
         method = RequestMethod.GET)
-    public ResponseEntity<IndicatorQueryResp> annotateMutationsByGenomicChangeGet(
+    public WebAsyncTask<ResponseEntity<IndicatorQueryResp>> annotateMutationsByGenomicChangeGet(
         @ApiParam(value = "Genomic location. Example: 7,140453136,140453136,A,T", required = true) @RequestParam(value = "genomicLocation", required = true) String genomicLocation
         , @ApiParam(value = "Reference genome, either GRCh37 or GRCh38. The default is GRCh37", required = false, defaultValue = "GRCh37") @RequestParam(value = "referenceGenome", required = false, defaultValue = "GRCh37") String referenceGenome
         , @ApiParam(value = "OncoTree(http://oncotree.info) tumor type name. The field supports OncoTree Code, OncoTree Name and OncoTree Main type. Example: Melanoma") @RequestParam(value = "tumorType", required = false) String tumorType
         , @ApiParam(value = EVIDENCE_TYPES_DESCRIPTION) @RequestParam(value = "evidenceType", required = false) String evidenceTypes
-    ) throws ApiException, org.genome_nexus.ApiException {
-        HttpStatus status = HttpStatus.OK;
-        IndicatorQueryResp indicatorQueryResp = null;
-
-        ReferenceGenome matchedRG = null;
-        if (!StringUtils.isEmpty(referenceGenome)) {
-            matchedRG = MainUtils.searchEnum(ReferenceGenome.class, referenceGenome);
-            if (matchedRG == null) {
-                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        , @ApiParam(value = FIELDS_DESCRIPTION) @RequestParam(value = "fields", required = false) String fields
+    ) {
+        admissionControl.admit(AdmissionControl.GENOMIC_QUERY_COST, 1);
+        return executionLanes.submit(ExecutionLane.GENOMIC, () -> {
+            HttpStatus status = HttpStatus.OK;
+            IndicatorQueryResp indicatorQueryResp = null;
+
+            ReferenceGenome matchedRG = null;
+            if (!StringUtils.isEmpty(referenceGenome)) {
+                matchedRG = MainUtils.searchEnum(ReferenceGenome.class, referenceGenome);
+                if (matchedRG == null) {
+                    return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+                }
             }
-        }
-        indicatorQueryResp = this.getIndicatorQueryFromGenomicLocation(matchedRG, genomicLocation, tumorType, new HashSet<>(MainUtils.stringToEvidenceTypes(evidenceTypes, ",")), cacheFetcher.getAllTranscriptGenes());
-        return new ResponseEntity<>(indicatorQueryResp, status);
+            indicatorQueryResp = this.getIndicatorQueryFromGenomicLocation(matchedRG, genomicLocation, tumorType, EvidenceTypeUtils.getEvidenceTypesForResponseFields(new HashSet<>(MainUtils.stringToEvidenceTypes(evidenceTypes, ",")), fields), cacheFetcher.getAllTranscriptGenes(), null);
+            return new ResponseEntity<>(JsonResultFactory.getIndicatorQueryResp(indicatorQueryResp, fields), status);
+        });
     }
 
     @PublicApi
@@ -170,23 +193,30 @@ public class AnnotationsApiController {
         consumes = {"application/json"},
         produces = {"application/json"},
         method = RequestMethod.POST)
-    public ResponseEntity<List<IndicatorQueryResp>> annotateMutationsByGenomicChangePost(
+    public WebAsyncTask<ResponseEntity<List<IndicatorQueryResp>>> annotateMutationsByGenomicChangePost(
         @ApiParam(value = "List of queries. Please see swagger.json for request body format.", required = true) @RequestBody() List<AnnotateMutationByGenomicChangeQuery> body
-    ) throws ApiException, org.genome_nexus.ApiException {
-        HttpStatus status = HttpStatus.OK;
-        List<IndicatorQueryResp> result = new ArrayList<>();
-
-        if (body == null) {
-            status = HttpStatus.BAD_REQUEST;
-        } else {
-            Set<org.oncokb.oncokb_transcript.client.Gene> allTranscriptGenes = cacheFetcher.getAllTranscriptGenes();
-            for (AnnotateMutationByGenomicChangeQuery query : body) {
-                IndicatorQueryResp resp = this.getIndicatorQueryFromGenomicLocation(query.getReferenceGenome(), query.getGenomicLocation(), query.getTumorType(), query.getEvidenceTypes(), allTranscriptGenes);
-                resp.getQuery().setId(query.getId());
-                result.add(resp);
+        , @ApiParam(value = FIELDS_DESCRIPTION) @RequestParam(value = "fields", required = false) String fields
+    ) {
+        admissionControl.admit(AdmissionControl.GENOMIC_QUERY_COST, body == null ? 1 : body.size());
+        return executionLanes.submit(ExecutionLane.BATCH, () -> {
+            HttpStatus status = HttpStatus.OK;
+            List<IndicatorQueryResp> result = new ArrayList<>();
+
+            if (body == null) {
+                status = HttpStatus.BAD_REQUEST;
+            } else {
+                Set<org.oncokb.oncokb_transcript.client.Gene> allTranscriptGenes = cacheFetcher.getAllTranscriptGenes();
+                Map<ReferenceGenome, List<String>> genomicLocations = new HashMap<>();
+                for (AnnotateMutationByGenomicChangeQuery query : body) {
+                    genomicLocations.computeIfAbsent(query.getReferenceGenome(), k -> new ArrayList<>()).add(query.getGenomicLocation());
+                }
+                Map<ReferenceGenome, Map<String, Alteration>> alterations = getAlterationsFromGenomeNexus(GNVariantAnnotationType.GENOMIC_LOCATION, genomicLocations, allTranscriptGenes);
+                for (AnnotateMutationByGenomicChangeQuery query : body) {
+                    result.add(annotateMutationByGenomicChange(query, fields, allTranscriptGenes, alterations.get(query.getReferenceGenome())));
+                }
             }
-        }
-        return new ResponseEntity<>(result, status);
+            return new ResponseEntity<>(JsonResultFactory.getIndicatorQueryResp(result, fields), status);
+        });
     }
 
     // Annotate mutations by HGVSg
@@ -199,39 +229,44 @@ public class AnnotationsApiController {
     @RequestMapping(value = "/annotate/mutations/byHGVSg",
         produces = {"application/json"},
         method = RequestMethod.GET)
-    public ResponseEntity<IndicatorQueryResp> annotateMutationsByHGVSgGet(
+    public WebAsyncTask<ResponseEntity<IndicatorQueryResp>> annotateMutationsByHGVSgGet(
         @ApiParam(value = "HGVS genomic format. Example: 7:g.140453136A>T", required = true) @RequestParam(value = "hgvsg", required = true) String hgvsg
         , @ApiParam(value = "Reference genome, either GRCh37 or GRCh38. The default is GRCh37", required = false, defaultValue = "GRCh37") @RequestParam(value = "referenceGenome", required = false, defaultValue = "GRCh37") String referenceGenome
         , @ApiParam(value = "OncoTree(http://oncotree.info) tumor type name. The field supports OncoTree Code, OncoTree Name and OncoTree Main type. Example: Melanoma") @RequestParam(value = "tumorType", required = false) String tumorType
         , @ApiParam(value = EVIDENCE_TYPES_DESCRIPTION) @RequestParam(value = "evidenceType", required = false) String evidenceTypes
-    ) throws ApiException, org.genome_nexus.ApiException {
-        HttpStatus status = HttpStatus.OK;
-        IndicatorQueryResp indicatorQueryResp = null;
+        , @ApiParam(value = FIELDS_DESCRIPTION) @RequestParam(value = "fields", required = false) String fields
+    ) {
+        admissionControl.admit(AdmissionControl.GENOMIC_QUERY_COST, 1);
+        return executionLanes.submit(ExecutionLane.GENOMIC, () -> {
+            HttpStatus status = HttpStatus.OK;
+            IndicatorQueryResp indicatorQueryResp = null;
+
+            if (StringUtils.isEmpty(hgvsg)) {
+                status = HttpStatus.BAD_REQUEST;
+            } else {
+                ReferenceGenome matchedRG = null;
+                if (!StringUtils.isEmpty(referenceGenome)) {
+                    matchedRG = MainUtils.searchEnum(ReferenceGenome.class, referenceGenome);
+                    if (matchedRG == null) {
+                        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+                    }
+                }
 
-        if (StringUtils.isEmpty(hgvsg)) {
-            status = HttpStatus.BAD_REQUEST;
-        } else {
-            ReferenceGenome matchedRG = null;
-            if (!StringUtils.isEmpty(referenceGenome)) {
-                matchedRG = MainUtils.searchEnum(ReferenceGenome.class, referenceGenome);
-                if (matchedRG == null) {
+                if (!AlterationUtils.isValidHgvsg(hgvsg)) {
                     return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
                 }
-            }
 
-            if (!AlterationUtils.isValidHgvsg(hgvsg)) {
-                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+                indicatorQueryResp = this.getIndicatorQueryFromHGVSg(
+                    matchedRG,
+                    hgvsg,
+                    tumorType,
+                    EvidenceTypeUtils.getEvidenceTypesForResponseFields(new HashSet<>(MainUtils.stringToEvidenceTypes(evidenceTypes, ",")), fields),
+                    cacheFetcher.getAllTranscriptGenes(),
+                    null
+                );
             }
-
-            indicatorQueryResp = this.getIndicatorQueryFromHGVSg(
-                matchedRG,
-                hgvsg,
-                tumorType,
-                new HashSet<>(MainUtils.stringToEvidenceTypes(evidenceTypes, ",")),
-                cacheFetcher.getAllTranscriptGenes()
-            );
-        }
-        return new ResponseEntity<>(indicatorQueryResp, status);
+            return new ResponseEntity<>(JsonResultFactory.getIndicatorQueryResp(indicatorQueryResp, fields), status);
+        });
     }
 
     @PublicApi
@@ -244,29 +279,30 @@ public class AnnotationsApiController {
         consumes = {"application/json"},
         produces = {"application/json"},
         method = RequestMethod.POST)
-    public ResponseEntity<List<IndicatorQueryResp>> annotateMutationsByHGVSgPost(
+    public WebAsyncTask<ResponseEntity<List<IndicatorQueryResp>>> annotateMutationsByHGVSgPost(
         @ApiParam(value = "List of queries. Please see swagger.json for request body format.", required = true) @RequestBody() List<AnnotateMutationByHGVSgQuery> body
-    ) throws ApiException, org.genome_nexus.ApiException {
-        HttpStatus status = HttpStatus.OK;
-        List<IndicatorQueryResp> result = new ArrayList<>();
-
-        if (body == null) {
-            status = HttpStatus.BAD_REQUEST;
-        } else {
-            Set<org.oncokb.oncokb_transcript.client.Gene> allTranscriptGenes = cacheFetcher.getAllTranscriptGenes();
-            for (AnnotateMutationByHGVSgQuery query : body) {
-                IndicatorQueryResp resp = this.getIndicatorQueryFromHGVSg(
-                    query.getReferenceGenome(),
-                    query.getHgvsg(),
-                    query.getTumorType(),
-                    query.getEvidenceTypes(),
-                    allTranscriptGenes
-                );
-                resp.getQuery().setId(query.getId());
-                result.add(resp);
+        , @ApiParam(value = FIELDS_DESCRIPTION) @RequestParam(value = "fields", required = false) String fields
+    ) {
+        admissionControl.admit(AdmissionControl.GENOMIC_QUERY_COST, body == null ? 1 : body.size());
+        return executionLanes.submit(ExecutionLane.BATCH, () -> {
+            HttpStatus status = HttpStatus.OK;
+            List<IndicatorQueryResp> result = new ArrayList<>();
+
+            if (body == null) {
+                status = HttpStatus.BAD_REQUEST;
+            } else {
+                Set<org.oncokb.oncokb_transcript.client.Gene> allTranscriptGenes = cacheFetcher.getAllTranscriptGenes();
+                Map<ReferenceGenome, List<String>> hgvsgs = new HashMap<>();
+                for (AnnotateMutationByHGVSgQuery query : body) {
+                    hgvsgs.computeIfAbsent(query.getReferenceGenome(), k -> new ArrayList<>()).add(query.getHgvsg());
+                }
+                Map<ReferenceGenome, Map<String, Alteration>> alterations = getAlterationsFromGenomeNexus(GNVariantAnnotationType.HGVS_G, hgvsgs, allTranscriptGenes);
+                for (AnnotateMutationByHGVSgQuery query : body) {
+                    result.add(annotateMutationByHGVSg(query, fields, allTranscriptGenes, alterations.get(query.getReferenceGenome())));
+                }
             }
-        }
-        return new ResponseEntity<>(result, status);
+            return new ResponseEntity<>(JsonResultFactory.getIndicatorQueryResp(result, fields), status);
+        });
     }
 
     // Annotate copy number alterations
@@ -279,44 +315,48 @@ public class AnnotationsApiController {
     @RequestMapping(value = "/annotate/copyNumberAlterations",
         produces = {"application/json"},
         method = RequestMethod.GET)
-    public ResponseEntity<IndicatorQueryResp> annotateCopyNumberAlterationsGet(
+    public WebAsyncTask<ResponseEntity<IndicatorQueryResp>> annotateCopyNumberAlterationsGet(
         @ApiParam(value = "The gene symbol used in Human Genome Organisation. Example: BRAF") @RequestParam(value = "hugoSymbol", required = false) String hugoSymbol
         , @ApiParam(value = "The entrez gene ID. (Higher priority than hugoSymbol). Example: 673") @RequestParam(value = "entrezGeneId", required = false) Integer entrezGeneId
         , @ApiParam(value = "Copy number alteration type", required = true) @RequestParam(value = "copyNameAlterationType", required = true) CopyNumberAlterationType copyNameAlterationType
         , @ApiParam(value = "Reference genome, either GRCh37 or GRCh38. The default is GRCh37", required = false, defaultValue = "GRCh37") @RequestParam(value = "referenceGenome", required = false, defaultValue = "GRCh37") String referenceGenome
         , @ApiParam(value = "OncoTree(http://oncotree.info) tumor type name. The field supports OncoTree Code, OncoTree Name and OncoTree Main type. Example: Melanoma") @RequestParam(value = "tumorType", required = false) String tumorType
         , @ApiParam(value = EVIDENCE_TYPES_DESCRIPTION) @RequestParam(value = "evidenceType", required = false) String evidenceTypes
+        , @ApiParam(value = FIELDS_DESCRIPTION) @RequestParam(value = "fields", required = false) String fields
     ) {
-        HttpStatus status = HttpStatus.OK;
-        IndicatorQueryResp indicatorQueryResp = null;
-
-        if (entrezGeneId != null && hugoSymbol != null && !GeneUtils.isSameGene(entrezGeneId, hugoSymbol)) {
-            status = HttpStatus.BAD_REQUEST;
-        } else {
-            ReferenceGenome matchedRG = null;
-            if (!StringUtils.isEmpty(referenceGenome)) {
-                matchedRG = MainUtils.searchEnum(ReferenceGenome.class, referenceGenome);
-                if (matchedRG == null) {
-                    return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        admissionControl.admit(AdmissionControl.COPY_NUMBER_ALTERATION_QUERY_COST, 1);
+        return executionLanes.submit(ExecutionLane.INTERACTIVE, () -> {
+            HttpStatus status = HttpStatus.OK;
+            IndicatorQueryResp indicatorQueryResp = null;
+
+            if (entrezGeneId != null && hugoSymbol != null && !GeneUtils.isSameGene(entrezGeneId, hugoSymbol)) {
+                status = HttpStatus.BAD_REQUEST;
+            } else {
+                ReferenceGenome matchedRG = null;
+                if (!StringUtils.isEmpty(referenceGenome)) {
+                    matchedRG = MainUtils.searchEnum(ReferenceGenome.class, referenceGenome);
+                    if (matchedRG == null) {
+                        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+                    }
                 }
+                indicatorQueryResp = this.cacheFetcher.processQuery(
+                    matchedRG,
+                    entrezGeneId,
+                    hugoSymbol,
+                    StringUtils.capitalize(copyNameAlterationType.name().toLowerCase()),
+                    null,
+                    tumorType,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    false,
+                    EvidenceTypeUtils.getEvidenceTypesForResponseFields(new HashSet<>(MainUtils.stringToEvidenceTypes(evidenceTypes, ",")), fields));
             }
-            indicatorQueryResp = this.cacheFetcher.processQuery(
-                matchedRG,
-                entrezGeneId,
-                hugoSymbol,
-                StringUtils.capitalize(copyNameAlterationType.name().toLowerCase()),
-                null,
-                tumorType,
-                null,
-                null,
-                null,
-                null,
-                null,
-                null,
-                false,
-                new HashSet<>(MainUtils.stringToEvidenceTypes(evidenceTypes, ",")));
-        }
-        return new ResponseEntity<>(indicatorQueryResp, status);
+            return new ResponseEntity<>(JsonResultFactory.getIndicatorQueryResp(indicatorQueryResp, fields), status);
+        });
     }
 
     @PublicApi
@@ -329,46 +369,28 @@ public class AnnotationsApiController {
         consumes = {"application/json"},
         produces = {"application/json"},
         method = RequestMethod.POST)
-    public ResponseEntity<List<IndicatorQueryResp>> annotateCopyNumberAlterationsPost(
+    public WebAsyncTask<ResponseEntity<List<IndicatorQueryResp>>> annotateCopyNumberAlterationsPost(
         @ApiParam(value = "List of queries. Please see swagger.json for request body format.", required = true) @RequestBody() List<AnnotateCopyNumberAlterationQuery> body
+        , @ApiParam(value = FIELDS_DESCRIPTION) @RequestParam(value = "fields", required = false) String fields
     ) {
-        HttpStatus status = HttpStatus.OK;
-        List<IndicatorQueryResp> result = new ArrayList<>();
-
-        if (body == null) {
-            status = HttpStatus.BAD_REQUEST;
-        } else {
-
-            for (AnnotateCopyNumberAlterationQuery query : body) {
-                Gene gene = new Gene();
-                if (query.getGene() != null) {
-                    try {
-                        gene = this.cacheFetcher.findGeneBySymbol(
-                            query.getGene().getEntrezGeneId() != null ?
-                                query.getGene().getEntrezGeneId().toString() :
-                                query.getGene().getHugoSymbol()
-                        );
-                        if (gene == null) {
-                            gene = new Gene();
-                            gene.setEntrezGeneId(query.getGene().getEntrezGeneId());
-                            gene.setHugoSymbol(query.getGene().getHugoSymbol());
-                        }
-                    } catch (ApiException e) {
-                    }
+        admissionControl.admit(AdmissionControl.COPY_NUMBER_ALTERATION_QUERY_COST, body == null ? 1 : body.size());
+        return executionLanes.submit(ExecutionLane.BATCH, () -> {
+            HttpStatus status = HttpStatus.OK;
+            List<IndicatorQueryResp> result = new ArrayList<>();
+
+            if (body == null) {
+                status = HttpStatus.BAD_REQUEST;
+            } else {
+                List<Query> queries = new ArrayList<>();
+                List<Set<EvidenceType>> evidenceTypes = new ArrayList<>();
+                for (AnnotateCopyNumberAlterationQuery query : body) {
+                    queries.add(getCopyNumberAlterationQuery(query));
+                    evidenceTypes.add(EvidenceTypeUtils.getEvidenceTypesForResponseFields(query.getEvidenceTypes(), fields));
                 }
-                IndicatorQueryResp resp = this.cacheFetcher.processQuery(
-                    query.getReferenceGenome(),
-                    gene.getEntrezGeneId(),
-                    gene.getHugoSymbol(),
-                    StringUtils.capitalize(query.getCopyNameAlterationType().name().toLowerCase()),
-                    null,
-                    query.getTumorType(), null, null, null, null,
-                    null, null, false, query.getEvidenceTypes());
-                resp.getQuery().setId(query.getId());
-                result.add(resp);
+                result = this.cacheFetcher.processQueries(queries, evidenceTypes, null, false);
             }
-        }
-        return new ResponseEntity<>(result, status);
+            return new ResponseEntity<>(JsonResultFactory.getIndicatorQueryResp(result, fields), status);
+        });
     }
 
     // Annotate structural variants
@@ -381,7 +403,7 @@ public class AnnotationsApiController {
     @RequestMapping(value = "/annotate/structuralVariants",
         produces = {"application/json"},
         method = RequestMethod.GET)
-    public ResponseEntity<IndicatorQueryResp> annotateStructuralVariantsGet(
+    public WebAsyncTask<ResponseEntity<IndicatorQueryResp>> annotateStructuralVariantsGet(
         @ApiParam(value = "The gene symbol A used in Human Genome Organisation. Example: ABL1") @RequestParam(value = "hugoSymbolA", required = false) String hugoSymbolA
         , @ApiParam(value = "The entrez gene ID A. (Higher priority than hugoSymbolA) Example: 25") @RequestParam(value = "entrezGeneIdA", required = false) Integer entrezGeneIdA
         , @ApiParam(value = "The gene symbol B used in Human Genome Organisation.Example: BCR ") @RequestParam(value = "hugoSymbolB", required = false) String hugoSymbolB
@@ -391,51 +413,55 @@ public class AnnotationsApiController {
         , @ApiParam(value = "Reference genome, either GRCh37 or GRCh38. The default is GRCh37", required = false, defaultValue = "GRCh37") @RequestParam(value = "referenceGenome", required = false, defaultValue = "GRCh37") String referenceGenome
         , @ApiParam(value = "OncoTree(http://oncotree.info) tumor type name. The field supports OncoTree Code, OncoTree Name and OncoTree Main type. Example: Melanoma") @RequestParam(value = "tumorType", required = false) String tumorType
         , @ApiParam(value = EVIDENCE_TYPES_DESCRIPTION) @RequestParam(value = "evidenceType", required = false) String evidenceTypes
+        , @ApiParam(value = FIELDS_DESCRIPTION) @RequestParam(value = "fields", required = false) String fields
     ) {
-        HttpStatus status = HttpStatus.OK;
-        IndicatorQueryResp indicatorQueryResp = null;
-
-        if ((entrezGeneIdA != null && hugoSymbolA != null && !GeneUtils.isSameGene(entrezGeneIdA, hugoSymbolA)) || (entrezGeneIdB != null && hugoSymbolB != null && !GeneUtils.isSameGene(entrezGeneIdB, hugoSymbolB))) {
-            status = HttpStatus.BAD_REQUEST;
-        } else {
-            Gene geneA = new Gene();
-            try {
-                geneA = this.cacheFetcher.findGeneBySymbol(entrezGeneIdA == null ? hugoSymbolA : entrezGeneIdA.toString());
-                if (geneA == null) {
-                    geneA = new Gene();
+        admissionControl.admit(AdmissionControl.STRUCTURAL_VARIANT_QUERY_COST, 1);
+        return executionLanes.submit(ExecutionLane.INTERACTIVE, () -> {
+            HttpStatus status = HttpStatus.OK;
+            IndicatorQueryResp indicatorQueryResp = null;
+
+            if ((entrezGeneIdA != null && hugoSymbolA != null && !GeneUtils.isSameGene(entrezGeneIdA, hugoSymbolA)) || (entrezGeneIdB != null && hugoSymbolB != null && !GeneUtils.isSameGene(entrezGeneIdB, hugoSymbolB))) {
+                status = HttpStatus.BAD_REQUEST;
+            } else {
+                Gene geneA = new Gene();
+                try {
+                    geneA = this.cacheFetcher.findGeneBySymbol(entrezGeneIdA == null ? hugoSymbolA : entrezGeneIdA.toString());
+                    if (geneA == null) {
+                        geneA = new Gene();
+                    }
+                } catch (ApiException e) {
                 }
-            } catch (ApiException e) {
-            }
-            if (geneA.getEntrezGeneId() == null && StringUtils.isEmpty(geneA.getHugoSymbol())) {
-                geneA.setEntrezGeneId(entrezGeneIdA);
-                geneA.setHugoSymbol(hugoSymbolA == null ? "" : hugoSymbolA);
-            }
-            Gene geneB = new Gene();
-            try {
-                geneB = this.cacheFetcher.findGeneBySymbol(entrezGeneIdB == null ? hugoSymbolB : entrezGeneIdB.toString());
-                if (geneB == null) {
-                    geneB = new Gene();
+                if (geneA.getEntrezGeneId() == null && StringUtils.isEmpty(geneA.getHugoSymbol())) {
+                    geneA.setEntrezGeneId(entrezGeneIdA);
+                    geneA.setHugoSymbol(hugoSymbolA == null ? "" : hugoSymbolA);
+                }
+                Gene geneB = new Gene();
+                try {
+                    geneB = this.cacheFetcher.findGeneBySymbol(entrezGeneIdB == null ? hugoSymbolB : entrezGeneIdB.toString());
+                    if (geneB == null) {
+                        geneB = new Gene();
+                    }
+                } catch (ApiException e) {
+                }
+                if (geneB.getEntrezGeneId() == null && StringUtils.isEmpty(geneB.getHugoSymbol())) {
+                    geneB.setEntrezGeneId(entrezGeneIdB);
+                    geneB.setHugoSymbol(hugoSymbolB == null ? "" : hugoSymbolB);
                 }
-            } catch (ApiException e) {
-            }
-            if (geneB.getEntrezGeneId() == null && StringUtils.isEmpty(geneB.getHugoSymbol())) {
-                geneB.setEntrezGeneId(entrezGeneIdB);
-                geneB.setHugoSymbol(hugoSymbolB == null ? "" : hugoSymbolB);
-            }
 
-            ReferenceGenome matchedRG = null;
-            if (!StringUtils.isEmpty(referenceGenome)) {
-                matchedRG = MainUtils.searchEnum(ReferenceGenome.class, referenceGenome);
-                if (matchedRG == null) {
-                    return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+                ReferenceGenome matchedRG = null;
+                if (!StringUtils.isEmpty(referenceGenome)) {
+                    matchedRG = MainUtils.searchEnum(ReferenceGenome.class, referenceGenome);
+                    if (matchedRG == null) {
+                        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+                    }
                 }
+                String fusionName = FusionUtils.getFusionName(geneA, geneB);
+                indicatorQueryResp = this.cacheFetcher.processQuery(
+                    matchedRG, null, fusionName, null, AlterationType.STRUCTURAL_VARIANT.name(), tumorType, isFunctionalFusion ? "fusion" : null, null, null, structuralVariantType, null,
+                    null, false, EvidenceTypeUtils.getEvidenceTypesForResponseFields(new HashSet<>(MainUtils.stringToEvidenceTypes(evidenceTypes, ",")), fields));
             }
-            String fusionName = FusionUtils.getFusionName(geneA, geneB);
-            indicatorQueryResp = this.cacheFetcher.processQuery(
-                matchedRG, null, fusionName, null, AlterationType.STRUCTURAL_VARIANT.name(), tumorType, isFunctionalFusion ? "fusion" : null, null, null, structuralVariantType, null,
-                null, false, new HashSet<>(MainUtils.stringToEvidenceTypes(evidenceTypes, ",")));
-        }
-        return new ResponseEntity<>(indicatorQueryResp, status);
+            return new ResponseEntity<>(JsonResultFactory.getIndicatorQueryResp(indicatorQueryResp, fields), status);
+        });
     }
 
     @PublicApi
@@ -448,78 +474,371 @@ public class AnnotationsApiController {
         consumes = {"application/json"},
         produces = {"application/json"},
         method = RequestMethod.POST)
-    public ResponseEntity<List<IndicatorQueryResp>> annotateStructuralVariantsPost(
+    public WebAsyncTask<ResponseEntity<List<IndicatorQueryResp>>> annotateStructuralVariantsPost(
         @ApiParam(value = "List of queries. Please see swagger.json for request body format.", required = true) @RequestBody(required = true) List<AnnotateStructuralVariantQuery> body
+        , @ApiParam(value = FIELDS_DESCRIPTION) @RequestParam(value = "fields", required = false) String fields
+    ) {
+        admissionControl.admit(AdmissionControl.STRUCTURAL_VARIANT_QUERY_COST, body == null ? 1 : body.size());
+        return executionLanes.submit(ExecutionLane.BATCH, () -> {
+            HttpStatus status = HttpStatus.OK;
+            List<IndicatorQueryResp> result = new ArrayList<>();
+
+            if (body == null) {
+                status = HttpStatus.BAD_REQUEST;
+            } else {
+                List<Query> queries = new ArrayList<>();
+                List<Set<EvidenceType>> evidenceTypes = new ArrayList<>();
+                for (AnnotateStructuralVariantQuery query : body) {
+                    queries.add(getStructuralVariantQuery(query));
+                    evidenceTypes.add(EvidenceTypeUtils.getEvidenceTypesForResponseFields(query.getEvidenceTypes(), fields));
+                }
+                result = this.cacheFetcher.processQueries(queries, evidenceTypes, null, false);
+            }
+            return new ResponseEntity<>(JsonResultFactory.getIndicatorQueryResp(result, fields), status);
+        });
+    }
+
+
+    // Asynchronous annotation jobs, for batches too large to be annotated within one request
+    @PublicApi
+    @PremiumPublicApi
+    @ApiOperation(value = "", notes = "Submit a job to annotate mutations by protein change. The result can be downloaded once the job is completed.", response = AnnotationJob.class)
+    @ApiResponses(value = {
+        @ApiResponse(code = 202, message = "Accepted", response = AnnotationJob.class),
+        @ApiResponse(code = 400, message = "Error, error message will be given.", response = String.class)})
+    @RequestMapping(value = "/annotate/jobs/mutations/byProteinChange",
+        consumes = {"application/json"},
+        produces = {"application/json"},
+        method = RequestMethod.POST)
+    public ResponseEntity<AnnotationJob> annotateMutationsByProteinChangeJobPost(
+        @ApiParam(value = "List of queries. Please see swagger.json for request body format.", required = true) @RequestBody() List<AnnotateMutationByProteinChangeQuery> body
+        , @ApiParam(value = FIELDS_DESCRIPTION) @RequestParam(value = "fields", required = false) String fields
     ) {
-        HttpStatus status = HttpStatus.OK;
-        List<IndicatorQueryResp> result = new ArrayList<>();
+        if (body == null) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        AdmissionControl.Throttle throttle = admissionControl.throttle(AdmissionControl.PROTEIN_CHANGE_QUERY_COST);
+        return new ResponseEntity<>(annotationJobManager.submit(admissionControl.getClient(), body, fields, AnnotationJobManager.eachQuery(query -> {
+            throttle.acquire();
+            return annotateMutationByProteinChange(query, fields);
+        })), HttpStatus.ACCEPTED);
+    }
 
+    @PublicApi
+    @PremiumPublicApi
+    @ApiOperation(value = "", notes = "Submit a job to annotate mutations by genomic change. The result can be downloaded once the job is completed.", response = AnnotationJob.class)
+    @ApiResponses(value = {
+        @ApiResponse(code = 202, message = "Accepted", response = AnnotationJob.class),
+        @ApiResponse(code = 400, message = "Error, error message will be given.", response = String.class)})
+    @RequestMapping(value = "/annotate/jobs/mutations/byGenomicChange",
+        consumes = {"application/json"},
+        produces = {"application/json"},
+        method = RequestMethod.POST)
+    public ResponseEntity<AnnotationJob> annotateMutationsByGenomicChangeJobPost(
+        @ApiParam(value = "List of queries. Please see swagger.json for request body format.", required = true) @RequestBody() List<AnnotateMutationByGenomicChangeQuery> body
+        , @ApiParam(value = FIELDS_DESCRIPTION) @RequestParam(value = "fields", required = false) String fields
+    ) throws ApiException {
         if (body == null) {
-            status = HttpStatus.BAD_REQUEST;
-        } else {
-            for (AnnotateStructuralVariantQuery query : body) {
-                Gene geneA = new Gene();
-                if (query.getGeneA() != null) {
-                    try {
-                        geneA = this.cacheFetcher.findGeneBySymbol(
-                            query.getGeneA().getEntrezGeneId() != null ?
-                                query.getGeneA().getEntrezGeneId().toString() :
-                                query.getGeneA().getHugoSymbol()
-                        );
-                        if (geneA == null) {
-                            geneA = new Gene();
-                        }
-                    } catch (ApiException e) {
-                    }
-                }
-                if (StringUtils.isEmpty(geneA.getHugoSymbol()) && geneA.getEntrezGeneId() == null && query.getGeneA() != null) {
-                    geneA.setHugoSymbol(query.getGeneA().getHugoSymbol() == null ? "" : query.getGeneA().getHugoSymbol());
-                    geneA.setEntrezGeneId(query.getGeneA().getEntrezGeneId());
-                }
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        AdmissionControl.Throttle throttle = admissionControl.throttle(AdmissionControl.GENOMIC_QUERY_COST);
+        Set<org.oncokb.oncokb_transcript.client.Gene> allTranscriptGenes = cacheFetcher.getAllTranscriptGenes();
+        return new ResponseEntity<>(annotationJobManager.submit(admissionControl.getClient(), body, fields, queries -> {
+            // Each batch is annotated with Genome Nexus at once, like the POST endpoint
+            Map<ReferenceGenome, List<String>> variants = new HashMap<>();
+            for (AnnotateMutationByGenomicChangeQuery query : queries) {
+                throttle.acquire();
+                variants.computeIfAbsent(query.getReferenceGenome(), k -> new ArrayList<>()).add(query.getGenomicLocation());
+            }
+            Map<ReferenceGenome, Map<String, Alteration>> alterations = getAlterationsFromGenomeNexus(GNVariantAnnotationType.GENOMIC_LOCATION, variants, allTranscriptGenes);
+            List<IndicatorQueryResp> annotations = new ArrayList<>();
+            for (AnnotateMutationByGenomicChangeQuery query : queries) {
+                annotations.add(annotateMutationByGenomicChange(query, fields, allTranscriptGenes, alterations.get(query.getReferenceGenome())));
+            }
+            return annotations;
+        }), HttpStatus.ACCEPTED);
+    }
 
-                Gene geneB = new Gene();
-                if (query.getGeneB() != null) {
-                    try {
-                        geneB = this.cacheFetcher.findGeneBySymbol(
-                            query.getGeneB().getEntrezGeneId() != null ?
-                                query.getGeneB().getEntrezGeneId().toString() :
-                                query.getGeneB().getHugoSymbol()
-                        );
-                        if (geneB == null) {
-                            geneB = new Gene();
-                        }
-                    } catch (ApiException e) {
-                    }
-                }
-                if (StringUtils.isEmpty(geneB.getHugoSymbol()) && geneB.getEntrezGeneId() == null && query.getGeneB() != null) {
-                    geneB.setHugoSymbol(query.getGeneB().getHugoSymbol() == null ? "" : query.getGeneB().getHugoSymbol());
-                    geneB.setEntrezGeneId(query.getGeneB().getEntrezGeneId());
-                }
+    @PublicApi
+    @PremiumPublicApi
+    @ApiOperation(value = "", notes = "Submit a job to annotate mutations by HGVSg. The result can be downloaded once the job is completed.", response = AnnotationJob.class)
+    @ApiResponses(value = {
+        @ApiResponse(code = 202, message = "Accepted", response = AnnotationJob.class),
+        @ApiResponse(code = 400, message = "Error, error message will be given.", response = String.class)})
+    @RequestMapping(value = "/annotate/jobs/mutations/byHGVSg",
+        consumes = {"application/json"},
+        produces = {"application/json"},
+        method = RequestMethod.POST)
+    public ResponseEntity<AnnotationJob> annotateMutationsByHGVSgJobPost(
+        @ApiParam(value = "List of queries. Please see swagger.json for request body format.", required = true) @RequestBody() List<AnnotateMutationByHGVSgQuery> body
+        , @ApiParam(value = FIELDS_DESCRIPTION) @RequestParam(value = "fields", required = false) String fields
+    ) throws ApiException {
+        if (body == null) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        AdmissionControl.Throttle throttle = admissionControl.throttle(AdmissionControl.GENOMIC_QUERY_COST);
+        Set<org.oncokb.oncokb_transcript.client.Gene> allTranscriptGenes = cacheFetcher.getAllTranscriptGenes();
+        return new ResponseEntity<>(annotationJobManager.submit(admissionControl.getClient(), body, fields, queries -> {
+            // Each batch is annotated with Genome Nexus at once, like the POST endpoint
+            Map<ReferenceGenome, List<String>> variants = new HashMap<>();
+            for (AnnotateMutationByHGVSgQuery query : queries) {
+                throttle.acquire();
+                variants.computeIfAbsent(query.getReferenceGenome(), k -> new ArrayList<>()).add(query.getHgvsg());
+            }
+            Map<ReferenceGenome, Map<String, Alteration>> alterations = getAlterationsFromGenomeNexus(GNVariantAnnotationType.HGVS_G, variants, allTranscriptGenes);
+            List<IndicatorQueryResp> annotations = new ArrayList<>();
+            for (AnnotateMutationByHGVSgQuery query : queries) {
+                annotations.add(annotateMutationByHGVSg(query, fields, allTranscriptGenes, alterations.get(query.getReferenceGenome())));
+            }
+            return annotations;
+        }), HttpStatus.ACCEPTED);
+    }
 
-                String fusionName = FusionUtils.getFusionName(geneA, geneB);
+    @PublicApi
+    @PremiumPublicApi
+    @ApiOperation(value = "", notes = "Submit a job to annotate copy number alterations. The result can be downloaded once the job is completed.", response = AnnotationJob.class)
+    @ApiResponses(value = {
+        @ApiResponse(code = 202, message = "Accepted", response = AnnotationJob.class),
+        @ApiResponse(code = 400, message = "Error, error message will be given.", response = String.class)})
+    @RequestMapping(value = "/annotate/jobs/copyNumberAlterations",
+        consumes = {"application/json"},
+        produces = {"application/json"},
+        method = RequestMethod.POST)
+    public ResponseEntity<AnnotationJob> annotateCopyNumberAlterationsJobPost(
+        @ApiParam(value = "List of queries. Please see swagger.json for request body format.", required = true) @RequestBody() List<AnnotateCopyNumberAlterationQuery> body
+        , @ApiParam(value = FIELDS_DESCRIPTION) @RequestParam(value = "fields", required = false) String fields
+    ) {
+        if (body == null) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        AdmissionControl.Throttle throttle = admissionControl.throttle(AdmissionControl.COPY_NUMBER_ALTERATION_QUERY_COST);
+        return new ResponseEntity<>(annotationJobManager.submit(admissionControl.getClient(), body, fields, AnnotationJobManager.eachQuery(query -> {
+            throttle.acquire();
+            return annotateCopyNumberAlteration(query, fields);
+        })), HttpStatus.ACCEPTED);
+    }
+
+    @PublicApi
+    @PremiumPublicApi
+    @ApiOperation(value = "", notes = "Submit a job to annotate structural variants. The result can be downloaded once the job is completed.", response = AnnotationJob.class)
+    @ApiResponses(value = {
+        @ApiResponse(code = 202, message = "Accepted", response = AnnotationJob.class),
+        @ApiResponse(code = 400, message = "Error, error message will be given.", response = String.class)})
+    @RequestMapping(value = "/annotate/jobs/structuralVariants",
+        consumes = {"application/json"},
+        produces = {"application/json"},
+        method = RequestMethod.POST)
+    public ResponseEntity<AnnotationJob> annotateStructuralVariantsJobPost(
+        @ApiParam(value = "List of queries. Please see swagger.json for request body format.", required = true) @RequestBody() List<AnnotateStructuralVariantQuery> body
+        , @ApiParam(value = FIELDS_DESCRIPTION) @RequestParam(value = "fields", required = false) String fields
+    ) {
+        if (body == null) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        AdmissionControl.Throttle throttle = admissionControl.throttle(AdmissionControl.STRUCTURAL_VARIANT_QUERY_COST);
+        return new ResponseEntity<>(annotationJobManager.submit(admissionControl.getClient(), body, fields, AnnotationJobManager.eachQuery(query -> {
+            throttle.acquire();
+            return annotateStructuralVariant(query, fields);
+        })), HttpStatus.ACCEPTED);
+    }
+
+    @PublicApi
+    @PremiumPublicApi
+    @ApiOperation(value = "", notes = "Get the status and progress of an annotation job.", response = AnnotationJob.class)
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "OK", response = AnnotationJob.class),
+        @ApiResponse(code = 404, message = "Not Found")})
+    @RequestMapping(value = "/annotate/jobs/{jobId}",
+        produces = {"application/json"},
+        method = RequestMethod.GET)
+    public ResponseEntity<AnnotationJob> getAnnotationJob(
+        @ApiParam(value = "The id of the job", required = true) @PathVariable("jobId") String jobId
+    ) {
+        AnnotationJob job = annotationJobManager.getJob(admissionControl.getClient(), jobId);
+        if (job == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(job, HttpStatus.OK);
+    }
 
-                IndicatorQueryResp resp = this.cacheFetcher.processQuery(
-                    query.getReferenceGenome(),  null, fusionName, null, AlterationType.STRUCTURAL_VARIANT.name(), query.getTumorType(), query.getFunctionalFusion() ? "fusion" : "", null, null, query.getStructuralVariantType(), null,
-                    null, false, query.getEvidenceTypes());
-                resp.getQuery().setId(query.getId());
-                result.add(resp);
+    @PublicApi
+    @PremiumPublicApi
+    @ApiOperation(value = "", notes = "Download the result of a completed annotation job. The result is a gzipped JSON list of the annotations, in the order of the queries.")
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 404, message = "Not Found"),
+        @ApiResponse(code = 409, message = "The job is not completed")})
+    @RequestMapping(value = "/annotate/jobs/{jobId}/result",
+        produces = {"application/gzip"},
+        method = RequestMethod.GET)
+    public ResponseEntity<Resource> getAnnotationJobResult(
+        @ApiParam(value = "The id of the job", required = true) @PathVariable("jobId") String jobId
+    ) {
+        AnnotationJob job = annotationJobManager.getJob(admissionControl.getClient(), jobId);
+        if (job == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        File result = annotationJobManager.getResult(admissionControl.getClient(), jobId);
+        if (result == null) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/gzip"));
+        headers.setContentLength(result.length());
+        headers.set("Content-Disposition", "attachment; filename=\"" + result.getName() + "\"");
+        return new ResponseEntity<>(new FileSystemResource(result), headers, HttpStatus.OK);
+    }
+
+    @PublicApi
+    @PremiumPublicApi
+    @ApiOperation(value = "", notes = "Cancel an annotation job, or remove the result of a finished one.")
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 404, message = "Not Found")})
+    @RequestMapping(value = "/annotate/jobs/{jobId}",
+        method = RequestMethod.DELETE)
+    public ResponseEntity<Void> deleteAnnotationJob(
+        @ApiParam(value = "The id of the job", required = true) @PathVariable("jobId") String jobId
+    ) {
+        return new ResponseEntity<>(annotationJobManager.removeJob(admissionControl.getClient(), jobId) ? HttpStatus.OK : HttpStatus.NOT_FOUND);
+    }
+
+    private IndicatorQueryResp annotateMutationByProteinChange(AnnotateMutationByProteinChangeQuery query, String fields) {
+        return this.cacheFetcher.processQuery(getProteinChangeQuery(query), null, false, EvidenceTypeUtils.getEvidenceTypesForResponseFields(query.getEvidenceTypes(), fields));
+    }
+
+    private Query getProteinChangeQuery(AnnotateMutationByProteinChangeQuery query) {
+        return new Query(
+            query.getId(),
+            query.getReferenceGenome(),
+            query.getGene() == null ? null : query.getGene().getEntrezGeneId(),
+            query.getGene() == null ? null : query.getGene().getHugoSymbol(),
+            query.getAlteration(),
+            null,
+            null,
+            query.getTumorType(),
+            query.getConsequence(),
+            query.getProteinStart(),
+            query.getProteinEnd(),
+            null
+        );
+    }
+
+    private IndicatorQueryResp annotateMutationByGenomicChange(AnnotateMutationByGenomicChangeQuery query, String fields, Set<org.oncokb.oncokb_transcript.client.Gene> allTranscriptGenes, Map<String, Alteration> alterations) throws ApiException, org.genome_nexus.ApiException {
+        IndicatorQueryResp resp = this.getIndicatorQueryFromGenomicLocation(query.getReferenceGenome(), query.getGenomicLocation(), query.getTumorType(), EvidenceTypeUtils.getEvidenceTypesForResponseFields(query.getEvidenceTypes(), fields), allTranscriptGenes, alterations);
+        resp.getQuery().setId(query.getId());
+        return resp;
+    }
+
+    private IndicatorQueryResp annotateMutationByHGVSg(AnnotateMutationByHGVSgQuery query, String fields, Set<org.oncokb.oncokb_transcript.client.Gene> allTranscriptGenes, Map<String, Alteration> alterations) throws ApiException, org.genome_nexus.ApiException {
+        IndicatorQueryResp resp = this.getIndicatorQueryFromHGVSg(
+            query.getReferenceGenome(),
+            query.getHgvsg(),
+            query.getTumorType(),
+            EvidenceTypeUtils.getEvidenceTypesForResponseFields(query.getEvidenceTypes(), fields),
+            allTranscriptGenes,
+            alterations
+        );
+        resp.getQuery().setId(query.getId());
+        return resp;
+    }
+
+    private IndicatorQueryResp annotateCopyNumberAlteration(AnnotateCopyNumberAlterationQuery query, String fields) {
+        return this.cacheFetcher.processQuery(getCopyNumberAlterationQuery(query), null, false, EvidenceTypeUtils.getEvidenceTypesForResponseFields(query.getEvidenceTypes(), fields));
+    }
+
+    private Query getCopyNumberAlterationQuery(AnnotateCopyNumberAlterationQuery query) {
+        Gene gene = new Gene();
+        if (query.getGene() != null) {
+            try {
+                gene = this.cacheFetcher.findGeneBySymbol(
+                    query.getGene().getEntrezGeneId() != null ?
+                        query.getGene().getEntrezGeneId().toString() :
+                        query.getGene().getHugoSymbol()
+                );
+                if (gene == null) {
+                    gene = new Gene();
+                    gene.setEntrezGeneId(query.getGene().getEntrezGeneId());
+                    gene.setHugoSymbol(query.getGene().getHugoSymbol());
+                }
+            } catch (ApiException e) {
             }
         }
-        return new ResponseEntity<>(result, status);
+        return new Query(
+            query.getId(),
+            query.getReferenceGenome(),
+            gene.getEntrezGeneId(),
+            gene.getHugoSymbol(),
+            StringUtils.capitalize(query.getCopyNameAlterationType().name().toLowerCase()),
+            null, null,
+            query.getTumorType(), null, null, null, null);
     }
 
+    private IndicatorQueryResp annotateStructuralVariant(AnnotateStructuralVariantQuery query, String fields) {
+        return this.cacheFetcher.processQuery(getStructuralVariantQuery(query), null, false, EvidenceTypeUtils.getEvidenceTypesForResponseFields(query.getEvidenceTypes(), fields));
+    }
 
+    private Query getStructuralVariantQuery(AnnotateStructuralVariantQuery query) {
+        Gene geneA = new Gene();
+        if (query.getGeneA() != null) {
+            try {
+                geneA = this.cacheFetcher.findGeneBySymbol(
+                    query.getGeneA().getEntrezGeneId() != null ?
+                        query.getGeneA().getEntrezGeneId().toString() :
+                        query.getGeneA().getHugoSymbol()
+                );
+                if (geneA == null) {
+                    geneA = new Gene();
+                }
+            } catch (ApiException e) {
+            }
+        }
+        if (StringUtils.isEmpty(geneA.getHugoSymbol()) && geneA.getEntrezGeneId() == null && query.getGeneA() != null) {
+            geneA.setHugoSymbol(query.getGeneA().getHugoSymbol() == null ? "" : query.getGeneA().getHugoSymbol());
+            geneA.setEntrezGeneId(query.getGeneA().getEntrezGeneId());
+        }
+
+        Gene geneB = new Gene();
+        if (query.getGeneB() != null) {
+            try {
+                geneB = this.cacheFetcher.findGeneBySymbol(
+                    query.getGeneB().getEntrezGeneId() != null ?
+                        query.getGeneB().getEntrezGeneId().toString() :
+                        query.getGeneB().getHugoSymbol()
+                );
+                if (geneB == null) {
+                    geneB = new Gene();
+                }
+            } catch (ApiException e) {
+            }
+        }
+        if (StringUtils.isEmpty(geneB.getHugoSymbol()) && geneB.getEntrezGeneId() == null && query.getGeneB() != null) {
+            geneB.setHugoSymbol(query.getGeneB().getHugoSymbol() == null ? "" : query.getGeneB().getHugoSymbol());
+            geneB.setEntrezGeneId(query.getGeneB().getEntrezGeneId());
+        }
+
+        String fusionName = FusionUtils.getFusionName(geneA, geneB);
+
+        return new Query(
+            query.getId(), query.getReferenceGenome(), null, fusionName, null, AlterationType.STRUCTURAL_VARIANT.name(), query.getStructuralVariantType(),
+            query.getTumorType(), query.getFunctionalFusion() ? "fusion" : "", null, null, null);
+    }
 
     private IndicatorQueryResp getIndicatorQueryFromGenomicLocation(
         ReferenceGenome referenceGenome,
         String genomicLocation,
         String tumorType,
         Set<EvidenceType> evidenceTypes,
-        Set<org.oncokb.oncokb_transcript.client.Gene> allTranscriptGenes
+        Set<org.oncokb.oncokb_transcript.client.Gene> allTranscriptGenes,
+        Map<String, Alteration> alterations
     ) throws ApiException, org.genome_nexus.ApiException {
         Alteration alteration;
         if (!this.cacheFetcher.genomicLocationShouldBeAnnotated(GNVariantAnnotationType.GENOMIC_LOCATION, genomicLocation, referenceGenome, allTranscriptGenes)) {
             alteration = new Alteration();
+        } else if (alterations != null && alterations.containsKey(genomicLocation)) {
+            alteration = alterations.get(genomicLocation);
+        } else if (alterations != null) {
+            alteration = getAlterationOfBatchFromGenomeNexus(GNVariantAnnotationType.GENOMIC_LOCATION, referenceGenome, genomicLocation);
         } else {
             alteration = this.cacheFetcher.getAlterationFromGenomeNexus(GNVariantAnnotationType.GENOMIC_LOCATION, referenceGenome, genomicLocation);
         }
@@ -547,11 +866,16 @@ public class AnnotationsApiController {
         String hgvsg,
         String tumorType,
         Set<EvidenceType> evidenceTypes,
-        Set<org.oncokb.oncokb_transcript.client.Gene> allTranscriptGenes
+        Set<org.oncokb.oncokb_transcript.client.Gene> allTranscriptGenes,
+        Map<String, Alteration> alterations
     ) throws ApiException, org.genome_nexus.ApiException {
         Alteration alteration;
         if (!this.cacheFetcher.genomicLocationShouldBeAnnotated(GNVariantAnnotationType.HGVS_G, hgvsg, referenceGenome, allTranscriptGenes)) {
             alteration = new Alteration();
+        } else if (alterations != null && alterations.containsKey(hgvsg)) {
+            alteration = alterations.get(hgvsg);
+        } else if (alterations != null) {
+            alteration = getAlterationOfBatchFromGenomeNexus(GNVariantAnnotationType.HGVS_G, referenceGenome, hgvsg);
         } else {
             alteration = this.cacheFetcher.getAlterationFromGenomeNexus(GNVariantAnnotationType.HGVS_G, referenceGenome, hgvsg);
         }
@@ -575,6 +899,46 @@ public class AnnotationsApiController {
         );
     }
 
+    /**
+     * Annotate the distinct variants of a batch which should be annotated with Genome Nexus at once, see
+     * CacheFetcher.getAlterationsFromGenomeNexus. The variants left out are annotated one by one.
+     *
+     * @return the alterations by variant, by reference genome
+     */
+    private Map<ReferenceGenome, Map<String, Alteration>> getAlterationsFromGenomeNexus(
+        GNVariantAnnotationType type,
+        Map<ReferenceGenome, List<String>> queries,
+        Set<org.oncokb.oncokb_transcript.client.Gene> allTranscriptGenes
+    ) throws ApiException {
+        Map<ReferenceGenome, Map<String, Alteration>> alterations = new HashMap<>();
+        for (Map.Entry<ReferenceGenome, List<String>> entry : queries.entrySet()) {
+            if (entry.getKey() == null) {
+                continue;
+            }
+            Set<String> annotatedQueries = new LinkedHashSet<>();
+            for (String query : entry.getValue()) {
+                if (query != null && !annotatedQueries.contains(query) && this.cacheFetcher.genomicLocationShouldBeAnnotated(type, query, entry.getKey(), allTranscriptGenes)) {
+                    annotatedQueries.add(query);
+                }
+            }
+            alterations.put(entry.getKey(), this.cacheFetcher.getAlterationsFromGenomeNexus(type, entry.getKey(), annotatedQueries));
+        }
+        return alterations;
+    }
+
+    /**
+     * Annotate a variant of a batch which Genome Nexus did not annotate in batch. When the call is rejected, because
+     * Genome Nexus is unavailable or the request is out of time, the variant is not annotated and the rest of the
+     * batch is, the same as GenomeNexusUtils.getAnnotatedVariantFromGenomeNexus.
+     */
+    private Alteration getAlterationOfBatchFromGenomeNexus(GNVariantAnnotationType type, ReferenceGenome referenceGenome, String query) throws org.genome_nexus.ApiException {
+        try {
+            return this.cacheFetcher.getAlterationFromGenomeNexus(type, referenceGenome, query);
+        } catch (CircuitBreaker.CallRejectedException e) {
+            return new Alteration();
+        }
+    }
+
     private static Map<String, Gene> getGenePool(List<Gene> genes) {
         Map<String, Gene> map = new HashMap<>();
         for (Gene gene : genes) {
@@ -3,12 +3,15 @@ package org.mskcc.cbio.oncokb.api.pub.v1;
 import io.swagger.annotations.ApiParam;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.mskcc.cbio.oncokb.cache.CacheFetcher;
+import org.mskcc.cbio.oncokb.config.AdmissionControl;
 import org.mskcc.cbio.oncokb.model.*;
 import org.mskcc.cbio.oncokb.service.JsonResultFactory;
+import org.mskcc.cbio.oncokb.util.EvidenceTypeUtils;
 import org.mskcc.cbio.oncokb.util.GeneUtils;
-import org.mskcc.cbio.oncokb.util.IndicatorUtils;
 import org.mskcc.cbio.oncokb.util.LevelUtils;
 import org.mskcc.cbio.oncokb.util.MainUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
@@ -27,6 +30,11 @@ import static org.mskcc.cbio.oncokb.util.MainUtils.stringToEvidenceTypes;
 
 @Controller
 public class SearchApiController implements SearchApi {
+    @Autowired
+    CacheFetcher cacheFetcher;
+
+    @Autowired
+    AdmissionControl admissionControl;
 
     public ResponseEntity<IndicatorQueryResp> searchGet(
         @ApiParam(value = "The query ID") @RequestParam(value = "id", required = false) String id
@@ -59,10 +67,11 @@ public class SearchApiController implements SearchApi {
                     return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
                 }
             }
+            admissionControl.admitLegacy(StringUtils.isEmpty(hgvs) ? AdmissionControl.PROTEIN_CHANGE_QUERY_COST : AdmissionControl.GENOMIC_QUERY_COST, 1);
             Query query = new Query(id,matchedRG, entrezGeneId, hugoSymbol, variant, variantType, svType, tumorType, consequence, proteinStart, proteinEnd, hgvs);
 
             Set<LevelOfEvidence> levelOfEvidences = levels == null ? null : LevelUtils.parseStringLevelOfEvidences(levels);
-            indicatorQueryResp = IndicatorUtils.processQuery(query, levelOfEvidences, highestLevelOnly, new HashSet<>(MainUtils.stringToEvidenceTypes(evidenceType, ",")));
+            indicatorQueryResp = cacheFetcher.processQuery(query, levelOfEvidences, highestLevelOnly, EvidenceTypeUtils.getEvidenceTypesForResponseFields(new HashSet<>(MainUtils.stringToEvidenceTypes(evidenceType, ",")), fields));
         }
         return ResponseEntity.status(status.value()).body(JsonResultFactory.getIndicatorQueryResp(indicatorQueryResp, fields));
     }
@@ -78,10 +87,12 @@ public class SearchApiController implements SearchApi {
         if (body == null || body.getQueries() == null) {
             status = HttpStatus.BAD_REQUEST;
         } else {
+            admissionControl.admitLegacy(AdmissionControl.PROTEIN_CHANGE_QUERY_COST, body.getQueries().size());
+            Set<EvidenceType> evidenceTypes = EvidenceTypeUtils.getEvidenceTypesForResponseFields(new HashSet<>(stringToEvidenceTypes(body.getEvidenceTypes(), ",")), fields);
             for (Query query : body.getQueries()) {
-                result.add(IndicatorUtils.processQuery(query,
+                result.add(cacheFetcher.processQuery(query,
                     body.getLevels() == null ? null : body.getLevels(),
-                    body.getHighestLevelOnly(), new HashSet<>(stringToEvidenceTypes(body.getEvidenceTypes(), ","))));
+                    body.getHighestLevelOnly(), evidenceTypes));
             }
         }
         return ResponseEntity.status(status.value()).body(JsonResultFactory.getIndicatorQueryResp(result, fields));
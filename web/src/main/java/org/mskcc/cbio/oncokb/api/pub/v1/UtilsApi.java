@@ -7,13 +7,12 @@ import org.mskcc.cbio.oncokb.apiModels.CuratedGene;
 import org.mskcc.cbio.oncokb.config.annotation.PremiumPublicApi;
 import org.mskcc.cbio.oncokb.config.annotation.PublicApi;
 import org.mskcc.cbio.oncokb.model.CancerGene;
-import org.oncokb.oncokb_transcript.ApiException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
-import java.io.IOException;
 import java.util.List;
 
 import static org.mskcc.cbio.oncokb.api.pub.v1.Constants.INCLUDE_EVIDENCE;
@@ -36,7 +35,7 @@ public interface UtilsApi {
     })
     @RequestMapping(value = "/utils/allAnnotatedVariants", produces = {"application/json"},
         method = RequestMethod.GET)
-    ResponseEntity<List<AnnotatedVariant>> utilsAllAnnotatedVariantsGet(
+    WebAsyncTask<ResponseEntity<List<AnnotatedVariant>>> utilsAllAnnotatedVariantsGet(
         @ApiParam(value = VERSION) @RequestParam(value = "version", required = false) String version
     );
 
@@ -50,7 +49,7 @@ public interface UtilsApi {
     @RequestMapping(value = "/utils/allAnnotatedVariants.txt",
         produces = TEXT_PLAIN_VALUE,
         method = RequestMethod.GET)
-    ResponseEntity<String> utilsAllAnnotatedVariantsTxtGet(
+    WebAsyncTask<ResponseEntity<String>> utilsAllAnnotatedVariantsTxtGet(
         @ApiParam(value = VERSION) @RequestParam(value = "version", required = false) String version
     );
 
@@ -63,7 +62,7 @@ public interface UtilsApi {
     })
     @RequestMapping(value = "/utils/allActionableVariants", produces = {"application/json"},
         method = RequestMethod.GET)
-    ResponseEntity<List<ActionableGene>> utilsAllActionableVariantsGet(
+    WebAsyncTask<ResponseEntity<List<ActionableGene>>> utilsAllActionableVariantsGet(
         @ApiParam(value = VERSION) @RequestParam(value = "version", required = false) String version
     );
 
@@ -78,7 +77,7 @@ public interface UtilsApi {
     @RequestMapping(value = "/utils/allActionableVariants.txt",
         produces = TEXT_PLAIN_VALUE,
         method = RequestMethod.GET)
-    ResponseEntity<String> utilsAllActionableVariantsTxtGet(
+    WebAsyncTask<ResponseEntity<String>> utilsAllActionableVariantsTxtGet(
         @ApiParam(value = VERSION) @RequestParam(value = "version", required = false) String version
     );
 
@@ -93,9 +92,9 @@ public interface UtilsApi {
     @RequestMapping(value = "/utils/cancerGeneList",
         produces = {"application/json"},
         method = RequestMethod.GET)
-    ResponseEntity<List<CancerGene>> utilsCancerGeneListGet(
+    WebAsyncTask<ResponseEntity<List<CancerGene>>> utilsCancerGeneListGet(
         @ApiParam(value = VERSION) @RequestParam(value = "version", required = false) String version
-    ) throws ApiException, IOException;
+    );
 
     @PublicApi
     @PremiumPublicApi
@@ -108,9 +107,9 @@ public interface UtilsApi {
     @RequestMapping(value = "/utils/cancerGeneList.txt",
         produces = TEXT_PLAIN_VALUE,
         method = RequestMethod.GET)
-    ResponseEntity<String> utilsCancerGeneListTxtGet(
+    WebAsyncTask<ResponseEntity<String>> utilsCancerGeneListTxtGet(
         @ApiParam(value = VERSION) @RequestParam(value = "version", required = false) String version
-    ) throws ApiException, IOException;
+    );
 
     @PublicApi
     @PremiumPublicApi
@@ -123,7 +122,7 @@ public interface UtilsApi {
     @RequestMapping(value = "/utils/allCuratedGenes",
         produces = {"application/json"},
         method = RequestMethod.GET)
-    ResponseEntity<List<CuratedGene>> utilsAllCuratedGenesGet(
+    WebAsyncTask<ResponseEntity<List<CuratedGene>>> utilsAllCuratedGenesGet(
         @ApiParam(value = VERSION) @RequestParam(value = "version", required = false) String version
         , @ApiParam(value = INCLUDE_EVIDENCE, defaultValue = "TRUE") @RequestParam(value = "includeEvidence", required = false, defaultValue = "TRUE") Boolean includeEvidence
     );
@@ -139,7 +138,7 @@ public interface UtilsApi {
     @RequestMapping(value = "/utils/allCuratedGenes.txt",
         produces = TEXT_PLAIN_VALUE,
         method = RequestMethod.GET)
-    ResponseEntity<String> utilsAllCuratedGenesTxtGet(
+    WebAsyncTask<ResponseEntity<String>> utilsAllCuratedGenesTxtGet(
         @ApiParam(value = VERSION) @RequestParam(value = "version", required = false) String version
         , @ApiParam(value = INCLUDE_EVIDENCE, defaultValue = "TRUE") @RequestParam(value = "includeEvidence", required = false, defaultValue = "TRUE") Boolean includeEvidence
     );
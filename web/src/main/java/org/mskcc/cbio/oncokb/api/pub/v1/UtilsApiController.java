@@ -7,16 +7,17 @@ import org.mskcc.cbio.oncokb.apiModels.CuratedGene;
 import org.mskcc.cbio.oncokb.apiModels.download.FileName;
 import org.mskcc.cbio.oncokb.apiModels.download.FileExtension;
 import org.mskcc.cbio.oncokb.cache.CacheFetcher;
+import org.mskcc.cbio.oncokb.config.ExecutionLane;
+import org.mskcc.cbio.oncokb.config.ExecutionLanes;
 import org.mskcc.cbio.oncokb.model.*;
 import org.mskcc.cbio.oncokb.util.*;
-import org.oncokb.oncokb_transcript.ApiException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
-import java.io.IOException;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -32,63 +33,70 @@ public class UtilsApiController implements UtilsApi {
     @Autowired
     CacheFetcher cacheFetcher;
 
+    @Autowired
+    ExecutionLanes executionLanes;
+
     @Override
-    public ResponseEntity<List<AnnotatedVariant>> utilsAllAnnotatedVariantsGet(
+    public WebAsyncTask<ResponseEntity<List<AnnotatedVariant>>> utilsAllAnnotatedVariantsGet(
         @ApiParam(value = VERSION) @RequestParam(value = "version", required = false) String version
     ) {
-        if (version != null) {
-            return getDataDownloadResponseEntity(version, FileName.ALL_ANNOTATED_VARIANTS, FileExtension.JSON);
-        }
-        return new ResponseEntity<>(getAllAnnotatedVariants(), HttpStatus.OK);
+        return executionLanes.submit(ExecutionLane.EXPORT, () -> {
+            if (version != null) {
+                return getDataDownloadResponseEntity(version, FileName.ALL_ANNOTATED_VARIANTS, FileExtension.JSON);
+            }
+            return new ResponseEntity<>(getAllAnnotatedVariants(), HttpStatus.OK);
+        });
     }
 
     @Override
-    public ResponseEntity<String> utilsAllAnnotatedVariantsTxtGet(
+    public WebAsyncTask<ResponseEntity<String>> utilsAllAnnotatedVariantsTxtGet(
         @ApiParam(value = VERSION) @RequestParam(value = "version", required = false) String version
     ) {
-        if (version != null) {
-            return getDataDownloadResponseEntity(version, FileName.ALL_ANNOTATED_VARIANTS, FileExtension.TEXT);
-        }
-        String separator = "\t";
-        String newLine = "\n";
-
-        StringBuilder sb = new StringBuilder();
-        List<String> header = new ArrayList<>();
-        header.add("GRCh37 Isoform");
-        header.add("GRCh37 RefSeq");
-        header.add("GRCh38 Isoform");
-        header.add("GRCh38 RefSeq");
-        header.add("Entrez Gene ID");
-        header.add("Hugo Symbol");
-        header.add("Reference Genome");
-        header.add("Alteration");
-        header.add("Protein Change");
-        header.add("Oncogenicity");
-        header.add("Mutation Effect");
-        header.add("PMIDs for Mutation Effect");
-        header.add("Abstracts for Mutation Effect");
-        sb.append(MainUtils.listToString(header, separator));
-        sb.append(newLine);
+        return executionLanes.submit(ExecutionLane.EXPORT, () -> {
+            if (version != null) {
+                return getDataDownloadResponseEntity(version, FileName.ALL_ANNOTATED_VARIANTS, FileExtension.TEXT);
+            }
+            String separator = "\t";
+            String newLine = "\n";
 
-        for (AnnotatedVariant annotatedVariant : getAllAnnotatedVariants()) {
-            List<String> row = new ArrayList<>();
-            row.add(annotatedVariant.getGrch37Isoform());
-            row.add(annotatedVariant.getGrch37RefSeq());
-            row.add(annotatedVariant.getGrch38Isoform());
-            row.add(annotatedVariant.getGrch38RefSeq());
-            row.add(String.valueOf(annotatedVariant.getEntrezGeneId()));
-            row.add(annotatedVariant.getGene());
-            row.add(annotatedVariant.getReferenceGenome());
-            row.add(annotatedVariant.getVariant());
-            row.add(annotatedVariant.getProteinChange());
-            row.add(annotatedVariant.getOncogenicity());
-            row.add(annotatedVariant.getMutationEffect());
-            row.add(annotatedVariant.getMutationEffectPmids());
-            row.add(annotatedVariant.getMutationEffectAbstracts());
-            sb.append(MainUtils.listToString(row, separator));
+            StringBuilder sb = new StringBuilder();
+            List<String> header = new ArrayList<>();
+            header.add("GRCh37 Isoform");
+            header.add("GRCh37 RefSeq");
+            header.add("GRCh38 Isoform");
+            header.add("GRCh38 RefSeq");
+            header.add("Entrez Gene ID");
+            header.add("Hugo Symbol");
+            header.add("Reference Genome");
+            header.add("Alteration");
+            header.add("Protein Change");
+            header.add("Oncogenicity");
+            header.add("Mutation Effect");
+            header.add("PMIDs for Mutation Effect");
+            header.add("Abstracts for Mutation Effect");
+            sb.append(MainUtils.listToString(header, separator));
             sb.append(newLine);
-        }
-        return new ResponseEntity<>(sb.toString(), HttpStatus.OK);
+
+            for (AnnotatedVariant annotatedVariant : getAllAnnotatedVariants()) {
+                List<String> row = new ArrayList<>();
+                row.add(annotatedVariant.getGrch37Isoform());
+                row.add(annotatedVariant.getGrch37RefSeq());
+                row.add(annotatedVariant.getGrch38Isoform());
+                row.add(annotatedVariant.getGrch38RefSeq());
+                row.add(String.valueOf(annotatedVariant.getEntrezGeneId()));
+                row.add(annotatedVariant.getGene());
+                row.add(annotatedVariant.getReferenceGenome());
+                row.add(annotatedVariant.getVariant());
+                row.add(annotatedVariant.getProteinChange());
+                row.add(annotatedVariant.getOncogenicity());
+                row.add(annotatedVariant.getMutationEffect());
+                row.add(annotatedVariant.getMutationEffectPmids());
+                row.add(annotatedVariant.getMutationEffectAbstracts());
+                sb.append(MainUtils.listToString(row, separator));
+                sb.append(newLine);
+            }
+            return new ResponseEntity<>(sb.toString(), HttpStatus.OK);
+        });
     }
 
     private List<AnnotatedVariant> getAllAnnotatedVariants() {
@@ -132,63 +140,67 @@ public class UtilsApiController implements UtilsApi {
     }
 
     @Override
-    public ResponseEntity<List<ActionableGene>> utilsAllActionableVariantsGet(
+    public WebAsyncTask<ResponseEntity<List<ActionableGene>>> utilsAllActionableVariantsGet(
         @ApiParam(value = VERSION) @RequestParam(value = "version", required = false) String version
     ) {
-        if (version != null) {
-            return getDataDownloadResponseEntity(version, FileName.ALL_ACTIONABLE_VARIANTS, FileExtension.JSON);
-        }
-        return new ResponseEntity<>(getAllActionableVariants(), HttpStatus.OK);
+        return executionLanes.submit(ExecutionLane.EXPORT, () -> {
+            if (version != null) {
+                return getDataDownloadResponseEntity(version, FileName.ALL_ACTIONABLE_VARIANTS, FileExtension.JSON);
+            }
+            return new ResponseEntity<>(getAllActionableVariants(), HttpStatus.OK);
+        });
     }
 
     @Override
-    public ResponseEntity<String> utilsAllActionableVariantsTxtGet(
+    public WebAsyncTask<ResponseEntity<String>> utilsAllActionableVariantsTxtGet(
         @ApiParam(value = VERSION) @RequestParam(value = "version", required = false) String version
     ) {
-        if (version != null) {
-            return getDataDownloadResponseEntity(version, FileName.ALL_ACTIONABLE_VARIANTS, FileExtension.TEXT);
-        }
-        String separator = "\t";
-        String newLine = "\n";
-        StringBuilder sb = new StringBuilder();
-        List<String> header = new ArrayList<>();
-        header.add("GRCh37 Isoform");
-        header.add("GRCh37 RefSeq");
-        header.add("GRCh38 Isoform");
-        header.add("GRCh38 RefSeq");
-        header.add("Entrez Gene ID");
-        header.add("Hugo Symbol");
-        header.add("Reference Genome");
-        header.add("Alteration");
-        header.add("Protein Change");
-        header.add("Cancer Type");
-        header.add("Level");
-        header.add("Drugs(s)");
-        header.add("PMIDs for drug");
-        header.add("Abstracts for drug");
-        sb.append(MainUtils.listToString(header, separator));
-        sb.append(newLine);
-
-        for (ActionableGene actionableGene : getAllActionableVariants()) {
-            List<String> row = new ArrayList<>();
-            row.add(actionableGene.getGrch37Isoform());
-            row.add(actionableGene.getGrch37RefSeq());
-            row.add(actionableGene.getGrch38Isoform());
-            row.add(actionableGene.getGrch38RefSeq());
-            row.add(String.valueOf(actionableGene.getEntrezGeneId()));
-            row.add(actionableGene.getGene());
-            row.add(actionableGene.getReferenceGenome());
-            row.add(actionableGene.getVariant());
-            row.add(actionableGene.getProteinChange());
-            row.add(actionableGene.getCancerType());
-            row.add(actionableGene.getLevel());
-            row.add(actionableGene.getDrugs());
-            row.add(actionableGene.getPmids());
-            row.add(actionableGene.getAbstracts());
-            sb.append(MainUtils.listToString(row, separator));
+        return executionLanes.submit(ExecutionLane.EXPORT, () -> {
+            if (version != null) {
+                return getDataDownloadResponseEntity(version, FileName.ALL_ACTIONABLE_VARIANTS, FileExtension.TEXT);
+            }
+            String separator = "\t";
+            String newLine = "\n";
+            StringBuilder sb = new StringBuilder();
+            List<String> header = new ArrayList<>();
+            header.add("GRCh37 Isoform");
+            header.add("GRCh37 RefSeq");
+            header.add("GRCh38 Isoform");
+            header.add("GRCh38 RefSeq");
+            header.add("Entrez Gene ID");
+            header.add("Hugo Symbol");
+            header.add("Reference Genome");
+            header.add("Alteration");
+            header.add("Protein Change");
+            header.add("Cancer Type");
+            header.add("Level");
+            header.add("Drugs(s)");
+            header.add("PMIDs for drug");
+            header.add("Abstracts for drug");
+            sb.append(MainUtils.listToString(header, separator));
             sb.append(newLine);
-        }
-        return new ResponseEntity<>(sb.toString(), HttpStatus.OK);
+
+            for (ActionableGene actionableGene : getAllActionableVariants()) {
+                List<String> row = new ArrayList<>();
+                row.add(actionableGene.getGrch37Isoform());
+                row.add(actionableGene.getGrch37RefSeq());
+                row.add(actionableGene.getGrch38Isoform());
+                row.add(actionableGene.getGrch38RefSeq());
+                row.add(String.valueOf(actionableGene.getEntrezGeneId()));
+                row.add(actionableGene.getGene());
+                row.add(actionableGene.getReferenceGenome());
+                row.add(actionableGene.getVariant());
+                row.add(actionableGene.getProteinChange());
+                row.add(actionableGene.getCancerType());
+                row.add(actionableGene.getLevel());
+                row.add(actionableGene.getDrugs());
+                row.add(actionableGene.getPmids());
+                row.add(actionableGene.getAbstracts());
+                sb.append(MainUtils.listToString(row, separator));
+                sb.append(newLine);
+            }
+            return new ResponseEntity<>(sb.toString(), HttpStatus.OK);
+        });
     }
 
     private List<ActionableGene> getAllActionableVariants() {
@@ -253,47 +265,55 @@ public class UtilsApiController implements UtilsApi {
     }
 
     @Override
-    public ResponseEntity<List<CancerGene>> utilsCancerGeneListGet(
+    public WebAsyncTask<ResponseEntity<List<CancerGene>>> utilsCancerGeneListGet(
         @ApiParam(value = VERSION) @RequestParam(value = "version", required = false) String version
-    ) throws ApiException, IOException {
-        if (version != null) {
-            return getDataDownloadResponseEntity(version, FileName.CANCER_GENE_LIST, FileExtension.JSON);
-        }
-        List<CancerGene> result = this.cacheFetcher.getCancerGenes();
-        return new ResponseEntity<>(result, HttpStatus.OK);
+    ) {
+        return executionLanes.submit(ExecutionLane.EXPORT, () -> {
+            if (version != null) {
+                return getDataDownloadResponseEntity(version, FileName.CANCER_GENE_LIST, FileExtension.JSON);
+            }
+            List<CancerGene> result = this.cacheFetcher.getCancerGenes();
+            return new ResponseEntity<>(result, HttpStatus.OK);
+        });
     }
 
     @Override
-    public ResponseEntity<String> utilsCancerGeneListTxtGet(
+    public WebAsyncTask<ResponseEntity<String>> utilsCancerGeneListTxtGet(
         @ApiParam(value = VERSION) @RequestParam(value = "version", required = false) String version
-    ) throws ApiException, IOException {
-        if (version != null) {
-            return getDataDownloadResponseEntity(version, FileName.CANCER_GENE_LIST, FileExtension.TEXT);
-        }
-        return new ResponseEntity<>(this.cacheFetcher.getCancerGenesTxt(), HttpStatus.OK);
+    ) {
+        return executionLanes.submit(ExecutionLane.EXPORT, () -> {
+            if (version != null) {
+                return getDataDownloadResponseEntity(version, FileName.CANCER_GENE_LIST, FileExtension.TEXT);
+            }
+            return new ResponseEntity<>(this.cacheFetcher.getCancerGenesTxt(), HttpStatus.OK);
+        });
     }
 
 
     @Override
-    public ResponseEntity<List<CuratedGene>> utilsAllCuratedGenesGet(
+    public WebAsyncTask<ResponseEntity<List<CuratedGene>>> utilsAllCuratedGenesGet(
         @ApiParam(value = VERSION) @RequestParam(value = "version", required = false) String version
         , @ApiParam(value = INCLUDE_EVIDENCE, defaultValue = "TRUE") @RequestParam(value = "includeEvidence", required = false, defaultValue = "TRUE") Boolean includeEvidence
     ) {
-        if (version != null) {
-            return getDataDownloadResponseEntity(version, FileName.ALL_CURATED_GENES, FileExtension.JSON);
-        }
-        return new ResponseEntity<>(this.cacheFetcher.getCuratedGenes(includeEvidence), HttpStatus.OK);
+        return executionLanes.submit(ExecutionLane.EXPORT, () -> {
+            if (version != null) {
+                return getDataDownloadResponseEntity(version, FileName.ALL_CURATED_GENES, FileExtension.JSON);
+            }
+            return new ResponseEntity<>(this.cacheFetcher.getCuratedGenes(includeEvidence), HttpStatus.OK);
+        });
     }
 
     @Override
-    public ResponseEntity<String> utilsAllCuratedGenesTxtGet(
+    public WebAsyncTask<ResponseEntity<String>> utilsAllCuratedGenesTxtGet(
         @ApiParam(value = VERSION) @RequestParam(value = "version", required = false) String version
         , @ApiParam(value = INCLUDE_EVIDENCE, defaultValue = "TRUE") @RequestParam(value = "includeEvidence", required = false, defaultValue = "TRUE") Boolean includeEvidence
     ) {
-        if (version != null) {
-            return getDataDownloadResponseEntity(version, FileName.ALL_CURATED_GENES, FileExtension.TEXT);
-        }
-        return new ResponseEntity<>(this.cacheFetcher.getCuratedGenesTxt(includeEvidence), HttpStatus.OK);
+        return executionLanes.submit(ExecutionLane.EXPORT, () -> {
+            if (version != null) {
+                return getDataDownloadResponseEntity(version, FileName.ALL_CURATED_GENES, FileExtension.TEXT);
+            }
+            return new ResponseEntity<>(this.cacheFetcher.getCuratedGenesTxt(includeEvidence), HttpStatus.OK);
+        });
     }
 
 }
@@ -24,8 +24,8 @@ import org.springframework.web.bind.annotation.*;
 import static org.mskcc.cbio.oncokb.util.GenomeNexusUtils.getCanonicalEnsemblTranscript;
 import static org.mskcc.cbio.oncokb.util.GenomeNexusUtils.matchTranscript;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.stream.Collectors;
 
 /**1
  * Controller to authenticate users.
@@ -79,10 +79,13 @@ public class PrivateGenomeNexusController {
         if (body == null) {
             status = HttpStatus.BAD_REQUEST;
         } else {
+            List<ReferenceGenome> referenceGenomes = new ArrayList<>();
+            List<String> hgvsgs = new ArrayList<>();
             for (AnnotateMutationByHGVSgQuery query : body) {
-                GenomeNexusAnnotatedVariantInfo resp = GenomeNexusUtils.getAnnotatedVariantFromGenomeNexus(GNVariantAnnotationType.HGVS_G, query.getHgvsg(), query.getReferenceGenome());
-                result.add(resp);
+                referenceGenomes.add(query.getReferenceGenome());
+                hgvsgs.add(query.getHgvsg());
             }
+            result = getAnnotatedVariantsFromGenomeNexus(GNVariantAnnotationType.HGVS_G, hgvsgs, referenceGenomes);
         }
         return new ResponseEntity<>(result, status);
     }
@@ -104,10 +107,13 @@ public class PrivateGenomeNexusController {
         if (body == null) {
             status = HttpStatus.BAD_REQUEST;
         } else {
+            List<ReferenceGenome> referenceGenomes = new ArrayList<>();
+            List<String> genomicLocations = new ArrayList<>();
             for (AnnotateMutationByGenomicChangeQuery query : body) {
-                GenomeNexusAnnotatedVariantInfo resp = GenomeNexusUtils.getAnnotatedVariantFromGenomeNexus(GNVariantAnnotationType.GENOMIC_LOCATION, query.getGenomicLocation(), query.getReferenceGenome());
-                result.add(resp);
+                referenceGenomes.add(query.getReferenceGenome());
+                genomicLocations.add(query.getGenomicLocation());
             }
+            result = getAnnotatedVariantsFromGenomeNexus(GNVariantAnnotationType.GENOMIC_LOCATION, genomicLocations, referenceGenomes);
         }
         return new ResponseEntity<>(result, status);
     }
@@ -135,4 +141,21 @@ public class PrivateGenomeNexusController {
         return new ResponseEntity<>(status);
     }
 
+
+    // Annotate the variants of every reference genome together, the results are in the order of the queries
+    private List<GenomeNexusAnnotatedVariantInfo> getAnnotatedVariantsFromGenomeNexus(GNVariantAnnotationType type, List<String> queries, List<ReferenceGenome> referenceGenomes) throws ApiException {
+        Map<ReferenceGenome, List<Integer>> positions = new LinkedHashMap<>();
+        for (int i = 0; i < queries.size(); i++) {
+            positions.computeIfAbsent(referenceGenomes.get(i), k -> new ArrayList<>()).add(i);
+        }
+        GenomeNexusAnnotatedVariantInfo[] result = new GenomeNexusAnnotatedVariantInfo[queries.size()];
+        for (Map.Entry<ReferenceGenome, List<Integer>> entry : positions.entrySet()) {
+            List<String> referenceGenomeQueries = entry.getValue().stream().map(queries::get).collect(Collectors.toList());
+            List<GenomeNexusAnnotatedVariantInfo> variantInfos = GenomeNexusUtils.getAnnotatedVariantsFromGenomeNexus(type, referenceGenomeQueries, entry.getKey());
+            for (int i = 0; i < variantInfos.size(); i++) {
+                result[entry.getValue().get(i)] = variantInfos.get(i);
+            }
+        }
+        return Arrays.asList(result);
+    }
 }
@@ -6,10 +6,12 @@ import org.apache.commons.collections.map.HashedMap;
 import org.apache.commons.lang3.StringUtils;
 import org.mskcc.cbio.oncokb.apiModels.DrugMatch;
 import org.mskcc.cbio.oncokb.bo.OncokbTranscriptService;
+import org.mskcc.cbio.oncokb.cache.CacheFetcher;
 import org.mskcc.cbio.oncokb.model.*;
 import org.mskcc.cbio.oncokb.model.TumorType;
 import org.mskcc.cbio.oncokb.util.*;
 import org.oncokb.oncokb_transcript.ApiException;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
@@ -27,6 +29,9 @@ import static org.mskcc.cbio.oncokb.Constants.DEFAULT_REFERENCE_GENOME;
 public class PrivateSearchApiController implements PrivateSearchApi {
     private Integer DEFAULT_RETURN_LIMIT = 5;
 
+    @Autowired
+    CacheFetcher cacheFetcher;
+
     @Override
     public ResponseEntity<Set<BiologicalVariant>> searchVariantsBiologicalGet(
         @ApiParam(value = "") @RequestParam(value = "hugoSymbol", required = false) String hugoSymbol
@@ -383,7 +388,7 @@ public class PrivateSearchApiController implements PrivateSearchApi {
         query.setAlteration(alteration.getAlteration());
         query.setReferenceGenome(alteration.getReferenceGenomes().iterator().next());
 
-        IndicatorQueryResp resp = IndicatorUtils.processQuery(query, null, false, null);
+        IndicatorQueryResp resp = cacheFetcher.processQuery(query, null, false, null);
         typeaheadSearchResp.setOncogenicity(resp.getOncogenic());
         typeaheadSearchResp.setVUS(resp.getVUS());
         typeaheadSearchResp.setAnnotation(resp.getVariantSummary());
@@ -404,7 +404,7 @@ public class PrivateUtilsApiController implements PrivateUtilsApi {
         }
         query.setTumorType(tumorType);
         List<EvidenceQueryRes> responses = EvidenceUtils.processRequest(Collections.singletonList(query), new HashSet<>(EvidenceTypeUtils.getAllEvidenceTypes()), LevelUtils.getPublicLevels(), false);
-        IndicatorQueryResp indicatorQueryResp = IndicatorUtils.processQuery(query, null, false, null);
+        IndicatorQueryResp indicatorQueryResp = this.cacheFetcher.processQuery(query, null, false, null);
 
         EvidenceQueryRes response = responses.iterator().next();
 
@@ -0,0 +1,237 @@
+package org.mskcc.cbio.oncokb.config;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.HttpServletRequest;
+import java.security.Principal;
+import java.util.*;
+
+/**
+ * Cost aware admission control of the annotation endpoints, disabled by default. Every client has a token bucket,
+ * every request takes the estimated cost of its queries from the bucket before it is submitted to its lane. When
+ * there are not enough tokens left, the request is rejected right away with the time the client has to wait, see
+ * AsyncConfiguration. A request which costs more than the bucket holds is admitted once the bucket is full, the
+ * bucket then goes into debt and the next requests of the client wait until it is paid back. An annotation job
+ * takes the cost of its queries one by one while it runs instead (see Throttle).
+ * <p>
+ * A client is an authenticated user: the principal of the request, or the user in userHeader when the request is
+ * forwarded by one of the trusted proxies, which validated the token of the user. The Authorization header itself
+ * is never trusted, the requests without an authenticated user are clients by their address. The address is the
+ * address of the connection, X-Forwarded-For is only used when the connection comes from one of the trusted proxies,
+ * the client is then the last address of the header which is not a trusted proxy.
+ * <p>
+ * The legacy indicator.json and /search endpoints share the buckets only when legacyEndpoints is set, their
+ * clients predate the quota and are not throttled otherwise.
+ * <p>
+ * At most maxClientsPerAddress users of the same address get their own bucket, the other users of the address share
+ * the bucket of the address. The buckets of at most maxClients clients are kept, the least recently used ones are
+ * dropped first.
+ */
+public class AdmissionControl {
+    // The estimated cost of one query. Genomic queries wait on Genome Nexus before being annotated,
+    // structural variants may be annotated once for each gene of the fusion.
+    public static final int PROTEIN_CHANGE_QUERY_COST = 1;
+    public static final int COPY_NUMBER_ALTERATION_QUERY_COST = 1;
+    public static final int STRUCTURAL_VARIANT_QUERY_COST = 2;
+    public static final int GENOMIC_QUERY_COST = 4;
+
+    private static final String USER_PREFIX = "user:";
+    private static final String ADDRESS_PREFIX = "address:";
+
+    private final boolean enabled;
+    private final boolean legacyEndpoints;
+    private final int capacity;
+    private final int refillPerSecond;
+    private final int maxClientsPerAddress;
+    private final Set<String> trustedProxies;
+    private final String userHeader;
+    private final Map<String, TokenBucket> buckets;
+    // The users with their own bucket by address
+    private final Map<String, Set<String>> usersByAddress;
+
+    public AdmissionControl(boolean enabled, boolean legacyEndpoints, int capacity, int refillPerSecond, int maxClients, int maxClientsPerAddress,
+                            Set<String> trustedProxies, String userHeader) {
+        this.enabled = enabled;
+        this.legacyEndpoints = legacyEndpoints;
+        this.capacity = capacity;
+        this.refillPerSecond = refillPerSecond;
+        this.maxClientsPerAddress = maxClientsPerAddress;
+        this.trustedProxies = trustedProxies;
+        this.userHeader = userHeader;
+        this.buckets = new LinkedHashMap<String, TokenBucket>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TokenBucket> eldest) {
+                return size() > maxClients;
+            }
+        };
+        this.usersByAddress = new LinkedHashMap<String, Set<String>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Set<String>> eldest) {
+                return size() > maxClients;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void admit(int queryCost, int numberOfQueries) {
+        if (!enabled) {
+            return;
+        }
+        long cost = (long) queryCost * Math.max(numberOfQueries, 1);
+        long waitInMillis = getBucket(getRequest()).tryConsume(cost);
+        if (waitInMillis > 0) {
+            throw new AdmissionRejectedException((long) Math.ceil(waitInMillis / 1000.0));
+        }
+    }
+
+    /**
+     * The admission of a request of the legacy endpoints, only checked when legacyEndpoints is set.
+     */
+    public void admitLegacy(int queryCost, int numberOfQueries) {
+        if (legacyEndpoints) {
+            admit(queryCost, numberOfQueries);
+        }
+    }
+
+    /**
+     * @return the throttle of the client of the current request, to take the cost of the queries of a job while
+     * it runs
+     */
+    public Throttle throttle(int queryCost) {
+        if (!enabled) {
+            return () -> {
+            };
+        }
+        HttpServletRequest request = getRequest();
+        String user = getUser(request);
+        String address = getAddress(request);
+        return () -> {
+            long waitInMillis;
+            while ((waitInMillis = getBucket(user, address).tryConsume(queryCost)) > 0) {
+                Thread.sleep(waitInMillis);
+            }
+        };
+    }
+
+    private TokenBucket getBucket(HttpServletRequest request) {
+        return getBucket(getUser(request), getAddress(request));
+    }
+
+    private TokenBucket getBucket(String user, String address) {
+        String client = ADDRESS_PREFIX + address;
+        if (user != null) {
+            synchronized (usersByAddress) {
+                Set<String> users = usersByAddress.computeIfAbsent(address, key -> new HashSet<>());
+                if (users.contains(user) || users.size() < maxClientsPerAddress) {
+                    users.add(user);
+                    client = USER_PREFIX + user;
+                }
+            }
+        }
+        synchronized (buckets) {
+            return buckets.computeIfAbsent(client, key -> new TokenBucket(capacity, refillPerSecond));
+        }
+    }
+
+    /**
+     * @return the client of the current request, its authenticated user or its address
+     */
+    public String getClient() {
+        HttpServletRequest request = getRequest();
+        String user = getUser(request);
+        return user == null ? ADDRESS_PREFIX + getAddress(request) : USER_PREFIX + user;
+    }
+
+    private HttpServletRequest getRequest() {
+        return ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
+    }
+
+    // The authenticated user of the request, null when there is none
+    String getUser(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        if (principal != null && StringUtils.isNotEmpty(principal.getName())) {
+            return principal.getName();
+        }
+        if (StringUtils.isNotEmpty(userHeader) && trustedProxies.contains(request.getRemoteAddr())) {
+            String user = request.getHeader(userHeader);
+            if (StringUtils.isNotBlank(user)) {
+                return user.trim();
+            }
+        }
+        return null;
+    }
+
+    String getAddress(HttpServletRequest request) {
+        String remoteAddress = request.getRemoteAddr();
+        String forwardedFor = request.getHeader("X-Forwarded-For");
+        if (StringUtils.isEmpty(forwardedFor) || !trustedProxies.contains(remoteAddress)) {
+            return remoteAddress;
+        }
+        // Every proxy appends the address it received the request from
+        String[] addresses = forwardedFor.split(",");
+        for (int i = addresses.length - 1; i >= 0; i--) {
+            String address = addresses[i].trim();
+            if (!address.isEmpty() && !trustedProxies.contains(address)) {
+                return address;
+            }
+        }
+        return remoteAddress;
+    }
+
+    public interface Throttle {
+        /**
+         * Wait until the client has the tokens of one query and take them.
+         */
+        void acquire() throws InterruptedException;
+    }
+
+    public static class AdmissionRejectedException extends RuntimeException {
+        private final long retryAfter;
+
+        public AdmissionRejectedException(long retryAfter) {
+            super("The request exceeds the quota of the client.");
+            this.retryAfter = retryAfter;
+        }
+
+        public long getRetryAfter() {
+            return retryAfter;
+        }
+    }
+
+    private static class TokenBucket {
+        private final int capacity;
+        private final int refillPerSecond;
+        private double tokens;
+        private long lastRefill;
+
+        TokenBucket(int capacity, int refillPerSecond) {
+            this.capacity = capacity;
+            this.refillPerSecond = refillPerSecond;
+            this.tokens = capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        // Returns 0 when the tokens are taken, otherwise the milliseconds to wait until there are enough tokens.
+        // A cost larger than the capacity is taken from a full bucket, which then goes into debt.
+        synchronized long tryConsume(long cost) {
+            refill();
+            long required = Math.min(cost, capacity);
+            if (tokens >= required) {
+                tokens -= cost;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((required - tokens) * 1000 / refillPerSecond));
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) / 1e9 * refillPerSecond);
+            lastRefill = now;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package org.mskcc.cbio.oncokb.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.lang3.StringUtils;
+import org.mskcc.cbio.oncokb.service.AnnotationJobManager;
+import org.mskcc.cbio.oncokb.util.CircuitBreaker;
+import org.mskcc.cbio.oncokb.util.PropertiesUtils;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+import java.io.File;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The annotation and download endpoints are processed asynchronously so the servlet container threads are released
+ * while the response is computed. The endpoints are split into lanes (see ExecutionLane), each lane has its own
+ * pool and bounded queue so batches and downloads never consume the capacity reserved for the single queries.
+ * When the queue of a lane is full, the request is rejected with 503 instead of waiting.
+ * When it is enabled, the AdmissionControl checks that the client has not used up its quota before a request is
+ * queued, the request is rejected with 429 otherwise. A request which depends on an external service that is
+ * unavailable (see CircuitBreaker) is answered with 503 right away.
+ */
+@Configuration
+public class AsyncConfiguration extends WebMvcConfigurerAdapter {
+    // in seconds
+    private final int DEFAULT_TIMEOUT = 300;
+    private final int DEFAULT_RETRY_AFTER = 30;
+    // in estimated query costs, see AdmissionControl
+    private final int DEFAULT_ADMISSION_CAPACITY = 2000;
+    private final int DEFAULT_ADMISSION_REFILL_PER_SECOND = 200;
+    private final int DEFAULT_ADMISSION_MAX_CLIENTS = 10000;
+    private final int DEFAULT_ADMISSION_MAX_CLIENTS_PER_ADDRESS = 10;
+    private final String DEFAULT_JOB_DIRECTORY = "oncokb-annotation-jobs";
+    // in hours
+    private final int DEFAULT_JOB_RETENTION = 24;
+
+    @Bean(name = "interactiveTaskExecutor")
+    public ThreadPoolTaskExecutor interactiveTaskExecutor() {
+        return getTaskExecutor(ExecutionLane.INTERACTIVE);
+    }
+
+    @Bean(name = "genomicTaskExecutor")
+    public ThreadPoolTaskExecutor genomicTaskExecutor() {
+        return getTaskExecutor(ExecutionLane.GENOMIC);
+    }
+
+    @Bean(name = "batchTaskExecutor")
+    public ThreadPoolTaskExecutor batchTaskExecutor() {
+        return getTaskExecutor(ExecutionLane.BATCH);
+    }
+
+    @Bean(name = "exportTaskExecutor")
+    public ThreadPoolTaskExecutor exportTaskExecutor() {
+        return getTaskExecutor(ExecutionLane.EXPORT);
+    }
+
+    @Bean(name = "jobTaskExecutor")
+    public ThreadPoolTaskExecutor jobTaskExecutor() {
+        return getTaskExecutor(ExecutionLane.JOB);
+    }
+
+    @Bean
+    public ExecutionLanes executionLanes() {
+        Map<ExecutionLane, AsyncTaskExecutor> executors = new EnumMap<>(ExecutionLane.class);
+        executors.put(ExecutionLane.INTERACTIVE, interactiveTaskExecutor());
+        executors.put(ExecutionLane.GENOMIC, genomicTaskExecutor());
+        executors.put(ExecutionLane.BATCH, batchTaskExecutor());
+        executors.put(ExecutionLane.EXPORT, exportTaskExecutor());
+        executors.put(ExecutionLane.JOB, jobTaskExecutor());
+
+        Map<ExecutionLane, Long> timeouts = new EnumMap<>(ExecutionLane.class);
+        for (ExecutionLane lane : ExecutionLane.values()) {
+            timeouts.put(lane, getIntegerProperty(getLaneProperty(lane, "timeout"), getDefaultTimeout()) * 1000L);
+        }
+        return new ExecutionLanes(executors, timeouts);
+    }
+
+    @Bean
+    public AnnotationJobManager annotationJobManager(ObjectMapper objectMapper) {
+        String directory = PropertiesUtils.getProperties("annotation.job.directory");
+        return new AnnotationJobManager(
+            jobTaskExecutor(),
+            StringUtils.isEmpty(directory) ? new File(System.getProperty("java.io.tmpdir"), DEFAULT_JOB_DIRECTORY) : new File(directory.trim()),
+            getIntegerProperty("annotation.job.retention", DEFAULT_JOB_RETENTION) * 3600 * 1000L,
+            objectMapper
+        );
+    }
+
+    @Bean
+    public AdmissionControl admissionControl() {
+        String enabled = PropertiesUtils.getProperties("annotation.admission.enable");
+        return new AdmissionControl(
+            Boolean.parseBoolean(StringUtils.trimToEmpty(enabled)),
+            Boolean.parseBoolean(StringUtils.trimToEmpty(PropertiesUtils.getProperties("annotation.admission.legacyEndpoints"))),
+            Math.max(1, getIntegerProperty("annotation.admission.capacity", DEFAULT_ADMISSION_CAPACITY)),
+            Math.max(1, getIntegerProperty("annotation.admission.refillPerSecond", DEFAULT_ADMISSION_REFILL_PER_SECOND)),
+            Math.max(1, getIntegerProperty("annotation.admission.maxClients", DEFAULT_ADMISSION_MAX_CLIENTS)),
+            Math.max(0, getIntegerProperty("annotation.admission.maxClientsPerAddress", DEFAULT_ADMISSION_MAX_CLIENTS_PER_ADDRESS)),
+            getTrustedProxies(),
+            StringUtils.trimToNull(PropertiesUtils.getProperties("annotation.admission.userHeader"))
+        );
+    }
+
+    private Set<String> getTrustedProxies() {
+        Set<String> trustedProxies = new HashSet<>();
+        String value = PropertiesUtils.getProperties("annotation.admission.trustedProxies");
+        if (StringUtils.isNotEmpty(value)) {
+            for (String address : value.split(",")) {
+                if (StringUtils.isNotBlank(address)) {
+                    trustedProxies.add(address.trim());
+                }
+            }
+        }
+        return trustedProxies;
+    }
+
+    @Bean
+    public RequestRejectionHandler requestRejectionHandler() {
+        return new RequestRejectionHandler(getIntegerProperty("annotation.async.retryAfter", DEFAULT_RETRY_AFTER));
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(getDefaultTimeout() * 1000L);
+        configurer.setTaskExecutor(interactiveTaskExecutor());
+    }
+
+    private ThreadPoolTaskExecutor getTaskExecutor(ExecutionLane lane) {
+        int poolSize = getIntegerProperty(getLaneProperty(lane, "poolSize"), lane.getDefaultPoolSize());
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(lane.getKey() + "-");
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(getIntegerProperty(getLaneProperty(lane, "queueCapacity"), lane.getDefaultQueueCapacity()));
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
+    private int getDefaultTimeout() {
+        return getIntegerProperty("annotation.async.timeout", DEFAULT_TIMEOUT);
+    }
+
+    private String getLaneProperty(ExecutionLane lane, String name) {
+        return "annotation.async." + lane.getKey() + "." + name;
+    }
+
+    private int getIntegerProperty(String name, int defaultValue) {
+        String value = PropertiesUtils.getProperties(name);
+        if (StringUtils.isNotEmpty(value)) {
+            return Integer.parseInt(value.trim());
+        }
+        return defaultValue;
+    }
+
+    @ControllerAdvice
+    public static class RequestRejectionHandler {
+        private final int retryAfter;
+
+        public RequestRejectionHandler(int retryAfter) {
+            this.retryAfter = retryAfter;
+        }
+
+        @ExceptionHandler(TaskRejectedException.class)
+        public ResponseEntity<String> handleTaskRejected(TaskRejectedException exception) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set("Retry-After", String.valueOf(retryAfter));
+            return new ResponseEntity<>("The server is busy, please try again later.", headers, HttpStatus.SERVICE_UNAVAILABLE);
+        }
+
+        @ExceptionHandler(AdmissionControl.AdmissionRejectedException.class)
+        public ResponseEntity<String> handleAdmissionRejected(AdmissionControl.AdmissionRejectedException exception) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set("Retry-After", String.valueOf(exception.getRetryAfter()));
+            return new ResponseEntity<>(exception.getMessage(), headers, HttpStatus.TOO_MANY_REQUESTS);
+        }
+
+        @ExceptionHandler(CircuitBreaker.CallRejectedException.class)
+        public ResponseEntity<String> handleCallRejected(CircuitBreaker.CallRejectedException exception) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set("Retry-After", String.valueOf(exception.getRetryAfter()));
+            return new ResponseEntity<>(exception.getMessage(), headers, HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+}
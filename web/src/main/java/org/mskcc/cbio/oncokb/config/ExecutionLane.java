@@ -0,0 +1,42 @@
+package org.mskcc.cbio.oncokb.config;
+
+/**
+ * The lanes requests are executed in. Each lane has its own pool and queue so the expensive traffic
+ * cannot take the capacity of the latency sensitive one. The pool size and queue capacity of a lane
+ * can be configured with annotation.async.[key].poolSize and annotation.async.[key].queueCapacity,
+ * the timeout (in seconds) with annotation.async.[key].timeout.
+ */
+public enum ExecutionLane {
+    // Single annotation queries which can be answered with the local data
+    INTERACTIVE("interactive", 8, 1000),
+    // Single annotation queries which depend on Genome Nexus
+    GENOMIC("genomic", 16, 1000),
+    // Annotation queries submitted in batch
+    BATCH("batch", 4, 100),
+    // Download and export of the whole data set
+    EXPORT("export", 2, 20),
+    // Asynchronous annotation jobs, see AnnotationJobManager
+    JOB("job", 2, 100);
+
+    private String key;
+    private int defaultPoolSize;
+    private int defaultQueueCapacity;
+
+    ExecutionLane(String key, int defaultPoolSize, int defaultQueueCapacity) {
+        this.key = key;
+        this.defaultPoolSize = defaultPoolSize;
+        this.defaultQueueCapacity = defaultQueueCapacity;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public int getDefaultPoolSize() {
+        return defaultPoolSize;
+    }
+
+    public int getDefaultQueueCapacity() {
+        return defaultQueueCapacity;
+    }
+}
@@ -0,0 +1,34 @@
+package org.mskcc.cbio.oncokb.config;
+
+import org.mskcc.cbio.oncokb.util.RequestBudget;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Runs the request handling in the executor of its lane, see ExecutionLane and AsyncConfiguration.
+ */
+public class ExecutionLanes {
+    private final Map<ExecutionLane, AsyncTaskExecutor> executors;
+    private final Map<ExecutionLane, Long> timeouts;
+
+    public ExecutionLanes(Map<ExecutionLane, AsyncTaskExecutor> executors, Map<ExecutionLane, Long> timeouts) {
+        this.executors = executors;
+        this.timeouts = timeouts;
+    }
+
+    public AsyncTaskExecutor getExecutor(ExecutionLane lane) {
+        return executors.get(lane);
+    }
+
+    /**
+     * The request has the timeout of the lane as RequestBudget, from the time it is queued, so the calls to the
+     * external services are not started once the response cannot be sent anymore.
+     */
+    public <T> WebAsyncTask<T> submit(ExecutionLane lane, Callable<T> callable) {
+        long timeout = timeouts.get(lane);
+        return new WebAsyncTask<>(timeout, executors.get(lane), RequestBudget.withDeadline(System.currentTimeMillis() + timeout, callable));
+    }
+}
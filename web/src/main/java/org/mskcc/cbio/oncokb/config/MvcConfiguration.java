@@ -1,5 +1,7 @@
 package org.mskcc.cbio.oncokb.config;
 
+import com.fasterxml.classmate.TypeResolver;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.monitorjbl.json.JsonViewSupportFactoryBean;
 import org.apache.commons.lang3.StringUtils;
 import io.sentry.spring.SentryExceptionResolver;
@@ -10,6 +12,9 @@ import org.springframework.boot.web.servlet.ServletContextInitializer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.springframework.web.multipart.commons.CommonsMultipartResolver;
 import org.springframework.web.servlet.HandlerExceptionResolver;
 import org.springframework.web.servlet.ModelAndView;
@@ -20,6 +25,8 @@ import org.springframework.web.servlet.config.annotation.ViewControllerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
 import org.springframework.web.servlet.view.InternalResourceViewResolver;
 import springfox.documentation.builders.RequestHandlerSelectors;
+import springfox.documentation.schema.AlternateTypeRule;
+import springfox.documentation.schema.WildcardType;
 import springfox.documentation.service.ApiInfo;
 import springfox.documentation.service.Contact;
 import springfox.documentation.spi.DocumentationType;
@@ -38,9 +45,11 @@ import java.util.Optional;
 
 import static org.mskcc.cbio.oncokb.Constants.*;
 import static org.mskcc.cbio.oncokb.Constants.PUBLIC_API_VERSION;
+import static springfox.documentation.schema.AlternateTypeRules.newRule;
 
 @Configuration
 @ComponentScan(basePackages = {"org.mskcc.cbio.oncokb.api.pub.v1", "org.mskcc.cbio.oncokb.api.pvt", "org.mskcc.cbio.oncokb.controller", "org.mskcc.cbio.oncokb.cache", "org.mskcc.cbio.oncokb.bo"})
+@Import(AsyncConfiguration.class)
 @EnableWebMvc
 @EnableSwagger2
 public class MvcConfiguration extends WebMvcConfigurerAdapter {
@@ -91,9 +100,15 @@ public class MvcConfiguration extends WebMvcConfigurerAdapter {
         return multipartResolver;
     }
 
+    // The mapper of the JSON responses, the annotation jobs write their results with it as well
     @Bean
-    public JsonViewSupportFactoryBean views() {
-        return new JsonViewSupportFactoryBean();
+    public ObjectMapper objectMapper() {
+        return new ObjectMapper();
+    }
+
+    @Bean
+    public JsonViewSupportFactoryBean views(ObjectMapper objectMapper) {
+        return new JsonViewSupportFactoryBean(objectMapper);
     }
 
 
@@ -138,6 +153,15 @@ public class MvcConfiguration extends WebMvcConfigurerAdapter {
         }
     }
 
+    // The asynchronous endpoints should be documented with the type of the response body
+    private AlternateTypeRule getAsyncResponseTypeRule() {
+        TypeResolver typeResolver = new TypeResolver();
+        return newRule(
+            typeResolver.resolve(WebAsyncTask.class, typeResolver.resolve(ResponseEntity.class, WildcardType.class)),
+            typeResolver.resolve(WildcardType.class)
+        );
+    }
+
     private String getSwaggerDescription() {
         String swaggerDescription = PropertiesUtils.getProperties(SWAGGER_DESCRIPTION);
         return StringUtils.isEmpty(swaggerDescription) ? SWAGGER_DEFAULT_DESCRIPTION : swaggerDescription;
@@ -152,6 +176,7 @@ public class MvcConfiguration extends WebMvcConfigurerAdapter {
             .apis(RequestHandlerSelectors.withMethodAnnotation(PublicApi.class))
             .build()
             .apiInfo(getDefaultApiInfo("OncoKB APIs", getSwaggerDescription(), PUBLIC_API_VERSION))
+            .alternateTypeRules(getAsyncResponseTypeRule())
             .useDefaultResponseMessages(false);
         updateDocketHost(docket, servletContext, "/api/v1");
         return docket;
@@ -165,6 +190,7 @@ public class MvcConfiguration extends WebMvcConfigurerAdapter {
             .apis(RequestHandlerSelectors.withMethodAnnotation(PremiumPublicApi.class))
             .build()
             .apiInfo(getDefaultApiInfo("OncoKB Private APIs", "These endpoints are for private use only.", PUBLIC_API_VERSION))
+            .alternateTypeRules(getAsyncResponseTypeRule())
             .useDefaultResponseMessages(false);
         updateDocketHost(docket, servletContext, "/api/v1");
         return docket;
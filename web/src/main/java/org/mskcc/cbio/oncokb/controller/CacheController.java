@@ -6,9 +6,15 @@
 package org.mskcc.cbio.oncokb.controller;
 
 import org.apache.commons.collections.map.HashedMap;
+import org.mskcc.cbio.oncokb.cache.CustomRedisCacheManager;
+import org.mskcc.cbio.oncokb.cache.LocalCache;
+import org.mskcc.cbio.oncokb.cache.LocalCacheManager;
+import org.mskcc.cbio.oncokb.cache.TwoTierCache;
 import org.mskcc.cbio.oncokb.model.*;
 import org.mskcc.cbio.oncokb.util.*;
 import org.mskcc.cbio.oncokb.model.TumorType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
 import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -24,6 +30,9 @@ import java.util.*;
  */
 @Controller
 public class CacheController {
+    @Autowired(required = false)
+    CacheManager cacheManager;
+
     @RequestMapping(value = "/legacy-api/cache/getGeneCache", method = RequestMethod.GET, produces = "application/json")
     public
     @ResponseBody
@@ -57,6 +66,37 @@ public class CacheController {
         return result;
     }
 
+    @RequestMapping(value = "/legacy-api/cache/getCacheStats", method = RequestMethod.GET, produces = "application/json")
+    public
+    @ResponseBody
+    Map<String, Object> getCacheStats() {
+        Map<String, Object> result = new TreeMap<>();
+        if (cacheManager instanceof CustomRedisCacheManager) {
+            for (TwoTierCache cache : ((CustomRedisCacheManager) cacheManager).getTwoTierCaches()) {
+                Map<String, Object> stats = getLocalCacheStats(cache.getLocalCache());
+                stats.put("redisHits", cache.getRedisHitCount());
+                result.put(cache.getName(), stats);
+            }
+        } else if (cacheManager instanceof LocalCacheManager) {
+            for (LocalCache cache : ((LocalCacheManager) cacheManager).getLocalCaches()) {
+                result.put(cache.getName(), getLocalCacheStats(cache));
+            }
+        }
+        return result;
+    }
+
+    private Map<String, Object> getLocalCacheStats(LocalCache cache) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", cache.getSize());
+        stats.put("maxSize", cache.getMaxSize());
+        stats.put("ttlInMillis", cache.getTtlInMillis());
+        stats.put("hits", cache.getHitCount());
+        stats.put("misses", cache.getMissCount());
+        stats.put("evictions", cache.getEvictionCount());
+        stats.put("hitRatio", cache.getHitRatio());
+        return stats;
+    }
+
     @RequestMapping(value = "/legacy-api/cache", method = RequestMethod.POST, produces = "application/json")
     public
     @ResponseBody
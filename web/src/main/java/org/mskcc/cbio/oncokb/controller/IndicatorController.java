@@ -5,10 +5,14 @@
 package org.mskcc.cbio.oncokb.controller;
 
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.mskcc.cbio.oncokb.cache.CacheFetcher;
+import org.mskcc.cbio.oncokb.config.AdmissionControl;
 import org.mskcc.cbio.oncokb.model.*;
 import org.mskcc.cbio.oncokb.service.JsonResultFactory;
-import org.mskcc.cbio.oncokb.util.IndicatorUtils;
+import org.mskcc.cbio.oncokb.util.EvidenceTypeUtils;
 import org.mskcc.cbio.oncokb.util.LevelUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
@@ -26,6 +30,12 @@ import static org.mskcc.cbio.oncokb.util.MainUtils.stringToEvidenceTypes;
 @Controller
 @RequestMapping(value = "/legacy-api/indicator.json")
 public class IndicatorController {
+    @Autowired
+    CacheFetcher cacheFetcher;
+
+    @Autowired
+    AdmissionControl admissionControl;
+
     @RequestMapping(method = RequestMethod.GET)
     public
     @ResponseBody
@@ -47,9 +57,10 @@ public class IndicatorController {
         @RequestParam(value = "fields", required = false) String fields,
         @RequestParam(value = "hgvs", required = false) String hgvs
     ) {
+        admissionControl.admitLegacy(StringUtils.isEmpty(hgvs) ? AdmissionControl.PROTEIN_CHANGE_QUERY_COST : AdmissionControl.GENOMIC_QUERY_COST, 1);
         Query query = new Query(id, referenceGenome, entrezGeneId, hugoSymbol, alteration, alterationType, svType, tumorType, consequence, proteinStart, proteinEnd, hgvs);
         Set<LevelOfEvidence> levelOfEvidences = levels == null ? null : LevelUtils.parseStringLevelOfEvidences(levels);
-        IndicatorQueryResp resp = IndicatorUtils.processQuery(query, levelOfEvidences, highestLevelOnly, null);
+        IndicatorQueryResp resp = cacheFetcher.processQuery(query, levelOfEvidences, highestLevelOnly, EvidenceTypeUtils.getEvidenceTypesByResponseFields(fields));
 
         return JsonResultFactory.getIndicatorQueryResp(resp, fields);
     }
@@ -68,10 +79,12 @@ public class IndicatorController {
             return result;
         }
 
+        admissionControl.admitLegacy(AdmissionControl.PROTEIN_CHANGE_QUERY_COST, body.getQueries().size());
+        Set<EvidenceType> evidenceTypes = EvidenceTypeUtils.getEvidenceTypesForResponseFields(new HashSet<>(stringToEvidenceTypes(body.getEvidenceTypes(), ",")), fields);
         for (Query query : body.getQueries()) {
-            result.add(IndicatorUtils.processQuery(query,
+            result.add(cacheFetcher.processQuery(query,
                 body.getLevels() == null ? null : body.getLevels(),
-                body.getHighestLevelOnly(),  new HashSet<>(stringToEvidenceTypes(body.getEvidenceTypes(), ","))));
+                body.getHighestLevelOnly(), evidenceTypes));
         }
 
         return JsonResultFactory.getIndicatorQueryResp(result, fields);
@@ -0,0 +1,407 @@
+package org.mskcc.cbio.oncokb.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.monitorjbl.json.JsonViewModule;
+import org.mskcc.cbio.oncokb.apiModels.annotation.AnnotationJob;
+import org.mskcc.cbio.oncokb.apiModels.annotation.AnnotationJobStatus;
+import org.mskcc.cbio.oncokb.model.IndicatorQueryResp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Runs the annotation of large batches in the background. The queries of a job are annotated in batches which go
+ * through the same path as the POST annotation endpoints, the results are written one by one to a gzipped JSON array,
+ * so the memory used by a job does not grow with its size.
+ * The state of every job is written next to its result, so a job can be polled and downloaded from any node sharing
+ * the directory, and it is found again after a restart. The node running a job rewrites its state every minute,
+ * a job which is not finished and has not been written for several minutes was interrupted, it is reported as failed.
+ * Jobs are kept for the retention period after they finish.
+ * A job belongs to the client which submitted it, the other clients cannot find it.
+ */
+public class AnnotationJobManager {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AnnotationJobManager.class);
+
+    private static final String FILE_PREFIX = "annotation-job-";
+    private static final String RESULT_EXTENSION = ".json.gz";
+    private static final String METADATA_EXTENSION = ".meta.json";
+    private static final String PARTIAL_EXTENSION = ".part";
+    private static final int BATCH_SIZE = 100;
+    // in milliseconds
+    private static final long HEARTBEAT_INTERVAL = 60 * 1000L;
+    private static final long INTERRUPTED_AFTER = 5 * HEARTBEAT_INTERVAL;
+
+    private final AsyncTaskExecutor executor;
+    private final File directory;
+    private final long retentionInMillis;
+    private final ObjectMapper objectMapper;
+    // The jobs queued or running on this node
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService heartbeat;
+
+    public interface QueryAnnotator<T> {
+        IndicatorQueryResp annotate(T query) throws Exception;
+    }
+
+    // Annotates a batch of the queries of a job, the annotations are in the order of the queries
+    public interface BatchAnnotator<T> {
+        List<IndicatorQueryResp> annotate(List<T> queries) throws Exception;
+    }
+
+    /**
+     * @param directory    the directory of the results and states of the jobs, shared by all the nodes
+     * @param objectMapper the mapper of the responses, the results are written the same way
+     */
+    public AnnotationJobManager(AsyncTaskExecutor executor, File directory, long retentionInMillis, ObjectMapper objectMapper) {
+        this.executor = executor;
+        this.directory = directory;
+        this.retentionInMillis = retentionInMillis;
+        // The fields of the results are filtered like the responses, see JsonResultFactory
+        this.objectMapper = objectMapper.copy().registerModule(new JsonViewModule());
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IllegalStateException("Cannot create the annotation job directory " + directory.getAbsolutePath());
+        }
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "annotation-job-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleWithFixedDelay(this::beat, 0, HEARTBEAT_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    // Called by Spring when the context is closed, the jobs running are reported as interrupted by the other nodes
+    public void shutdown() {
+        heartbeat.shutdownNow();
+    }
+
+    /**
+     * Annotate the queries one by one.
+     */
+    public static <T> BatchAnnotator<T> eachQuery(QueryAnnotator<T> annotator) {
+        return queries -> {
+            List<IndicatorQueryResp> annotations = new ArrayList<>();
+            for (T query : queries) {
+                annotations.add(annotator.annotate(query));
+            }
+            return annotations;
+        };
+    }
+
+    /**
+     * @param owner the client submitting the job, see AdmissionControl.getClient
+     */
+    public <T> AnnotationJob submit(String owner, List<T> queries, String fields, BatchAnnotator<T> annotator) {
+        Job job = new Job(UUID.randomUUID().toString(), owner, queries.size());
+        writeState(job);
+        jobs.put(job.id, job);
+        try {
+            job.future = executor.submit(() -> run(job, queries, fields, annotator));
+        } catch (RuntimeException e) {
+            jobs.remove(job.id);
+            getStateFile(job.id).delete();
+            throw e;
+        }
+        return job.toAnnotationJob();
+    }
+
+    public AnnotationJob getJob(String owner, String id) {
+        JobState state = getOwnedState(owner, id);
+        return state == null ? null : state.job;
+    }
+
+    // Returns the result of the job when it is completed, null otherwise
+    public File getResult(String owner, String id) {
+        JobState state = getOwnedState(owner, id);
+        if (state == null || state.job.getStatus() != AnnotationJobStatus.COMPLETED) {
+            return null;
+        }
+        File result = getResultFile(id);
+        return result.exists() ? result : null;
+    }
+
+    // Cancels the job when it is not finished yet, and removes it with its result. The node running the job stops it
+    // when it notices that its state is removed.
+    public boolean removeJob(String owner, String id) {
+        if (getOwnedState(owner, id) == null) {
+            return false;
+        }
+        Job job = jobs.remove(id);
+        if (job != null) {
+            cancel(job);
+        }
+        deleteFiles(id);
+        return true;
+    }
+
+    private JobState getOwnedState(String owner, String id) {
+        if (!isJobId(id)) {
+            return null;
+        }
+        Job job = jobs.get(id);
+        JobState state = job != null ? job.toState() : readState(id);
+        if (state == null || !Objects.equals(state.owner, owner)) {
+            return null;
+        }
+        if (isInterrupted(state)) {
+            state = interrupt(state);
+        }
+        return state;
+    }
+
+    private <T> void run(Job job, List<T> queries, String fields, BatchAnnotator<T> annotator) {
+        if (job.cancelled) {
+            return;
+        }
+        job.status = AnnotationJobStatus.RUNNING;
+        job.startedAt = new Date();
+        writeState(job);
+        File partialResult = getPartialFile(getResultFile(job.id));
+        try {
+            try (OutputStream outputStream = new GZIPOutputStream(new FileOutputStream(partialResult));
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                for (int i = 0; i < queries.size() && !job.cancelled; i += BATCH_SIZE) {
+                    List<T> batch = queries.subList(i, Math.min(i + BATCH_SIZE, queries.size()));
+                    for (IndicatorQueryResp resp : annotator.annotate(batch)) {
+                        if (fields != null && !fields.isEmpty()) {
+                            objectMapper.writeValue(generator, JsonResultFactory.getIndicatorQueryRespView(resp, fields));
+                        } else {
+                            objectMapper.writeValue(generator, resp);
+                        }
+                    }
+                    job.processed += batch.size();
+                }
+                generator.writeEndArray();
+            }
+            if (job.cancelled) {
+                partialResult.delete();
+                job.status = AnnotationJobStatus.CANCELLED;
+            } else if (partialResult.renameTo(getResultFile(job.id))) {
+                job.status = AnnotationJobStatus.COMPLETED;
+            } else {
+                throw new IOException("Cannot move the result of the job " + job.id);
+            }
+        } catch (Exception e) {
+            partialResult.delete();
+            job.status = AnnotationJobStatus.FAILED;
+            job.message = e.getMessage();
+        }
+        job.finishedAt = new Date();
+        writeState(job);
+        jobs.remove(job.id, job);
+        if (job.cancelled) {
+            // Removed while it was running
+            deleteFiles(job.id);
+        }
+    }
+
+    private void cancel(Job job) {
+        synchronized (job) {
+            job.cancelled = true;
+        }
+        if (job.future != null) {
+            job.future.cancel(false);
+        }
+    }
+
+    // Rewrites the state of the jobs of this node, stops the ones removed by another node and removes the expired ones
+    private void beat() {
+        try {
+            for (Job job : new ArrayList<>(jobs.values())) {
+                writeState(job);
+                if (job.cancelled) {
+                    jobs.remove(job.id, job);
+                    cancel(job);
+                }
+            }
+            removeExpiredJobs();
+        } catch (Exception e) {
+            LOGGER.warn("Cannot update the annotation jobs", e);
+        }
+    }
+
+    private void removeExpiredJobs() {
+        long now = System.currentTimeMillis();
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(FILE_PREFIX));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(METADATA_EXTENSION)) {
+                String id = name.substring(FILE_PREFIX.length(), name.length() - METADATA_EXTENSION.length());
+                JobState state = readState(id);
+                if (state == null) {
+                    continue;
+                }
+                if (isInterrupted(state)) {
+                    state = interrupt(state);
+                }
+                Date finishedAt = state.job.getFinishedAt();
+                if (finishedAt != null && now - finishedAt.getTime() > retentionInMillis) {
+                    deleteFiles(id);
+                }
+            } else if (now - file.lastModified() > retentionInMillis + INTERRUPTED_AFTER && !hasState(name)) {
+                // Left by a job removed while it was written, or by a state which could not be written
+                file.delete();
+            }
+        }
+    }
+
+    private boolean hasState(String name) {
+        int end = name.indexOf('.');
+        return end > 0 && getStateFile(name.substring(FILE_PREFIX.length(), end)).exists();
+    }
+
+    private boolean isInterrupted(JobState state) {
+        AnnotationJobStatus status = state.job.getStatus();
+        return (status == AnnotationJobStatus.QUEUED || status == AnnotationJobStatus.RUNNING)
+            && !jobs.containsKey(state.job.getId())
+            && System.currentTimeMillis() - state.updatedAt > INTERRUPTED_AFTER;
+    }
+
+    // The node running the job stopped, the job is failed from the time it was last written
+    private JobState interrupt(JobState state) {
+        state.job.setStatus(AnnotationJobStatus.FAILED);
+        state.job.setFinishedAt(new Date(state.updatedAt));
+        state.job.setMessage("The job was interrupted, please submit it again");
+        writeState(state);
+        return state;
+    }
+
+    // The states are written one at a time so an older one never replaces the last one. A job whose state was
+    // removed, by this node or another one, is cancelled instead.
+    private void writeState(Job job) {
+        synchronized (job) {
+            if (job.written && !getStateFile(job.id).exists()) {
+                job.cancelled = true;
+            }
+            if (!job.cancelled) {
+                writeState(job.toState());
+                job.written = true;
+            }
+        }
+    }
+
+    private void writeState(JobState state) {
+        File file = getStateFile(state.job.getId());
+        File partialFile = getPartialFile(file);
+        try {
+            objectMapper.writeValue(partialFile, state);
+            Files.move(partialFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            partialFile.delete();
+            LOGGER.warn("Cannot write the state of the annotation job " + state.job.getId(), e);
+        }
+    }
+
+    private JobState readState(String id) {
+        File file = getStateFile(id);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            JobState state = objectMapper.readValue(file, JobState.class);
+            return state.job == null ? null : state;
+        } catch (IOException e) {
+            // Removed while it was read, or written by another version
+            return null;
+        }
+    }
+
+    private void deleteFiles(String id) {
+        getStateFile(id).delete();
+        getResultFile(id).delete();
+        getPartialFile(getResultFile(id)).delete();
+    }
+
+    // The ids are part of the file names, anything else than the ids generated by submit is not found
+    private static boolean isJobId(String id) {
+        if (id == null) {
+            return false;
+        }
+        try {
+            return UUID.fromString(id).toString().equals(id);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private File getResultFile(String id) {
+        return new File(directory, FILE_PREFIX + id + RESULT_EXTENSION);
+    }
+
+    private File getStateFile(String id) {
+        return new File(directory, FILE_PREFIX + id + METADATA_EXTENSION);
+    }
+
+    private static File getPartialFile(File file) {
+        return new File(file.getParentFile(), file.getName() + PARTIAL_EXTENSION);
+    }
+
+    // The state of a job written next to its result
+    public static class JobState {
+        public String owner;
+        public AnnotationJob job;
+        // the last time the state was written by the node running the job, in milliseconds
+        public long updatedAt;
+    }
+
+    private static class Job {
+        private final String id;
+        private final String owner;
+        private final int numberOfQueries;
+        private final Date submittedAt = new Date();
+        private volatile AnnotationJobStatus status = AnnotationJobStatus.QUEUED;
+        private volatile int processed = 0;
+        private volatile Date startedAt;
+        private volatile Date finishedAt;
+        private volatile String message;
+        private volatile boolean cancelled = false;
+        private volatile Future<?> future;
+        // guarded by the job
+        private boolean written = false;
+
+        Job(String id, String owner, int numberOfQueries) {
+            this.id = id;
+            this.owner = owner;
+            this.numberOfQueries = numberOfQueries;
+        }
+
+        AnnotationJob toAnnotationJob() {
+            AnnotationJob annotationJob = new AnnotationJob();
+            annotationJob.setId(id);
+            annotationJob.setStatus(status);
+            annotationJob.setNumberOfQueries(numberOfQueries);
+            annotationJob.setNumberOfProcessedQueries(processed);
+            annotationJob.setSubmittedAt(submittedAt);
+            annotationJob.setStartedAt(startedAt);
+            annotationJob.setFinishedAt(finishedAt);
+            annotationJob.setMessage(message);
+            return annotationJob;
+        }
+
+        JobState toState() {
+            JobState state = new JobState();
+            state.owner = owner;
+            state.job = toAnnotationJob();
+            state.updatedAt = System.currentTimeMillis();
+            return state;
+        }
+    }
+}
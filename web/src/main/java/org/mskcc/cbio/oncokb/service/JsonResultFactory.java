@@ -16,21 +16,7 @@ public class JsonResultFactory {
     public static IndicatorQueryResp getIndicatorQueryResp(IndicatorQueryResp resp, String fields) {
         if (fields != null && !fields.isEmpty()) {
             JsonResult json = JsonResult.instance();
-            return json.use(JsonView.with(resp)
-                .onClass(IndicatorQueryResp.class, Match.match()
-                    .exclude("*")
-                    .include(fields.split("\\s*,\\s*")))
-                .onClass(LevelOfEvidence.class, Match.match()
-                    .include("*"))
-                .onClass(IndicatorQueryTreatment.class, Match.match()
-                    .include("*"))
-                .onClass(Drug.class, Match.match()
-                    .include("*"))
-                .onClass(ArticleAbstract.class, Match.match()
-                    .include("*"))
-                .onClass(Query.class, Match.match()
-                    .include("*")))
-                .returnValue();
+            return json.use(getIndicatorQueryRespView(resp, fields)).returnValue();
         } else {
             return resp;
         }
@@ -39,26 +25,30 @@ public class JsonResultFactory {
     public static List<IndicatorQueryResp> getIndicatorQueryResp(List<IndicatorQueryResp> resp, String fields) {
         if (fields != null && !fields.isEmpty()) {
             JsonResult json = JsonResult.instance();
-            return json.use(JsonView.with(resp)
-                .onClass(IndicatorQueryResp.class, Match.match()
-                    .exclude("*")
-                    .include(fields.split("\\s*,\\s*")))
-                .onClass(LevelOfEvidence.class, Match.match()
-                    .include("*"))
-                .onClass(IndicatorQueryTreatment.class, Match.match()
-                    .include("*"))
-                .onClass(Drug.class, Match.match()
-                    .include("*"))
-                .onClass(ArticleAbstract.class, Match.match()
-                    .include("*"))
-                .onClass(Query.class, Match.match()
-                    .include("*")))
-                .returnValue();
+            return json.use(getIndicatorQueryRespView(resp, fields)).returnValue();
         } else {
             return resp;
         }
     }
 
+    // The view can also be serialized outside of a request by an ObjectMapper with the JsonViewModule registered
+    public static <T> JsonView<T> getIndicatorQueryRespView(T resp, String fields) {
+        return JsonView.with(resp)
+            .onClass(IndicatorQueryResp.class, Match.match()
+                .exclude("*")
+                .include(fields.split("\\s*,\\s*")))
+            .onClass(LevelOfEvidence.class, Match.match()
+                .include("*"))
+            .onClass(IndicatorQueryTreatment.class, Match.match()
+                .include("*"))
+            .onClass(Drug.class, Match.match()
+                .include("*"))
+            .onClass(ArticleAbstract.class, Match.match()
+                .include("*"))
+            .onClass(Query.class, Match.match()
+                .include("*"));
+    }
+
     public static Gene getGene(Gene gene, String fields) {
         if (fields != null && !fields.isEmpty()) {
             JsonResult json = JsonResult.instance();
@@ -0,0 +1,106 @@
+package org.mskcc.cbio.oncokb.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import junit.framework.TestCase;
+import org.mskcc.cbio.oncokb.api.pub.v1.AnnotationsApiController;
+import org.mskcc.cbio.oncokb.apiModels.annotation.AnnotateMutationByProteinChangeQuery;
+import org.mskcc.cbio.oncokb.apiModels.annotation.QueryGene;
+import org.mskcc.cbio.oncokb.cache.AnnotationCube;
+import org.mskcc.cbio.oncokb.cache.CacheFetcher;
+import org.mskcc.cbio.oncokb.cache.IndicatorQueryCoreFetcher;
+import org.mskcc.cbio.oncokb.cache.QueryReplayLog;
+import org.mskcc.cbio.oncokb.config.AdmissionControl;
+import org.mskcc.cbio.oncokb.config.ExecutionLane;
+import org.mskcc.cbio.oncokb.config.ExecutionLanes;
+import org.mskcc.cbio.oncokb.model.*;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.util.*;
+
+import static org.mskcc.cbio.oncokb.Constants.DEFAULT_REFERENCE_GENOME;
+
+/**
+ * The legacy indicator.json endpoint against the v1 annotation endpoint, on the same CacheFetcher.
+ */
+public class IndicatorControllerTest extends TestCase {
+    private static final String[][] QUERIES = {
+        {"BRAF", "V600E", "Melanoma"},
+        {"KRAS", "Q61K", "Colorectal Cancer"},
+        {"ALK", "I1171N", "Lung Adenocarcinoma"},
+        {"TP53", "R248Q", null},
+        {"PDGFRA", "D842Y", "Gastrointestinal Stromal Tumor"},
+    };
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private IndicatorController indicatorController;
+    private AnnotationsApiController annotationsApiController;
+
+    @Override
+    protected void setUp() throws Exception {
+        CacheFetcher cacheFetcher = new CacheFetcher();
+        ReflectionTestUtils.setField(cacheFetcher, "indicatorQueryCoreFetcher", new IndicatorQueryCoreFetcher());
+        ReflectionTestUtils.setField(cacheFetcher, "annotationCube", new AnnotationCube());
+        ReflectionTestUtils.setField(cacheFetcher, "queryReplayLog", new QueryReplayLog());
+
+        // The admission is enabled for the v1 endpoints only, the default
+        AdmissionControl admissionControl = new AdmissionControl(true, false, 1, 1, 10, 10, Collections.emptySet(), null);
+
+        indicatorController = new IndicatorController();
+        ReflectionTestUtils.setField(indicatorController, "cacheFetcher", cacheFetcher);
+        ReflectionTestUtils.setField(indicatorController, "admissionControl", admissionControl);
+
+        Map<ExecutionLane, AsyncTaskExecutor> executors = new EnumMap<>(ExecutionLane.class);
+        Map<ExecutionLane, Long> timeouts = new EnumMap<>(ExecutionLane.class);
+        for (ExecutionLane lane : ExecutionLane.values()) {
+            timeouts.put(lane, 60000L);
+        }
+        annotationsApiController = new AnnotationsApiController();
+        ReflectionTestUtils.setField(annotationsApiController, "cacheFetcher", cacheFetcher);
+        ReflectionTestUtils.setField(annotationsApiController, "executionLanes", new ExecutionLanes(executors, timeouts));
+        ReflectionTestUtils.setField(annotationsApiController, "admissionControl", new AdmissionControl(false, false, 1, 1, 10, 10, Collections.emptySet(), null));
+    }
+
+    public void testLegacyPostMatchesTheAnnotationEndpoint() throws Exception {
+        List<Query> legacyQueries = new ArrayList<>();
+        List<AnnotateMutationByProteinChangeQuery> queries = new ArrayList<>();
+        for (int i = 0; i < QUERIES.length; i++) {
+            String id = String.valueOf(i);
+            legacyQueries.add(new Query(id, DEFAULT_REFERENCE_GENOME, null, QUERIES[i][0], QUERIES[i][1], null, null, QUERIES[i][2], null, null, null, null));
+
+            AnnotateMutationByProteinChangeQuery query = new AnnotateMutationByProteinChangeQuery();
+            query.setId(id);
+            query.setReferenceGenome(DEFAULT_REFERENCE_GENOME);
+            query.setGene(new QueryGene(null, QUERIES[i][0]));
+            query.setAlteration(QUERIES[i][1]);
+            query.setTumorType(QUERIES[i][2]);
+            queries.add(query);
+        }
+        EvidenceQueries body = new EvidenceQueries();
+        body.setQueries(legacyQueries);
+
+        // More queries than the bucket holds, the legacy endpoint is not admitted by default
+        List<IndicatorQueryResp> legacy = indicatorController.getResult(body, null);
+
+        WebAsyncTask<ResponseEntity<List<IndicatorQueryResp>>> task = annotationsApiController.annotateMutationsByProteinChangePost(queries, null);
+        List<IndicatorQueryResp> annotations = ((ResponseEntity<List<IndicatorQueryResp>>) task.getCallable().call()).getBody();
+
+        assertEquals(QUERIES.length, legacy.size());
+        assertEquals(QUERIES.length, annotations.size());
+        for (int i = 0; i < QUERIES.length; i++) {
+            assertEquals(String.valueOf(i), legacy.get(i).getQuery().getId());
+            assertEquals(objectMapper.writeValueAsString(annotations.get(i)), objectMapper.writeValueAsString(legacy.get(i)));
+        }
+    }
+
+    public void testLegacyGetMatchesThePost() throws Exception {
+        EvidenceQueries body = new EvidenceQueries();
+        body.setQueries(Collections.singletonList(new Query(null, DEFAULT_REFERENCE_GENOME, null, "BRAF", "V600E", null, null, "Melanoma", null, null, null, null)));
+        IndicatorQueryResp resp = indicatorController.getEvidence(null, null, DEFAULT_REFERENCE_GENOME, null, "BRAF", "V600E",
+            null, null, "Melanoma", null, null, null, null, null, null, null);
+
+        assertEquals(objectMapper.writeValueAsString(indicatorController.getResult(body, null).get(0)), objectMapper.writeValueAsString(resp));
+    }
+}